@@ -0,0 +1,53 @@
+package com.example.inventory.config;
+
+import com.example.inventory.model.Order;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+// Orders and order items used to take AUTO_INCREMENT ids. Before the first block is handed out,
+// each generator row is moved past the highest id already in its table, so blocks never collide.
+@Component
+public class OrderIdGeneratorSeeder {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderIdGeneratorSeeder.class);
+
+    // Generator row name to the table whose ids it issues
+    private static final Map<String, String> GENERATORS = Map.of(
+            "orders", "orders",
+            "order_items", "order_items");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Taking the EntityManagerFactory makes this run after the schema is in place
+    @Autowired
+    public OrderIdGeneratorSeeder(EntityManagerFactory entityManagerFactory, JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    void seed() {
+        GENERATORS.forEach((name, table) -> {
+            long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+            // The pooled optimizer hands out (next_val - block size, next_val], so this starts at maxId + 1
+            long floor = maxId + Order.ID_BLOCK_SIZE;
+            Long current = jdbcTemplate.query("SELECT next_val FROM " + Order.ID_TABLE + " WHERE name = ?",
+                    rs -> rs.next() ? rs.getLong(1) : null, name);
+            if (current == null) {
+                jdbcTemplate.update("INSERT INTO " + Order.ID_TABLE + " (name, next_val) VALUES (?, ?)", name, floor);
+            } else if (current < floor) {
+                jdbcTemplate.update("UPDATE " + Order.ID_TABLE + " SET next_val = ? WHERE name = ? AND next_val < ?",
+                        floor, name, floor);
+            } else {
+                return;
+            }
+            log.info("Id generator {} moved past existing {} ids (max {})", name, table, maxId);
+        });
+    }
+}
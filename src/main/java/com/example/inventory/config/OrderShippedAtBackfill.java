@@ -0,0 +1,34 @@
+package com.example.inventory.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+// Orders shipped before shipped_at existed get their last update as the shipping time, so a SHIPPED
+// order that is delayed later can still be delivered. DELAYED orders are left unset: they ship first
+@Component
+public class OrderShippedAtBackfill {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderShippedAtBackfill.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Taking the EntityManagerFactory makes this run after the schema is in place
+    @Autowired
+    public OrderShippedAtBackfill(EntityManagerFactory entityManagerFactory, JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    void backfill() {
+        int updated = jdbcTemplate.update("UPDATE orders SET shipped_at = COALESCE(updated_at, order_date) " +
+                "WHERE status = 'SHIPPED' AND shipped_at IS NULL");
+        if (updated > 0) {
+            log.info("Set shipped_at on {} shipped order(s)", updated);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.inventory.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Enables @Scheduled background jobs (stock write-behind flushing and friends)
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
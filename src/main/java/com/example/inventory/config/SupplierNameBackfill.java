@@ -0,0 +1,37 @@
+package com.example.inventory.config;
+
+import com.example.inventory.model.Supplier;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// Suppliers saved before name_normalized existed get it filled in once, so order search by supplier finds them
+@Component
+public class SupplierNameBackfill {
+
+    private static final Logger log = LoggerFactory.getLogger(SupplierNameBackfill.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Taking the EntityManagerFactory makes this run after the schema is in place
+    @Autowired
+    public SupplierNameBackfill(EntityManagerFactory entityManagerFactory, JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    void backfill() {
+        List<Object[]> rows = jdbcTemplate.query("SELECT id, name FROM suppliers WHERE name_normalized IS NULL",
+                (rs, rowNum) -> new Object[]{Supplier.normalizeName(rs.getString("name")), rs.getLong("id")});
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE suppliers SET name_normalized = ? WHERE id = ?", rows);
+            log.info("Normalized names of {} supplier(s)", rows.size());
+        }
+    }
+}
@@ -45,14 +45,14 @@ public class DashboardController {
         
         // Basic counts hai yeh
         summary.put("totalProducts", productService.findAll().size());
-        summary.put("totalOrders", orderService.findAll().size());
+        summary.put("totalOrders", orderService.countOrders());
         summary.put("totalSuppliers", supplierService.findAll().size());
         summary.put("totalWarehouses", warehouseService.findAll().size());
         
      
-        summary.put("lowStockProductsCount", productService.getLowStockProducts().size());
-        summary.put("pendingOrdersCount", orderService.getPendingOrders().size());
-        summary.put("delayedOrdersCount", orderService.getDelayedOrders().size());
+        summary.put("lowStockProductsCount", productService.countLowStockProducts());
+        summary.put("pendingOrdersCount", orderService.countPendingOrders());
+        summary.put("delayedOrdersCount", orderService.countDelayedOrders());
         summary.put("activeSuppliers", supplierService.getActiveSuppliers().size());
        
         summary.put("totalInventoryValue", productService.calculateTotalInventoryValue());
@@ -120,14 +120,14 @@ public class DashboardController {
         
         // Inventory stats
         stats.put("totalInventoryValue", productService.calculateTotalInventoryValue());
-        stats.put("lowStockProducts", productService.getLowStockProducts().size());
+        stats.put("lowStockProducts", productService.countLowStockProducts());
         stats.put("totalProducts", productService.findAll().size());
         stats.put("categories", productService.getAllCategories().size());
         
         // Order stats
-        stats.put("pendingOrders", orderService.getPendingOrders().size());
-        stats.put("delayedOrders", orderService.getDelayedOrders().size());
-        stats.put("totalOrders", orderService.findAll().size());
+        stats.put("pendingOrders", orderService.countPendingOrders());
+        stats.put("delayedOrders", orderService.countDelayedOrders());
+        stats.put("totalOrders", orderService.countOrders());
         
         // Supplier stats
         stats.put("activeSuppliers", supplierService.getActiveSuppliers().size());
@@ -135,7 +135,7 @@ public class DashboardController {
         
         // Warehouse stats
         stats.put("totalWarehouses", warehouseService.findAll().size());
-        stats.put("warehousesWithLowStock", warehouseService.getWarehousesWithLowStock().size());
+        stats.put("warehousesWithLowStock", warehouseService.countWarehousesWithLowStock());
         
         return ResponseEntity.ok(stats);
     }
@@ -0,0 +1,42 @@
+package com.example.inventory.controller;
+
+import com.example.inventory.service.DataExportService;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Streamed file downloads for the export endpoints; with gzip the file itself is a .gz
+final class ExportResponses {
+
+    interface Export {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    private ExportResponses() {
+    }
+
+    static ResponseEntity<StreamingResponseBody> download(String name, DataExportService.Format format,
+                                                          boolean gzip, Export export) {
+        String filename = name + "." + format.getExtension() + (gzip ? ".gz" : "");
+        StreamingResponseBody body = out -> {
+            if (!gzip) {
+                export.writeTo(out);
+                return;
+            }
+            try (GZIPOutputStream compressed = new GZIPOutputStream(out, 64 * 1024)) {
+                export.writeTo(compressed);
+            }
+        };
+        MediaType contentType = MediaType.parseMediaType(gzip ? "application/gzip" : format.getMediaType());
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString())
+                .body(body);
+    }
+}
@@ -1,8 +1,14 @@
 package com.example.inventory.controller;
 
+import com.example.inventory.dto.OrderTransitionTicket;
+import com.example.inventory.dto.OrderTransitionTicket.Transition;
+import com.example.inventory.dto.RollupDrift;
 import com.example.inventory.model.Order;
+import com.example.inventory.model.OrderDailyRollup;
 import com.example.inventory.model.OrderItem;
+import com.example.inventory.service.DataExportService;
 import com.example.inventory.service.OrderService;
+import com.example.inventory.service.OrderWorkflowService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
@@ -11,6 +17,8 @@ import org.springframework.web.bind.annotation.*;
 
 import jakarta.validation.Valid;
 import java.math.BigDecimal;
+import java.net.URI;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
@@ -22,19 +30,65 @@ import java.util.Optional;
 public class OrderController {
     
     private final OrderService orderService;
+    private final DataExportService dataExportService;
+    private final OrderWorkflowService orderWorkflowService;
     
     @Autowired
-    public OrderController(OrderService orderService) {
+    public OrderController(OrderService orderService,
+                           DataExportService dataExportService,
+                           OrderWorkflowService orderWorkflowService) {
         this.orderService = orderService;
+        this.dataExportService = dataExportService;
+        this.orderWorkflowService = orderWorkflowService;
     }
     
-    // GET /api/orders - Get all orders
+    // GET /api/orders - Get all orders (pass limit and/or cursor for keyset pages, newest first;
+    // fields=id,orderNumber,status,... returns flat rows with just those fields)
     @GetMapping
-    public ResponseEntity<List<Order>> getAllOrders() {
+    public ResponseEntity<?> getAllOrders(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String fields) {
+        if (fields != null) {
+            return ResponseEntity.ok(limit != null || cursor != null
+                    ? orderService.findFieldsPage(fields, null, null, cursor, limit)
+                    : orderService.findFields(fields, null, null));
+        }
+        if (limit != null || cursor != null) {
+            return ResponseEntity.ok(orderService.findPage(cursor, limit));
+        }
         List<Order> orders = orderService.findAll();
         return ResponseEntity.ok(orders);
     }
     
+    // GET /api/orders/export - Stream every order as CSV or NDJSON, optionally gzipped
+    @GetMapping("/export")
+    public ResponseEntity<?> exportOrders(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        try {
+            DataExportService.Format resolved = DataExportService.Format.of(format);
+            return ExportResponses.download("orders", resolved, gzip,
+                    out -> dataExportService.exportOrders(out, resolved));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    // GET /api/orders/items/export - Stream every order line
+    @GetMapping("/items/export")
+    public ResponseEntity<?> exportOrderItems(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        try {
+            DataExportService.Format resolved = DataExportService.Format.of(format);
+            return ExportResponses.download("order-items", resolved, gzip,
+                    out -> dataExportService.exportOrderItems(out, resolved));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
     // GET /api/orders/{id} - Get order by ID
     @GetMapping("/{id}")
     public ResponseEntity<Order> getOrderById(@PathVariable Long id) {
@@ -67,14 +121,11 @@ public class OrderController {
     // PUT /api/orders/{id} - Update order
     @PutMapping("/{id}")
     public ResponseEntity<Order> updateOrder(@PathVariable Long id, @Valid @RequestBody Order order) {
-        Optional<Order> existingOrder = orderService.findById(id);
-        if (existingOrder.isEmpty()) {
-            return ResponseEntity.notFound().build();
-        }
-        
-        order.setId(id);
-        Order updatedOrder = orderService.saveOrder(order);
-        return ResponseEntity.ok(updatedOrder);
+        orderService.updateOrder(id, order); // a missing order is a 404 from GlobalExceptionHandler
+        // Read back with supplier, lines and products as the other single-order reads return them
+        return orderService.findById(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
     }
     
     // DELETE /api/orders/{id} - Delete order
@@ -89,11 +140,23 @@ public class OrderController {
         return ResponseEntity.noContent().build();
     }
     
-    // GET /api/orders/status/{status} - Get orders by status
+    // GET /api/orders/status/{status} - Get orders by status (fields= as for /api/orders)
     @GetMapping("/status/{status}")
-    public ResponseEntity<List<Order>> getOrdersByStatus(@PathVariable String status) {
+    public ResponseEntity<?> getOrdersByStatus(
+            @PathVariable String status,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String fields) {
         try {
             Order.OrderStatus orderStatus = Order.OrderStatus.valueOf(status.toUpperCase());
+            if (fields != null) {
+                return ResponseEntity.ok(limit != null || cursor != null
+                        ? orderService.findFieldsPage(fields, orderStatus, null, cursor, limit)
+                        : orderService.findFields(fields, orderStatus, null));
+            }
+            if (limit != null || cursor != null) {
+                return ResponseEntity.ok(orderService.getOrdersByStatusPage(orderStatus, cursor, limit));
+            }
             List<Order> orders = orderService.getOrdersByStatus(orderStatus);
             return ResponseEntity.ok(orders);
         } catch (IllegalArgumentException e) {
@@ -101,11 +164,23 @@ public class OrderController {
         }
     }
     
-    // GET /api/orders/type/{type} - Get orders by type
+    // GET /api/orders/type/{type} - Get orders by type (fields= as for /api/orders)
     @GetMapping("/type/{type}")
-    public ResponseEntity<List<Order>> getOrdersByType(@PathVariable String type) {
+    public ResponseEntity<?> getOrdersByType(
+            @PathVariable String type,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String fields) {
         try {
             Order.OrderType orderType = Order.OrderType.valueOf(type.toUpperCase());
+            if (fields != null) {
+                return ResponseEntity.ok(limit != null || cursor != null
+                        ? orderService.findFieldsPage(fields, null, orderType, cursor, limit)
+                        : orderService.findFields(fields, null, orderType));
+            }
+            if (limit != null || cursor != null) {
+                return ResponseEntity.ok(orderService.getOrdersByTypePage(orderType, cursor, limit));
+            }
             List<Order> orders = orderService.getOrdersByType(orderType);
             return ResponseEntity.ok(orders);
         } catch (IllegalArgumentException e) {
@@ -134,57 +209,94 @@ public class OrderController {
         return ResponseEntity.ok(orders);
     }
     
-    // GET /api/orders/search - Search orders
+    // GET /api/orders/search?q=... - Prefix search on order number or supplier name (by=number|supplier),
+    // one page of order summaries at a time
     @GetMapping("/search")
-    public ResponseEntity<List<Order>> searchOrders(@RequestParam String q) {
-        List<Order> orders = orderService.searchOrders(q);
-        return ResponseEntity.ok(orders);
+    public ResponseEntity<?> searchOrders(
+            @RequestParam String q,
+            @RequestParam(required = false) String by,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor) {
+        try {
+            OrderService.SearchField field = by == null ? null : OrderService.SearchField.valueOf(by.toUpperCase());
+            return ResponseEntity.ok(orderService.searchOrders(q, field, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
     
-    // PUT /api/orders/{id}/process - Process order
+    // PUT /api/orders/{id}/process - Process order (?async=true queues it and returns 202 with a ticket)
     @PutMapping("/{id}/process")
-    public ResponseEntity<Order> processOrder(@PathVariable Long id) {
-        try {
-            Order order = orderService.processOrder(id);
-            return ResponseEntity.ok(order);
-        } catch (Exception e) {
-            return ResponseEntity.badRequest().build();
+    public ResponseEntity<?> processOrder(@PathVariable Long id,
+                                          @RequestParam(defaultValue = "false") boolean async) {
+        if (async) {
+            return accepted(id, Transition.PROCESS);
         }
+        // Missing orders, refused transitions and short stock are reported by GlobalExceptionHandler
+        return ResponseEntity.ok(orderService.processOrder(id));
     }
     
-    // PUT /api/orders/{id}/ship - Ship order
+    // PUT /api/orders/{id}/ship - Ship order (?async=true to queue)
     @PutMapping("/{id}/ship")
-    public ResponseEntity<Order> shipOrder(@PathVariable Long id) {
-        try {
-            Order order = orderService.shipOrder(id);
-            return ResponseEntity.ok(order);
-        } catch (Exception e) {
-            return ResponseEntity.badRequest().build();
+    public ResponseEntity<?> shipOrder(@PathVariable Long id,
+                                       @RequestParam(defaultValue = "false") boolean async) {
+        if (async) {
+            return accepted(id, Transition.SHIP);
         }
+        return ResponseEntity.ok(orderService.shipOrder(id));
     }
     
-    // PUT /api/orders/{id}/deliver - Deliver order
+    // PUT /api/orders/{id}/deliver - Deliver order (?async=true to queue)
     @PutMapping("/{id}/deliver")
-    public ResponseEntity<Order> deliverOrder(@PathVariable Long id) {
-        try {
-            Order order = orderService.deliverOrder(id);
-            return ResponseEntity.ok(order);
-        } catch (Exception e) {
-            return ResponseEntity.badRequest().build();
+    public ResponseEntity<?> deliverOrder(@PathVariable Long id,
+                                          @RequestParam(defaultValue = "false") boolean async) {
+        if (async) {
+            return accepted(id, Transition.DELIVER);
         }
+        return ResponseEntity.ok(orderService.deliverOrder(id));
     }
     
-    // PUT /api/orders/{id}/cancel - Cancel order
+    // PUT /api/orders/{id}/cancel - Cancel order (?async=true to queue)
     @PutMapping("/{id}/cancel")
-    public ResponseEntity<Order> cancelOrder(@PathVariable Long id) {
+    public ResponseEntity<?> cancelOrder(@PathVariable Long id,
+                                         @RequestParam(defaultValue = "false") boolean async) {
+        if (async) {
+            return accepted(id, Transition.CANCEL);
+        }
+        return ResponseEntity.ok(orderService.cancelOrder(id));
+    }
+    
+    // POST /api/orders/transitions - Ship, deliver or cancel many orders at once; one result per order
+    @PostMapping("/transitions")
+    public ResponseEntity<?> transitionOrders(@RequestBody BulkTransitionRequest request) {
         try {
-            Order order = orderService.cancelOrder(id);
-            return ResponseEntity.ok(order);
-        } catch (Exception e) {
-            return ResponseEntity.badRequest().build();
+            return ResponseEntity.ok(orderService.transitionOrders(request.getOrderIds(), request.getTargetStatus()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
     }
     
+    // GET /api/orders/transitions/{ticketId} - Progress and outcome of a queued transition
+    @GetMapping("/transitions/{ticketId}")
+    public ResponseEntity<OrderTransitionTicket> getTransition(@PathVariable String ticketId) {
+        return orderWorkflowService.getTicket(ticketId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
+    // GET /api/orders/workflow/stats - Queue depth, batching and latency of queued transitions
+    @GetMapping("/workflow/stats")
+    public ResponseEntity<Map<String, Object>> getWorkflowStats() {
+        return ResponseEntity.ok(orderWorkflowService.getStats());
+    }
+    
+    private ResponseEntity<OrderTransitionTicket> accepted(Long orderId, Transition transition) {
+        OrderTransitionTicket ticket = orderWorkflowService.submit(orderId, transition);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/orders/transitions/" + ticket.getId()))
+                .body(ticket);
+    }
+    
   
     
     //  Calculate total revenue
@@ -196,6 +308,25 @@ public class OrderController {
         return ResponseEntity.ok(revenue);
     }
     
+    // GET /api/orders/analytics/daily?from=2025-01-01&to=2025-01-31 - Orders, revenue and units per day, type and status
+    @GetMapping("/analytics/daily")
+    public ResponseEntity<List<OrderDailyRollup>> getDailyRollups(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(orderService.getDailyRollups(from, to));
+    }
+    
+    // POST /api/orders/analytics/daily/reconcile - Check the daily rollups against the orders table;
+    // repair=true backfills them from it
+    @PostMapping("/analytics/daily/reconcile")
+    public ResponseEntity<Map<String, Object>> reconcileDailyRollups(
+            @RequestParam(defaultValue = "false") boolean repair) {
+        List<RollupDrift> drifts = orderService.reconcileDailyRollups(repair);
+        return ResponseEntity.ok(Map.of(
+                "drifts", drifts,
+                "repaired", repair && !drifts.isEmpty()));
+    }
+    
     //  Get order count by status (pending,confirmed)
     @GetMapping("/analytics/count-by-status")
     public ResponseEntity<Map<Order.OrderStatus, Long>> getOrderCountByStatus() {
@@ -236,4 +367,13 @@ public class OrderController {
         public List<OrderItem> getItems() { return items; }
         public void setItems(List<OrderItem> items) { this.items = items; }
     }
+    
+    public static class BulkTransitionRequest {
+        private List<Long> orderIds;
+        private Order.OrderStatus targetStatus;
+        public List<Long> getOrderIds() { return orderIds; }
+        public void setOrderIds(List<Long> orderIds) { this.orderIds = orderIds; }
+        public Order.OrderStatus getTargetStatus() { return targetStatus; }
+        public void setTargetStatus(Order.OrderStatus targetStatus) { this.targetStatus = targetStatus; }
+    }
 }
@@ -1,14 +1,24 @@
 package com.example.inventory.controller;
 
+import com.example.inventory.dto.ProductSuggestion;
+import com.example.inventory.dto.StockAdjustment;
+import com.example.inventory.dto.StockAdjustmentResult;
+import com.example.inventory.dto.ValuationDrift;
 import com.example.inventory.model.Product;
+import com.example.inventory.model.StockSlot;
+import com.example.inventory.service.DataExportService;
+import com.example.inventory.service.ProductImportService;
 import com.example.inventory.service.ProductService;
+import com.example.inventory.service.StockAdjustmentService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.validation.Valid;
+import java.io.InputStream;
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Map;
@@ -20,15 +30,36 @@ import java.util.Optional;
 public class ProductController {
     
     private final ProductService productService;
+    private final ProductImportService productImportService;
+    private final DataExportService dataExportService;
+    private final StockAdjustmentService stockAdjustmentService;
     
     @Autowired
-    public ProductController(ProductService productService) {
+    public ProductController(ProductService productService,
+                             ProductImportService productImportService,
+                             DataExportService dataExportService,
+                             StockAdjustmentService stockAdjustmentService) {
         this.productService = productService;
+        this.productImportService = productImportService;
+        this.dataExportService = dataExportService;
+        this.stockAdjustmentService = stockAdjustmentService;
     }
     
-    // GET /api/products - Get all products
+    // GET /api/products - Get all products (pass limit and/or cursor for keyset pages;
+    // fields=id,sku,name,... returns flat rows with just those fields)
     @GetMapping
-    public ResponseEntity<List<Product>> getAllProducts() {
+    public ResponseEntity<?> getAllProducts(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String fields) {
+        if (fields != null) {
+            return ResponseEntity.ok(limit != null || cursor != null
+                    ? productService.findFieldsPage(fields, null, cursor, limit)
+                    : productService.findFields(fields, null));
+        }
+        if (limit != null || cursor != null) {
+            return ResponseEntity.ok(productService.findPage(cursor, limit));
+        }
         List<Product> products = productService.findAll();
         return ResponseEntity.ok(products);
     }
@@ -56,6 +87,34 @@ public class ProductController {
         return new ResponseEntity<>(savedProduct, HttpStatus.CREATED);
     }
     
+    // POST /api/products/import - Bulk insert/update by SKU from a streamed CSV or NDJSON body
+    @PostMapping("/import")
+    public ResponseEntity<?> importProducts(
+            InputStream body,
+            @RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false) String contentType,
+            @RequestParam(required = false) String format) {
+        try {
+            ProductImportService.Format resolved = ProductImportService.Format.resolve(format, contentType);
+            return ResponseEntity.ok(productImportService.importProducts(body, resolved));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    // GET /api/products/export - Stream every product as CSV or NDJSON, optionally gzipped
+    @GetMapping("/export")
+    public ResponseEntity<?> exportProducts(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        try {
+            DataExportService.Format resolved = DataExportService.Format.of(format);
+            return ExportResponses.download("products", resolved, gzip,
+                    out -> dataExportService.exportProducts(out, resolved));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
     // PUT /api/products/{id} - Update product
     @PutMapping("/{id}")
     public ResponseEntity<Product> updateProduct(@PathVariable Long id, @Valid @RequestBody Product product) {
@@ -65,8 +124,11 @@ public class ProductController {
         }
         
         product.setId(id);
-        Product updatedProduct = productService.saveProduct(product);
-        return ResponseEntity.ok(updatedProduct);
+        productService.saveProduct(product);
+        // Read back with its warehouse and supplier; the merged copy only holds references to them
+        Optional<Product> updatedProduct = productService.findById(id);
+        return updatedProduct.map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
     }
     
     // DELETE /api/products/{id} - Delete product
@@ -92,25 +154,68 @@ public ResponseEntity<?> deleteProduct(@PathVariable Long id) {
     
     // GET /api/products/low-stock - Get low stock products
     @GetMapping("/low-stock")
-    public ResponseEntity<List<Product>> getLowStockProducts() {
+    public ResponseEntity<?> getLowStockProducts(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor) {
+        if (limit != null || cursor != null) {
+            return ResponseEntity.ok(productService.getLowStockProductsPage(cursor, limit));
+        }
         List<Product> products = productService.getLowStockProducts();
         return ResponseEntity.ok(products);
     }
     
-    // GET /api/products/category/{category} - Get products by category
+    // GET /api/products/category/{category} - Get products by category (fields= as for /api/products)
     @GetMapping("/category/{category}")
-    public ResponseEntity<List<Product>> getProductsByCategory(@PathVariable String category) {
+    public ResponseEntity<?> getProductsByCategory(
+            @PathVariable String category,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String fields) {
+        if (fields != null) {
+            return ResponseEntity.ok(limit != null || cursor != null
+                    ? productService.findFieldsPage(fields, category, cursor, limit)
+                    : productService.findFields(fields, category));
+        }
+        if (limit != null || cursor != null) {
+            return ResponseEntity.ok(productService.getProductsByCategoryPage(category, cursor, limit));
+        }
         List<Product> products = productService.getProductsByCategory(category);
         return ResponseEntity.ok(products);
     }
     
     // GET /api/products/search - Search products
     @GetMapping("/search")
-    public ResponseEntity<List<Product>> searchProducts(@RequestParam String q) {
+    public ResponseEntity<?> searchProducts(
+            @RequestParam String q,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor) {
+        if (limit != null || cursor != null) {
+            return ResponseEntity.ok(productService.searchProductsPage(q, cursor, limit));
+        }
         List<Product> products = productService.searchProducts(q);
         return ResponseEntity.ok(products);
     }
     
+    // GET /api/products/suggest - SKU and name autocomplete
+    @GetMapping("/suggest")
+    public ResponseEntity<List<ProductSuggestion>> suggestProducts(
+            @RequestParam String prefix,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(productService.suggestProducts(prefix, limit));
+    }
+
+    // GET /api/products/suggest/stats - Suggester size and memory estimate
+    @GetMapping("/suggest/stats")
+    public ResponseEntity<Map<String, Object>> getSuggesterStats() {
+        return ResponseEntity.ok(productService.getSuggesterStats());
+    }
+
+    // GET /api/products/cache/stats - Hit ratio, evictions and size of the id/SKU lookup cache
+    @GetMapping("/cache/stats")
+    public ResponseEntity<Map<String, Object>> getProductCacheStats() {
+        return ResponseEntity.ok(productService.getProductCacheStats());
+    }
+
     // PUT /api/products/{id}/stock - Update product stock
     @PutMapping("/{id}/stock")
     public ResponseEntity<Product> updateStock(@PathVariable Long id, @RequestParam int quantity) {
@@ -124,6 +229,18 @@ public ResponseEntity<?> deleteProduct(@PathVariable Long id) {
         }
     }
     
+    // POST /api/products/stock-adjustments - Apply many stock corrections at once, all or nothing
+    // (a rejected batch answers 400 with the failing lines)
+    @PostMapping("/stock-adjustments")
+    public ResponseEntity<?> adjustStock(@RequestBody List<StockAdjustment> adjustments) {
+        try {
+            List<StockAdjustmentResult> results = stockAdjustmentService.adjust(adjustments);
+            return ResponseEntity.ok(results);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
     // PUT /api/products/{id}/reduce-stock - Reduce product stock
     @PutMapping("/{id}/reduce-stock")
     public ResponseEntity<Product> reduceStock(@PathVariable Long id, @RequestParam int quantity) {
@@ -150,6 +267,42 @@ public ResponseEntity<?> deleteProduct(@PathVariable Long id) {
         }
     }
     
+    // GET /api/products/{id}/stock-slots - List the stock slots of a slotted product
+    @GetMapping("/{id}/stock-slots")
+    public ResponseEntity<List<StockSlot>> getStockSlots(@PathVariable Long id) {
+        return ResponseEntity.ok(productService.getStockSlots(id));
+    }
+    
+    // PUT /api/products/{id}/stock-slots - Split a hot product's stock across N slot rows
+    @PutMapping("/{id}/stock-slots")
+    public ResponseEntity<?> promoteToSlottedStock(@PathVariable Long id, @RequestParam int slots) {
+        try {
+            return ResponseEntity.ok(productService.promoteToSlottedStock(id, slots));
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    // DELETE /api/products/{id}/stock-slots - Fold the slots back into the product row
+    @DeleteMapping("/{id}/stock-slots")
+    public ResponseEntity<?> demoteFromSlottedStock(@PathVariable Long id) {
+        try {
+            return ResponseEntity.ok(Map.of("stockQuantity", productService.demoteFromSlottedStock(id)));
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    // POST /api/products/{id}/stock-slots/rebalance - Even out the quantities across slots
+    @PostMapping("/{id}/stock-slots/rebalance")
+    public ResponseEntity<?> rebalanceStockSlots(@PathVariable Long id) {
+        try {
+            return ResponseEntity.ok(Map.of("stockQuantity", productService.rebalanceStockSlots(id)));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
     // GET /api/products/analytics/inventory-value - Get total inventory value
     @GetMapping("/analytics/inventory-value")
     public ResponseEntity<BigDecimal> getTotalInventoryValue() {
@@ -164,6 +317,23 @@ public ResponseEntity<?> deleteProduct(@PathVariable Long id) {
         return ResponseEntity.ok(valueByCategory);
     }
     
+    // POST /api/products/analytics/inventory-value/reconcile - Check running valuation against a full recompute
+    @PostMapping("/analytics/inventory-value/reconcile")
+    public ResponseEntity<Map<String, Object>> reconcileInventoryValue(
+            @RequestParam(defaultValue = "false") boolean repair) {
+        List<ValuationDrift> drifts = productService.reconcileInventoryValuation(repair);
+        return ResponseEntity.ok(Map.of(
+                "drifts", drifts,
+                "repaired", repair && !drifts.isEmpty()));
+    }
+    
+    // GET /api/products/analytics/snapshot - Category and warehouse reductions over the columnar catalog snapshot
+    @GetMapping("/analytics/snapshot")
+    public ResponseEntity<Map<String, Object>> getCatalogSnapshotReport(
+            @RequestParam(required = false) Boolean parallel) {
+        return ResponseEntity.ok(productService.getCatalogSnapshotReport(parallel));
+    }
+    
     // GET /api/products/analytics/count-by-category - Get product count by category
     @GetMapping("/analytics/count-by-category")
     public ResponseEntity<Map<String, Long>> getProductCountByCategory() {
@@ -24,9 +24,14 @@ public class SupplierController {
         this.supplierService = supplierService;
     }
 
-    // GET /api/suppliers - Get all suppliers
+    // GET /api/suppliers - Get all suppliers (pass limit and/or cursor for keyset pages)
     @GetMapping
-    public ResponseEntity<List<Supplier>> getAllSuppliers() {
+    public ResponseEntity<?> getAllSuppliers(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor) {
+        if (limit != null || cursor != null) {
+            return ResponseEntity.ok(supplierService.findPage(cursor, limit));
+        }
         List<Supplier> suppliers = supplierService.findAll();
         return ResponseEntity.ok(suppliers);
     }
@@ -87,9 +92,15 @@ public class SupplierController {
 
     // Get suppliers by status
     @GetMapping("/status/{status}")
-    public ResponseEntity<List<Supplier>> getSuppliersByStatus(@PathVariable String status) {
+    public ResponseEntity<?> getSuppliersByStatus(
+            @PathVariable String status,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor) {
         try {
             Supplier.SupplierStatus supplierStatus = Supplier.SupplierStatus.valueOf(status.toUpperCase());
+            if (limit != null || cursor != null) {
+                return ResponseEntity.ok(supplierService.getSuppliersByStatusPage(supplierStatus, cursor, limit));
+            }
             List<Supplier> suppliers = supplierService.getSuppliersByStatus(supplierStatus);
             return ResponseEntity.ok(suppliers);
         } catch (IllegalArgumentException e) {
@@ -99,7 +110,13 @@ public class SupplierController {
 
     // GET /api/suppliers/search - Search suppliers
     @GetMapping("/search")
-    public ResponseEntity<List<Supplier>> searchSuppliers(@RequestParam String q) {
+    public ResponseEntity<?> searchSuppliers(
+            @RequestParam String q,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor) {
+        if (limit != null || cursor != null) {
+            return ResponseEntity.ok(supplierService.searchSuppliersPage(q, cursor, limit));
+        }
         List<Supplier> suppliers = supplierService.searchSuppliers(q);
         return ResponseEntity.ok(suppliers);
     }
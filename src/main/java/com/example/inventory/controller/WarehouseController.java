@@ -25,9 +25,14 @@ public class WarehouseController {
         this.warehouseService = warehouseService;
     }
     
-    // Get all warehouses
+    // Get all warehouses (pass limit and/or cursor for keyset pages)
     @GetMapping
-    public ResponseEntity<List<Warehouse>> getAllWarehouses() {
+    public ResponseEntity<?> getAllWarehouses(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor) {
+        if (limit != null || cursor != null) {
+            return ResponseEntity.ok(warehouseService.findPage(cursor, limit));
+        }
         List<Warehouse> warehouses = warehouseService.findAll();
         return ResponseEntity.ok(warehouses);
     }
@@ -81,7 +86,13 @@ public class WarehouseController {
     
     //  Search warehouses
     @GetMapping("/search")
-    public ResponseEntity<List<Warehouse>> searchWarehouses(@RequestParam String q) {
+    public ResponseEntity<?> searchWarehouses(
+            @RequestParam String q,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor) {
+        if (limit != null || cursor != null) {
+            return ResponseEntity.ok(warehouseService.searchWarehousesPage(q, cursor, limit));
+        }
         List<Warehouse> warehouses = warehouseService.searchWarehouses(q);
         return ResponseEntity.ok(warehouses);
     }
@@ -95,7 +106,12 @@ public class WarehouseController {
     
     // GET /api/warehouses/low-stock - Get warehouses with low stock products
     @GetMapping("/low-stock")
-    public ResponseEntity<List<Warehouse>> getWarehousesWithLowStock() {
+    public ResponseEntity<?> getWarehousesWithLowStock(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor) {
+        if (limit != null || cursor != null) {
+            return ResponseEntity.ok(warehouseService.getWarehousesWithLowStockPage(cursor, limit));
+        }
         List<Warehouse> warehouses = warehouseService.getWarehousesWithLowStock();
         return ResponseEntity.ok(warehouses);
     }
@@ -0,0 +1,48 @@
+package com.example.inventory.dto;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a keyset-paginated listing. {@code next} is null on the last page.
+ */
+public class CursorPage<T> {
+
+    private final List<T> items;
+    private final int limit;
+    private final String next;
+
+    public CursorPage(List<T> items, int limit, String next) {
+        this.items = items;
+        this.limit = limit;
+        this.next = next;
+    }
+
+    /**
+     * Builds a page from a query that fetched {@code limit + 1} rows; the extra
+     * row only signals that another page exists and is not returned.
+     */
+    public static <T> CursorPage<T> of(List<T> rows, int limit, Function<T, PageCursor> cursorOf) {
+        if (rows.size() <= limit) {
+            return new CursorPage<>(rows, limit, null);
+        }
+        List<T> items = rows.subList(0, limit);
+        return new CursorPage<>(items, limit, cursorOf.apply(items.get(limit - 1)).encode());
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public String getNext() {
+        return next;
+    }
+
+    public boolean isHasMore() {
+        return next != null;
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.inventory.dto;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk product import: row counts, throughput, and the rows that were
+ * rejected (the first {@code MAX_REPORTED_ERRORS} of them; {@code failed} counts them all).
+ */
+public class ImportReport {
+
+    public static final int MAX_REPORTED_ERRORS = 1000;
+
+    private final String format;
+    private final long rowsRead;
+    private final long inserted;
+    private final long updated;
+    private final long failed;
+    private final long elapsedMs;
+    private final List<RowError> errors;
+
+    public ImportReport(String format, long rowsRead, long inserted, long updated, long failed,
+                        long elapsedMs, List<RowError> errors) {
+        this.format = format;
+        this.rowsRead = rowsRead;
+        this.inserted = inserted;
+        this.updated = updated;
+        this.failed = failed;
+        this.elapsedMs = elapsedMs;
+        this.errors = errors;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    public long getInserted() {
+        return inserted;
+    }
+
+    public long getUpdated() {
+        return updated;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public long getElapsedMs() {
+        return elapsedMs;
+    }
+
+    public double getRowsPerSecond() {
+        return elapsedMs == 0 ? rowsRead * 1000.0 : rowsRead * 1000.0 / elapsedMs;
+    }
+
+    public List<RowError> getErrors() {
+        return errors;
+    }
+
+    public boolean isErrorsTruncated() {
+        return failed > errors.size();
+    }
+
+    /**
+     * A rejected row. {@code line} is the line of the input the row starts on.
+     */
+    public static class RowError {
+
+        private final long line;
+        private final String sku;
+        private final String message;
+
+        public RowError(long line, String sku, String message) {
+            this.line = line;
+            this.sku = sku;
+            this.message = message;
+        }
+
+        public long getLine() {
+            return line;
+        }
+
+        public String getSku() {
+            return sku;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+}
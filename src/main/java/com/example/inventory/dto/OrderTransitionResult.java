@@ -0,0 +1,65 @@
+package com.example.inventory.dto;
+
+import com.example.inventory.model.Order;
+
+/**
+ * Outcome of one order in a bulk transition: {@code applied} with the status it moved from,
+ * or not applied with the reason. Unknown order ids come back with no order number or status.
+ */
+public class OrderTransitionResult {
+
+    private final Long orderId;
+    private final String orderNumber;
+    private final boolean applied;
+    private final Order.OrderStatus previousStatus;
+    private final Order.OrderStatus status;
+    private final String error;
+
+    private OrderTransitionResult(Long orderId, String orderNumber, boolean applied,
+                                  Order.OrderStatus previousStatus, Order.OrderStatus status, String error) {
+        this.orderId = orderId;
+        this.orderNumber = orderNumber;
+        this.applied = applied;
+        this.previousStatus = previousStatus;
+        this.status = status;
+        this.error = error;
+    }
+
+    public static OrderTransitionResult applied(Order order, Order.OrderStatus previousStatus) {
+        return new OrderTransitionResult(order.getId(), order.getOrderNumber(), true,
+                previousStatus, order.getStatus(), null);
+    }
+
+    public static OrderTransitionResult rejected(Order order, String error) {
+        return new OrderTransitionResult(order.getId(), order.getOrderNumber(), false,
+                order.getStatus(), order.getStatus(), error);
+    }
+
+    public static OrderTransitionResult notFound(Long orderId) {
+        return new OrderTransitionResult(orderId, null, false, null, null, "Order not found with ID: " + orderId);
+    }
+
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public String getOrderNumber() {
+        return orderNumber;
+    }
+
+    public boolean isApplied() {
+        return applied;
+    }
+
+    public Order.OrderStatus getPreviousStatus() {
+        return previousStatus;
+    }
+
+    public Order.OrderStatus getStatus() {
+        return status;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
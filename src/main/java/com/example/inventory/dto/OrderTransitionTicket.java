@@ -0,0 +1,98 @@
+package com.example.inventory.dto;
+
+import com.example.inventory.exception.StockAdjustmentException.LineError;
+import com.example.inventory.model.Order;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Tracking handle of an order transition queued by OrderWorkflowService. It moves from
+ * QUEUED to RUNNING and ends SUCCEEDED (with the order's new status) or FAILED (with the
+ * error, and one entry per short line when stock was missing).
+ */
+public class OrderTransitionTicket {
+
+    public enum Transition { PROCESS, SHIP, DELIVER, CANCEL }
+
+    public enum State { QUEUED, RUNNING, SUCCEEDED, FAILED }
+
+    private final String id;
+    private final Long orderId;
+    private final Transition transition;
+    private final LocalDateTime submittedAt;
+    private final long submittedNanos;
+
+    private volatile State state = State.QUEUED;
+    private volatile Order.OrderStatus orderStatus;
+    private volatile String error;
+    private volatile List<LineError> lineErrors;
+    private volatile LocalDateTime completedAt;
+
+    public OrderTransitionTicket(String id, Long orderId, Transition transition) {
+        this.id = id;
+        this.orderId = orderId;
+        this.transition = transition;
+        this.submittedAt = LocalDateTime.now();
+        this.submittedNanos = System.nanoTime();
+    }
+
+    public void start() {
+        state = State.RUNNING;
+    }
+
+    public void succeed(Order.OrderStatus orderStatus) {
+        this.orderStatus = orderStatus;
+        this.completedAt = LocalDateTime.now();
+        this.state = State.SUCCEEDED;
+    }
+
+    public void fail(String error, List<LineError> lineErrors) {
+        this.error = error;
+        this.lineErrors = lineErrors;
+        this.completedAt = LocalDateTime.now();
+        this.state = State.FAILED;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public Transition getTransition() {
+        return transition;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public Order.OrderStatus getOrderStatus() {
+        return orderStatus;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public List<LineError> getLineErrors() {
+        return lineErrors;
+    }
+
+    public LocalDateTime getSubmittedAt() {
+        return submittedAt;
+    }
+
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+
+    @JsonIgnore
+    public long getSubmittedNanos() {
+        return submittedNanos;
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.inventory.dto;
+
+import com.example.inventory.exception.InvalidPageRequestException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Opaque keyset cursor handed to API clients as the "next" token.
+ * Encodes the sort key of the last row of a page so the following page can
+ * seek past it with an indexed range condition instead of an OFFSET scan.
+ */
+public final class PageCursor {
+
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 500;
+
+    private static final String SEPARATOR = "|";
+    private static final String RANK_PREFIX = "~";
+    private static final String KEY_PREFIX = "=";
+
+    private final LocalDateTime timestamp;
+    private final Float score;
+    private final String key;
+    private final long id;
+
+    private PageCursor(LocalDateTime timestamp, Float score, String key, long id) {
+        this.timestamp = timestamp;
+        this.score = score;
+        this.key = key;
+        this.id = id;
+    }
+
+    public static PageCursor ofId(long id) {
+        return new PageCursor(null, null, null, id);
+    }
+
+    public static PageCursor of(LocalDateTime timestamp, long id) {
+        return new PageCursor(timestamp, null, null, id);
+    }
+
+    // Relevance-ranked listings seek on (score desc, id asc)
+    public static PageCursor ofScore(float score, long id) {
+        return new PageCursor(null, score, null, id);
+    }
+
+    // Listings ordered by a unique string column seek past the key itself, so the cursor stays
+    // valid when the row it came from is deleted
+    public static PageCursor ofKey(String key) {
+        return new PageCursor(null, null, key, 0L);
+    }
+
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+
+    public Float getScore() {
+        return score;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String encode() {
+        String raw;
+        if (key != null) {
+            raw = KEY_PREFIX + key;
+        } else if (score != null) {
+            // The exact float bits survive the round trip, so ties compare equal on the next page
+            raw = RANK_PREFIX + Integer.toHexString(Float.floatToIntBits(score)) + SEPARATOR + id;
+        } else {
+            raw = timestamp == null ? Long.toString(id) : timestamp + SEPARATOR + id;
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Returns null for a missing token (first page); rejects tokens that were not issued by encode()
+    public static PageCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            if (raw.startsWith(KEY_PREFIX)) {
+                return ofKey(raw.substring(KEY_PREFIX.length()));
+            }
+            int split = raw.lastIndexOf(SEPARATOR);
+            if (split < 0) {
+                return ofId(Long.parseLong(raw));
+            }
+            if (raw.startsWith(RANK_PREFIX)) {
+                int bits = Integer.parseUnsignedInt(raw.substring(RANK_PREFIX.length(), split), 16);
+                return ofScore(Float.intBitsToFloat(bits), Long.parseLong(raw.substring(split + 1)));
+            }
+            return of(LocalDateTime.parse(raw.substring(0, split)), Long.parseLong(raw.substring(split + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new InvalidPageRequestException("Invalid page cursor: " + token, e);
+        }
+    }
+
+    // Id-ordered seeks start after id 0 when no cursor is given
+    public static long afterId(String token) {
+        PageCursor cursor = decode(token);
+        return cursor == null ? 0L : cursor.getId();
+    }
+
+    // Key-ordered seeks start after the empty string when no cursor is given
+    public static String afterKey(String token) {
+        PageCursor cursor = decode(token);
+        if (cursor == null) {
+            return "";
+        }
+        if (cursor.getKey() == null) {
+            throw new InvalidPageRequestException("Invalid page cursor: " + token);
+        }
+        return cursor.getKey();
+    }
+
+    // Date-ordered listings need a cursor that carries the timestamp as well as the id
+    public static PageCursor decodeTimestamped(String token) {
+        PageCursor cursor = decode(token);
+        if (cursor != null && cursor.getTimestamp() == null) {
+            throw new InvalidPageRequestException("Invalid page cursor: " + token);
+        }
+        return cursor;
+    }
+
+    // One row more than the page size tells us whether a next page exists
+    public static Pageable lookahead(int limit) {
+        return PageRequest.of(0, limit + 1);
+    }
+
+    public static int clampLimit(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_LIMIT;
+        }
+        if (limit < 1) {
+            throw new InvalidPageRequestException("Page limit must be at least 1");
+        }
+        return Math.min(limit, MAX_LIMIT);
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.inventory.dto;
+
+/**
+ * Autocomplete entry: just enough of a product for a picker to show and select it.
+ */
+public class ProductSuggestion {
+
+    private final Long id;
+    private final String sku;
+    private final String name;
+
+    public ProductSuggestion(Long id, String sku, String name) {
+        this.id = id;
+        this.sku = sku;
+        this.name = name;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getSku() {
+        return sku;
+    }
+
+    public String getName() {
+        return name;
+    }
+}
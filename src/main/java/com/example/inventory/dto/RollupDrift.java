@@ -0,0 +1,78 @@
+package com.example.inventory.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * A daily order rollup row that disagrees with a full recompute from the orders table.
+ */
+public class RollupDrift {
+
+    private final LocalDate day;
+    private final String type;
+    private final String status;
+    private final long recordedOrders;
+    private final long recomputedOrders;
+    private final BigDecimal recordedRevenue;
+    private final BigDecimal recomputedRevenue;
+    private final long recordedItems;
+    private final long recomputedItems;
+
+    public RollupDrift(LocalDate day, String type, String status,
+                       long recordedOrders, long recomputedOrders,
+                       BigDecimal recordedRevenue, BigDecimal recomputedRevenue,
+                       long recordedItems, long recomputedItems) {
+        this.day = day;
+        this.type = type;
+        this.status = status;
+        this.recordedOrders = recordedOrders;
+        this.recomputedOrders = recomputedOrders;
+        this.recordedRevenue = recordedRevenue;
+        this.recomputedRevenue = recomputedRevenue;
+        this.recordedItems = recordedItems;
+        this.recomputedItems = recomputedItems;
+    }
+
+    public LocalDate getDay() {
+        return day;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public long getRecordedOrders() {
+        return recordedOrders;
+    }
+
+    public long getRecomputedOrders() {
+        return recomputedOrders;
+    }
+
+    public BigDecimal getRecordedRevenue() {
+        return recordedRevenue;
+    }
+
+    public BigDecimal getRecomputedRevenue() {
+        return recomputedRevenue;
+    }
+
+    public long getRecordedItems() {
+        return recordedItems;
+    }
+
+    public long getRecomputedItems() {
+        return recomputedItems;
+    }
+
+    @Override
+    public String toString() {
+        return day + " " + type + " " + status + ": recorded " + recordedOrders + " orders / " + recordedRevenue +
+                " / " + recordedItems + " items, recomputed " + recomputedOrders + " / " + recomputedRevenue +
+                " / " + recomputedItems;
+    }
+}
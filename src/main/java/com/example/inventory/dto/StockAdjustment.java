@@ -0,0 +1,55 @@
+package com.example.inventory.dto;
+
+/**
+ * One line of a bulk stock adjustment: the product (by id or by SKU) and either a
+ * relative {@code delta} or an {@code absolute} quantity to set.
+ */
+public class StockAdjustment {
+
+    private Long productId;
+    private String sku;
+    private Integer delta;
+    private Integer absolute;
+
+    public StockAdjustment() {
+    }
+
+    public StockAdjustment(Long productId, String sku, Integer delta, Integer absolute) {
+        this.productId = productId;
+        this.sku = sku;
+        this.delta = delta;
+        this.absolute = absolute;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+
+    public String getSku() {
+        return sku;
+    }
+
+    public void setSku(String sku) {
+        this.sku = sku;
+    }
+
+    public Integer getDelta() {
+        return delta;
+    }
+
+    public void setDelta(Integer delta) {
+        this.delta = delta;
+    }
+
+    public Integer getAbsolute() {
+        return absolute;
+    }
+
+    public void setAbsolute(Integer absolute) {
+        this.absolute = absolute;
+    }
+}
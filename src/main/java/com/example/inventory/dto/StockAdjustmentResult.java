@@ -0,0 +1,42 @@
+package com.example.inventory.dto;
+
+/**
+ * Outcome of one applied stock adjustment line; {@code line} is its 1-based position
+ * in the request.
+ */
+public class StockAdjustmentResult {
+
+    private final int line;
+    private final Long productId;
+    private final String sku;
+    private final int previousQuantity;
+    private final int quantity;
+
+    public StockAdjustmentResult(int line, Long productId, String sku, int previousQuantity, int quantity) {
+        this.line = line;
+        this.productId = productId;
+        this.sku = sku;
+        this.previousQuantity = previousQuantity;
+        this.quantity = quantity;
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public String getSku() {
+        return sku;
+    }
+
+    public int getPreviousQuantity() {
+        return previousQuantity;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+}
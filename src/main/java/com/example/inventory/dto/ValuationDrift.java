@@ -0,0 +1,46 @@
+package com.example.inventory.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * A running inventory value that disagrees with a full recompute from the products table.
+ */
+public class ValuationDrift {
+
+    private final String scope;
+    private final String key;
+    private final BigDecimal recorded;
+    private final BigDecimal recomputed;
+
+    public ValuationDrift(String scope, String key, BigDecimal recorded, BigDecimal recomputed) {
+        this.scope = scope;
+        this.key = key;
+        this.recorded = recorded;
+        this.recomputed = recomputed;
+    }
+
+    public String getScope() {
+        return scope;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public BigDecimal getRecorded() {
+        return recorded;
+    }
+
+    public BigDecimal getRecomputed() {
+        return recomputed;
+    }
+
+    public BigDecimal getDrift() {
+        return recorded.subtract(recomputed);
+    }
+
+    @Override
+    public String toString() {
+        return scope + " '" + key + "': recorded " + recorded + ", recomputed " + recomputed;
+    }
+}
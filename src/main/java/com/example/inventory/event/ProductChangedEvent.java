@@ -0,0 +1,39 @@
+package com.example.inventory.event;
+
+import com.example.inventory.model.Product;
+
+/**
+ * Published by ProductService after a product is saved or deleted, for in-process
+ * read models (such as the search index) that must follow the catalog.
+ */
+public class ProductChangedEvent {
+
+    private final Long productId;
+    private final Product product;
+
+    private ProductChangedEvent(Long productId, Product product) {
+        this.productId = productId;
+        this.product = product;
+    }
+
+    public static ProductChangedEvent saved(Product product) {
+        return new ProductChangedEvent(product.getId(), product);
+    }
+
+    public static ProductChangedEvent deleted(Long productId) {
+        return new ProductChangedEvent(productId, null);
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    // Null for a deletion
+    public Product getProduct() {
+        return product;
+    }
+
+    public boolean isDeleted() {
+        return product == null;
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.inventory.event;
+
+/**
+ * Published by ProductService after a product's stock quantity changes through the
+ * StockEngine, with the quantity the engine reported afterwards.
+ */
+public class StockChangedEvent {
+
+    private final Long productId;
+    private final int quantity;
+
+    public StockChangedEvent(Long productId, int quantity) {
+        this.productId = productId;
+        this.quantity = quantity;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+}
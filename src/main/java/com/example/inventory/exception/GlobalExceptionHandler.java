@@ -22,11 +22,38 @@ public class GlobalExceptionHandler {
         return createErrorResponse(e.getMessage(), HttpStatus.NOT_FOUND);
     }
 
+    @ExceptionHandler(OrderNotFoundException.class)
+    public ResponseEntity<Map<String, Object>> handleOrderNotFoundException(OrderNotFoundException e) {
+        return createErrorResponse(e.getMessage(), HttpStatus.NOT_FOUND);
+    }
+
+    @ExceptionHandler(InvalidOrderStateException.class)
+    public ResponseEntity<Map<String, Object>> handleInvalidOrderStateException(InvalidOrderStateException e) {
+        return createErrorResponse(e.getMessage(), HttpStatus.CONFLICT);
+    }
+
     @ExceptionHandler(DatabaseConnectionException.class)
     public ResponseEntity<Map<String, Object>> handleDatabaseConnectionException(DatabaseConnectionException e) {
         return createErrorResponse(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
     }
 
+    @ExceptionHandler(InvalidPageRequestException.class)
+    public ResponseEntity<Map<String, Object>> handleInvalidPageRequestException(InvalidPageRequestException e) {
+        return createErrorResponse(e.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(StockAdjustmentException.class)
+    public ResponseEntity<Map<String, Object>> handleStockAdjustmentException(StockAdjustmentException e) {
+        ResponseEntity<Map<String, Object>> response = createErrorResponse(e.getMessage(), HttpStatus.BAD_REQUEST);
+        response.getBody().put("lines", e.getLineErrors());
+        return response;
+    }
+
+    @ExceptionHandler(WorkflowQueueFullException.class)
+    public ResponseEntity<Map<String, Object>> handleWorkflowQueueFullException(WorkflowQueueFullException e) {
+        return createErrorResponse(e.getMessage(), HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<Map<String, Object>> handleGenericException(Exception e) {
         return createErrorResponse("An unexpected error occurred", HttpStatus.INTERNAL_SERVER_ERROR);
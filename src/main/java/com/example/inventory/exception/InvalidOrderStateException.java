@@ -0,0 +1,8 @@
+package com.example.inventory.exception;
+
+// A transition the order's current state does not allow
+public class InvalidOrderStateException extends IllegalStateException {
+    public InvalidOrderStateException(String message) {
+        super(message);
+    }
+}
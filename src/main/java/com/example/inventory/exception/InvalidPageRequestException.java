@@ -0,0 +1,11 @@
+package com.example.inventory.exception;
+
+public class InvalidPageRequestException extends RuntimeException {
+    public InvalidPageRequestException(String message) {
+        super(message);
+    }
+    
+    public InvalidPageRequestException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
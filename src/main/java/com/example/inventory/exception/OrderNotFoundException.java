@@ -0,0 +1,8 @@
+package com.example.inventory.exception;
+
+// Still an IllegalArgumentException, so callers that treat a bad order id as bad input keep working
+public class OrderNotFoundException extends IllegalArgumentException {
+    public OrderNotFoundException(Long orderId) {
+        super("Order not found with ID: " + orderId);
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.inventory.exception;
+
+import java.util.List;
+
+// A bulk stock adjustment was rejected as a whole; lists every line that could not be applied
+public class StockAdjustmentException extends RuntimeException {
+
+    private final List<LineError> lineErrors;
+
+    public StockAdjustmentException(String message, List<LineError> lineErrors) {
+        super(message);
+        this.lineErrors = lineErrors;
+    }
+
+    public List<LineError> getLineErrors() {
+        return lineErrors;
+    }
+
+    public static class LineError {
+
+        private final int line;
+        private final String message;
+
+        public LineError(int line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+
+        public int getLine() {
+            return line;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+}
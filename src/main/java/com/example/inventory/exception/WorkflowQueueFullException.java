@@ -0,0 +1,8 @@
+package com.example.inventory.exception;
+
+// The asynchronous order workflow has no room left for another transition; the caller should retry later
+public class WorkflowQueueFullException extends RuntimeException {
+    public WorkflowQueueFullException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.inventory.model;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+
+/**
+ * One slot of a running inventory value (price x stock) for the whole catalog, a category
+ * or a warehouse. A scope's value is the sum of its slots; writers add their deltas to a
+ * random slot so concurrent stock changes do not all queue on one hot row.
+ */
+@Entity
+@Table(name = "inventory_valuation", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_inventory_valuation_scope_slot", columnNames = {"scope", "scope_key", "slot"})
+})
+public class InventoryValuation {
+
+    public enum Scope {
+        TOTAL, CATEGORY, WAREHOUSE
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Scope scope;
+
+    // Category name, warehouse id, or empty for the total
+    @Column(name = "scope_key", nullable = false, length = 64)
+    private String scopeKey;
+
+    @Column(nullable = false)
+    private int slot;
+
+    @Column(name = "total_value", nullable = false, precision = 19, scale = 2)
+    private BigDecimal totalValue;
+
+    public InventoryValuation() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Scope getScope() {
+        return scope;
+    }
+
+    public String getScopeKey() {
+        return scopeKey;
+    }
+
+    public int getSlot() {
+        return slot;
+    }
+
+    public BigDecimal getTotalValue() {
+        return totalValue;
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.inventory.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.DecimalMin;
@@ -7,16 +8,42 @@ import jakarta.validation.constraints.Digits;
 // import jakarta.validation.constraints.NotNull;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_order_date_id", columnList = "order_date, id"),
+        @Index(name = "idx_orders_status_order_date_id", columnList = "status, order_date, id"),
+        @Index(name = "idx_orders_type_order_date_id", columnList = "type, order_date, id"),
+        @Index(name = "idx_orders_expected_delivery_date", columnList = "expected_delivery_date"),
+        @Index(name = "idx_orders_supplier_order_date_id", columnList = "supplier_id, order_date, id")
+})
+// Fetch plans for reads that hand orders to the API: everything an order serializes (DETAIL_GRAPH), or
+// just the supplier for pages whose lines OrderRepository.fetchLines loads afterwards (SUPPLIER_GRAPH)
+@NamedEntityGraph(name = Order.DETAIL_GRAPH,
+        attributeNodes = {
+                @NamedAttributeNode("supplier"),
+                @NamedAttributeNode(value = "orderItems", subgraph = "items")
+        },
+        subgraphs = @NamedSubgraph(name = "items", attributeNodes = @NamedAttributeNode("product")))
+@NamedEntityGraph(name = Order.SUPPLIER_GRAPH, attributeNodes = @NamedAttributeNode("supplier"))
 public class Order {
 
+    public static final String DETAIL_GRAPH = "Order.detail";
+    public static final String SUPPLIER_GRAPH = "Order.supplier";
+
+    // Order and item ids are handed out in blocks from the id_generators table, so inserts can be
+    // batched (IDENTITY needs a round trip per row); OrderIdGeneratorSeeder keeps the blocks past existing ids
+    public static final String ID_TABLE = "id_generators";
+    public static final int ID_BLOCK_SIZE = 50;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "order_ids")
+    @TableGenerator(name = "order_ids", table = ID_TABLE, pkColumnName = "name", valueColumnName = "next_val",
+                    pkColumnValue = "orders", allocationSize = ID_BLOCK_SIZE)
     private Long id;
 
     @Column(name = "order_number", nullable = false, unique = true)
@@ -40,6 +67,10 @@ public class Order {
     @Column(name = "total_amount", precision = 14, scale = 2)
     private BigDecimal totalAmount = BigDecimal.ZERO;
 
+    // Units across the order's lines, kept next to totalAmount for the daily rollups
+    @Column(name = "item_count")
+    private Integer itemCount = 0;
+
     @Column(name = "order_date", nullable = false)
     private LocalDateTime orderDate;
 
@@ -49,6 +80,10 @@ public class Order {
     @Column(name = "actual_delivery_date")
     private LocalDateTime actualDeliveryDate;
 
+    // Set by ship(); a DELAYED order has shipped if this is set
+    @Column(name = "shipped_at")
+    private LocalDateTime shippedAt;
+
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
@@ -59,9 +94,29 @@ public class Order {
     @JsonIgnoreProperties({"order", "hibernateLazyInitializer", "handler"})
     private List<OrderItem> orderItems = new ArrayList<>();
 
+    // What this order last contributed to the daily rollups: as loaded, or as last recorded by OrderRollupService
+    @Transient
+    @JsonIgnore
+    private RollupContribution rollupBaseline;
+
    
     public enum OrderStatus {
-        PENDING, CONFIRMED, SHIPPED, DELIVERED, CANCELLED, DELAYED
+        PENDING, CONFIRMED, SHIPPED, DELIVERED, CANCELLED, DELAYED;
+
+        // Allowed moves: PENDING -> CONFIRMED -> SHIPPED -> DELIVERED. Processed orders (CONFIRMED or
+        // SHIPPED) past their expected delivery date become DELAYED and can still be shipped or
+        // delivered, and anything not yet delivered or cancelled can be cancelled. Which of ship
+        // and deliver a DELAYED order may take depends on whether it has shipped: see Order.canMoveTo
+        public boolean canMoveTo(OrderStatus target) {
+            return switch (target) {
+                case CONFIRMED -> this == PENDING;
+                case SHIPPED -> this == CONFIRMED || this == DELAYED;
+                case DELIVERED -> this == SHIPPED || this == DELAYED;
+                case DELAYED -> this == CONFIRMED || this == SHIPPED;
+                case CANCELLED -> this != DELIVERED && this != CANCELLED;
+                case PENDING -> false;
+            };
+        }
     }
 
     public enum OrderType {
@@ -73,7 +128,7 @@ public class Order {
         this.createdAt = LocalDateTime.now();
         this.updatedAt = LocalDateTime.now();
         this.orderDate = LocalDateTime.now();
-        this.orderNumber = generateOrderNumber();
+        // orderNumber is assigned by OrderService from the configured OrderNumberGenerator
     }
 
     public Order(OrderType type, Supplier supplier) {
@@ -110,6 +165,8 @@ public class Order {
         this.updatedAt = LocalDateTime.now();
     }
 
+    public Integer getItemCount() { return itemCount; }
+
     public LocalDateTime getOrderDate() { return orderDate; }
     public void setOrderDate(LocalDateTime orderDate) { this.orderDate = orderDate; }
 
@@ -125,6 +182,8 @@ public class Order {
         this.updatedAt = LocalDateTime.now();
     }
 
+    public LocalDateTime getShippedAt() { return shippedAt; }
+
     public LocalDateTime getCreatedAt() { return createdAt; }
     public LocalDateTime getUpdatedAt() { return updatedAt; }
 
@@ -132,14 +191,21 @@ public class Order {
     public void setOrderItems(List<OrderItem> orderItems) {
         this.orderItems.clear();
         if (orderItems != null) {
-            for (OrderItem item : orderItems) {
-                addOrderItem(item);
-            }
+            addOrderItems(orderItems);
         }
         calculateTotalAmount();
     }
 
+    @JsonIgnore
+    public RollupContribution getRollupBaseline() { return rollupBaseline; }
+    public void setRollupBaseline(RollupContribution rollupBaseline) { this.rollupBaseline = rollupBaseline; }
+
     // =============== JPA CALLBACKS ===============
+    @PostLoad
+    protected void onLoad() {
+        this.rollupBaseline = rollupContribution();
+    }
+
     @PrePersist
     protected void onCreate() {
         this.createdAt = LocalDateTime.now();
@@ -160,6 +226,15 @@ public class Order {
         calculateTotalAmount();
     }
 
+    // Attaches several items and totals once, rather than once per item
+    public void addOrderItems(List<OrderItem> items) {
+        for (OrderItem item : items) {
+            orderItems.add(item);
+            item.setOrder(this);
+        }
+        calculateTotalAmount();
+    }
+
     public void removeOrderItem(OrderItem item) {
         orderItems.remove(item);
         item.setOrder(null);
@@ -170,6 +245,14 @@ public class Order {
         this.totalAmount = orderItems.stream()
                 .map(item -> item.getUnitPrice().multiply(new BigDecimal(item.getQuantity())))
                 .reduce(BigDecimal.ZERO, BigDecimal::add);
+        this.itemCount = orderItems.stream().mapToInt(OrderItem::getQuantity).sum();
+    }
+
+    // The order's current row in the daily rollups, from its own columns only (never its lazy items)
+    public RollupContribution rollupContribution() {
+        return new RollupContribution(orderDate.toLocalDate(), type, status,
+                totalAmount == null ? BigDecimal.ZERO : totalAmount,
+                itemCount == null ? 0 : itemCount);
     }
 
     public boolean isPending() { return status == OrderStatus.PENDING; }
@@ -180,16 +263,58 @@ public class Order {
                actualDeliveryDate == null;
     }
 
+    // The status rules, plus what DELAYED alone does not tell: an order delayed before shipping has
+    // to ship before it is delivered, and one shipped after its due date has already been late
+    // and is not delayed again (until it is given a later date)
+    public boolean canMoveTo(OrderStatus target) {
+        if (!status.canMoveTo(target)) {
+            return false;
+        }
+        return switch (target) {
+            case SHIPPED -> shippedAt == null;
+            case DELIVERED -> status != OrderStatus.DELAYED || shippedAt != null;
+            case DELAYED -> !isShippedLate();
+            default -> true;
+        };
+    }
+
+    public boolean isShippedLate() {
+        return shippedAt != null && expectedDeliveryDate != null && !shippedAt.isBefore(expectedDeliveryDate);
+    }
+
     public void confirm() { this.status = OrderStatus.CONFIRMED; this.updatedAt = LocalDateTime.now(); }
-    public void ship() { this.status = OrderStatus.SHIPPED; this.updatedAt = LocalDateTime.now(); }
+    public void ship() {
+        this.status = OrderStatus.SHIPPED;
+        this.shippedAt = LocalDateTime.now();
+        this.updatedAt = LocalDateTime.now();
+    }
     public void deliver() {
         this.status = OrderStatus.DELIVERED;
         this.actualDeliveryDate = LocalDateTime.now();
         this.updatedAt = LocalDateTime.now();
     }
     public void cancel() { this.status = OrderStatus.CANCELLED; this.updatedAt = LocalDateTime.now(); }
+    public void delay() { this.status = OrderStatus.DELAYED; this.updatedAt = LocalDateTime.now(); }
+
+    public static final class RollupContribution {
+        private final LocalDate day;
+        private final OrderType type;
+        private final OrderStatus status;
+        private final BigDecimal revenue;
+        private final int items;
+
+        public RollupContribution(LocalDate day, OrderType type, OrderStatus status, BigDecimal revenue, int items) {
+            this.day = day;
+            this.type = type;
+            this.status = status;
+            this.revenue = revenue;
+            this.items = items;
+        }
 
-    private String generateOrderNumber() {
-        return "ORD-" + System.currentTimeMillis();
+        public LocalDate getDay() { return day; }
+        public OrderType getType() { return type; }
+        public OrderStatus getStatus() { return status; }
+        public BigDecimal getRevenue() { return revenue; }
+        public int getItems() { return items; }
     }
 }
@@ -0,0 +1,72 @@
+package com.example.inventory.model;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Orders placed on one day with one type and (current) status: how many, their total amount
+ * and their units. Revenue and volume reports sum these rows instead of the orders table.
+ */
+@Entity
+@Table(name = "order_daily_rollup", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_order_daily_rollup_day_type_status", columnNames = {"day", "type", "status"})
+})
+public class OrderDailyRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private LocalDate day;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Order.OrderType type;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Order.OrderStatus status;
+
+    @Column(name = "order_count", nullable = false)
+    private long orderCount;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal revenue;
+
+    @Column(name = "item_count", nullable = false)
+    private long itemCount;
+
+    public OrderDailyRollup() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public LocalDate getDay() {
+        return day;
+    }
+
+    public Order.OrderType getType() {
+        return type;
+    }
+
+    public Order.OrderStatus getStatus() {
+        return status;
+    }
+
+    public long getOrderCount() {
+        return orderCount;
+    }
+
+    public BigDecimal getRevenue() {
+        return revenue;
+    }
+
+    public long getItemCount() {
+        return itemCount;
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.inventory.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonIncludeProperties;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.Digits;
@@ -13,7 +14,9 @@ import java.time.LocalDateTime;
 @Table(name = "order_items")
 public class OrderItem {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "order_item_ids")
+    @TableGenerator(name = "order_item_ids", table = Order.ID_TABLE, pkColumnName = "name", valueColumnName = "next_val",
+                    pkColumnValue = "order_items", allocationSize = Order.ID_BLOCK_SIZE)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -21,9 +24,10 @@ public class OrderItem {
     @JsonIgnoreProperties({"orderItems", "hibernateLazyInitializer", "handler"})
     private Order order;
 
+    // Lines show which product they are, not the product's stock, timestamps, warehouse or supplier
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "product_id", nullable = false)
-    @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+    @JsonIncludeProperties({"id", "sku", "name", "category"})
     private Product product;
 
     @Min(value = 1, message = "Quantity must be at least 1")
@@ -1,6 +1,7 @@
 package com.example.inventory.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 
@@ -8,7 +9,10 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "products")
+@Table(name = "products", indexes = {
+        @Index(name = "idx_products_category", columnList = "category"),
+        @Index(name = "idx_products_price", columnList = "price")
+})
 public class Product {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -44,6 +48,16 @@ public class Product {
     @Size(max = 50, message = "Category cannot exceed 50 characters")
     private String category;
 
+    // Changed only through StockSlotService; a slotted product's stock lives in product_stock_slots
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(name = "stock_slotted", nullable = false, insertable = false, updatable = false,
+            columnDefinition = "boolean default false")
+    private boolean stockSlotted;
+
+    // Live slot total of a slotted product, filled in on read and never persisted
+    @Transient
+    private Integer slottedStockQuantity;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "warehouse_id", nullable = false)
     @JsonIgnoreProperties({"products", "hibernateLazyInitializer", "handler"})
@@ -113,11 +127,12 @@ public class Product {
     }
 
     public Integer getStockQuantity() {
-        return stockQuantity;
+        return slottedStockQuantity != null ? slottedStockQuantity : stockQuantity;
     }
 
     public void setStockQuantity(Integer stockQuantity) {
         this.stockQuantity = stockQuantity;
+        this.slottedStockQuantity = null;
         this.updatedAt = LocalDateTime.now();
     }
 
@@ -148,6 +163,30 @@ public class Product {
         this.updatedAt = LocalDateTime.now();
     }
 
+    public boolean isStockSlotted() {
+        return stockSlotted;
+    }
+
+    // A detached copy reporting the given slot total; the original (possibly cached) instance is left alone
+    public Product withSlottedStock(int total) {
+        Product copy = new Product();
+        copy.id = id;
+        copy.name = name;
+        copy.description = description;
+        copy.sku = sku;
+        copy.stockQuantity = stockQuantity;
+        copy.minStockLevel = minStockLevel;
+        copy.price = price;
+        copy.category = category;
+        copy.stockSlotted = stockSlotted;
+        copy.slottedStockQuantity = total;
+        copy.warehouse = warehouse;
+        copy.supplier = supplier;
+        copy.createdAt = createdAt;
+        copy.updatedAt = updatedAt;
+        return copy;
+    }
+
     public Warehouse getWarehouse() {
         return warehouse;
     }
@@ -179,7 +218,7 @@ public class Product {
 
     // Business logic methods
     public boolean isLowStock() {
-        return stockQuantity <= minStockLevel;
+        return getStockQuantity() <= minStockLevel;
     }
 
     public void updateStock(Integer quantity) {
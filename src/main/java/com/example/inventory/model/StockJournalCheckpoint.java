@@ -0,0 +1,34 @@
+package com.example.inventory.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+// Marks a stock journal segment whose deltas were committed to the products table,
+// written in the same transaction as the deltas so crash recovery never applies them twice
+@Entity
+@Table(name = "stock_journal_checkpoints")
+public class StockJournalCheckpoint {
+    @Id
+    @Column(length = 100)
+    private String segment;
+
+    @Column(name = "flushed_at", nullable = false)
+    private LocalDateTime flushedAt;
+
+    public StockJournalCheckpoint() {
+        this.flushedAt = LocalDateTime.now();
+    }
+
+    public String getSegment() {
+        return segment;
+    }
+
+    public void setSegment(String segment) {
+        this.segment = segment;
+    }
+
+    public LocalDateTime getFlushedAt() {
+        return flushedAt;
+    }
+}
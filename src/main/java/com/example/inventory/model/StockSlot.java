@@ -0,0 +1,76 @@
+package com.example.inventory.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import jakarta.validation.constraints.Min;
+
+import java.time.LocalDateTime;
+
+// One share of a slotted product's stock; writers lock a single slot row instead of the product row
+@Entity
+@Table(name = "product_stock_slots", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_stock_slots_product_slot", columnNames = {"product_id", "slot_no"})
+})
+public class StockSlot {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "product_id", nullable = false)
+    @JsonIgnore
+    private Product product;
+
+    @Column(name = "slot_no", nullable = false)
+    private Integer slotNo;
+
+    @Min(value = 0, message = "Slot quantity cannot be negative")
+    @Column(nullable = false)
+    private Integer quantity;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    // Constructors
+    public StockSlot() {
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    public StockSlot(Product product, Integer slotNo, Integer quantity) {
+        this();
+        this.product = product;
+        this.slotNo = slotNo;
+        this.quantity = quantity;
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public Product getProduct() {
+        return product;
+    }
+
+    public Integer getSlotNo() {
+        return slotNo;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(Integer quantity) {
+        this.quantity = quantity;
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        this.updatedAt = LocalDateTime.now();
+    }
+}
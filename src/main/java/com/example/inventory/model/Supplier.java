@@ -6,12 +6,16 @@ import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 
+import java.text.Normalizer;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 
 @Entity
-@Table(name = "suppliers")
+@Table(name = "suppliers", indexes = {
+        @Index(name = "idx_suppliers_name_normalized", columnList = "name_normalized")
+})
 public class Supplier {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -22,6 +26,11 @@ public class Supplier {
     @Column(nullable = false, unique = true)
     private String name;
 
+    // normalizeName(name), for indexed prefix search; kept in step with name
+    @Column(name = "name_normalized", length = 100)
+    @JsonIgnore
+    private String nameNormalized;
+
     @Email(message = "Email should be valid")
     @Size(max = 100, message = "Email cannot exceed 100 characters")
     private String email;
@@ -87,9 +96,23 @@ public class Supplier {
 
     public void setName(String name) {
         this.name = name;
+        this.nameNormalized = normalizeName(name);
         this.updatedAt = LocalDateTime.now();
     }
 
+    public String getNameNormalized() {
+        return nameNormalized;
+    }
+
+    // Lower case, accents stripped, whitespace trimmed and collapsed; search terms go through the same
+    public static String normalizeName(String name) {
+        if (name == null) {
+            return null;
+        }
+        String stripped = Normalizer.normalize(name, Normalizer.Form.NFKD).replaceAll("\\p{M}+", "");
+        return stripped.toLowerCase(Locale.ROOT).trim().replaceAll("\\s+", " ");
+    }
+
     public String getEmail() {
         return email;
     }
@@ -159,8 +182,14 @@ public class Supplier {
         this.orders = orders;
     }
 
+    @PrePersist
+    protected void onCreate() {
+        this.nameNormalized = normalizeName(name);
+    }
+
     @PreUpdate
     protected void onUpdate() {
+        this.nameNormalized = normalizeName(name);
         this.updatedAt = LocalDateTime.now();
     }
 
@@ -0,0 +1,49 @@
+package com.example.inventory.repository;
+
+import com.example.inventory.model.InventoryValuation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Repository
+public interface InventoryValuationRepository extends JpaRepository<InventoryValuation, Long> {
+
+    // Scope values are the sum of their slots
+    @Query("SELECT COALESCE(SUM(v.totalValue), 0) FROM InventoryValuation v WHERE v.scope = :scope")
+    BigDecimal sumScope(@Param("scope") InventoryValuation.Scope scope);
+
+    @Query("SELECT v.scopeKey AS scopeKey, SUM(v.totalValue) AS totalValue FROM InventoryValuation v " +
+           "WHERE v.scope = :scope GROUP BY v.scopeKey")
+    List<ScopeValue> sumScopeByKey(@Param("scope") InventoryValuation.Scope scope);
+
+    @Query("SELECT v.scope AS scope, v.scopeKey AS scopeKey, SUM(v.totalValue) AS totalValue " +
+           "FROM InventoryValuation v GROUP BY v.scope, v.scopeKey")
+    List<ScopedValue> sumAll();
+
+    // Blocks writers (whose deltas land at commit) while the aggregates are rebuilt
+    @Query(value = "SELECT id FROM inventory_valuation FOR UPDATE", nativeQuery = true)
+    List<Long> lockAll();
+
+    @Modifying
+    @Query("DELETE FROM InventoryValuation v")
+    int deleteAllRows();
+
+    interface ScopeValue {
+        String getScopeKey();
+
+        BigDecimal getTotalValue();
+    }
+
+    interface ScopedValue {
+        InventoryValuation.Scope getScope();
+
+        String getScopeKey();
+
+        BigDecimal getTotalValue();
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.inventory.repository;
+
+import com.example.inventory.model.Order;
+import com.example.inventory.model.OrderDailyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface OrderDailyRollupRepository extends JpaRepository<OrderDailyRollup, Long> {
+
+    // Whole days, both ends inclusive; at most one row per type for each day
+    @Query("SELECT COALESCE(SUM(r.revenue), 0) FROM OrderDailyRollup r " +
+           "WHERE r.status = :status AND r.day >= :from AND r.day <= :to")
+    BigDecimal sumRevenue(@Param("status") Order.OrderStatus status,
+                          @Param("from") LocalDate from,
+                          @Param("to") LocalDate to);
+
+    @Query("SELECT r FROM OrderDailyRollup r WHERE r.day >= :from AND r.day <= :to " +
+           "ORDER BY r.day, r.type, r.status")
+    List<OrderDailyRollup> findDays(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    // Blocks writers (whose deltas land at commit) while the rollups are rebuilt
+    @Query(value = "SELECT id FROM order_daily_rollup FOR UPDATE", nativeQuery = true)
+    List<Long> lockAll();
+
+    @Modifying
+    @Query("DELETE FROM OrderDailyRollup r")
+    int deleteAllRows();
+}
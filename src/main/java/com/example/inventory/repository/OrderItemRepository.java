@@ -1,19 +1,31 @@
 package com.example.inventory.repository;
 
 import com.example.inventory.model.OrderItem;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
     
     List<OrderItem> findByOrderId(Long orderId);
     
+    // Export cursor, as ProductRepository.streamAllForExport
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT oi FROM OrderItem oi ORDER BY oi.id")
+    Stream<OrderItem> streamAllForExport();
+    
     List<OrderItem> findByProductId(Long productId);
     
     List<OrderItem> findByOrderIdAndProductId(Long orderId, Long productId);
@@ -1,46 +1,241 @@
 package com.example.inventory.repository;
 
 import com.example.inventory.model.Order;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
 
+    // Reads whose orders go out as JSON load Order.DETAIL_GRAPH in the same query, or Order.SUPPLIER_GRAPH
+    // when paged: a collection fetch cannot be limited in SQL, so a page's lines come from fetchLines
+
+    @EntityGraph(Order.DETAIL_GRAPH)
+    @Query("SELECT o FROM Order o WHERE o.id = :id")
+    Optional<Order> findDetailById(@Param("id") Long id);
+
+    // Single-order changes: locked, so concurrent changes to one order compute their rollup deltas in turn
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @EntityGraph(Order.DETAIL_GRAPH)
+    @Query("SELECT o FROM Order o WHERE o.id = :id")
+    Optional<Order> findDetailByIdForUpdate(@Param("id") Long id);
+
+    @EntityGraph(Order.DETAIL_GRAPH)
     Optional<Order> findByOrderNumber(String orderNumber);
+
+    @EntityGraph(Order.DETAIL_GRAPH)
+    @Query("SELECT o FROM Order o ORDER BY o.id")
+    List<Order> findAllWithDetails();
+
+    @EntityGraph(Order.DETAIL_GRAPH)
+    @Query("SELECT o FROM Order o WHERE o.supplier IS NOT NULL ORDER BY o.id")
+    List<Order> findAllWithSupplier();
+
+    // The lines of orders already in the persistence context, with their products, in one query
+    @Query("SELECT DISTINCT o FROM Order o LEFT JOIN FETCH o.orderItems i LEFT JOIN FETCH i.product WHERE o.id IN :ids")
+    List<Order> fetchLines(@Param("ids") Collection<Long> ids);
+    
+    // Export cursor, as ProductRepository.streamAllForExport
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT o FROM Order o ORDER BY o.id")
+    Stream<Order> streamAllForExport();
+    
+    // Bulk transitions: the orders with their lines in one query, locked in id order
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT DISTINCT o FROM Order o LEFT JOIN FETCH o.orderItems WHERE o.id IN :ids ORDER BY o.id")
+    List<Order> findWithItemsForUpdate(@Param("ids") Collection<Long> ids);
     
+    @EntityGraph(Order.DETAIL_GRAPH)
     List<Order> findByStatus(Order.OrderStatus status);
     
+    @EntityGraph(Order.DETAIL_GRAPH)
     List<Order> findByType(Order.OrderType type);
     
     List<Order> findBySupplierId(Long supplierId);
     
-    @Query("SELECT o FROM Order o WHERE o.status = 'PENDING'")
+    // Oldest first; served by the (status, order_date, id) index
+    @EntityGraph(Order.DETAIL_GRAPH)
+    @Query("SELECT o FROM Order o WHERE o.status = 'PENDING' ORDER BY o.orderDate, o.id")
     List<Order> findPendingOrders();
     
-    @Query("SELECT o FROM Order o WHERE o.expectedDeliveryDate < :currentDate AND o.actualDeliveryDate IS NULL")
-    List<Order> findDelayedOrders(@Param("currentDate") LocalDateTime currentDate);
+    // Orders DelayedOrderTracker has marked DELAYED, most overdue first; served by the status index
+    @EntityGraph(Order.DETAIL_GRAPH)
+    @Query("SELECT o FROM Order o WHERE o.status = 'DELAYED' ORDER BY o.expectedDeliveryDate, o.id")
+    List<Order> findDelayedOrders();
+    
+    // Processed orders that can still become DELAYED, with the date they are due; as Order.canMoveTo,
+    // orders shipped on or after their due date are left out
+    @Query("SELECT o.id AS id, o.expectedDeliveryDate AS expectedDeliveryDate FROM Order o " +
+           "WHERE o.status IN ('CONFIRMED', 'SHIPPED') AND o.expectedDeliveryDate IS NOT NULL " +
+           "AND (o.shippedAt IS NULL OR o.shippedAt < o.expectedDeliveryDate)")
+    List<DeliveryDeadline> findDeliveryDeadlines();
     
     @Query("SELECT o FROM Order o WHERE o.orderDate BETWEEN :startDate AND :endDate")
     List<Order> findOrdersBetweenDates(@Param("startDate") LocalDateTime startDate, 
                                        @Param("endDate") LocalDateTime endDate);
     
-    @Query("SELECT SUM(o.totalAmount) FROM Order o WHERE o.orderDate BETWEEN :startDate AND :endDate AND o.status = 'DELIVERED'")
+    // Both bounds exclusive; COALESCE keeps an empty range at zero instead of null
+    @Query("SELECT COALESCE(SUM(o.totalAmount), 0) FROM Order o " +
+           "WHERE o.status = 'DELIVERED' AND o.orderDate > :startDate AND o.orderDate < :endDate")
     BigDecimal calculateTotalRevenue(@Param("startDate") LocalDateTime startDate, 
                                    @Param("endDate") LocalDateTime endDate);
     
-    @Query("SELECT o FROM Order o ORDER BY o.orderDate DESC")
-    List<Order> findRecentOrders();
+    // Lower bound inclusive: the partial days at the edges of a range read from the daily rollups
+    @Query("SELECT COALESCE(SUM(o.totalAmount), 0) FROM Order o " +
+           "WHERE o.status = 'DELIVERED' AND o.orderDate >= :from AND o.orderDate < :to")
+    BigDecimal calculateRevenueFrom(@Param("from") LocalDateTime from,
+                                    @Param("to") LocalDateTime to);
+    
+    @EntityGraph(Order.SUPPLIER_GRAPH)
+    @Query("SELECT o FROM Order o ORDER BY o.orderDate DESC, o.id DESC")
+    List<Order> findRecentOrders(Pageable pageable);
+    
+    // Full recompute of the daily rollups, units summed from the order lines
+    @Query(value = "SELECT DATE(o.order_date) AS day, o.type AS type, o.status AS status, COUNT(*) AS orderCount, " +
+                   "COALESCE(SUM(o.total_amount), 0) AS revenue, COALESCE(SUM(i.units), 0) AS itemCount " +
+                   "FROM orders o LEFT JOIN (SELECT order_id, SUM(quantity) AS units FROM order_items " +
+                   "GROUP BY order_id) i ON i.order_id = o.id " +
+                   "GROUP BY DATE(o.order_date), o.type, o.status", nativeQuery = true)
+    List<RollupGroup> recomputeDailyRollups();
+    
+    // Orders written before item_count existed, or edited around the entity, get it from their lines
+    @Modifying
+    @Query(value = "UPDATE orders o LEFT JOIN (SELECT order_id, SUM(quantity) AS units FROM order_items " +
+                   "GROUP BY order_id) i ON i.order_id = o.id SET o.item_count = COALESCE(i.units, 0) " +
+                   "WHERE o.item_count IS NULL OR o.item_count <> COALESCE(i.units, 0)", nativeQuery = true)
+    int backfillItemCounts();
     
     @Query("SELECT COUNT(o) FROM Order o WHERE o.status = :status")
     Long countOrdersByStatus(@Param("status") Order.OrderStatus status);
     
+    @Query("SELECT o.status AS status, COUNT(o) AS orderCount FROM Order o GROUP BY o.status")
+    List<StatusCount> countOrdersGroupedByStatus();
+    
+    @Query("SELECT o.type AS type, COUNT(o) AS orderCount FROM Order o GROUP BY o.type")
+    List<TypeCount> countOrdersGroupedByType();
+    
     List<Order> findBySupplierIdAndStatus(Long supplierId, Order.OrderStatus status);
+
+    // Keyset pagination, newest first: seek on (orderDate, id) past the last row of the previous page
+    @EntityGraph(Order.SUPPLIER_GRAPH)
+    @Query("SELECT o FROM Order o ORDER BY o.orderDate DESC, o.id DESC")
+    List<Order> findFirstPage(Pageable pageable);
+
+    @EntityGraph(Order.SUPPLIER_GRAPH)
+    @Query("SELECT o FROM Order o WHERE o.orderDate < :orderDate OR (o.orderDate = :orderDate AND o.id < :id) " +
+           "ORDER BY o.orderDate DESC, o.id DESC")
+    List<Order> findPageBefore(@Param("orderDate") LocalDateTime orderDate,
+                               @Param("id") Long id,
+                               Pageable pageable);
+
+    @EntityGraph(Order.SUPPLIER_GRAPH)
+    @Query("SELECT o FROM Order o WHERE o.status = :status ORDER BY o.orderDate DESC, o.id DESC")
+    List<Order> findFirstPageByStatus(@Param("status") Order.OrderStatus status, Pageable pageable);
+
+    @EntityGraph(Order.SUPPLIER_GRAPH)
+    @Query("SELECT o FROM Order o WHERE o.status = :status " +
+           "AND (o.orderDate < :orderDate OR (o.orderDate = :orderDate AND o.id < :id)) " +
+           "ORDER BY o.orderDate DESC, o.id DESC")
+    List<Order> findPageByStatusBefore(@Param("status") Order.OrderStatus status,
+                                       @Param("orderDate") LocalDateTime orderDate,
+                                       @Param("id") Long id,
+                                       Pageable pageable);
+
+    @EntityGraph(Order.SUPPLIER_GRAPH)
+    @Query("SELECT o FROM Order o WHERE o.type = :type ORDER BY o.orderDate DESC, o.id DESC")
+    List<Order> findFirstPageByType(@Param("type") Order.OrderType type, Pageable pageable);
+
+    @EntityGraph(Order.SUPPLIER_GRAPH)
+    @Query("SELECT o FROM Order o WHERE o.type = :type " +
+           "AND (o.orderDate < :orderDate OR (o.orderDate = :orderDate AND o.id < :id)) " +
+           "ORDER BY o.orderDate DESC, o.id DESC")
+    List<Order> findPageByTypeBefore(@Param("type") Order.OrderType type,
+                                     @Param("orderDate") LocalDateTime orderDate,
+                                     @Param("id") Long id,
+                                     Pageable pageable);
+
+    // Search returns flat summaries with the supplier joined in, never entities with lazy proxies.
+    // Prefixes are LIKE patterns ending in % with '!' as the escape character
+    String SUMMARY_SELECT = "SELECT o.id AS id, o.orderNumber AS orderNumber, o.type AS type, o.status AS status, " +
+            "o.totalAmount AS totalAmount, o.orderDate AS orderDate, s.id AS supplierId, s.name AS supplierName ";
+
+    // A range scan of the unique order_number index, in order number order, seeking past :after
+    @Query(SUMMARY_SELECT + "FROM Order o LEFT JOIN o.supplier s " +
+           "WHERE o.orderNumber LIKE :prefix ESCAPE '!' AND o.orderNumber > :after ORDER BY o.orderNumber")
+    List<OrderSummary> searchByNumberPrefix(@Param("prefix") String prefix,
+                                            @Param("after") String after,
+                                            Pageable pageable);
+
+    // At most a page of supplier ids off the name_normalized index; the caller caps how many it accepts
+    @Query("SELECT s.id FROM Supplier s WHERE s.nameNormalized LIKE :prefix ESCAPE '!' ORDER BY s.nameNormalized, s.id")
+    List<Long> findSupplierIdsByNamePrefix(@Param("prefix") String prefix, Pageable pageable);
+
+    // One supplier's orders, newest first, read backwards off (supplier_id, order_date, id)
+    @Query(SUMMARY_SELECT + "FROM Order o JOIN o.supplier s " +
+           "WHERE s.id = :supplierId ORDER BY o.orderDate DESC, o.id DESC")
+    List<OrderSummary> searchBySupplierFirstPage(@Param("supplierId") Long supplierId, Pageable pageable);
+
+    @Query(SUMMARY_SELECT + "FROM Order o JOIN o.supplier s " +
+           "WHERE s.id = :supplierId " +
+           "AND (o.orderDate < :orderDate OR (o.orderDate = :orderDate AND o.id < :id)) " +
+           "ORDER BY o.orderDate DESC, o.id DESC")
+    List<OrderSummary> searchBySupplierBefore(@Param("supplierId") Long supplierId,
+                                              @Param("orderDate") LocalDateTime orderDate,
+                                              @Param("id") Long id,
+                                              Pageable pageable);
+
+    interface OrderSummary {
+        Long getId();
+        String getOrderNumber();
+        Order.OrderType getType();
+        Order.OrderStatus getStatus();
+        BigDecimal getTotalAmount();
+        LocalDateTime getOrderDate();
+        Long getSupplierId();
+        String getSupplierName();
+    }
+
+    interface StatusCount {
+        Order.OrderStatus getStatus();
+        long getOrderCount();
+    }
+
+    interface TypeCount {
+        Order.OrderType getType();
+        long getOrderCount();
+    }
+
+    interface DeliveryDeadline {
+        Long getId();
+        LocalDateTime getExpectedDeliveryDate();
+    }
+
+    interface RollupGroup {
+        java.sql.Date getDay();
+        String getType();
+        String getStatus();
+        Number getOrderCount();
+        BigDecimal getRevenue();
+        Number getItemCount();
+    }
 }
@@ -1,30 +1,72 @@
 package com.example.inventory.repository;
 
+import com.example.inventory.dto.ProductSuggestion;
 import com.example.inventory.model.Product;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
     
     Optional<Product> findBySku(String sku);
     
+    // Forward-only cursor for exports: rows arrive in fetch-size chunks instead of one list.
+    // Consume inside a transaction and close the stream when done.
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT p FROM Product p ORDER BY p.id")
+    Stream<Product> streamAllForExport();
+    
+    // Loads for ProductCache: warehouse and supplier come initialized so the detached copy serializes
+    @EntityGraph(attributePaths = {"warehouse", "supplier"})
+    @Query("SELECT p FROM Product p WHERE p.id = :id")
+    Optional<Product> findWithReferencesById(@Param("id") Long id);
+    
+    // Products read for the API serialize their warehouse and supplier, so these reads fetch both
+    // in the same query rather than one proxy at a time
+    @EntityGraph(attributePaths = {"warehouse", "supplier"})
+    @Query("SELECT p FROM Product p WHERE p.id IN :ids")
+    List<Product> findWithReferencesByIdIn(@Param("ids") Collection<Long> ids);
+    
+    @EntityGraph(attributePaths = {"warehouse", "supplier"})
+    @Query("SELECT p FROM Product p ORDER BY p.id")
+    List<Product> findAllWithReferences();
+    
+    @Query("SELECT p.id FROM Product p WHERE p.sku = :sku")
+    Optional<Long> findIdBySku(@Param("sku") String sku);
+    
+    @EntityGraph(attributePaths = {"warehouse", "supplier"})
     List<Product> findByCategory(String category);
     
     List<Product> findByWarehouseId(Long warehouseId);
     
     List<Product> findBySupplierId(Long supplierId);
     
-    @Query("SELECT p FROM Product p WHERE p.stockQuantity <= p.minStockLevel")
+    @EntityGraph(attributePaths = {"warehouse", "supplier"})
+    @Query("SELECT p FROM Product p WHERE p.stockQuantity <= p.minStockLevel ORDER BY p.stockQuantity")
     List<Product> findLowStockProducts();
     
     List<Product> findByNameContainingIgnoreCase(String name);
     
+    @EntityGraph(attributePaths = {"warehouse", "supplier"})
     @Query("SELECT p FROM Product p WHERE p.stockQuantity < :quantity")
     List<Product> findProductsWithStockLessThan(@Param("quantity") Integer quantity);
     
@@ -36,4 +78,163 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
 
     @Query("SELECT DISTINCT p.category FROM Product p ORDER BY p.category")
     List<String> findAllCategories();
+
+    @EntityGraph(attributePaths = {"warehouse", "supplier"})
+    @Query("SELECT p FROM Product p ORDER BY p.price DESC")
+    List<Product> findMostExpensive(Pageable pageable);
+
+    // Autocomplete fallback while the in-memory suggester is unavailable; the prefix uses '!' as escape
+    @Query("SELECT new com.example.inventory.dto.ProductSuggestion(p.id, p.sku, p.name) FROM Product p " +
+           "WHERE p.sku LIKE :prefix ESCAPE '!' OR p.name LIKE :prefix ESCAPE '!' ORDER BY p.sku")
+    List<ProductSuggestion> findSuggestions(@Param("prefix") String prefix, Pageable pageable);
+
+    // Aggregates computed by the database, one row per category
+    @Query("SELECT p.category AS category, COUNT(p) AS productCount FROM Product p GROUP BY p.category")
+    List<CategoryCount> countProductsGroupedByCategory();
+
+    // Keyset pagination: seek past the last id of the previous page
+    @EntityGraph(attributePaths = {"warehouse", "supplier"})
+    @Query("SELECT p FROM Product p WHERE p.id > :afterId ORDER BY p.id")
+    List<Product> findPageAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"warehouse", "supplier"})
+    @Query("SELECT p FROM Product p WHERE p.stockQuantity <= p.minStockLevel AND p.id > :afterId ORDER BY p.id")
+    List<Product> findLowStockPageAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"warehouse", "supplier"})
+    @Query("SELECT p FROM Product p WHERE p.category = :category AND p.id > :afterId ORDER BY p.id")
+    List<Product> findCategoryPageAfter(@Param("category") String category,
+                                        @Param("afterId") Long afterId,
+                                        Pageable pageable);
+
+    @EntityGraph(attributePaths = {"warehouse", "supplier"})
+    @Query("SELECT p FROM Product p WHERE p.id > :afterId AND (LOWER(p.name) LIKE :pattern " +
+           "OR LOWER(p.description) LIKE :pattern OR LOWER(p.sku) LIKE :pattern OR LOWER(p.category) LIKE :pattern) " +
+           "ORDER BY p.id")
+    List<Product> searchPageAfter(@Param("pattern") String pattern,
+                                  @Param("afterId") Long afterId,
+                                  Pageable pageable);
+
+    // Atomic stock mutations: the check and the write happen in one conditional UPDATE, so
+    // concurrent writers cannot oversell or overwrite each other. LAST_INSERT_ID(expr) keeps
+    // the new quantity in the MySQL session so lastStockQuantity() can return it without
+    // reading the row again.
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE products SET stock_quantity = LAST_INSERT_ID(stock_quantity - :quantity), " +
+                   "updated_at = NOW() WHERE id = :id AND stock_quantity >= :quantity AND stock_slotted = false",
+            nativeQuery = true)
+    int decrementStockIfAvailable(@Param("id") Long id, @Param("quantity") int quantity);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE products SET stock_quantity = LAST_INSERT_ID(stock_quantity + :quantity), " +
+                   "updated_at = NOW() WHERE id = :id AND stock_slotted = false", nativeQuery = true)
+    int incrementStock(@Param("id") Long id, @Param("quantity") int quantity);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Product p SET p.stockQuantity = :quantity, p.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE p.id = :id AND p.stockSlotted = false")
+    int setStock(@Param("id") Long id, @Param("quantity") int quantity);
+
+    @Query(value = "SELECT LAST_INSERT_ID()", nativeQuery = true)
+    long lastStockQuantity();
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Product p WHERE p.id = :id")
+    Optional<Product> findByIdForUpdate(@Param("id") Long id);
+
+    // Slotted stock: switches a product between row and slot mode, and mirrors slot totals
+    // into stock_quantity so table-wide queries stay close to current
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Product p SET p.stockSlotted = :slotted, p.stockQuantity = :quantity, " +
+           "p.updatedAt = CURRENT_TIMESTAMP WHERE p.id = :id")
+    int setStockSlotted(@Param("id") Long id,
+                        @Param("slotted") boolean slotted,
+                        @Param("quantity") int quantity);
+
+    @Modifying
+    @Query("UPDATE Product p SET p.stockQuantity = :quantity WHERE p.id = :id AND p.stockSlotted = true")
+    int setSlottedStockMirror(@Param("id") Long id, @Param("quantity") int quantity);
+
+    // Valuation inputs of a product; stockQuantity is the slot total for slotted products
+    String VALUATION_COLUMNS = "p.id AS id, p.price AS price, p.category AS category, " +
+            "p.warehouse.id AS warehouseId, CASE WHEN p.stockSlotted = true " +
+            "THEN (SELECT COALESCE(SUM(s.quantity), 0) FROM StockSlot s WHERE s.product.id = p.id) " +
+            "ELSE p.stockQuantity END AS stockQuantity FROM Product p ";
+    String VALUATION_SELECT = "SELECT " + VALUATION_COLUMNS;
+
+    @Query(VALUATION_SELECT + "WHERE p.id = :id")
+    Optional<ProductValuation> findValuation(@Param("id") Long id);
+
+    @Query(VALUATION_SELECT + "WHERE p.id IN :ids")
+    List<ProductValuation> findValuations(@Param("ids") Collection<Long> ids);
+
+    // Locked so stock and attribute writers cannot slip in between the snapshot and the change
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query(VALUATION_SELECT + "WHERE p.id = :id")
+    Optional<ProductValuation> findValuationForUpdate(@Param("id") Long id);
+
+    // Bulk import: the existing rows a batch of SKUs will overwrite
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p.sku AS sku, p.stockSlotted AS stockSlotted, " + VALUATION_COLUMNS + "WHERE p.sku IN :skus")
+    List<SkuValuation> findValuationsBySkuForUpdate(@Param("skus") Collection<String> skus);
+
+    // Batched stock writes (DatabaseStockEngine.adjust): every target, by id or SKU, locked in id order
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p.sku AS sku, p.stockSlotted AS stockSlotted, " + VALUATION_COLUMNS +
+           "WHERE p.id IN :ids OR p.sku IN :skus ORDER BY p.id")
+    List<SkuValuation> findStockTargetsForUpdate(@Param("ids") Collection<Long> ids,
+                                                 @Param("skus") Collection<String> skus);
+
+    @Query("SELECT p.id AS id, p.sku AS sku FROM Product p WHERE p.sku IN :skus")
+    List<SkuId> findIdsBySkus(@Param("skus") Collection<String> skus);
+
+    // Bulk stock adjustments: resolves lines by id or SKU before the stock engine locks them
+    @Query("SELECT p.id AS id, p.sku AS sku FROM Product p WHERE p.id IN :ids OR p.sku IN :skus")
+    List<SkuId> findSkuIds(@Param("ids") Collection<Long> ids, @Param("skus") Collection<String> skus);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query(VALUATION_SELECT + "WHERE p.warehouse.id = :warehouseId")
+    List<ProductValuation> findValuationsByWarehouseForUpdate(@Param("warehouseId") Long warehouseId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query(VALUATION_SELECT + "WHERE p.supplier.id = :supplierId")
+    List<ProductValuation> findValuationsBySupplierForUpdate(@Param("supplierId") Long supplierId);
+
+    // Full recompute of inventory value per (category, warehouse), for reconciliation
+    @Query(value = "SELECT p.category AS category, p.warehouse_id AS warehouseId, " +
+                   "COALESCE(SUM(p.price * CASE WHEN p.stock_slotted THEN COALESCE(s.quantity, 0) " +
+                   "ELSE p.stock_quantity END), 0) AS totalValue " +
+                   "FROM products p LEFT JOIN (SELECT product_id, SUM(quantity) AS quantity " +
+                   "FROM product_stock_slots GROUP BY product_id) s ON s.product_id = p.id " +
+                   "GROUP BY p.category, p.warehouse_id", nativeQuery = true)
+    List<ValuationGroup> recomputeValuationGroups();
+
+    interface ProductValuation {
+        Long getId();
+        BigDecimal getPrice();
+        String getCategory();
+        Long getWarehouseId();
+        Number getStockQuantity();
+    }
+
+    interface SkuValuation extends ProductValuation {
+        String getSku();
+        boolean isStockSlotted();
+    }
+
+    interface SkuId {
+        Long getId();
+        String getSku();
+    }
+
+    interface ValuationGroup {
+        String getCategory();
+        Long getWarehouseId();
+        BigDecimal getTotalValue();
+    }
+
+    interface CategoryCount {
+        String getCategory();
+        Long getProductCount();
+    }
 }
@@ -0,0 +1,80 @@
+package com.example.inventory.repository;
+
+import com.example.inventory.model.StockSlot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface StockSlotRepository extends JpaRepository<StockSlot, Long> {
+
+    @Query("SELECT s FROM StockSlot s WHERE s.product.id = :productId ORDER BY s.slotNo")
+    List<StockSlot> findSlots(@Param("productId") Long productId);
+
+    // Slot quantities are read as plain values, never as (possibly stale) managed entities.
+    // Reservations only use SKIP LOCKED reads, which never wait, so they cannot deadlock;
+    // admin operations lock every slot in slot order.
+    @Query(value = "SELECT slot_no AS slotNo, quantity AS quantity FROM product_stock_slots " +
+                   "WHERE product_id = :productId AND slot_no >= :fromSlot AND slot_no < :toSlot " +
+                   "AND quantity >= :quantity ORDER BY slot_no LIMIT 1 FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<SlotQuantity> claimSlot(@Param("productId") Long productId,
+                                 @Param("fromSlot") int fromSlot,
+                                 @Param("toSlot") int toSlot,
+                                 @Param("quantity") int quantity);
+
+    @Query(value = "SELECT slot_no AS slotNo, quantity AS quantity FROM product_stock_slots " +
+                   "WHERE product_id = :productId ORDER BY slot_no FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<SlotQuantity> claimUnlockedSlots(@Param("productId") Long productId);
+
+    @Query(value = "SELECT slot_no AS slotNo, quantity AS quantity FROM product_stock_slots " +
+                   "WHERE product_id = :productId ORDER BY slot_no FOR UPDATE", nativeQuery = true)
+    List<SlotQuantity> lockSlots(@Param("productId") Long productId);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE product_stock_slots SET quantity = quantity + :quantity, updated_at = NOW() " +
+                   "WHERE product_id = :productId AND slot_no = :slotNo", nativeQuery = true)
+    int addToSlot(@Param("productId") Long productId,
+                  @Param("slotNo") int slotNo,
+                  @Param("quantity") int quantity);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE product_stock_slots SET quantity = :quantity, updated_at = NOW() " +
+                   "WHERE product_id = :productId AND slot_no = :slotNo", nativeQuery = true)
+    int setSlotQuantity(@Param("productId") Long productId,
+                        @Param("slotNo") int slotNo,
+                        @Param("quantity") int quantity);
+
+    @Query("SELECT COALESCE(SUM(s.quantity), 0) FROM StockSlot s WHERE s.product.id = :productId")
+    long sumSlots(@Param("productId") Long productId);
+
+    @Query("SELECT s.product.id AS productId, COUNT(s) AS slotCount FROM StockSlot s GROUP BY s.product.id")
+    List<SlotCount> countSlotsByProduct();
+
+    // Slot totals of the slotted products whose stock_quantity mirror no longer matches; a plain read
+    @Query("SELECT p.id AS productId, SUM(s.quantity) AS total FROM StockSlot s JOIN s.product p " +
+           "WHERE p.stockSlotted = true GROUP BY p.id, p.stockQuantity HAVING SUM(s.quantity) <> p.stockQuantity")
+    List<SlotTotal> findDriftedSlotTotals();
+
+    @Modifying(flushAutomatically = true)
+    @Query("DELETE FROM StockSlot s WHERE s.product.id = :productId")
+    int deleteSlots(@Param("productId") Long productId);
+
+    interface SlotQuantity {
+        Integer getSlotNo();
+        Integer getQuantity();
+    }
+
+    interface SlotTotal {
+        Long getProductId();
+        Long getTotal();
+    }
+
+    interface SlotCount {
+        Long getProductId();
+        Long getSlotCount();
+    }
+}
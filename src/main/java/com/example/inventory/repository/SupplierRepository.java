@@ -1,11 +1,13 @@
 package com.example.inventory.repository;
 
 import com.example.inventory.model.Supplier;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,6 +16,8 @@ public interface SupplierRepository extends JpaRepository<Supplier, Long> {
     
     Optional<Supplier> findByName(String name);
     
+    List<Supplier> findByNameIn(Collection<String> names);
+    
     Optional<Supplier> findByEmail(String email);
     
     List<Supplier> findByStatus(Supplier.SupplierStatus status);
@@ -26,9 +30,29 @@ public interface SupplierRepository extends JpaRepository<Supplier, Long> {
     @Query("SELECT DISTINCT s FROM Supplier s JOIN s.products p")
     List<Supplier> findSuppliersWithProducts();
     
+    @Query("SELECT s FROM Supplier s WHERE s.status = 'ACTIVE' AND EXISTS " +
+           "(SELECT p.id FROM Product p WHERE p.supplier = s) ORDER BY s.id")
+    List<Supplier> findActiveSuppliersWithProducts();
+    
     @Query("SELECT COUNT(p) FROM Product p WHERE p.supplier.id = :supplierId")
     Long countProductsBySupplier(@Param("supplierId") Long supplierId);
     
     @Query("SELECT DISTINCT s FROM Supplier s JOIN s.orders o WHERE o.status = 'PENDING'")
     List<Supplier> findSuppliersWithPendingOrders();
+
+    // Keyset pagination: seek past the last id of the previous page
+    @Query("SELECT s FROM Supplier s WHERE s.id > :afterId ORDER BY s.id")
+    List<Supplier> findPageAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT s FROM Supplier s WHERE s.status = :status AND s.id > :afterId ORDER BY s.id")
+    List<Supplier> findStatusPageAfter(@Param("status") Supplier.SupplierStatus status,
+                                       @Param("afterId") Long afterId,
+                                       Pageable pageable);
+
+    @Query("SELECT s FROM Supplier s WHERE s.id > :afterId AND (LOWER(s.name) LIKE :pattern " +
+           "OR LOWER(s.email) LIKE :pattern OR LOWER(s.contactPerson) LIKE :pattern OR LOWER(s.address) LIKE :pattern) " +
+           "ORDER BY s.id")
+    List<Supplier> searchPageAfter(@Param("pattern") String pattern,
+                                   @Param("afterId") Long afterId,
+                                   Pageable pageable);
 }
@@ -1,11 +1,14 @@
 package com.example.inventory.repository;
 
 import com.example.inventory.model.Warehouse;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,6 +18,8 @@ public interface WarehouseRepository extends JpaRepository<Warehouse, Long> {
 
     Optional<Warehouse> findByName(String name);
     
+    List<Warehouse> findByNameIn(Collection<String> names);
+    
     List<Warehouse> findByLocationContainingIgnoreCase(String location);
     
     @Query("SELECT DISTINCT w FROM Warehouse w JOIN w.products p")
@@ -25,4 +30,51 @@ public interface WarehouseRepository extends JpaRepository<Warehouse, Long> {
     
     @Query("SELECT DISTINCT w FROM Warehouse w JOIN w.products p WHERE p.stockQuantity <= p.minStockLevel")
     List<Warehouse> findWarehousesWithLowStockProducts();
+
+    @Query("SELECT w.name AS warehouseName, COUNT(p) AS lowStockCount FROM Warehouse w JOIN w.products p " +
+           "WHERE p.stockQuantity <= p.minStockLevel GROUP BY w.id, w.name ORDER BY w.id")
+    List<LowStockCount> countLowStockProductsByWarehouse();
+
+    // Keyset pagination: seek past the last id of the previous page
+    @Query("SELECT w FROM Warehouse w WHERE w.id > :afterId ORDER BY w.id")
+    List<Warehouse> findPageAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT w FROM Warehouse w WHERE w.id > :afterId " +
+           "AND (LOWER(w.name) LIKE :pattern OR LOWER(w.location) LIKE :pattern) ORDER BY w.id")
+    List<Warehouse> searchPageAfter(@Param("pattern") String pattern,
+                                    @Param("afterId") Long afterId,
+                                    Pageable pageable);
+
+    @Query("SELECT w FROM Warehouse w WHERE w.id > :afterId AND EXISTS " +
+           "(SELECT p.id FROM Product p WHERE p.warehouse = w AND p.stockQuantity <= p.minStockLevel) ORDER BY w.id")
+    List<Warehouse> findLowStockPageAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Products per warehouse, counted by the database; warehouses without products count zero
+    @Query("SELECT w.id AS warehouseId, w.name AS warehouseName, COUNT(p) AS productCount " +
+           "FROM Warehouse w LEFT JOIN w.products p GROUP BY w.id, w.name")
+    List<ProductCount> countProductsByWarehouse();
+
+    // Product count, low-stock count and stock value of one warehouse in a single row
+    @Query("SELECT COUNT(p) AS totalProducts, " +
+           "COALESCE(SUM(CASE WHEN p.stockQuantity <= p.minStockLevel THEN 1 ELSE 0 END), 0) AS lowStockProducts, " +
+           "COALESCE(SUM(p.price * p.stockQuantity), 0) AS totalValue " +
+           "FROM Product p WHERE p.warehouse.id = :warehouseId")
+    ProductTotals summarizeProducts(@Param("warehouseId") Long warehouseId);
+
+    interface ProductCount {
+        Long getWarehouseId();
+        String getWarehouseName();
+        long getProductCount();
+    }
+
+    interface ProductTotals {
+        Number getTotalProducts();
+        Number getLowStockProducts();
+        BigDecimal getTotalValue();
+    }
+
+    interface LowStockCount {
+        String getWarehouseName();
+        long getLowStockCount();
+    }
 }
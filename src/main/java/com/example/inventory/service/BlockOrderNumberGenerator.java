@@ -0,0 +1,110 @@
+package com.example.inventory.service;
+
+import com.example.inventory.model.Order;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Default order numbers (inventory.order-number.generator=block): blocks reserved in the
+ * database, so instances need no configuration of their own to stay unique.
+ *
+ * Each instance reserves the next block-size numbers by advancing the "order_numbers" row of
+ * the id generator table in its own short transaction, then issues them from an AtomicLong
+ * without further round trips; only the thread that finds a block used up takes the lock to
+ * reserve the next one. Reservations run on a private one-connection pool: borrowing from the
+ * main pool while every connection is held by an order transaction waiting on that lock would
+ * stall all of them until the pool timeout. Numbers are unique across instances and increase within one, though
+ * not across instances. The row is seeded from the clock (milliseconds times 1000), which puts
+ * every number above the millisecond timestamps older order numbers were made of.
+ */
+@Service
+@ConditionalOnProperty(name = "inventory.order-number.generator", havingValue = "block", matchIfMissing = true)
+public class BlockOrderNumberGenerator implements OrderNumberGenerator {
+
+    private static final String ROW = "order_numbers";
+
+    private final HikariDataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int blockSize;
+
+    private volatile Block block = new Block(0, 0);
+
+    @Autowired
+    public BlockOrderNumberGenerator(DataSourceProperties dataSourceProperties,
+                                     @Value("${inventory.order-number.block-size:1000}") int blockSize) {
+        this.dataSource = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        this.dataSource.setPoolName("order-numbers");
+        this.dataSource.setMaximumPoolSize(1);
+        this.dataSource.setMinimumIdle(0);
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        // Reservations commit at once, whatever transaction the order is created in
+        this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        this.blockSize = Math.max(1, blockSize);
+    }
+
+    @PreDestroy
+    void close() {
+        dataSource.close();
+    }
+
+    @Override
+    public String next() {
+        while (true) {
+            Block current = block;
+            long number = current.next.getAndIncrement();
+            if (number < current.end) {
+                return PREFIX + number;
+            }
+            synchronized (this) {
+                if (block == current) {
+                    block = reserve();
+                }
+            }
+        }
+    }
+
+    // Advances the row by one block under its row lock and returns the numbers it covered
+    private Block reserve() {
+        return transactionTemplate.execute(status -> {
+            int updated = jdbcTemplate.update("UPDATE " + Order.ID_TABLE + " SET next_val = next_val + ? WHERE name = ?",
+                    blockSize, ROW);
+            if (updated == 0) {
+                long start = System.currentTimeMillis() * 1000;
+                try {
+                    jdbcTemplate.update("INSERT INTO " + Order.ID_TABLE + " (name, next_val) VALUES (?, ?)",
+                            ROW, start + blockSize);
+                    return new Block(start, start + blockSize);
+                } catch (DuplicateKeyException e) {
+                    // Another instance seeded the row first; take a block from it
+                    jdbcTemplate.update("UPDATE " + Order.ID_TABLE + " SET next_val = next_val + ? WHERE name = ?",
+                            blockSize, ROW);
+                }
+            }
+            long end = jdbcTemplate.queryForObject("SELECT next_val FROM " + Order.ID_TABLE + " WHERE name = ?",
+                    Long.class, ROW);
+            return new Block(end - blockSize, end);
+        });
+    }
+
+    private static final class Block {
+        final AtomicLong next;
+        final long end;
+
+        Block(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+}
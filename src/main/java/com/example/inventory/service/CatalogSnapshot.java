@@ -0,0 +1,383 @@
+package com.example.inventory.service;
+
+import com.example.inventory.event.ProductChangedEvent;
+import com.example.inventory.event.StockChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Column-oriented copy of the catalog for the product analytics, rebuilt from the products
+ * table when it has changed; answers may lag by one refresh interval.
+ */
+@Service
+public class CatalogSnapshot {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogSnapshot.class);
+
+    // Rows per parallel reduction task
+    private static final int CHUNK = 1 << 16;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int parallelThreshold;
+
+    // Null until the first build completes
+    private volatile Columns columns;
+    private volatile boolean dirty = true;
+
+    @Autowired
+    public CatalogSnapshot(JdbcTemplate jdbcTemplate,
+                           @Value("${inventory.catalog-snapshot.parallel-threshold:200000}") int parallelThreshold) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        dirty = true;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockChanged(StockChangedEvent event) {
+        dirty = true;
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.catalog-snapshot.refresh-interval-ms:30000}")
+    public void refreshIfChanged() {
+        if (dirty || columns == null) {
+            refresh();
+        }
+    }
+
+    public void refresh() {
+        // Cleared first, so a change that lands during the scan triggers the next refresh
+        dirty = false;
+        long started = System.nanoTime();
+        Builder builder = new Builder();
+        try {
+            jdbcTemplate.query("SELECT id, price, stock_quantity, category, warehouse_id FROM products",
+                    (RowCallbackHandler) rs -> {
+                        long warehouseId = rs.getLong(5);
+                        builder.add(rs.getLong(1), rs.getBigDecimal(2), rs.getInt(3), rs.getString(4),
+                                rs.wasNull() ? null : warehouseId);
+                    });
+        } catch (RuntimeException e) {
+            dirty = true;
+            log.error("Refreshing the catalog snapshot failed", e);
+            return;
+        }
+        Columns fresh = builder.build((System.nanoTime() - started) / 1_000_000);
+        columns = fresh;
+        log.debug("Catalog snapshot refreshed: {} products, {} bytes in {} ms",
+                fresh.size, fresh.footprintBytes(), fresh.buildMs);
+    }
+
+    public boolean isReady() {
+        return columns != null;
+    }
+
+    // ===================== QUERIES =====================
+
+    // Each query returns null until the first build completes; `parallel` null means "when large"
+
+    public Map<String, Long> countByCategory(Boolean parallel) {
+        Columns current = columns;
+        if (current == null) {
+            return null;
+        }
+        long[] counts = current.reduce(current.category, current.categories.length, false, parallel(current, parallel));
+        Map<String, Long> result = new HashMap<>();
+        for (int code = 0; code < counts.length; code++) {
+            result.put(current.categories[code], counts[code]);
+        }
+        return result;
+    }
+
+    public Map<String, BigDecimal> valueByCategory(Boolean parallel) {
+        Columns current = columns;
+        if (current == null) {
+            return null;
+        }
+        BigDecimal[] values = current.values(current.category, current.categories.length, parallel(current, parallel));
+        Map<String, BigDecimal> result = new HashMap<>();
+        for (int code = 0; code < values.length; code++) {
+            result.put(current.categories[code], values[code]);
+        }
+        return result;
+    }
+
+    // Keyed by warehouse id; products without a warehouse are left out
+    public Map<Long, BigDecimal> valueByWarehouse(Boolean parallel) {
+        Columns current = columns;
+        if (current == null) {
+            return null;
+        }
+        BigDecimal[] values = current.values(current.warehouse, current.warehouseIds.length, parallel(current, parallel));
+        Map<Long, BigDecimal> result = new HashMap<>();
+        for (int code = 0; code < values.length; code++) {
+            result.put(current.warehouseIds[code], values[code]);
+        }
+        return result;
+    }
+
+    // Ids of the `limit` most expensive products, most expensive first (ties by id)
+    public List<Long> topExpensiveIds(int limit) {
+        Columns current = columns;
+        if (current == null) {
+            return null;
+        }
+        int k = Math.min(limit, current.size);
+        // Min-heap of row positions holding the k best seen so far; its root is the cheapest of them
+        int[] heap = new int[k];
+        int heapSize = 0;
+        for (int row = 0; row < current.size; row++) {
+            if (heapSize < k) {
+                heap[heapSize] = row;
+                siftUp(current, heap, heapSize++);
+            } else if (k > 0 && current.ranksAbove(row, heap[0])) {
+                heap[0] = row;
+                siftDown(current, heap, k);
+            }
+        }
+        List<Long> ids = new ArrayList<>(heapSize);
+        while (heapSize > 0) {
+            ids.add(current.ids[heap[0]]);
+            heap[0] = heap[--heapSize];
+            siftDown(current, heap, heapSize);
+        }
+        Collections.reverse(ids);
+        return ids;
+    }
+
+    // Ids of the products with stock below `threshold`, by ascending id
+    public List<Long> idsWithStockBelow(int threshold) {
+        Columns current = columns;
+        if (current == null) {
+            return null;
+        }
+        List<Long> ids = new ArrayList<>();
+        for (int row = 0; row < current.size; row++) {
+            if (current.stock[row] < threshold) {
+                ids.add(current.ids[row]);
+            }
+        }
+        return ids;
+    }
+
+    public Map<String, Object> getStats() {
+        Columns current = columns;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("ready", current != null);
+        stats.put("products", current == null ? 0 : current.size);
+        stats.put("categories", current == null ? 0 : current.categories.length);
+        stats.put("warehouses", current == null ? 0 : current.warehouseIds.length);
+        stats.put("builtAt", current == null ? null : new Date(current.builtAt));
+        stats.put("ageMs", current == null ? null : System.currentTimeMillis() - current.builtAt);
+        stats.put("buildMs", current == null ? null : current.buildMs);
+        stats.put("estimatedBytes", current == null ? 0 : current.footprintBytes());
+        stats.put("parallelThreshold", parallelThreshold);
+        return stats;
+    }
+
+    private boolean parallel(Columns current, Boolean requested) {
+        boolean parallel = requested != null ? requested : current.size >= parallelThreshold;
+        return parallel && current.size > CHUNK;
+    }
+
+    private static void siftUp(Columns columns, int[] heap, int position) {
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (!columns.ranksAbove(heap[parent], heap[position])) {
+                return;
+            }
+            swap(heap, parent, position);
+            position = parent;
+        }
+    }
+
+    private static void siftDown(Columns columns, int[] heap, int size) {
+        int position = 0;
+        while (true) {
+            int lowest = position;
+            int left = 2 * position + 1;
+            if (left < size && columns.ranksAbove(heap[lowest], heap[left])) {
+                lowest = left;
+            }
+            if (left + 1 < size && columns.ranksAbove(heap[lowest], heap[left + 1])) {
+                lowest = left + 1;
+            }
+            if (lowest == position) {
+                return;
+            }
+            swap(heap, position, lowest);
+            position = lowest;
+        }
+    }
+
+    private static void swap(int[] heap, int a, int b) {
+        int held = heap[a];
+        heap[a] = heap[b];
+        heap[b] = held;
+    }
+
+    // ===================== COLUMNS =====================
+
+    private static final class Columns {
+        final int size;
+        final long[] ids;
+        final long[] priceCents;
+        final int[] stock;
+        final int[] category;
+        // -1 for a product without a warehouse
+        final int[] warehouse;
+        final String[] categories;
+        final long[] warehouseIds;
+        final long builtAt;
+        final long buildMs;
+
+        Columns(int size, long[] ids, long[] priceCents, int[] stock, int[] category, int[] warehouse,
+                String[] categories, long[] warehouseIds, long buildMs) {
+            this.size = size;
+            this.ids = ids;
+            this.priceCents = priceCents;
+            this.stock = stock;
+            this.category = category;
+            this.warehouse = warehouse;
+            this.categories = categories;
+            this.warehouseIds = warehouseIds;
+            this.builtAt = System.currentTimeMillis();
+            this.buildMs = buildMs;
+        }
+
+        // Higher price first, then lower id, matching a stable ORDER BY price DESC
+        boolean ranksAbove(int row, int other) {
+            return priceCents[row] != priceCents[other]
+                    ? priceCents[row] > priceCents[other]
+                    : ids[row] < ids[other];
+        }
+
+        // Per-code product counts, or stock value in cents; value sums throw ArithmeticException on overflow
+        long[] reduce(int[] codes, int buckets, boolean value, boolean parallel) {
+            if (!parallel) {
+                long[] sums = new long[buckets];
+                accumulate(codes, sums, value, 0, size);
+                return sums;
+            }
+            return IntStream.range(0, (size + CHUNK - 1) / CHUNK)
+                    .parallel()
+                    .mapToObj(chunk -> {
+                        long[] sums = new long[buckets];
+                        accumulate(codes, sums, value, chunk * CHUNK, Math.min(size, (chunk + 1) * CHUNK));
+                        return sums;
+                    })
+                    .reduce((a, b) -> {
+                        for (int code = 0; code < buckets; code++) {
+                            a[code] = Math.addExact(a[code], b[code]);
+                        }
+                        return a;
+                    })
+                    .orElseGet(() -> new long[buckets]);
+        }
+
+        private void accumulate(int[] codes, long[] sums, boolean value, int from, int to) {
+            if (value) {
+                for (int row = from; row < to; row++) {
+                    int code = codes[row];
+                    if (code >= 0) {
+                        sums[code] = Math.addExact(sums[code], Math.multiplyExact(priceCents[row], stock[row]));
+                    }
+                }
+            } else {
+                for (int row = from; row < to; row++) {
+                    int code = codes[row];
+                    if (code >= 0) {
+                        sums[code]++;
+                    }
+                }
+            }
+        }
+
+        // Stock value per code in currency units; falls back to exact big-integer sums if a long overflows
+        BigDecimal[] values(int[] codes, int buckets, boolean parallel) {
+            BigDecimal[] values = new BigDecimal[buckets];
+            try {
+                long[] cents = reduce(codes, buckets, true, parallel);
+                for (int code = 0; code < buckets; code++) {
+                    values[code] = BigDecimal.valueOf(cents[code], 2);
+                }
+            } catch (ArithmeticException e) {
+                BigInteger[] cents = new BigInteger[buckets];
+                Arrays.fill(cents, BigInteger.ZERO);
+                for (int row = 0; row < size; row++) {
+                    if (codes[row] >= 0) {
+                        cents[codes[row]] = cents[codes[row]].add(
+                                BigInteger.valueOf(priceCents[row]).multiply(BigInteger.valueOf(stock[row])));
+                    }
+                }
+                for (int code = 0; code < buckets; code++) {
+                    values[code] = new BigDecimal(cents[code], 2);
+                }
+            }
+            return values;
+        }
+
+        long footprintBytes() {
+            long bytes = (long) ids.length * (Long.BYTES * 2 + Integer.BYTES * 3);
+            bytes += (long) warehouseIds.length * Long.BYTES;
+            for (String name : categories) {
+                bytes += 40 + 2L * name.length(); // String header, array header and UTF-16 chars, roughly
+            }
+            return bytes;
+        }
+    }
+
+    private static final class Builder {
+        private int size;
+        private long[] ids = new long[1024];
+        private long[] priceCents = new long[1024];
+        private int[] stock = new int[1024];
+        private int[] category = new int[1024];
+        private int[] warehouse = new int[1024];
+        private final Map<String, Integer> categoryCodes = new HashMap<>();
+        private final Map<Long, Integer> warehouseCodes = new HashMap<>();
+
+        void add(long id, BigDecimal price, int quantity, String categoryName, Long warehouseId) {
+            if (size == ids.length) {
+                int capacity = size * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                priceCents = Arrays.copyOf(priceCents, capacity);
+                stock = Arrays.copyOf(stock, capacity);
+                category = Arrays.copyOf(category, capacity);
+                warehouse = Arrays.copyOf(warehouse, capacity);
+            }
+            ids[size] = id;
+            priceCents[size] = price.movePointRight(2).longValue();
+            stock[size] = quantity;
+            category[size] = categoryCodes.computeIfAbsent(categoryName == null ? "" : categoryName,
+                    name -> categoryCodes.size());
+            warehouse[size] = warehouseId == null ? -1 : warehouseCodes.computeIfAbsent(warehouseId, key -> warehouseCodes.size());
+            size++;
+        }
+
+        Columns build(long buildMs) {
+            String[] categories = new String[categoryCodes.size()];
+            categoryCodes.forEach((name, code) -> categories[code] = name);
+            long[] warehouseIds = new long[warehouseCodes.size()];
+            warehouseCodes.forEach((id, code) -> warehouseIds[code] = id);
+            return new Columns(size, Arrays.copyOf(ids, size), Arrays.copyOf(priceCents, size),
+                    Arrays.copyOf(stock, size), Arrays.copyOf(category, size), Arrays.copyOf(warehouse, size),
+                    categories, warehouseIds, buildMs);
+        }
+    }
+}
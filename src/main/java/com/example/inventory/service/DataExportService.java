@@ -0,0 +1,295 @@
+package com.example.inventory.service;
+
+import com.example.inventory.model.Order;
+import com.example.inventory.model.OrderItem;
+import com.example.inventory.model.Product;
+import com.example.inventory.repository.OrderItemRepository;
+import com.example.inventory.repository.OrderRepository;
+import com.example.inventory.repository.ProductRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Full-table exports of products, orders and order items as CSV or NDJSON.
+ *
+ * Rows come from a forward-only repository cursor (streamAllForExport) inside a read-only
+ * transaction and are written to the output as they arrive; the persistence context is
+ * cleared every EXPORT_CHUNK rows, so neither the result set nor the loaded entities
+ * (nor the proxies of the rows they reference) accumulate. Columns are flat: references
+ * are exported as ids, which read the foreign key without loading the referenced row.
+ */
+@Service
+public class DataExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(DataExportService.class);
+
+    // Matches the fetch size of the export cursors
+    private static final int EXPORT_CHUNK = 1000;
+
+    public enum Format {
+        CSV("text/csv", "csv"), NDJSON("application/x-ndjson", "ndjson");
+
+        private final String mediaType;
+        private final String extension;
+
+        Format(String mediaType, String extension) {
+            this.mediaType = mediaType;
+            this.extension = extension;
+        }
+
+        public String getMediaType() {
+            return mediaType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public static Format of(String format) {
+            try {
+                return valueOf(format.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Export format must be csv or ndjson");
+            }
+        }
+    }
+
+    private static final List<Column<Product>> PRODUCT_COLUMNS = List.of(
+            new Column<>("id", Product::getId),
+            new Column<>("sku", Product::getSku),
+            new Column<>("name", Product::getName),
+            new Column<>("description", Product::getDescription),
+            new Column<>("category", Product::getCategory),
+            new Column<>("price", Product::getPrice),
+            // For slotted products this is the row's mirrored slot total
+            new Column<>("stockQuantity", Product::getStockQuantity),
+            new Column<>("minStockLevel", Product::getMinStockLevel),
+            new Column<>("stockSlotted", Product::isStockSlotted),
+            new Column<>("warehouseId", product -> product.getWarehouse() == null ? null : product.getWarehouse().getId()),
+            new Column<>("supplierId", product -> product.getSupplier() == null ? null : product.getSupplier().getId()),
+            new Column<>("createdAt", Product::getCreatedAt),
+            new Column<>("updatedAt", Product::getUpdatedAt));
+
+    private static final List<Column<Order>> ORDER_COLUMNS = List.of(
+            new Column<>("id", Order::getId),
+            new Column<>("orderNumber", Order::getOrderNumber),
+            new Column<>("type", Order::getType),
+            new Column<>("status", Order::getStatus),
+            new Column<>("supplierId", order -> order.getSupplier() == null ? null : order.getSupplier().getId()),
+            new Column<>("totalAmount", Order::getTotalAmount),
+            new Column<>("orderDate", Order::getOrderDate),
+            new Column<>("expectedDeliveryDate", Order::getExpectedDeliveryDate),
+            new Column<>("actualDeliveryDate", Order::getActualDeliveryDate),
+            new Column<>("createdAt", Order::getCreatedAt),
+            new Column<>("updatedAt", Order::getUpdatedAt));
+
+    private static final List<Column<OrderItem>> ORDER_ITEM_COLUMNS = List.of(
+            new Column<>("id", OrderItem::getId),
+            new Column<>("orderId", item -> item.getOrder().getId()),
+            new Column<>("productId", item -> item.getProduct().getId()),
+            new Column<>("quantity", OrderItem::getQuantity),
+            new Column<>("unitPrice", OrderItem::getUnitPrice),
+            new Column<>("createdAt", OrderItem::getCreatedAt),
+            new Column<>("updatedAt", OrderItem::getUpdatedAt));
+
+    private final ProductRepository productRepository;
+    private final OrderRepository orderRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    public DataExportService(ProductRepository productRepository,
+                             OrderRepository orderRepository,
+                             OrderItemRepository orderItemRepository,
+                             TransactionTemplate transactionTemplate,
+                             ObjectMapper objectMapper) {
+        this.productRepository = productRepository;
+        this.orderRepository = orderRepository;
+        this.orderItemRepository = orderItemRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.transactionTemplate.setReadOnly(true);
+        this.objectMapper = objectMapper;
+    }
+
+    public void exportProducts(OutputStream out, Format format) throws IOException {
+        export("products", out, format, PRODUCT_COLUMNS, productRepository::streamAllForExport);
+    }
+
+    public void exportOrders(OutputStream out, Format format) throws IOException {
+        export("orders", out, format, ORDER_COLUMNS, orderRepository::streamAllForExport);
+    }
+
+    public void exportOrderItems(OutputStream out, Format format) throws IOException {
+        export("order items", out, format, ORDER_ITEM_COLUMNS, orderItemRepository::streamAllForExport);
+    }
+
+    private <T> void export(String what, OutputStream out, Format format, List<Column<T>> columns,
+                            Supplier<Stream<T>> query) throws IOException {
+        long started = System.nanoTime();
+        RowWriter<T> writer = format == Format.CSV
+                ? new CsvWriter<>(out, columns)
+                : new NdjsonWriter<>(objectMapper.getFactory().createGenerator(out), columns);
+        try {
+            Long rows = transactionTemplate.execute(status -> {
+                long written = 0;
+                try (Stream<T> stream = query.get()) {
+                    Iterator<T> iterator = stream.iterator();
+                    while (iterator.hasNext()) {
+                        writer.write(iterator.next());
+                        if (++written % EXPORT_CHUNK == 0) {
+                            entityManager.clear();
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return written;
+            });
+            writer.finish();
+            log.info("Exported {} {} as {} in {} ms", rows, what, format, (System.nanoTime() - started) / 1_000_000);
+        } catch (UncheckedIOException e) {
+            // Typically the client went away mid-download
+            throw e.getCause();
+        }
+    }
+
+    // ===================== WRITERS =====================
+
+    private static final class Column<T> {
+        final String name;
+        final Function<T, Object> value;
+
+        Column(String name, Function<T, Object> value) {
+            this.name = name;
+            this.value = value;
+        }
+    }
+
+    private interface RowWriter<T> {
+        void write(T row) throws IOException;
+
+        void finish() throws IOException;
+    }
+
+    // RFC 4180 with a header row; values containing separators, quotes or line breaks are quoted
+    private static final class CsvWriter<T> implements RowWriter<T> {
+        private final Writer out;
+        private final List<Column<T>> columns;
+
+        CsvWriter(OutputStream out, List<Column<T>> columns) throws IOException {
+            this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+            this.columns = columns;
+            for (int i = 0; i < columns.size(); i++) {
+                if (i > 0) {
+                    this.out.write(',');
+                }
+                this.out.write(columns.get(i).name);
+            }
+            this.out.write('\n');
+        }
+
+        @Override
+        public void write(T row) throws IOException {
+            for (int i = 0; i < columns.size(); i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                Object value = columns.get(i).value.apply(row);
+                if (value != null) {
+                    writeField(text(value));
+                }
+            }
+            out.write('\n');
+        }
+
+        private void writeField(String value) throws IOException {
+            boolean quote = false;
+            for (int i = 0; i < value.length() && !quote; i++) {
+                char c = value.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quote) {
+                out.write(value);
+                return;
+            }
+            out.write('"');
+            out.write(value.replace("\"", "\"\""));
+            out.write('"');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            out.flush();
+        }
+    }
+
+    private static final class NdjsonWriter<T> implements RowWriter<T> {
+        private final JsonGenerator generator;
+        private final List<Column<T>> columns;
+
+        private boolean empty = true;
+
+        NdjsonWriter(JsonGenerator generator, List<Column<T>> columns) {
+            this.generator = generator;
+            this.generator.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+            this.columns = columns;
+        }
+
+        @Override
+        public void write(T row) throws IOException {
+            empty = false;
+            generator.writeStartObject();
+            for (Column<T> column : columns) {
+                Object value = column.value.apply(row);
+                generator.writeFieldName(column.name);
+                if (value == null) {
+                    generator.writeNull();
+                } else if (value instanceof BigDecimal decimal) {
+                    generator.writeNumber(decimal);
+                } else if (value instanceof Number number) {
+                    generator.writeNumber(number.longValue());
+                } else if (value instanceof Boolean bool) {
+                    generator.writeBoolean(bool);
+                } else {
+                    generator.writeString(text(value));
+                }
+            }
+            generator.writeEndObject();
+        }
+
+        @Override
+        public void finish() throws IOException {
+            if (!empty) {
+                generator.writeRaw('\n');
+            }
+            generator.flush();
+        }
+    }
+
+    // Decimals without exponent; dates and times come out as ISO-8601 and enums by name
+    private static String text(Object value) {
+        return value instanceof BigDecimal decimal ? decimal.toPlainString() : value.toString();
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.inventory.service;
+
+import com.example.inventory.exception.OutOfStockException;
+import com.example.inventory.model.Product;
+import com.example.inventory.repository.ProductRepository;
+import com.example.inventory.repository.ProductRepository.SkuValuation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Stock engine that applies every delta as one conditional UPDATE on the product row.
+ * The row lock is held only for the statement (or the caller's transaction), with no
+ * read-check-write window in between. Products promoted to slotted stock are handed to
+ * StockSlotService, which spreads their writers over several slot rows. Batches lock all
+ * their rows with one SELECT ... FOR UPDATE in id order and write them as one JDBC batch.
+ */
+@Service
+@Transactional
+@ConditionalOnProperty(name = "inventory.stock.engine", havingValue = "database", matchIfMissing = true)
+public class DatabaseStockEngine implements StockEngine {
+
+    private final ProductRepository productRepository;
+    private final StockSlotService stockSlotService;
+    private final InventoryValuationService valuationService;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public DatabaseStockEngine(ProductRepository productRepository,
+                               StockSlotService stockSlotService,
+                               InventoryValuationService valuationService,
+                               JdbcTemplate jdbcTemplate) {
+        this.productRepository = productRepository;
+        this.stockSlotService = stockSlotService;
+        this.valuationService = valuationService;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public int reduceStock(Long productId, int quantity) {
+        int remaining = takeStock(productId, quantity);
+        valuationService.recordStockChange(productId, -quantity);
+        return remaining;
+    }
+
+    private int takeStock(Long productId, int quantity) {
+        if (stockSlotService.isSlotted(productId)) {
+            return stockSlotService.reduceStock(productId, quantity);
+        }
+        if (productRepository.decrementStockIfAvailable(productId, quantity) == 0) {
+            // Nothing matched: the product is missing, has too little stock, or was slotted elsewhere
+            Product product = getProduct(productId);
+            if (product.isStockSlotted()) {
+                stockSlotService.refreshSlottedProducts();
+                return stockSlotService.reduceStock(productId, quantity);
+            }
+            throw new OutOfStockException(
+                    "Insufficient stock for product: " + product.getName() +
+                            ". Available: " + product.getStockQuantity() +
+                            ", Requested: " + quantity);
+        }
+        return (int) productRepository.lastStockQuantity();
+    }
+
+    @Override
+    public int increaseStock(Long productId, int quantity) {
+        int stock = addStock(productId, quantity);
+        valuationService.recordStockChange(productId, quantity);
+        return stock;
+    }
+
+    private int addStock(Long productId, int quantity) {
+        if (stockSlotService.isSlotted(productId)) {
+            return stockSlotService.increaseStock(productId, quantity);
+        }
+        if (productRepository.incrementStock(productId, quantity) == 0) {
+            if (getProduct(productId).isStockSlotted()) {
+                stockSlotService.refreshSlottedProducts();
+                return stockSlotService.increaseStock(productId, quantity);
+            }
+            throw new IllegalArgumentException("Product not found with ID: " + productId);
+        }
+        return (int) productRepository.lastStockQuantity();
+    }
+
+    @Override
+    public void setStock(Long productId, int quantity) {
+        int before = valuationService.lockSnapshot(productId)
+                .map(product -> product.getStockQuantity().intValue())
+                .orElse(0);
+        writeStock(productId, quantity);
+        valuationService.recordStockChange(productId, quantity - before);
+    }
+
+    private void writeStock(Long productId, int quantity) {
+        if (stockSlotService.isSlotted(productId)) {
+            stockSlotService.setStock(productId, quantity);
+            return;
+        }
+        if (productRepository.setStock(productId, quantity) == 0) {
+            if (getProduct(productId).isStockSlotted()) {
+                stockSlotService.refreshSlottedProducts();
+                stockSlotService.setStock(productId, quantity);
+                return;
+            }
+            throw new IllegalArgumentException("Product not found with ID: " + productId);
+        }
+    }
+
+    @Override
+    public void adjust(Collection<Long> productIds, Function<Map<Long, Integer>, Map<Long, Integer>> plan) {
+        // Empty IN lists are not portable SQL; an id of 0 or an empty SKU never matches
+        Map<Long, SkuValuation> targets = new HashMap<>();
+        Map<Long, Integer> current = new LinkedHashMap<>();
+        for (SkuValuation target : productRepository.findStockTargetsForUpdate(
+                productIds.isEmpty() ? List.of(0L) : productIds, List.of(""))) {
+            targets.put(target.getId(), target);
+            current.put(target.getId(), target.getStockQuantity().intValue());
+        }
+        Map<Long, Integer> quantities = plan.apply(Collections.unmodifiableMap(current));
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rowUpdates = new ArrayList<>();
+        Map<Long, Integer> deltas = new HashMap<>();
+        quantities.forEach((productId, quantity) -> {
+            SkuValuation target = targets.get(productId);
+            if (target == null) {
+                throw new IllegalArgumentException("Product not found with ID: " + productId);
+            }
+            if (target.isStockSlotted()) {
+                stockSlotService.setStock(productId, quantity);
+            } else {
+                rowUpdates.add(new Object[]{quantity, now, productId});
+            }
+            deltas.put(productId, quantity - current.get(productId));
+        });
+        if (!rowUpdates.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE products SET stock_quantity = ?, updated_at = ? WHERE id = ?", rowUpdates);
+        }
+        valuationService.recordStockChanges(deltas);
+    }
+
+    @Override
+    public boolean supportsSlottedStock() {
+        return true;
+    }
+
+    private Product getProduct(Long productId) {
+        return productRepository.findById(productId)
+                .orElseThrow(() -> new IllegalArgumentException("Product not found with ID: " + productId));
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.inventory.service;
+
+import com.example.inventory.model.Order;
+import com.example.inventory.repository.OrderRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+
+/**
+ * Marks processed orders (CONFIRMED or SHIPPED) DELAYED once their expected delivery date
+ * has passed, so delayed orders are read by status instead of by comparing dates.
+ *
+ * Due dates sit in a priority queue ordered by expectedDeliveryDate, rebuilt from the orders
+ * table at startup and fed by OrderService whenever it saves an order. A scheduled tick pops
+ * what has expired and flips those orders in batches: each batch locks its orders, checks
+ * them again (they may have been delivered, cancelled or rescheduled since) and records the
+ * change in the daily rollups. A rescheduled order leaves its old entry behind; only the
+ * latest due date queued for an order counts, so the stale one is dropped when it comes up.
+ */
+@Service
+public class DelayedOrderTracker {
+
+    private static final Logger log = LoggerFactory.getLogger(DelayedOrderTracker.class);
+
+    private final OrderRepository orderRepository;
+    private final OrderRollupService rollupService;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    private final PriorityBlockingQueue<Deadline> deadlines = new PriorityBlockingQueue<>();
+    // Latest due date queued per order, so saving an unchanged order does not queue it twice
+    private final Map<Long, LocalDateTime> queued = new ConcurrentHashMap<>();
+
+    @Autowired
+    public DelayedOrderTracker(OrderRepository orderRepository,
+                               OrderRollupService rollupService,
+                               TransactionTemplate transactionTemplate,
+                               @Value("${inventory.delayed-orders.batch-size:500}") int batchSize) {
+        this.orderRepository = orderRepository;
+        this.rollupService = rollupService;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<OrderRepository.DeliveryDeadline> rows = orderRepository.findDeliveryDeadlines();
+        rows.forEach(row -> schedule(row.getId(), row.getExpectedDeliveryDate()));
+        log.info("Delayed order tracker watching {} order(s)", rows.size());
+        checkDeadlines();
+    }
+
+    // Called after an order is saved; only processed orders with a due date are watched. A past due
+    // date is watched only if the order has not been late yet: a DELAYED order shipped by hand keeps
+    // its old date and must not be flipped back on the next tick
+    public void track(Order order) {
+        if (order.getId() != null && order.getExpectedDeliveryDate() != null
+                && order.canMoveTo(Order.OrderStatus.DELAYED)) {
+            schedule(order.getId(), order.getExpectedDeliveryDate());
+        }
+    }
+
+    private void schedule(Long orderId, LocalDateTime due) {
+        if (!due.equals(queued.put(orderId, due))) {
+            deadlines.add(new Deadline(due, orderId));
+        }
+    }
+
+    public int getTrackedOrderCount() {
+        return queued.size();
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.delayed-orders.check-interval-ms:1000}")
+    public synchronized void checkDeadlines() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> expired = new ArrayList<>();
+        Deadline next;
+        while ((next = deadlines.peek()) != null && next.due.isBefore(now)) {
+            deadlines.poll();
+            if (queued.remove(next.orderId, next.due)) {
+                expired.add(next.orderId);
+            }
+            if (expired.size() == batchSize) {
+                markDelayed(expired);
+                expired.clear();
+            }
+        }
+        if (!expired.isEmpty()) {
+            markDelayed(expired);
+        }
+    }
+
+    private void markDelayed(List<Long> orderIds) {
+        try {
+            Integer marked = transactionTemplate.execute(status -> {
+                int count = 0;
+                for (Order order : orderRepository.findWithItemsForUpdate(orderIds)) {
+                    if (order.canMoveTo(Order.OrderStatus.DELAYED) && order.isDelayed()) {
+                        order.delay();
+                        rollupService.record(order);
+                        count++;
+                    } else {
+                        // Rescheduled: watch its current due date, which a retry may have replaced
+                        track(order);
+                    }
+                }
+                return count;
+            });
+            if (marked > 0) {
+                log.info("Marked {} order(s) DELAYED", marked);
+            }
+        } catch (RuntimeException e) {
+            // Put them back; the next tick tries again
+            log.warn("Could not mark {} order(s) DELAYED", orderIds.size(), e);
+            LocalDateTime retry = LocalDateTime.now();
+            orderIds.forEach(orderId -> schedule(orderId, retry));
+        }
+    }
+
+    private static final class Deadline implements Comparable<Deadline> {
+        final LocalDateTime due;
+        final Long orderId;
+
+        Deadline(LocalDateTime due, Long orderId) {
+            this.due = due;
+            this.orderId = orderId;
+        }
+
+        @Override
+        public int compareTo(Deadline other) {
+            int byDue = due.compareTo(other.due);
+            return byDue != 0 ? byDue : orderId.compareTo(other.orderId);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.inventory.service;
+
+import com.example.inventory.dto.CursorPage;
+import com.example.inventory.dto.PageCursor;
+import com.example.inventory.exception.InvalidPageRequestException;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Listings that return only the fields a client names in {@code ?fields=}, as flat rows. The
+ * query selects those columns and nothing else, and it joins the supplier or warehouse table
+ * only when one of their fields is requested. No entity is loaded, so nothing can lazy-load
+ * during serialization and no field goes out that was not asked for.
+ *
+ * A Projection describes one listing:
+ * - its root entity;
+ * - the fields it offers, each with the JPQL expression behind it;
+ * - its keyset order: by id, or newest first on (date, id).
+ * Pages take the same cursors as the entity pages they stand in for, and rows keep the
+ * requested field order.
+ */
+@Service
+public class FieldProjectionService {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Every matching row, in the listing's order
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> list(Projection projection, String fields,
+                                          String where, Map<String, Object> params) {
+        List<String> selected = projection.select(fields);
+        return toRows(selected, query(projection, selected, where, params, null).getResultList());
+    }
+
+    // One keyset page; the cursor comes from the row after which the next page starts
+    @Transactional(readOnly = true)
+    public CursorPage<Map<String, Object>> page(Projection projection, String fields, String where,
+                                                Map<String, Object> params, String cursor, Integer limit) {
+        List<String> selected = projection.select(fields);
+        int size = PageCursor.clampLimit(limit);
+        PageCursor after = projection.datePath == null
+                ? PageCursor.ofId(PageCursor.afterId(cursor))
+                : PageCursor.decodeTimestamped(cursor);
+        List<Tuple> tuples = query(projection, selected, where, params, after)
+                .setMaxResults(size + 1)
+                .getResultList();
+        String next = null;
+        if (tuples.size() > size) {
+            tuples = tuples.subList(0, size);
+            next = projection.cursorOf(tuples.get(size - 1), selected.size()).encode();
+        }
+        return new CursorPage<>(toRows(selected, tuples), size, next);
+    }
+
+    private TypedQuery<Tuple> query(Projection projection, List<String> selected, String where,
+                                    Map<String, Object> params, PageCursor after) {
+        StringBuilder jpql = new StringBuilder("SELECT ");
+        Set<String> joins = new LinkedHashSet<>();
+        for (String name : selected) {
+            Field field = projection.fields.get(name);
+            jpql.append(field.expression).append(", ");
+            if (field.join != null) {
+                joins.add(field.join);
+            }
+        }
+        // The keyset columns always come last, requested or not
+        jpql.append(projection.idPath);
+        if (projection.datePath != null) {
+            jpql.append(", ").append(projection.datePath);
+        }
+        jpql.append(" FROM ").append(projection.root);
+        joins.forEach(join -> jpql.append(' ').append(join));
+
+        List<String> conditions = new ArrayList<>();
+        if (where != null) {
+            conditions.add(where);
+        }
+        if (after != null) {
+            conditions.add(projection.datePath == null
+                    ? projection.idPath + " > :afterId"
+                    : "(" + projection.datePath + " < :afterDate OR (" + projection.datePath + " = :afterDate AND " +
+                      projection.idPath + " < :afterId))");
+        }
+        if (!conditions.isEmpty()) {
+            jpql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        jpql.append(projection.datePath == null
+                ? " ORDER BY " + projection.idPath
+                : " ORDER BY " + projection.datePath + " DESC, " + projection.idPath + " DESC");
+
+        TypedQuery<Tuple> query = entityManager.createQuery(jpql.toString(), Tuple.class);
+        if (params != null) {
+            params.forEach(query::setParameter);
+        }
+        if (after != null) {
+            query.setParameter("afterId", after.getId());
+            if (projection.datePath != null) {
+                query.setParameter("afterDate", after.getTimestamp());
+            }
+        }
+        return query;
+    }
+
+    private static List<Map<String, Object>> toRows(List<String> selected, List<Tuple> tuples) {
+        List<Map<String, Object>> rows = new ArrayList<>(tuples.size());
+        for (Tuple tuple : tuples) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (int i = 0; i < selected.size(); i++) {
+                row.put(selected.get(i), tuple.get(i));
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    /**
+     * The fields one listing offers. Expressions and joins are fixed here; client input only
+     * picks among the names, so it never reaches the query text.
+     */
+    public static final class Projection {
+
+        private final String root;
+        private final String idPath;
+        private final String datePath;
+        private final Map<String, Field> fields = new LinkedHashMap<>();
+
+        private Projection(String root, String idPath, String datePath) {
+            this.root = root;
+            this.idPath = idPath;
+            this.datePath = datePath;
+        }
+
+        // Pages ordered by id, ascending
+        public static Projection byId(String root, String idPath) {
+            return new Projection(root, idPath, null);
+        }
+
+        // Pages ordered newest first on (date, id)
+        public static Projection newestFirst(String root, String idPath, String datePath) {
+            return new Projection(root, idPath, datePath);
+        }
+
+        public Projection field(String name, String expression) {
+            return field(name, expression, null);
+        }
+
+        // A field read through a join, which is added only when the field is selected
+        public Projection field(String name, String expression, String join) {
+            fields.put(name, new Field(expression, join));
+            return this;
+        }
+
+        public Set<String> getFieldNames() {
+            return Collections.unmodifiableSet(fields.keySet());
+        }
+
+        private List<String> select(String requested) {
+            Set<String> selected = new LinkedHashSet<>();
+            for (String name : requested.split(",")) {
+                String trimmed = name.trim();
+                if (trimmed.isEmpty()) {
+                    continue;
+                }
+                if (!fields.containsKey(trimmed)) {
+                    throw new InvalidPageRequestException("Unknown field '" + trimmed + "'; available fields: " +
+                            String.join(", ", fields.keySet()));
+                }
+                selected.add(trimmed);
+            }
+            if (selected.isEmpty()) {
+                throw new InvalidPageRequestException("fields must name at least one of: " +
+                        String.join(", ", fields.keySet()));
+            }
+            return new ArrayList<>(selected);
+        }
+
+        private PageCursor cursorOf(Tuple tuple, int keysetIndex) {
+            long id = ((Number) tuple.get(keysetIndex)).longValue();
+            return datePath == null ? PageCursor.ofId(id) : PageCursor.of((LocalDateTime) tuple.get(keysetIndex + 1), id);
+        }
+    }
+
+    private static final class Field {
+        final String expression;
+        final String join;
+
+        Field(String expression, String join) {
+            this.expression = expression;
+            this.join = join;
+        }
+    }
+}
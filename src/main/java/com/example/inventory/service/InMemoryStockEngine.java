@@ -0,0 +1,749 @@
+package com.example.inventory.service;
+
+import com.example.inventory.exception.DatabaseConnectionException;
+import com.example.inventory.exception.OutOfStockException;
+import com.example.inventory.model.Product;
+import com.example.inventory.repository.ProductRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+
+/**
+ * Optional stock engine (inventory.stock.engine=memory) for flash-sale traffic: live quantities
+ * sit in striped in-memory counters and reach the products table in journaled write-behind batches.
+ */
+@Service
+@ConditionalOnProperty(name = "inventory.stock.engine", havingValue = "memory")
+public class InMemoryStockEngine implements StockEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(InMemoryStockEngine.class);
+
+    private static final int RECORD_BYTES = Long.BYTES + Integer.BYTES;
+    private static final String SEGMENT_PREFIX = "stock-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+    // How long writers and holders wait for another hold on the same product, like a row lock wait
+    private static final long HOLD_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final ProductRepository productRepository;
+    private final InventoryValuationService valuationService;
+    private final ProductCache productCache;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int stripes;
+    private final Path journalDir;
+    private final boolean fsyncWrites;
+    private final int maxCounters;
+
+    // Loaded on first write; the scheduled flush trims idle ones past maxCounters
+    private final ConcurrentHashMap<Long, StripedCounter> counters = new ConcurrentHashMap<>();
+    private final AtomicLong segmentSequence = new AtomicLong();
+
+    // Segments rotated out of service whose deltas are not yet in the database (guarded by this)
+    private final List<JournalSegment> retiredSegments = new ArrayList<>();
+    private volatile JournalSegment currentSegment;
+
+    @Autowired
+    public InMemoryStockEngine(ProductRepository productRepository,
+                               InventoryValuationService valuationService,
+                               ProductCache productCache,
+                               JdbcTemplate jdbcTemplate,
+                               TransactionTemplate transactionTemplate,
+                               @Value("${inventory.stock.memory.stripes:8}") int stripes,
+                               @Value("${inventory.stock.memory.journal-dir:stock-journal}") String journalDir,
+                               @Value("${inventory.stock.memory.journal-fsync:false}") boolean fsyncWrites,
+                               @Value("${inventory.stock.memory.max-counters:10000}") int maxCounters) {
+        this.productRepository = productRepository;
+        this.valuationService = valuationService;
+        this.productCache = productCache;
+        this.jdbcTemplate = jdbcTemplate;
+        // Flushes commit on their own even when evict() is reached from a caller's transaction
+        this.transactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.stripes = Math.max(1, stripes);
+        this.journalDir = Paths.get(journalDir);
+        this.fsyncWrites = fsyncWrites;
+        this.maxCounters = Math.max(1, maxCounters);
+    }
+
+    @PostConstruct
+    void start() throws IOException {
+        Files.createDirectories(journalDir);
+        recover();
+        currentSegment = openSegment();
+    }
+
+    @PreDestroy
+    void stop() {
+        flush();
+        JournalSegment segment = currentSegment;
+        try {
+            boolean empty = segment.channel.size() == 0;
+            segment.channel.close();
+            if (empty) {
+                Files.deleteIfExists(segment.path);
+            }
+        } catch (IOException e) {
+            log.warn("Could not close stock journal {}", segment.path, e);
+        }
+    }
+
+    // ===================== STOCK OPERATIONS =====================
+
+    @Override
+    public int reduceStock(Long productId, int quantity) {
+        StripedCounter counter = enterCounter(productId);
+        int available;
+        try {
+            if (counter.tryTake(quantity)) {
+                JournalSegment segment = enterSegment();
+                try {
+                    segment.append(productId, -quantity, fsyncWrites);
+                } catch (RuntimeException e) {
+                    counter.add(quantity); // never journaled, so never taken
+                    throw e;
+                } finally {
+                    segment.inFlight.decrement();
+                }
+                return counter.sum();
+            }
+            available = counter.sum();
+        } finally {
+            counter.inFlight.decrement();
+        }
+        Product product = getProduct(productId);
+        throw new OutOfStockException(
+                "Insufficient stock for product: " + product.getName() +
+                        ". Available: " + available +
+                        ", Requested: " + quantity);
+    }
+
+    @Override
+    public int increaseStock(Long productId, int quantity) {
+        StripedCounter counter = enterCounter(productId);
+        try {
+            JournalSegment segment = enterSegment();
+            try {
+                segment.append(productId, quantity, fsyncWrites);
+            } finally {
+                segment.inFlight.decrement();
+            }
+            counter.add(quantity);
+            return counter.sum();
+        } finally {
+            counter.inFlight.decrement();
+        }
+    }
+
+    // Absolute writes are rare admin operations: push pending deltas first, then write through
+    @Override
+    public void setStock(Long productId, int quantity) {
+        Map<Long, StripedCounter> held = holdFlushed(List.of(productId));
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                int before = valuationService.lockSnapshot(productId)
+                        .map(product -> product.getStockQuantity().intValue())
+                        .orElseThrow(() -> new IllegalArgumentException("Product not found with ID: " + productId));
+                if (productRepository.setStock(productId, quantity) == 0) {
+                    throw new IllegalArgumentException("Product not found with ID: " + productId);
+                }
+                valuationService.recordStockChange(productId, quantity - before);
+            });
+        } finally {
+            release(held, true);
+        }
+    }
+
+    // The held counters are the live stock, so the batch needs neither the rows nor a flush
+    @Override
+    public void adjust(Collection<Long> productIds, Function<Map<Long, Integer>, Map<Long, Integer>> plan) {
+        Map<Long, StripedCounter> held = holdAll(productIds);
+        Map<Long, Integer> current = new LinkedHashMap<>();
+        Map<Long, Integer> deltas = new LinkedHashMap<>();
+        try {
+            held.forEach((productId, counter) -> current.put(productId, counter.sum()));
+            Map<Long, Integer> quantities = plan.apply(Collections.unmodifiableMap(current));
+
+            quantities.forEach((productId, quantity) -> {
+                if (!held.containsKey(productId)) {
+                    throw new IllegalArgumentException("Product not found with ID: " + productId);
+                }
+                if (quantity != current.get(productId).intValue()) {
+                    deltas.put(productId, quantity - current.get(productId));
+                }
+            });
+            journal(deltas);
+            quantities.forEach((productId, quantity) -> held.get(productId).reset(quantity));
+            deltas.keySet().forEach(productId -> held.get(productId).dirty = true);
+        } catch (RuntimeException e) {
+            release(held, false);
+            throw e;
+        }
+        whenCompleted(status -> {
+            if (status != TransactionSynchronization.STATUS_COMMITTED) {
+                undo(held, current, deltas);
+            }
+            release(held, false);
+        });
+    }
+
+    // The caller's transaction rolled back: its batch goes back out through the journal too
+    private void undo(Map<Long, StripedCounter> held, Map<Long, Integer> before, Map<Long, Integer> deltas) {
+        Map<Long, Integer> reverse = new LinkedHashMap<>();
+        deltas.forEach((productId, delta) -> reverse.put(productId, -delta));
+        try {
+            journal(reverse);
+        } catch (RuntimeException e) {
+            // The counters keep matching what the journal will flush
+            log.error("Could not hand back rolled-back stock changes of products {}", reverse.keySet(), e);
+            return;
+        }
+        deltas.keySet().forEach(productId -> held.get(productId).reset(before.get(productId)));
+    }
+
+    // The caller rewrites the row next: writers stay off the product until its transaction completes
+    @Override
+    public void evict(Long productId) {
+        Map<Long, StripedCounter> held = holdFlushed(List.of(productId));
+        whenCompleted(status -> release(held, true));
+    }
+
+    // A counter's sum is the product's stock until its row is rewritten; retired ones are on their way out
+    @Override
+    public Map<Long, Integer> getLiveQuantities() {
+        Map<Long, Integer> quantities = new HashMap<>();
+        counters.forEach((productId, counter) -> {
+            if (!counter.retired) {
+                quantities.put(productId, counter.sum());
+            }
+        });
+        return quantities;
+    }
+
+    public int getCachedProductCount() {
+        return counters.size();
+    }
+
+    // ===================== WRITE-BEHIND =====================
+
+    @Scheduled(fixedDelayString = "${inventory.stock.memory.flush-interval-ms:200}")
+    public void flush() {
+        if (flushPending()) {
+            trimCounters();
+        }
+    }
+
+    // Past maxCounters, drops the counters nobody wrote since the previous trim, so the map follows
+    // the products in use rather than every product ever written. A counter is dropped only when it
+    // can be held at once and has no deltas pending, so its row is the stock again
+    private synchronized void trimCounters() {
+        if (counters.size() <= maxCounters) {
+            return;
+        }
+        int dropped = 0;
+        for (Map.Entry<Long, StripedCounter> entry : counters.entrySet()) {
+            StripedCounter counter = entry.getValue();
+            if (counter.touched) {
+                counter.touched = false;
+                continue;
+            }
+            if (!counter.hold.tryLock()) {
+                continue;
+            }
+            if (counter.hold.getHoldCount() == 1 && !counter.retired) {
+                counter.held = true;
+                counter.awaitQuiescence();
+                if (retiredSegments.isEmpty() && !currentSegment.pending.containsKey(entry.getKey())) {
+                    counter.retired = true;
+                    counters.remove(entry.getKey(), counter);
+                    dropped++;
+                } else {
+                    counter.held = false;
+                }
+            }
+            counter.hold.unlock();
+        }
+        if (dropped > 0) {
+            log.debug("Dropped {} idle stock counter(s); {} left", dropped, counters.size());
+        }
+    }
+
+    // False when deltas are left pending, to be retried by the next flush
+    private synchronized boolean flushPending() {
+        JournalSegment segment = currentSegment;
+        if (segment == null || segment.pending.isEmpty() && retiredSegments.isEmpty()) {
+            return true;
+        }
+        try {
+            currentSegment = openSegment();
+        } catch (IOException e) {
+            log.error("Could not rotate stock journal; keeping {}", segment.path, e);
+            return false;
+        }
+        segment.awaitQuiescence();
+        segment.close();
+        retiredSegments.add(segment);
+
+        Map<Long, Integer> deltas = new HashMap<>();
+        List<String> names = new ArrayList<>();
+        for (JournalSegment retired : retiredSegments) {
+            retired.pending.forEach((productId, delta) -> deltas.merge(productId, delta.get(), Integer::sum));
+            names.add(retired.path.getFileName().toString());
+        }
+
+        try {
+            applyDeltas(deltas, names);
+        } catch (RuntimeException e) {
+            log.error("Stock write-behind flush failed; {} segment(s) will be retried", retiredSegments.size(), e);
+            return false;
+        }
+        productCache.invalidate(deltas.keySet()); // cached rows now lag the flushed ones
+        retiredSegments.forEach(retired -> deleteQuietly(retired.path));
+        retiredSegments.clear();
+        clearCheckpoints(names);
+        return true;
+    }
+
+    private void applyDeltas(Map<Long, Integer> deltas, List<String> segmentNames) {
+        List<Object[]> updates = new ArrayList<>(deltas.size());
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        deltas.forEach((productId, delta) -> {
+            if (delta != 0) {
+                updates.add(new Object[]{delta, now, productId});
+            }
+        });
+        List<Object[]> checkpoints = segmentNames.stream()
+                .map(name -> new Object[]{name, now})
+                .toList();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!updates.isEmpty()) {
+                jdbcTemplate.batchUpdate(
+                        "UPDATE products SET stock_quantity = stock_quantity + ?, updated_at = ? WHERE id = ?",
+                        updates);
+                valuationService.recordStockChanges(deltas);
+            }
+            jdbcTemplate.batchUpdate(
+                    "INSERT INTO stock_journal_checkpoints (segment, flushed_at) VALUES (?, ?)", checkpoints);
+        });
+    }
+
+    private void clearCheckpoints(List<String> segmentNames) {
+        try {
+            jdbcTemplate.batchUpdate("DELETE FROM stock_journal_checkpoints WHERE segment = ?",
+                    segmentNames.stream().map(name -> new Object[]{name}).toList());
+        } catch (RuntimeException e) {
+            // Harmless: recovery ignores checkpoints whose journal file is gone
+            log.warn("Could not clear stock journal checkpoints {}", segmentNames, e);
+        }
+    }
+
+    private void journal(Map<Long, Integer> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        JournalSegment segment = enterSegment();
+        try {
+            segment.append(deltas, fsyncWrites);
+        } finally {
+            segment.inFlight.decrement();
+        }
+    }
+
+    // ===================== HOLDS =====================
+    // A hold keeps writers out of a product's counter: writers already inside finish first, and
+    // later ones wait for the hold's release. Holds belong to a thread and nest
+
+    // Holds the products, then flushes; the rows then carry every delta the engine accepted for them
+    private Map<Long, StripedCounter> holdFlushed(Collection<Long> productIds) {
+        Map<Long, StripedCounter> held = holdAll(productIds);
+        if (!flushPending()) {
+            release(held, false);
+            throw new DatabaseConnectionException("Pending stock changes could not be written; try again");
+        }
+        return held;
+    }
+
+    // Holds the products in id order, so two holders never wait on each other. Missing products are skipped
+    private Map<Long, StripedCounter> holdAll(Collection<Long> productIds) {
+        Map<Long, StripedCounter> held = new LinkedHashMap<>();
+        try {
+            for (Long productId : new TreeSet<>(productIds)) {
+                StripedCounter counter = hold(productId);
+                if (counter != null) {
+                    held.put(productId, counter);
+                }
+            }
+        } catch (RuntimeException e) {
+            release(held, false);
+            throw e;
+        }
+        return held;
+    }
+
+    private StripedCounter hold(Long productId) {
+        long deadline = System.nanoTime() + HOLD_TIMEOUT_NANOS;
+        while (true) {
+            StripedCounter counter;
+            try {
+                counter = counter(productId);
+            } catch (IllegalArgumentException e) {
+                return null; // no such product, so nothing of it is pending
+            }
+            lock(productId, counter, deadline);
+            if (counter.retired) {
+                counter.hold.unlock(); // dropped by the previous holder; take up its successor
+                continue;
+            }
+            if (counter.hold.getHoldCount() == 1) {
+                counter.held = true;
+                counter.awaitQuiescence();
+            }
+            return counter;
+        }
+    }
+
+    // With drop, the counter is discarded once its outermost hold ends, and the row is the stock again;
+    // deltas a batch journaled under the hold are flushed first, or the counter is kept
+    private void release(Map<Long, StripedCounter> held, boolean drop) {
+        held.forEach((productId, counter) -> {
+            counter.dropOnRelease |= drop;
+            if (counter.hold.getHoldCount() == 1) {
+                if (counter.dropOnRelease && counter.dirty && !flushPending()) {
+                    counter.dropOnRelease = false;
+                }
+                counter.dirty = false;
+                if (counter.dropOnRelease) {
+                    // Stays marked held, so writers that still reach it move on to a fresh counter
+                    counter.retired = true;
+                    counters.remove(productId, counter);
+                } else {
+                    counter.held = false;
+                }
+            }
+            counter.hold.unlock();
+        });
+    }
+
+    // Registers the caller inside productId's counter, waiting while the product is held
+    private StripedCounter enterCounter(Long productId) {
+        long deadline = System.nanoTime() + HOLD_TIMEOUT_NANOS;
+        while (true) {
+            StripedCounter counter = counter(productId);
+            counter.inFlight.increment();
+            if (!counter.held) {
+                if (!counter.touched) {
+                    counter.touched = true; // read first, so hot products do not rewrite the flag
+                }
+                return counter;
+            }
+            counter.inFlight.decrement();
+            if (counter.hold.isHeldByCurrentThread()) {
+                throw new IllegalStateException("Stock of product " + productId + " is held by this transaction");
+            }
+            lock(productId, counter, deadline);
+            counter.hold.unlock();
+        }
+    }
+
+    private static void lock(Long productId, StripedCounter counter, long deadline) {
+        try {
+            if (!counter.hold.tryLock(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                throw new CannotAcquireLockException("Timed out waiting for the stock of product " + productId);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CannotAcquireLockException("Interrupted waiting for the stock of product " + productId, e);
+        }
+    }
+
+    // Runs with the outcome of the caller's transaction once it completes, or straight away
+    // (as committed) outside one
+    private static void whenCompleted(IntConsumer action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.accept(TransactionSynchronization.STATUS_COMMITTED);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                action.accept(status);
+            }
+        });
+    }
+
+    // ===================== RECOVERY =====================
+
+    private void recover() throws IOException {
+        Set<String> flushed = new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT segment FROM stock_journal_checkpoints", String.class));
+
+        List<Path> replay = new ArrayList<>();
+        Map<Long, Integer> deltas = new HashMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(journalDir, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                if (flushed.contains(file.getFileName().toString())) {
+                    deleteQuietly(file);
+                    continue;
+                }
+                readSegment(file, deltas);
+                replay.add(file);
+            }
+        }
+
+        if (!replay.isEmpty()) {
+            List<String> names = replay.stream().map(file -> file.getFileName().toString()).toList();
+            applyDeltas(deltas, names);
+            replay.forEach(this::deleteQuietly);
+            log.info("Recovered {} stock delta(s) from {} journal segment(s)", deltas.size(), replay.size());
+        }
+        jdbcTemplate.update("DELETE FROM stock_journal_checkpoints");
+    }
+
+    private void readSegment(Path file, Map<Long, Integer> deltas) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        // A torn record at the tail was never acknowledged to a caller, so it is skipped
+        while (buffer.remaining() >= RECORD_BYTES) {
+            long productId = buffer.getLong();
+            int delta = buffer.getInt();
+            deltas.merge(productId, delta, Integer::sum);
+        }
+    }
+
+    // ===================== INTERNALS =====================
+
+    private StripedCounter counter(Long productId) {
+        return counters.computeIfAbsent(productId, id -> {
+            List<Integer> stock = jdbcTemplate.queryForList(
+                    "SELECT stock_quantity FROM products WHERE id = ?", Integer.class, id);
+            if (stock.isEmpty()) {
+                throw new IllegalArgumentException("Product not found with ID: " + id);
+            }
+            return new StripedCounter(stripes, stock.get(0));
+        });
+    }
+
+    // Registers the caller on the live segment; retries if a flush rotated it in between
+    private JournalSegment enterSegment() {
+        while (true) {
+            JournalSegment segment = currentSegment;
+            segment.inFlight.increment();
+            if (segment == currentSegment) {
+                return segment;
+            }
+            segment.inFlight.decrement();
+        }
+    }
+
+    private JournalSegment openSegment() throws IOException {
+        String name = SEGMENT_PREFIX + System.currentTimeMillis() + "-" + segmentSequence.incrementAndGet() + SEGMENT_SUFFIX;
+        Path path = journalDir.resolve(name);
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        return new JournalSegment(path, channel);
+    }
+
+    private Product getProduct(Long productId) {
+        return productRepository.findById(productId)
+                .orElseThrow(() -> new IllegalArgumentException("Product not found with ID: " + productId));
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete stock journal {}", file, e);
+        }
+    }
+
+    // One journal file plus the per-product deltas appended to it
+    private static final class JournalSegment {
+        private final Path path;
+        private final FileChannel channel;
+        private final ConcurrentHashMap<Long, AtomicInteger> pending = new ConcurrentHashMap<>();
+        private final LongAdder inFlight = new LongAdder();
+
+        private JournalSegment(Path path, FileChannel channel) {
+            this.path = path;
+            this.channel = channel;
+        }
+
+        private void append(long productId, int delta, boolean fsync) {
+            write(ByteBuffer.allocate(RECORD_BYTES).putLong(productId).putInt(delta).flip(), fsync);
+            pending.computeIfAbsent(productId, id -> new AtomicInteger()).addAndGet(delta);
+        }
+
+        // One write for the whole batch
+        private void append(Map<Long, Integer> deltas, boolean fsync) {
+            ByteBuffer records = ByteBuffer.allocate(RECORD_BYTES * deltas.size());
+            deltas.forEach((productId, delta) -> records.putLong(productId).putInt(delta));
+            write(records.flip(), fsync);
+            deltas.forEach((productId, delta) ->
+                    pending.computeIfAbsent(productId, id -> new AtomicInteger()).addAndGet(delta));
+        }
+
+        private void write(ByteBuffer records, boolean fsync) {
+            try {
+                while (records.hasRemaining()) {
+                    channel.write(records);
+                }
+                if (fsync) {
+                    channel.force(false);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not write stock journal " + path, e);
+            }
+        }
+
+        // Writers that entered before the rotation finish within a few microseconds
+        private void awaitQuiescence() {
+            while (inFlight.sum() != 0) {
+                Thread.onSpinWait();
+            }
+        }
+
+        private void close() {
+            try {
+                channel.force(false);
+                channel.close();
+            } catch (IOException e) {
+                log.warn("Could not close stock journal {}", path, e);
+            }
+        }
+    }
+
+    /**
+     * A product's stock split over several cells, each on its own cache line. Takes try a
+     * random cell first; only when no single cell can cover the request does the caller
+     * serialize on the counter to gather units from several cells.
+     */
+    static final class StripedCounter {
+        private static final int PADDING = 16;
+
+        private final AtomicIntegerArray cells;
+        private final int stripes;
+
+        // Writers between enterCounter() and leaving, and the hold that keeps them out
+        private final LongAdder inFlight = new LongAdder();
+        private final ReentrantLock hold = new ReentrantLock();
+        private volatile boolean held;
+        private volatile boolean retired;
+        private volatile boolean touched = true; // written since the last trim
+        private boolean dropOnRelease; // only touched by the holding thread
+        private boolean dirty; // a batch journaled deltas under the current hold; holding thread only
+
+        StripedCounter(int stripes, int initial) {
+            this.stripes = stripes;
+            this.cells = new AtomicIntegerArray(stripes * PADDING);
+            reset(initial);
+        }
+
+        // Spreads a new total over the cells; only while held, with no writer inside
+        void reset(int total) {
+            for (int i = 0; i < stripes; i++) {
+                cells.set(i * PADDING, total / stripes + (i < total % stripes ? 1 : 0));
+            }
+        }
+
+        private void awaitQuiescence() {
+            while (inFlight.sum() != 0) {
+                Thread.onSpinWait();
+            }
+        }
+
+        int sum() {
+            int total = 0;
+            for (int i = 0; i < stripes; i++) {
+                total += cells.get(i * PADDING);
+            }
+            return total;
+        }
+
+        void add(int quantity) {
+            cells.getAndAdd(ThreadLocalRandom.current().nextInt(stripes) * PADDING, quantity);
+        }
+
+        boolean tryTake(int quantity) {
+            int start = ThreadLocalRandom.current().nextInt(stripes);
+            for (int i = 0; i < stripes; i++) {
+                int index = ((start + i) % stripes) * PADDING;
+                int available = cells.get(index);
+                while (available >= quantity) {
+                    if (cells.compareAndSet(index, available, available - quantity)) {
+                        return true;
+                    }
+                    available = cells.get(index);
+                }
+            }
+            return gather(quantity);
+        }
+
+        // Takes nothing unless the cells together cover the request. Lock-free takes may still drain
+        // cells under it, so it sweeps again as long as what is left covers what it still needs
+        private synchronized boolean gather(int quantity) {
+            if (sum() < quantity) {
+                return false;
+            }
+            int[] taken = new int[stripes];
+            int remaining = quantity;
+            while (remaining > 0 && sum() >= remaining) {
+                for (int i = 0; i < stripes && remaining > 0; i++) {
+                    int index = i * PADDING;
+                    int available = cells.get(index);
+                    while (available > 0) {
+                        int take = Math.min(available, remaining);
+                        if (cells.compareAndSet(index, available, available - take)) {
+                            taken[i] += take;
+                            remaining -= take;
+                            break;
+                        }
+                        available = cells.get(index);
+                    }
+                }
+            }
+            if (remaining == 0) {
+                return true;
+            }
+            for (int i = 0; i < stripes; i++) {
+                if (taken[i] > 0) {
+                    cells.getAndAdd(i * PADDING, taken[i]);
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package com.example.inventory.service;
+
+import com.example.inventory.dto.ValuationDrift;
+import com.example.inventory.model.InventoryValuation.Scope;
+import com.example.inventory.model.Product;
+import com.example.inventory.repository.InventoryValuationRepository;
+import com.example.inventory.repository.ProductRepository;
+import com.example.inventory.repository.ProductRepository.ProductValuation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+/**
+ * Running inventory value (price x stock) per category, per warehouse and in total, kept in
+ * inventory_valuation and updated in the same transaction as the stock change it describes.
+ */
+@Service
+public class InventoryValuationService {
+
+    private static final Logger log = LoggerFactory.getLogger(InventoryValuationService.class);
+
+    private static final String UPSERT =
+            "INSERT INTO inventory_valuation (scope, scope_key, slot, total_value) VALUES (?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE total_value = total_value + VALUES(total_value)";
+
+    private final ProductRepository productRepository;
+    private final InventoryValuationRepository valuationRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int slots;
+    private final boolean autoRepair;
+
+    @Autowired
+    public InventoryValuationService(ProductRepository productRepository,
+                                     InventoryValuationRepository valuationRepository,
+                                     JdbcTemplate jdbcTemplate,
+                                     TransactionTemplate transactionTemplate,
+                                     @Value("${inventory.valuation.slots:8}") int slots,
+                                     @Value("${inventory.valuation.auto-repair:false}") boolean autoRepair) {
+        this.productRepository = productRepository;
+        this.valuationRepository = valuationRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.slots = Math.max(1, slots);
+        this.autoRepair = autoRepair;
+    }
+
+    // Seeds the aggregates from the products table the first time the application starts
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        if (valuationRepository.count() == 0 && productRepository.count() > 0) {
+            repair();
+        }
+    }
+
+    // ===================== READS =====================
+
+    public BigDecimal getTotalValue() {
+        return valuationRepository.sumScope(Scope.TOTAL);
+    }
+
+    public Map<String, BigDecimal> getValueByCategory() {
+        return valuationRepository.sumScopeByKey(Scope.CATEGORY).stream()
+                .collect(Collectors.toMap(
+                        InventoryValuationRepository.ScopeValue::getScopeKey,
+                        InventoryValuationRepository.ScopeValue::getTotalValue));
+    }
+
+    public Map<Long, BigDecimal> getValueByWarehouse() {
+        return valuationRepository.sumScopeByKey(Scope.WAREHOUSE).stream()
+                .filter(row -> !row.getScopeKey().isEmpty())
+                .collect(Collectors.toMap(
+                        row -> Long.valueOf(row.getScopeKey()),
+                        InventoryValuationRepository.ScopeValue::getTotalValue));
+    }
+
+    // ===================== RECORDING =====================
+
+    // Stock of one product moved by `quantity` units; the caller has already changed the stock
+    public void recordStockChange(Long productId, int quantity) {
+        if (quantity != 0) {
+            productRepository.findValuation(productId)
+                    .ifPresent(product -> add(product.getCategory(), product.getWarehouseId(),
+                            product.getPrice().multiply(BigDecimal.valueOf(quantity))));
+        }
+    }
+
+    // Stock moved for several products at once, e.g. by a write-behind flush
+    public void recordStockChanges(Map<Long, Integer> quantities) {
+        List<Long> ids = quantities.entrySet().stream()
+                .filter(entry -> entry.getValue() != 0)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+        if (ids.isEmpty()) {
+            return;
+        }
+        for (ProductValuation product : productRepository.findValuations(ids)) {
+            add(product.getCategory(), product.getWarehouseId(),
+                    product.getPrice().multiply(BigDecimal.valueOf(quantities.get(product.getId()))));
+        }
+    }
+
+    // Locks the product and returns its current valuation inputs, to diff against after a change
+    public Optional<ProductValuation> lockSnapshot(Long productId) {
+        return productRepository.findValuationForUpdate(productId);
+    }
+
+    // A product was created, edited or had its stock overwritten; `before` is null for a new product
+    public void recordProductChange(ProductValuation before, Product after) {
+        if (before != null) {
+            subtract(before);
+        }
+        if (after.getStockQuantity() != null && after.getPrice() != null) {
+            add(after.getCategory(), after.getWarehouse() == null ? null : after.getWarehouse().getId(),
+                    after.getPrice().multiply(BigDecimal.valueOf(after.getStockQuantity())));
+        }
+    }
+
+    // Products removed, directly or by a cascading warehouse or supplier delete
+    public void recordRemoval(Collection<ProductValuation> removed) {
+        removed.forEach(this::subtract);
+    }
+
+    // Locks and debits the products a warehouse delete will cascade to; returns their ids
+    public List<Long> recordWarehouseRemoval(Long warehouseId) {
+        return removeAll(productRepository.findValuationsByWarehouseForUpdate(warehouseId));
+    }
+
+    // Locks and debits the products a supplier delete will cascade to; returns their ids
+    public List<Long> recordSupplierRemoval(Long supplierId) {
+        return removeAll(productRepository.findValuationsBySupplierForUpdate(supplierId));
+    }
+
+    private List<Long> removeAll(List<ProductValuation> products) {
+        recordRemoval(products);
+        return products.stream().map(ProductValuation::getId).collect(Collectors.toList());
+    }
+
+    private void subtract(ProductValuation product) {
+        add(product.getCategory(), product.getWarehouseId(),
+                product.getPrice().multiply(BigDecimal.valueOf(product.getStockQuantity().longValue())).negate());
+    }
+
+    private void add(String category, Long warehouseId, BigDecimal value) {
+        if (value.signum() == 0) {
+            return;
+        }
+        Map<ScopeKey, BigDecimal> deltas = new TreeMap<>();
+        deltas.put(new ScopeKey(Scope.TOTAL, ""), value);
+        deltas.put(new ScopeKey(Scope.CATEGORY, category == null ? "" : category), value);
+        deltas.put(new ScopeKey(Scope.WAREHOUSE, warehouseId == null ? "" : warehouseId.toString()), value);
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            transactionTemplate.executeWithoutResult(status -> apply(deltas));
+            return;
+        }
+        PendingDeltas pending = (PendingDeltas) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new PendingDeltas();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        Map<ScopeKey, BigDecimal> collected = pending.deltas;
+        deltas.forEach((key, delta) -> collected.merge(key, delta, BigDecimal::add));
+    }
+
+    private void apply(Map<ScopeKey, BigDecimal> deltas) {
+        int slot = ThreadLocalRandom.current().nextInt(slots);
+        List<Object[]> rows = new ArrayList<>(deltas.size());
+        deltas.forEach((key, value) -> {
+            if (value.signum() != 0) {
+                rows.add(new Object[]{key.scope.name(), key.key, slot, value});
+            }
+        });
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT, rows);
+        }
+    }
+
+    // The current transaction's deltas, written right before it commits
+    private final class PendingDeltas implements TransactionSynchronization {
+        final Map<ScopeKey, BigDecimal> deltas = new TreeMap<>();
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            apply(deltas);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(InventoryValuationService.this);
+        }
+    }
+
+    private static final class ScopeKey implements Comparable<ScopeKey> {
+        final Scope scope;
+        final String key;
+
+        ScopeKey(Scope scope, String key) {
+            this.scope = scope;
+            this.key = key;
+        }
+
+        @Override
+        public int compareTo(ScopeKey other) {
+            int byScope = scope.compareTo(other.scope);
+            return byScope != 0 ? byScope : key.compareTo(other.key);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof ScopeKey that && scope == that.scope && key.equals(that.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(scope, key);
+        }
+    }
+
+    // ===================== RECONCILIATION =====================
+
+    @Scheduled(initialDelayString = "${inventory.valuation.reconcile-interval-ms:3600000}",
+               fixedDelayString = "${inventory.valuation.reconcile-interval-ms:3600000}")
+    public void scheduledReconcile() {
+        List<ValuationDrift> drifts = reconcile();
+        if (drifts.isEmpty()) {
+            log.debug("Inventory valuation reconciled without drift");
+            return;
+        }
+        log.warn("Inventory valuation drifted in {} scope(s): {}", drifts.size(),
+                drifts.stream().limit(20).map(ValuationDrift::toString).collect(Collectors.joining("; ")));
+        if (autoRepair) {
+            repair();
+        }
+    }
+
+    // Compares the aggregates with a full recompute inside one consistent snapshot
+    public List<ValuationDrift> reconcile() {
+        return transactionTemplate.execute(status -> diff(recorded(), recompute()));
+    }
+
+    // Rewrites the aggregates from a full recompute and returns the drift it corrected
+    public List<ValuationDrift> repair() {
+        return transactionTemplate.execute(status -> {
+            // Lock first: the recompute below then reads a snapshot taken after every writer
+            // that got its deltas in, and writers still to commit wait for the rewrite
+            valuationRepository.lockAll();
+            Map<ScopeKey, BigDecimal> expected = recompute();
+            List<ValuationDrift> drifts = diff(recorded(), expected);
+            valuationRepository.deleteAllRows();
+            List<Object[]> rows = new ArrayList<>(expected.size());
+            expected.forEach((key, value) -> rows.add(new Object[]{key.scope.name(), key.key, 0, value}));
+            jdbcTemplate.batchUpdate(UPSERT, rows);
+            log.info("Inventory valuation rebuilt: {} scope(s), {} corrected", expected.size(), drifts.size());
+            return drifts;
+        });
+    }
+
+    private Map<ScopeKey, BigDecimal> recorded() {
+        Map<ScopeKey, BigDecimal> recorded = new TreeMap<>();
+        valuationRepository.sumAll().forEach(row ->
+                recorded.put(new ScopeKey(row.getScope(), row.getScopeKey()), row.getTotalValue()));
+        return recorded;
+    }
+
+    private Map<ScopeKey, BigDecimal> recompute() {
+        Map<ScopeKey, BigDecimal> expected = new TreeMap<>();
+        expected.put(new ScopeKey(Scope.TOTAL, ""), BigDecimal.ZERO);
+        for (ProductRepository.ValuationGroup group : productRepository.recomputeValuationGroups()) {
+            BigDecimal value = group.getTotalValue();
+            expected.merge(new ScopeKey(Scope.TOTAL, ""), value, BigDecimal::add);
+            expected.merge(new ScopeKey(Scope.CATEGORY, group.getCategory() == null ? "" : group.getCategory()),
+                    value, BigDecimal::add);
+            expected.merge(new ScopeKey(Scope.WAREHOUSE,
+                    group.getWarehouseId() == null ? "" : group.getWarehouseId().toString()), value, BigDecimal::add);
+        }
+        return expected;
+    }
+
+    // Scopes missing on one side count as zero there
+    private static List<ValuationDrift> diff(Map<ScopeKey, BigDecimal> recorded, Map<ScopeKey, BigDecimal> expected) {
+        Set<ScopeKey> keys = new TreeSet<>(recorded.keySet());
+        keys.addAll(expected.keySet());
+        List<ValuationDrift> drifts = new ArrayList<>();
+        for (ScopeKey key : keys) {
+            BigDecimal have = recorded.getOrDefault(key, BigDecimal.ZERO);
+            BigDecimal want = expected.getOrDefault(key, BigDecimal.ZERO);
+            if (have.compareTo(want) != 0) {
+                drifts.add(new ValuationDrift(key.scope.name(), key.key, have, want));
+            }
+        }
+        return drifts;
+    }
+}
@@ -0,0 +1,268 @@
+package com.example.inventory.service;
+
+import com.example.inventory.event.ProductChangedEvent;
+import com.example.inventory.event.StockChangedEvent;
+import com.example.inventory.model.Product;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+
+/**
+ * The set of products at or below their minimum stock level, kept current from product and
+ * stock change events and rebuilt periodically, so the low-stock reads need no catalog scan.
+ */
+@Service
+public class LowStockIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(LowStockIndex.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final StockEngine stockEngine;
+
+    // Null until the first build completes; replaced whole by a rebuild, otherwise guarded by this
+    private State state;
+
+    // Changes seen while a build is scanning the table, replayed onto the new state
+    private final List<Object> pendingEvents = new ArrayList<>();
+    private boolean building;
+
+    @Autowired
+    public LowStockIndex(JdbcTemplate jdbcTemplate, StockEngine stockEngine) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.stockEngine = stockEngine;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        Thread.ofPlatform().name("low-stock-index").daemon().start(this::rebuild);
+    }
+
+    public synchronized boolean isReady() {
+        return state != null;
+    }
+
+    // Events from two writers to one product can arrive out of order; this bounds how long the older quantity lasts
+    @Scheduled(initialDelayString = "${inventory.low-stock.rebuild-interval-ms:300000}",
+            fixedDelayString = "${inventory.low-stock.rebuild-interval-ms:300000}")
+    public void rebuildIfReady() {
+        if (isReady()) {
+            rebuild();
+        }
+    }
+
+    public void rebuild() {
+        synchronized (this) {
+            if (building) {
+                return; // the running build covers this one
+            }
+            building = true;
+        }
+        long started = System.nanoTime();
+        State fresh = new State();
+        try {
+            // stock_quantity only mirrors a slotted product's slots, and trails the in-memory engine
+            jdbcTemplate.query("SELECT p.id, p.sku, p.name, " +
+                            "CASE WHEN p.stock_slotted THEN COALESCE(s.quantity, 0) ELSE p.stock_quantity END, " +
+                            "p.min_stock_level, p.warehouse_id FROM products p " +
+                            "LEFT JOIN (SELECT product_id, SUM(quantity) AS quantity " +
+                            "FROM product_stock_slots GROUP BY product_id) s ON s.product_id = p.id",
+                    (RowCallbackHandler) rs -> {
+                        long warehouseId = rs.getLong(6);
+                        fresh.put(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getInt(4), rs.getInt(5),
+                                rs.wasNull() ? null : warehouseId);
+                    });
+            stockEngine.getLiveQuantities().forEach(fresh::setStock);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                pendingEvents.clear();
+                building = false;
+            }
+            log.error("Building the low-stock index failed", e);
+            return;
+        }
+
+        synchronized (this) {
+            pendingEvents.forEach(event -> apply(fresh, event));
+            pendingEvents.clear();
+            building = false;
+            state = fresh;
+        }
+        log.info("Low-stock index built: {} products, {} low in {} ms",
+                fresh.products.size(), fresh.low.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        record(event);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockChanged(StockChangedEvent event) {
+        record(event);
+    }
+
+    private synchronized void record(Object event) {
+        if (building) {
+            pendingEvents.add(event);
+        } else if (state != null) {
+            apply(state, event);
+        }
+        // else the initial build has not started; its table scan will see this change
+    }
+
+    private static void apply(State target, Object event) {
+        if (event instanceof StockChangedEvent stock) {
+            target.setStock(stock.getProductId(), stock.getQuantity());
+            return;
+        }
+        ProductChangedEvent change = (ProductChangedEvent) event;
+        if (change.isDeleted()) {
+            target.remove(change.getProductId());
+            return;
+        }
+        Product product = change.getProduct();
+        target.put(product.getId(), product.getSku(), product.getName(), product.getStockQuantity(),
+                product.getMinStockLevel(), product.getWarehouse() == null ? null : product.getWarehouse().getId());
+    }
+
+    // ===================== READS =====================
+
+    // Low products, lowest stock first (the order of the database query); null until ready
+    public synchronized List<LowStockProduct> getLowStockProducts() {
+        if (state == null) {
+            return null;
+        }
+        List<LowStockProduct> products = new ArrayList<>(state.low.size());
+        for (Long id : state.low) {
+            Tracked tracked = state.products.get(id);
+            products.add(new LowStockProduct(id, tracked.sku, tracked.name, tracked.stock, tracked.minStockLevel));
+        }
+        products.sort(Comparator.comparingInt(LowStockProduct::getStockQuantity).thenComparing(LowStockProduct::getId));
+        return products;
+    }
+
+    // Number of low products; -1 until ready
+    public synchronized int countLowStockProducts() {
+        return state == null ? -1 : state.low.size();
+    }
+
+    // Warehouse id to its number of low products, for warehouses that have any; null until ready
+    public synchronized Map<Long, Integer> getLowStockCountsByWarehouse() {
+        return state == null ? null : new HashMap<>(state.lowByWarehouse);
+    }
+
+    public static class LowStockProduct {
+
+        private final Long id;
+        private final String sku;
+        private final String name;
+        private final int stockQuantity;
+        private final int minStockLevel;
+
+        LowStockProduct(Long id, String sku, String name, int stockQuantity, int minStockLevel) {
+            this.id = id;
+            this.sku = sku;
+            this.name = name;
+            this.stockQuantity = stockQuantity;
+            this.minStockLevel = minStockLevel;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public String getSku() {
+            return sku;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getStockQuantity() {
+            return stockQuantity;
+        }
+
+        public int getMinStockLevel() {
+            return minStockLevel;
+        }
+    }
+
+    // ===================== STATE =====================
+
+    private static final class Tracked {
+        String sku;
+        String name;
+        int stock;
+        int minStockLevel;
+        Long warehouseId;
+
+        boolean isLow() {
+            return stock <= minStockLevel;
+        }
+    }
+
+    private static final class State {
+        final Map<Long, Tracked> products = new HashMap<>();
+        final Set<Long> low = new HashSet<>();
+        final Map<Long, Integer> lowByWarehouse = new HashMap<>();
+
+        void put(Long id, String sku, String name, int stock, int minStockLevel, Long warehouseId) {
+            Tracked tracked = products.get(id);
+            if (tracked == null) {
+                tracked = new Tracked();
+                products.put(id, tracked);
+            } else {
+                leave(id, tracked);
+            }
+            tracked.sku = sku;
+            tracked.name = name;
+            tracked.stock = stock;
+            tracked.minStockLevel = minStockLevel;
+            tracked.warehouseId = warehouseId;
+            enter(id, tracked);
+        }
+
+        void setStock(Long id, int stock) {
+            Tracked tracked = products.get(id);
+            if (tracked == null) {
+                return; // deleted meanwhile
+            }
+            boolean wasLow = tracked.isLow();
+            tracked.stock = stock;
+            if (wasLow && !tracked.isLow()) {
+                leave(id, tracked);
+            } else if (!wasLow && tracked.isLow()) {
+                enter(id, tracked);
+            }
+        }
+
+        void remove(Long id) {
+            Tracked tracked = products.remove(id);
+            if (tracked != null) {
+                leave(id, tracked);
+            }
+        }
+
+        private void enter(Long id, Tracked tracked) {
+            if (tracked.isLow() && low.add(id) && tracked.warehouseId != null) {
+                lowByWarehouse.merge(tracked.warehouseId, 1, Integer::sum);
+            }
+        }
+
+        private void leave(Long id, Tracked tracked) {
+            if (low.remove(id) && tracked.warehouseId != null) {
+                lowByWarehouse.merge(tracked.warehouseId, -1, (count, one) -> count + one == 0 ? null : count + one);
+            }
+        }
+    }
+}
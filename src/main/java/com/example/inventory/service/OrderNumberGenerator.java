@@ -0,0 +1,12 @@
+package com.example.inventory.service;
+
+/**
+ * Issues order numbers. Numbers must be unique across every app instance sharing the database
+ * and increasing within one instance; implementations are selected by inventory.order-number.generator.
+ */
+public interface OrderNumberGenerator {
+
+    String PREFIX = "ORD-";
+
+    String next();
+}
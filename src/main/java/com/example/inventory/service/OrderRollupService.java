@@ -0,0 +1,306 @@
+package com.example.inventory.service;
+
+import com.example.inventory.dto.RollupDrift;
+import com.example.inventory.model.Order;
+import com.example.inventory.model.OrderDailyRollup;
+import com.example.inventory.repository.OrderDailyRollupRepository;
+import com.example.inventory.repository.OrderRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Daily order rollups: one order_daily_rollup row per day, order type and status with the
+ * number of orders, their total amount and their units, so revenue and volume reports read a
+ * few rows per day instead of every order.
+ *
+ * OrderService records every order it creates, changes or deletes here. Each order carries
+ * what it contributed when it was loaded (Order.getRollupBaseline), so a change is the
+ * difference between that and its current state. As with the inventory valuation, the deltas
+ * of a transaction are collected and written in one batch just before it commits, in a fixed
+ * key order, so they commit or roll back together with the orders they describe.
+ *
+ * A scheduled reconciliation compares the rollups with a full recompute from the orders
+ * table; repair() backfills item counts and rebuilds every row from that recompute.
+ */
+@Service
+public class OrderRollupService {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderRollupService.class);
+
+    private static final String UPSERT =
+            "INSERT INTO order_daily_rollup (day, type, status, order_count, revenue, item_count) " +
+            "VALUES (?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE order_count = order_count + VALUES(order_count), " +
+            "revenue = revenue + VALUES(revenue), item_count = item_count + VALUES(item_count)";
+
+    private final OrderRepository orderRepository;
+    private final OrderDailyRollupRepository rollupRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readTemplate;
+    private final boolean autoRepair;
+
+    @Autowired
+    public OrderRollupService(OrderRepository orderRepository,
+                              OrderDailyRollupRepository rollupRepository,
+                              JdbcTemplate jdbcTemplate,
+                              TransactionTemplate transactionTemplate,
+                              @Value("${inventory.order-rollup.auto-repair:false}") boolean autoRepair) {
+        this.orderRepository = orderRepository;
+        this.rollupRepository = rollupRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.readTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readTemplate.setReadOnly(true);
+        this.autoRepair = autoRepair;
+    }
+
+    // Backfills the rollups from the orders table the first time the application starts
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        if (rollupRepository.count() == 0 && orderRepository.count() > 0) {
+            repair();
+        }
+    }
+
+    // ===================== READS =====================
+
+    // Delivered revenue of orders placed strictly between the two instants. Whole days come
+    // from the rollups; only the partial days at either end are summed from the orders table
+    public BigDecimal calculateRevenue(LocalDateTime start, LocalDateTime end) {
+        LocalDate firstWholeDay = start.toLocalDate().plusDays(1);
+        LocalDate endDay = end.toLocalDate();
+        if (!firstWholeDay.isBefore(endDay)) {
+            return orderRepository.calculateTotalRevenue(start, end);
+        }
+        return readTemplate.execute(status -> orderRepository.calculateTotalRevenue(start, firstWholeDay.atStartOfDay())
+                .add(rollupRepository.sumRevenue(Order.OrderStatus.DELIVERED, firstWholeDay, endDay.minusDays(1)))
+                .add(orderRepository.calculateRevenueFrom(endDay.atStartOfDay(), end)));
+    }
+
+    // Both days inclusive, in day, type and status order
+    public List<OrderDailyRollup> getDailyRollups(LocalDate from, LocalDate to) {
+        return rollupRepository.findDays(from, to);
+    }
+
+    // ===================== RECORDING =====================
+
+    // An order was created or changed; it must be managed by the current persistence context
+    public void record(Order order) {
+        order.calculateTotalAmount();
+        Order.RollupContribution after = order.rollupContribution();
+        Order.RollupContribution before = order.getRollupBaseline();
+        order.setRollupBaseline(after);
+        Map<RollupKey, Delta> deltas = new TreeMap<>();
+        if (before != null) {
+            merge(deltas, before, -1);
+        }
+        merge(deltas, after, 1);
+        add(deltas);
+    }
+
+    // An order is about to be deleted
+    public void recordRemoval(Order order) {
+        Order.RollupContribution before = order.getRollupBaseline();
+        order.setRollupBaseline(null);
+        if (before != null) {
+            Map<RollupKey, Delta> deltas = new TreeMap<>();
+            merge(deltas, before, -1);
+            add(deltas);
+        }
+    }
+
+    private static void merge(Map<RollupKey, Delta> deltas, Order.RollupContribution contribution, int sign) {
+        deltas.computeIfAbsent(new RollupKey(contribution.getDay(), contribution.getType().name(),
+                        contribution.getStatus().name()), key -> new Delta())
+                .add(sign, sign > 0 ? contribution.getRevenue() : contribution.getRevenue().negate(),
+                        (long) sign * contribution.getItems());
+    }
+
+    private void add(Map<RollupKey, Delta> deltas) {
+        deltas.values().removeIf(Delta::isZero);
+        if (deltas.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            transactionTemplate.executeWithoutResult(status -> apply(deltas));
+            return;
+        }
+        PendingDeltas pending = (PendingDeltas) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new PendingDeltas();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        Map<RollupKey, Delta> collected = pending.deltas;
+        deltas.forEach((key, delta) -> collected.computeIfAbsent(key, k -> new Delta())
+                .add(delta.orders, delta.revenue, delta.items));
+    }
+
+    private void apply(Map<RollupKey, Delta> deltas) {
+        List<Object[]> rows = new ArrayList<>(deltas.size());
+        deltas.forEach((key, delta) -> {
+            if (!delta.isZero()) {
+                rows.add(new Object[]{Date.valueOf(key.day), key.type, key.status,
+                        delta.orders, delta.revenue, delta.items});
+            }
+        });
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT, rows);
+        }
+    }
+
+    // The current transaction's deltas, written right before it commits
+    private final class PendingDeltas implements TransactionSynchronization {
+        final Map<RollupKey, Delta> deltas = new TreeMap<>();
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            apply(deltas);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(OrderRollupService.this);
+        }
+    }
+
+    private static final class RollupKey implements Comparable<RollupKey> {
+        final LocalDate day;
+        final String type;
+        final String status;
+
+        RollupKey(LocalDate day, String type, String status) {
+            this.day = day;
+            this.type = type;
+            this.status = status;
+        }
+
+        @Override
+        public int compareTo(RollupKey other) {
+            int byDay = day.compareTo(other.day);
+            if (byDay != 0) {
+                return byDay;
+            }
+            int byType = type.compareTo(other.type);
+            return byType != 0 ? byType : status.compareTo(other.status);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof RollupKey that && day.equals(that.day)
+                    && type.equals(that.type) && status.equals(that.status);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(day, type, status);
+        }
+    }
+
+    private static final class Delta {
+        long orders;
+        BigDecimal revenue = BigDecimal.ZERO;
+        long items;
+
+        void add(long orders, BigDecimal revenue, long items) {
+            this.orders += orders;
+            this.revenue = this.revenue.add(revenue);
+            this.items += items;
+        }
+
+        boolean isZero() {
+            return orders == 0 && revenue.signum() == 0 && items == 0;
+        }
+    }
+
+    // ===================== RECONCILIATION =====================
+
+    @Scheduled(initialDelayString = "${inventory.order-rollup.reconcile-interval-ms:3600000}",
+               fixedDelayString = "${inventory.order-rollup.reconcile-interval-ms:3600000}")
+    public void scheduledReconcile() {
+        List<RollupDrift> drifts = reconcile();
+        if (drifts.isEmpty()) {
+            log.debug("Order rollups reconciled without drift");
+            return;
+        }
+        log.warn("Order rollups drifted in {} row(s): {}", drifts.size(),
+                drifts.stream().limit(20).map(RollupDrift::toString).collect(Collectors.joining("; ")));
+        if (autoRepair) {
+            repair();
+        }
+    }
+
+    // Compares the rollups with a full recompute inside one consistent snapshot
+    public List<RollupDrift> reconcile() {
+        return transactionTemplate.execute(status -> diff(recorded(), recompute()));
+    }
+
+    // Backfills item counts, rewrites the rollups from a full recompute and returns the drift it corrected
+    public List<RollupDrift> repair() {
+        return transactionTemplate.execute(status -> {
+            // Lock first, as InventoryValuationService.repair does, so writers still to commit
+            // wait for the rewrite instead of landing in rows about to be replaced
+            rollupRepository.lockAll();
+            int backfilled = orderRepository.backfillItemCounts();
+            Map<RollupKey, Delta> expected = recompute();
+            List<RollupDrift> drifts = diff(recorded(), expected);
+            rollupRepository.deleteAllRows();
+            apply(expected);
+            log.info("Order rollups rebuilt: {} row(s), {} corrected, {} order item count(s) backfilled",
+                    expected.size(), drifts.size(), backfilled);
+            return drifts;
+        });
+    }
+
+    private Map<RollupKey, Delta> recorded() {
+        Map<RollupKey, Delta> recorded = new TreeMap<>();
+        for (OrderDailyRollup row : rollupRepository.findAll()) {
+            recorded.computeIfAbsent(new RollupKey(row.getDay(), row.getType().name(), row.getStatus().name()),
+                    key -> new Delta()).add(row.getOrderCount(), row.getRevenue(), row.getItemCount());
+        }
+        return recorded;
+    }
+
+    private Map<RollupKey, Delta> recompute() {
+        Map<RollupKey, Delta> expected = new TreeMap<>();
+        for (OrderRepository.RollupGroup group : orderRepository.recomputeDailyRollups()) {
+            expected.computeIfAbsent(new RollupKey(group.getDay().toLocalDate(), group.getType(), group.getStatus()),
+                    key -> new Delta()).add(group.getOrderCount().longValue(), group.getRevenue(),
+                    group.getItemCount().longValue());
+        }
+        return expected;
+    }
+
+    // Rows missing on one side count as zero there
+    private static List<RollupDrift> diff(Map<RollupKey, Delta> recorded, Map<RollupKey, Delta> expected) {
+        Set<RollupKey> keys = new TreeSet<>(recorded.keySet());
+        keys.addAll(expected.keySet());
+        List<RollupDrift> drifts = new ArrayList<>();
+        for (RollupKey key : keys) {
+            Delta have = recorded.getOrDefault(key, new Delta());
+            Delta want = expected.getOrDefault(key, new Delta());
+            if (have.orders != want.orders || have.revenue.compareTo(want.revenue) != 0 || have.items != want.items) {
+                drifts.add(new RollupDrift(key.day, key.type, key.status, have.orders, want.orders,
+                        have.revenue, want.revenue, have.items, want.items));
+            }
+        }
+        return drifts;
+    }
+}
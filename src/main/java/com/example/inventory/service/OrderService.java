@@ -1,51 +1,116 @@
 package com.example.inventory.service;
 
-import com.example.inventory.exception.OutOfStockException;
+import com.example.inventory.dto.CursorPage;
+import com.example.inventory.dto.OrderTransitionResult;
+import com.example.inventory.dto.PageCursor;
+import com.example.inventory.dto.RollupDrift;
+import com.example.inventory.dto.StockAdjustment;
+import com.example.inventory.exception.InvalidOrderStateException;
+import com.example.inventory.exception.OrderNotFoundException;
 import com.example.inventory.model.*;
 import com.example.inventory.repository.OrderRepository;
 import com.example.inventory.repository.OrderItemRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 @Service
 public class OrderService {
 
+    public static final int MAX_BULK_TRANSITIONS = 1000;
+
+    // Fields of ?fields= order listings
+    public static final FieldProjectionService.Projection ORDER_FIELDS =
+            FieldProjectionService.Projection.newestFirst("Order o", "o.id", "o.orderDate")
+                    .field("id", "o.id")
+                    .field("orderNumber", "o.orderNumber")
+                    .field("type", "o.type")
+                    .field("status", "o.status")
+                    .field("totalAmount", "o.totalAmount")
+                    .field("itemCount", "o.itemCount")
+                    .field("orderDate", "o.orderDate")
+                    .field("expectedDeliveryDate", "o.expectedDeliveryDate")
+                    .field("actualDeliveryDate", "o.actualDeliveryDate")
+                    .field("supplierId", "o.supplier.id")
+                    .field("supplierName", "s.name", "LEFT JOIN o.supplier s")
+                    .field("createdAt", "o.createdAt")
+                    .field("updatedAt", "o.updatedAt");
+
+    // Supplier search merges one index scan per matching supplier, so a prefix may match only so many
+    static final int MAX_SEARCH_SUPPLIERS = 20;
+
+    private static final Pattern ORDER_NUMBER_TERM =
+            Pattern.compile(Pattern.quote(OrderNumberGenerator.PREFIX) + "\\d*|\\d+", Pattern.CASE_INSENSITIVE);
+
     private final OrderRepository orderRepository;
     private final OrderItemRepository orderItemRepository;
     private final ProductService productService;
     private final SupplierService supplierService;
+    private final StockAdjustmentService stockAdjustmentService;
+    private final OrderRollupService rollupService;
+    private final DelayedOrderTracker delayedOrderTracker;
+    private final OrderNumberGenerator orderNumberGenerator;
+    private final FieldProjectionService fieldProjectionService;
 
     @Autowired
     public OrderService(OrderRepository orderRepository,
                         OrderItemRepository orderItemRepository,
                         ProductService productService,
-                        SupplierService supplierService) {
+                        SupplierService supplierService,
+                        StockAdjustmentService stockAdjustmentService,
+                        OrderRollupService rollupService,
+                        DelayedOrderTracker delayedOrderTracker,
+                        OrderNumberGenerator orderNumberGenerator,
+                        FieldProjectionService fieldProjectionService) {
         this.orderRepository = orderRepository;
         this.orderItemRepository = orderItemRepository;
         this.productService = productService;
         this.supplierService = supplierService;
+        this.stockAdjustmentService = stockAdjustmentService;
+        this.rollupService = rollupService;
+        this.delayedOrderTracker = delayedOrderTracker;
+        this.orderNumberGenerator = orderNumberGenerator;
+        this.fieldProjectionService = fieldProjectionService;
     }
 
     // ===================== CRUD =====================
+    // Every create and change goes through here, so the daily rollups follow it in the same transaction
+    @Transactional
     public Order saveOrder(Order order) {
-        return orderRepository.save(order);
+        if (order.getOrderNumber() == null) {
+            order.setOrderNumber(orderNumberGenerator.next());
+        }
+        Order saved = orderRepository.save(order);
+        rollupService.record(saved);
+        delayedOrderTracker.track(saved);
+        return saved;
     }
 
+    // Single orders come with their supplier, lines and products, as the API returns them
     public Optional<Order> findById(Long id) {
-        return orderRepository.findById(id);
+        return orderRepository.findDetailById(id);
     }
 
     public Order getOrderById(Long id) {
         return findById(id)
-                .orElseThrow(() -> new IllegalArgumentException("Order not found with ID: " + id));
+                .orElseThrow(() -> new OrderNotFoundException(id));
+    }
+
+    // Changes lock the order first: its rollup baseline is what it contributed when loaded, so a
+    // second writer must load it only after the first has committed
+    private Order getOrderForUpdate(Long id) {
+        return orderRepository.findDetailByIdForUpdate(id)
+                .orElseThrow(() -> new OrderNotFoundException(id));
     }
 
     public Optional<Order> findByOrderNumber(String orderNumber) {
@@ -53,32 +118,109 @@ public class OrderService {
     }
 
     public List<Order> findAll() {
-        return orderRepository.findAll();
+        return orderRepository.findAllWithDetails();
+    }
+
+    public long countOrders() {
+        return orderRepository.count();
+    }
+
+    // ===================== PAGINATION =====================
+    // Keyset pages run newest first and seek on (orderDate, id) past the cursor. The page query
+    // brings the suppliers and a second one the lines, so a page is two statements at any size
+    @Transactional(readOnly = true)
+    public CursorPage<Order> findPage(String cursor, Integer limit) {
+        int size = PageCursor.clampLimit(limit);
+        PageCursor after = PageCursor.decodeTimestamped(cursor);
+        List<Order> rows = after == null
+                ? orderRepository.findFirstPage(PageCursor.lookahead(size))
+                : orderRepository.findPageBefore(after.getTimestamp(), after.getId(), PageCursor.lookahead(size));
+        return toPage(rows, size);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<Order> getOrdersByStatusPage(Order.OrderStatus status, String cursor, Integer limit) {
+        int size = PageCursor.clampLimit(limit);
+        PageCursor after = PageCursor.decodeTimestamped(cursor);
+        List<Order> rows = after == null
+                ? orderRepository.findFirstPageByStatus(status, PageCursor.lookahead(size))
+                : orderRepository.findPageByStatusBefore(status, after.getTimestamp(), after.getId(), PageCursor.lookahead(size));
+        return toPage(rows, size);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<Order> getOrdersByTypePage(Order.OrderType type, String cursor, Integer limit) {
+        int size = PageCursor.clampLimit(limit);
+        PageCursor after = PageCursor.decodeTimestamped(cursor);
+        List<Order> rows = after == null
+                ? orderRepository.findFirstPageByType(type, PageCursor.lookahead(size))
+                : orderRepository.findPageByTypeBefore(type, after.getTimestamp(), after.getId(), PageCursor.lookahead(size));
+        return toPage(rows, size);
+    }
+
+    private CursorPage<Order> toPage(List<Order> rows, int size) {
+        return CursorPage.of(withLines(rows), size, order -> PageCursor.of(order.getOrderDate(), order.getId()));
+    }
+
+    // Fills in the lines of orders loaded in the current transaction with one query
+    private List<Order> withLines(List<Order> orders) {
+        if (!orders.isEmpty()) {
+            orderRepository.fetchLines(orders.stream().map(Order::getId).collect(Collectors.toList()));
+        }
+        return orders;
+    }
+
+    // ===================== FIELD SELECTION =====================
+    // Flat rows with only the requested ORDER_FIELDS, newest first like the entity listings;
+    // status and type are optional filters
+    public List<Map<String, Object>> findFields(String fields, Order.OrderStatus status, Order.OrderType type) {
+        Map<String, Object> params = filterParams(status, type);
+        return fieldProjectionService.list(ORDER_FIELDS, fields, filter(params), params);
+    }
+
+    public CursorPage<Map<String, Object>> findFieldsPage(String fields, Order.OrderStatus status, Order.OrderType type,
+                                                          String cursor, Integer limit) {
+        Map<String, Object> params = filterParams(status, type);
+        return fieldProjectionService.page(ORDER_FIELDS, fields, filter(params), params, cursor, limit);
+    }
+
+    private static Map<String, Object> filterParams(Order.OrderStatus status, Order.OrderType type) {
+        Map<String, Object> params = new LinkedHashMap<>();
+        if (status != null) {
+            params.put("status", status);
+        }
+        if (type != null) {
+            params.put("type", type);
+        }
+        return params;
+    }
+
+    private static String filter(Map<String, Object> params) {
+        return params.isEmpty() ? null : params.keySet().stream()
+                .map(name -> "o." + name + " = :" + name)
+                .collect(Collectors.joining(" AND "));
     }
 
     @Transactional
     public void deleteOrder(Long orderId) {
-        Order order = getOrderById(orderId);
+        Order order = getOrderForUpdate(orderId);
 
         // delete associated order items first
         for (OrderItem item : order.getOrderItems()) {
             orderItemRepository.delete(item);
         }
 
+        rollupService.recordRemoval(order);
         orderRepository.delete(order);
     }
 
     // ===================== Filtering & Mapping =====================
     public List<Order> getOrdersByStatus(Order.OrderStatus status) {
-        return findAll().stream()
-                .filter(order -> order.getStatus() == status)
-                .collect(Collectors.toList());
+        return orderRepository.findByStatus(status);
     }
 
     public List<Order> getOrdersByType(Order.OrderType type) {
-        return findAll().stream()
-                .filter(order -> order.getType() == type)
-                .collect(Collectors.toList());
+        return orderRepository.findByType(type);
     }
 
     public List<Order> filterOrders(Predicate<Order> criteria) {
@@ -94,40 +236,56 @@ public class OrderService {
     }
 
     // ===================== Alerts & Reports =====================
+    // Filtered, counted and summed by the database; each call reads only the rows it returns
+
+    // Oldest first
     public List<Order> getPendingOrders() {
-        return findAll().stream()
-                .filter(Order::isPending)
-                .sorted(Comparator.comparing(Order::getOrderDate))
-                .collect(Collectors.toList());
+        return orderRepository.findPendingOrders();
     }
 
+    public long countPendingOrders() {
+        return orderRepository.countOrdersByStatus(Order.OrderStatus.PENDING);
+    }
+
+    // Marked DELAYED by DelayedOrderTracker once past their expected delivery date, most overdue first
     public List<Order> getDelayedOrders() {
-        return findAll().stream()
-                .filter(Order::isDelayed)
-                .collect(Collectors.toList());
+        return orderRepository.findDelayedOrders();
     }
 
+    public long countDelayedOrders() {
+        return orderRepository.countOrdersByStatus(Order.OrderStatus.DELAYED);
+    }
+
+    // Delivered orders placed strictly between the two dates, mostly read from the daily rollups
     public BigDecimal calculateTotalRevenue(LocalDateTime startDate, LocalDateTime endDate) {
-        return findAll().stream()
-                .filter(order -> order.getOrderDate().isAfter(startDate) && order.getOrderDate().isBefore(endDate))
-                .filter(order -> order.getStatus() == Order.OrderStatus.DELIVERED)
-                .map(Order::getTotalAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return rollupService.calculateRevenue(startDate, endDate);
+    }
+
+    // Order count, revenue and units per day, type and status; both days inclusive
+    public List<OrderDailyRollup> getDailyRollups(LocalDate from, LocalDate to) {
+        return rollupService.getDailyRollups(from, to);
+    }
+
+    public List<RollupDrift> reconcileDailyRollups(boolean repair) {
+        return repair ? rollupService.repair() : rollupService.reconcile();
     }
 
     public Map<Order.OrderStatus, Long> getOrderCountByStatus() {
-        return findAll().stream()
-                .collect(Collectors.groupingBy(Order::getStatus, Collectors.counting()));
+        return orderRepository.countOrdersGroupedByStatus().stream()
+                .collect(Collectors.toMap(
+                        OrderRepository.StatusCount::getStatus,
+                        OrderRepository.StatusCount::getOrderCount));
     }
 
     public Map<Order.OrderType, Long> getOrderCountByType() {
-        return findAll().stream()
-                .collect(Collectors.groupingBy(Order::getType, Collectors.counting()));
+        return orderRepository.countOrdersGroupedByType().stream()
+                .collect(Collectors.toMap(
+                        OrderRepository.TypeCount::getType,
+                        OrderRepository.TypeCount::getOrderCount));
     }
 
     public Map<String, List<Order>> getOrdersGroupedBySupplier() {
-        return findAll().stream()
-                .filter(order -> order.getSupplier() != null)
+        return orderRepository.findAllWithSupplier().stream()
                 .collect(Collectors.groupingBy(order -> order.getSupplier().getName()));
     }
 
@@ -140,68 +298,74 @@ public class OrderService {
         }
 
         Order order = new Order(type, supplier);
-        order = saveOrder(order);
-
         if (items != null) {
-            for (OrderItem item : items) {
-                Product product = productService.findById(item.getProduct().getId())
-                        .orElseThrow(() -> new IllegalArgumentException("Product not found"));
-
-                item.setProduct(product);
-                item.setUnitPrice(product.getPrice());
-                item.setOrder(order);
+            order.addOrderItems(priceItems(items));
+        }
+        // Items are persisted by cascade and inserted in JDBC batches at flush
+        return saveOrder(order);
+    }
 
-                orderItemRepository.save(item); // save individually
-                order.addOrderItem(item);       // attach to order
+    // Resolves every line's product with one query and fixes its unit price
+    private List<OrderItem> priceItems(List<OrderItem> items) {
+        Set<Long> productIds = new HashSet<>();
+        for (OrderItem item : items) {
+            if (item.getProduct() == null || item.getProduct().getId() == null) {
+                throw new IllegalArgumentException("Product not found");
             }
+            productIds.add(item.getProduct().getId());
         }
-
-        order.calculateTotalAmount();
-        return saveOrder(order);
+        Map<Long, Product> products = productService.findAllById(productIds);
+        for (OrderItem item : items) {
+            Product product = products.get(item.getProduct().getId());
+            if (product == null) {
+                throw new IllegalArgumentException("Product not found");
+            }
+            item.setProduct(product);
+            item.setUnitPrice(product.getPrice());
+        }
+        return items;
     }
 
+    // Replaces an order's details on the locked, loaded order rather than merging a detached copy,
+    // so its rollup baseline is current. Status moves only through the transitions below
     @Transactional
-    public Order updateOrderItems(Long orderId, List<OrderItem> updatedItems) {
-        Order order = getOrderById(orderId);
+    public Order updateOrder(Long orderId, Order changes) {
+        Order order = getOrderForUpdate(orderId);
 
-        // Delete existing items
-        for (OrderItem item : new ArrayList<>(order.getOrderItems())) {
-            orderItemRepository.delete(item);
+        if (changes.getType() != null) {
+            order.setType(changes.getType());
         }
+        Supplier supplier = changes.getSupplier();
+        order.setSupplier(supplier == null || supplier.getId() == null
+                ? null : supplierService.getSupplierById(supplier.getId()));
+        order.setExpectedDeliveryDate(changes.getExpectedDeliveryDate());
         order.getOrderItems().clear();
+        order.addOrderItems(priceItems(changes.getOrderItems()));
+        return saveOrder(order);
+    }
 
-        // Add new/updated items
-        if (updatedItems != null) {
-            for (OrderItem item : updatedItems) {
-                Product product = productService.findById(item.getProduct().getId())
-                        .orElseThrow(() -> new IllegalArgumentException("Product not found"));
-
-                item.setProduct(product);
-                item.setUnitPrice(product.getPrice());
-                item.setOrder(order);
-
-                orderItemRepository.save(item);
-                order.addOrderItem(item);
-            }
-        }
+    @Transactional
+    public Order updateOrderItems(Long orderId, List<OrderItem> updatedItems) {
+        Order order = getOrderForUpdate(orderId);
 
-        order.calculateTotalAmount();
+        // Replaced items go as orphans; deletes and inserts are batched at flush
+        List<OrderItem> priced = updatedItems == null ? List.of() : priceItems(updatedItems);
+        order.getOrderItems().clear();
+        order.addOrderItems(priced);
         return saveOrder(order);
     }
 
     // ===================== PROCESS ORDERS =====================
     @Transactional
     public Order processOrder(Long orderId) {
-        Order order = getOrderById(orderId);
+        Order order = getOrderForUpdate(orderId);
+
+        if (!order.canMoveTo(Order.OrderStatus.CONFIRMED)) {
+            throw new InvalidOrderStateException("Only pending orders can be processed");
+        }
 
         if (order.getType() == Order.OrderType.SALE) {
-            for (OrderItem item : order.getOrderItems()) {
-                try {
-                    productService.reduceStock(item.getProduct().getId(), item.getQuantity());
-                } catch (OutOfStockException e) {
-                    throw new OutOfStockException("Cannot process order " + order.getOrderNumber() + ": " + e.getMessage());
-                }
-            }
+            moveStock(order, -1, "process");
         }
 
         order.confirm();
@@ -210,10 +374,11 @@ public class OrderService {
 
     @Transactional
     public Order shipOrder(Long orderId) {
-        Order order = getOrderById(orderId);
+        Order order = getOrderForUpdate(orderId);
 
-        if (order.getStatus() != Order.OrderStatus.CONFIRMED) {
-            throw new IllegalStateException("Order must be confirmed before shipping");
+        if (!order.canMoveTo(Order.OrderStatus.SHIPPED)) {
+            throw new InvalidOrderStateException(order.getShippedAt() != null
+                    ? "Order has already shipped" : "Order must be confirmed before shipping");
         }
 
         order.ship();
@@ -222,16 +387,14 @@ public class OrderService {
 
     @Transactional
     public Order deliverOrder(Long orderId) {
-        Order order = getOrderById(orderId);
+        Order order = getOrderForUpdate(orderId);
 
-        if (order.getStatus() != Order.OrderStatus.SHIPPED) {
-            throw new IllegalStateException("Order must be shipped before delivery");
+        if (!order.canMoveTo(Order.OrderStatus.DELIVERED)) {
+            throw new InvalidOrderStateException("Order must be shipped before delivery");
         }
 
         if (order.getType() == Order.OrderType.PURCHASE) {
-            for (OrderItem item : order.getOrderItems()) {
-                productService.increaseStock(item.getProduct().getId(), item.getQuantity());
-            }
+            moveStock(order, 1, "deliver");
         }
 
         order.deliver();
@@ -240,38 +403,165 @@ public class OrderService {
 
     @Transactional
     public Order cancelOrder(Long orderId) {
-        Order order = getOrderById(orderId);
+        Order order = getOrderForUpdate(orderId);
 
-        if (order.getStatus() == Order.OrderStatus.DELIVERED) {
-            throw new IllegalStateException("Cannot cancel delivered order");
+        if (!order.canMoveTo(Order.OrderStatus.CANCELLED)) {
+            throw new InvalidOrderStateException(order.getStatus() == Order.OrderStatus.DELIVERED
+                    ? "Cannot cancel delivered order" : "Order is already cancelled");
         }
 
         if (order.getStatus() != Order.OrderStatus.PENDING && order.getType() == Order.OrderType.SALE) {
-            for (OrderItem item : order.getOrderItems()) {
-                productService.increaseStock(item.getProduct().getId(), item.getQuantity());
-            }
+            moveStock(order, 1, "cancel");
         }
 
         order.cancel();
         return saveOrder(order);
     }
 
+    // ===================== BULK TRANSITIONS =====================
+    // Ships, delivers or cancels many orders at once. The orders and their lines come from one
+    // locked, fetch-joined query; orders the state machine does not allow to move are reported
+    // and left alone. The stock returned by deliveries and cancellations is summed per product
+    // and applied as one batch, in the same transaction as the status changes
+    @Transactional
+    public List<OrderTransitionResult> transitionOrders(List<Long> orderIds, Order.OrderStatus target) {
+        if (orderIds == null || orderIds.isEmpty()) {
+            throw new IllegalArgumentException("At least one order id is required");
+        }
+        if (orderIds.size() > MAX_BULK_TRANSITIONS) {
+            throw new IllegalArgumentException("At most " + MAX_BULK_TRANSITIONS + " orders per bulk transition");
+        }
+        if (target != Order.OrderStatus.SHIPPED && target != Order.OrderStatus.DELIVERED
+                && target != Order.OrderStatus.CANCELLED) {
+            throw new IllegalArgumentException("Bulk transitions can ship, deliver or cancel orders; " +
+                    "process orders one at a time");
+        }
+
+        Map<Long, Order> orders = new HashMap<>();
+        for (Order order : orderRepository.findWithItemsForUpdate(new LinkedHashSet<>(orderIds))) {
+            orders.put(order.getId(), order);
+        }
+
+        Map<Long, Integer> returnedStock = new LinkedHashMap<>();
+        Set<Long> seen = new HashSet<>();
+        List<OrderTransitionResult> results = new ArrayList<>(orderIds.size());
+        for (Long orderId : orderIds) {
+            Order order = orders.get(orderId);
+            if (order == null) {
+                results.add(OrderTransitionResult.notFound(orderId));
+                continue;
+            }
+            if (!seen.add(orderId)) {
+                results.add(OrderTransitionResult.rejected(order, "Order listed more than once"));
+                continue;
+            }
+            Order.OrderStatus previous = order.getStatus();
+            if (!order.canMoveTo(target)) {
+                results.add(OrderTransitionResult.rejected(order, "Cannot move order from " + previous + " to " + target));
+                continue;
+            }
+            if (returnsStock(order, target)) {
+                for (OrderItem item : order.getOrderItems()) {
+                    returnedStock.merge(item.getProduct().getId(), item.getQuantity(), Integer::sum);
+                }
+            }
+            switch (target) {
+                case SHIPPED -> order.ship();
+                case DELIVERED -> order.deliver();
+                default -> order.cancel();
+            }
+            rollupService.record(order);
+            results.add(OrderTransitionResult.applied(order, previous));
+        }
+
+        if (!returnedStock.isEmpty()) {
+            List<StockAdjustment> lines = new ArrayList<>(returnedStock.size());
+            returnedStock.forEach((productId, quantity) -> lines.add(new StockAdjustment(productId, null, quantity, null)));
+            stockAdjustmentService.adjust(lines, "Cannot apply bulk transition to " + target + "; no order was changed");
+        }
+        // Status changes of the managed orders go out as batched updates at commit
+        return results;
+    }
+
+    // Mirrors deliverOrder and cancelOrder: purchases add stock on delivery, and cancelling a
+    // sale that was already processed hands its stock back
+    private static boolean returnsStock(Order order, Order.OrderStatus target) {
+        return switch (target) {
+            case DELIVERED -> order.getType() == Order.OrderType.PURCHASE;
+            case CANCELLED -> order.getType() == Order.OrderType.SALE && order.getStatus() != Order.OrderStatus.PENDING;
+            default -> false;
+        };
+    }
+
+    // Moves the stock of every line as one StockEngine batch: the engine locks the products in
+    // id order until the order's transaction completes, so orders sharing products cannot
+    // deadlock, and a shortage on any line rejects the whole order with one error per short line
+    private void moveStock(Order order, int direction, String action) {
+        List<StockAdjustment> lines = new ArrayList<>(order.getOrderItems().size());
+        for (OrderItem item : order.getOrderItems()) {
+            lines.add(new StockAdjustment(item.getProduct().getId(), null, direction * item.getQuantity(), null));
+        }
+        if (!lines.isEmpty()) {
+            stockAdjustmentService.adjust(lines,
+                    "Cannot " + action + " order " + order.getOrderNumber() + "; no stock was changed");
+        }
+    }
+
     // ===================== SEARCH =====================
-    public List<Order> searchOrders(String searchTerm) {
-        return findAll().stream()
-                .filter(order ->
-                        order.getOrderNumber().toLowerCase().contains(searchTerm.toLowerCase()) ||
-                        (order.getSupplier() != null &&
-                         order.getSupplier().getName().toLowerCase().contains(searchTerm.toLowerCase()))
-                )
+    public enum SearchField { NUMBER, SUPPLIER }
+
+    // Prefix search on order number or supplier name, each served by an index range. Without an
+    // explicit field, terms that look like order numbers ("ORD-123", or just digits) search numbers
+    public CursorPage<OrderRepository.OrderSummary> searchOrders(String searchTerm, SearchField field,
+                                                                 String cursor, Integer limit) {
+        String term = searchTerm == null ? "" : searchTerm.trim();
+        if (term.isEmpty()) {
+            throw new IllegalArgumentException("Search term is required");
+        }
+        int size = PageCursor.clampLimit(limit);
+        if (field == null) {
+            field = ORDER_NUMBER_TERM.matcher(term).matches() ? SearchField.NUMBER : SearchField.SUPPLIER;
+        }
+
+        if (field == SearchField.NUMBER) {
+            String number = term.chars().allMatch(Character::isDigit) ? OrderNumberGenerator.PREFIX + term : term;
+            List<OrderRepository.OrderSummary> rows = orderRepository.searchByNumberPrefix(
+                    likePrefix(number), PageCursor.afterKey(cursor), PageCursor.lookahead(size));
+            return CursorPage.of(rows, size, row -> PageCursor.ofKey(row.getOrderNumber()));
+        }
+
+        // A short prefix can match most suppliers, and ordering all their orders by date would sort them
+        // in memory. Instead each matching supplier's page is read off its own index range and merged
+        List<Long> supplierIds = orderRepository.findSupplierIdsByNamePrefix(
+                likePrefix(Supplier.normalizeName(term)), PageRequest.of(0, MAX_SEARCH_SUPPLIERS + 1));
+        if (supplierIds.size() > MAX_SEARCH_SUPPLIERS) {
+            throw new IllegalArgumentException("Supplier search matches more than " + MAX_SEARCH_SUPPLIERS +
+                    " suppliers; use a longer prefix");
+        }
+        PageCursor after = PageCursor.decodeTimestamped(cursor);
+        List<OrderRepository.OrderSummary> rows = supplierIds.stream()
+                .flatMap(supplierId -> (after == null
+                        ? orderRepository.searchBySupplierFirstPage(supplierId, PageCursor.lookahead(size))
+                        : orderRepository.searchBySupplierBefore(supplierId, after.getTimestamp(), after.getId(),
+                                PageCursor.lookahead(size))).stream())
+                .sorted(Comparator.comparing(OrderRepository.OrderSummary::getOrderDate)
+                        .thenComparing(OrderRepository.OrderSummary::getId)
+                        .reversed())
+                .limit(size + 1L)
                 .collect(Collectors.toList());
+        return CursorPage.of(rows, size, row -> PageCursor.of(row.getOrderDate(), row.getId()));
+    }
+
+    // Escapes LIKE wildcards in user input ('!' is the escape character of the search queries)
+    private static String likePrefix(String term) {
+        return term.replace("!", "!!").replace("%", "!%").replace("_", "!_") + "%";
     }
 
     // ===================== ALERTS =====================
     public List<String> generateOrderAlerts() {
         List<String> alerts = new ArrayList<>();
 
-        long pendingCount = getPendingOrders().size();
+        long pendingCount = countPendingOrders();
         if (pendingCount > 0) {
             alerts.add(String.format("PENDING ORDERS: %d orders awaiting processing", pendingCount));
         }
@@ -289,10 +579,9 @@ public class OrderService {
         return alerts;
     }
 
+    // The ten newest orders, read off the (order_date, id) index
+    @Transactional(readOnly = true)
     public List<Order> getRecentOrders() {
-        return findAll().stream()
-                .sorted(Comparator.comparing(Order::getOrderDate).reversed())
-                .limit(10)
-                .collect(Collectors.toList());
+        return withLines(orderRepository.findRecentOrders(PageRequest.of(0, 10)));
     }
 }
@@ -0,0 +1,266 @@
+package com.example.inventory.service;
+
+import com.example.inventory.dto.OrderTransitionTicket;
+import com.example.inventory.dto.OrderTransitionTicket.Transition;
+import com.example.inventory.exception.StockAdjustmentException;
+import com.example.inventory.exception.WorkflowQueueFullException;
+import com.example.inventory.model.Order;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Asynchronous mode for the process, ship, deliver and cancel transitions: callers get an
+ * OrderTransitionTicket straight away and poll it for the outcome.
+ *
+ * Transitions are queued on one of inventory.order-workflow.lanes bounded lanes chosen by
+ * order id, so every transition of one order is applied in submission order while other
+ * orders proceed on other lanes. Each lane is drained by its own virtual thread, which takes
+ * up to max-batch queued transitions and applies them in one transaction. A transition that
+ * fails rolls that commit back; the batch is then replayed one transition per transaction, so
+ * a failure only ever fails its own ticket. A full lane rejects new transitions instead of
+ * growing without bound.
+ */
+@Service
+public class OrderWorkflowService {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderWorkflowService.class);
+
+    private static final long POLL_MS = 500;
+
+    private final OrderService orderService;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxBatch;
+    private final int laneCapacity;
+    private final List<BlockingQueue<OrderTransitionTicket>> lanes;
+    private final List<Thread> workers = new ArrayList<>();
+    private final Cache<String, OrderTransitionTicket> tickets;
+
+    private volatile boolean running;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder succeeded = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder commits = new LongAdder();
+    private final LongAdder committedTransitions = new LongAdder();
+    private final LongAdder replayedBatches = new LongAdder();
+    private final LongAdder queueWaitNanos = new LongAdder();
+    private final AtomicLong maxQueueWaitNanos = new AtomicLong();
+    private final LongAdder latencyNanos = new LongAdder();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    @Autowired
+    public OrderWorkflowService(OrderService orderService,
+                                TransactionTemplate transactionTemplate,
+                                @Value("${inventory.order-workflow.lanes:8}") int lanes,
+                                @Value("${inventory.order-workflow.queue-capacity:10000}") int queueCapacity,
+                                @Value("${inventory.order-workflow.max-batch:50}") int maxBatch,
+                                @Value("${inventory.order-workflow.ticket-ttl-ms:3600000}") long ticketTtlMillis) {
+        this.orderService = orderService;
+        this.transactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.maxBatch = Math.max(1, maxBatch);
+        int laneCount = Math.max(1, lanes);
+        this.laneCapacity = Math.max(1, queueCapacity / laneCount);
+        this.lanes = new ArrayList<>(laneCount);
+        for (int i = 0; i < laneCount; i++) {
+            this.lanes.add(new ArrayBlockingQueue<>(laneCapacity));
+        }
+        this.tickets = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(ticketTtlMillis))
+                .build();
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        for (int i = 0; i < lanes.size(); i++) {
+            BlockingQueue<OrderTransitionTicket> lane = lanes.get(i);
+            workers.add(Thread.ofVirtual().name("order-workflow-" + i).start(() -> drain(lane)));
+        }
+    }
+
+    // Workers finish what is already queued before the services they call go away
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        for (Thread worker : workers) {
+            worker.join(TimeUnit.SECONDS.toMillis(30));
+        }
+    }
+
+    public OrderTransitionTicket submit(Long orderId, Transition transition) {
+        if (!running) {
+            throw new WorkflowQueueFullException("Order workflow is shutting down");
+        }
+        OrderTransitionTicket ticket = new OrderTransitionTicket(UUID.randomUUID().toString(), orderId, transition);
+        tickets.put(ticket.getId(), ticket);
+        if (!laneOf(orderId).offer(ticket)) {
+            tickets.invalidate(ticket.getId());
+            rejected.increment();
+            throw new WorkflowQueueFullException("Order workflow queue is full; retry later");
+        }
+        submitted.increment();
+        return ticket;
+    }
+
+    public Optional<OrderTransitionTicket> getTicket(String ticketId) {
+        return Optional.ofNullable(tickets.getIfPresent(ticketId));
+    }
+
+    public Map<String, Object> getStats() {
+        long depth = 0;
+        long deepestLane = 0;
+        for (BlockingQueue<OrderTransitionTicket> lane : lanes) {
+            depth += lane.size();
+            deepestLane = Math.max(deepestLane, lane.size());
+        }
+        long started = succeeded.sum() + failed.sum();
+        long committed = commits.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("lanes", lanes.size());
+        stats.put("laneCapacity", laneCapacity);
+        stats.put("maxBatch", maxBatch);
+        stats.put("queueDepth", depth);
+        stats.put("deepestLane", deepestLane);
+        stats.put("submitted", submitted.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("succeeded", succeeded.sum());
+        stats.put("failed", failed.sum());
+        stats.put("commits", committed);
+        stats.put("averageBatchSize", committed == 0 ? 0.0 : (double) committedTransitions.sum() / committed);
+        stats.put("replayedBatches", replayedBatches.sum());
+        stats.put("averageQueueWaitMs", started == 0 ? 0.0 : queueWaitNanos.sum() / 1_000_000.0 / started);
+        stats.put("maxQueueWaitMs", maxQueueWaitNanos.get() / 1_000_000.0);
+        stats.put("averageLatencyMs", started == 0 ? 0.0 : latencyNanos.sum() / 1_000_000.0 / started);
+        stats.put("maxLatencyMs", maxLatencyNanos.get() / 1_000_000.0);
+        return stats;
+    }
+
+    private BlockingQueue<OrderTransitionTicket> laneOf(Long orderId) {
+        return lanes.get(Math.floorMod(Objects.hashCode(orderId), lanes.size()));
+    }
+
+    // ===================== WORKERS =====================
+
+    private void drain(BlockingQueue<OrderTransitionTicket> lane) {
+        List<OrderTransitionTicket> batch = new ArrayList<>(maxBatch);
+        while (running || !lane.isEmpty()) {
+            OrderTransitionTicket first;
+            try {
+                first = lane.poll(POLL_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                continue;
+            }
+            if (first == null) {
+                continue;
+            }
+            batch.add(first);
+            lane.drainTo(batch, maxBatch - 1);
+            try {
+                runBatch(batch);
+            } catch (RuntimeException e) {
+                // Never let one bad batch stop the lane
+                log.error("Order workflow batch failed", e);
+            }
+            batch.clear();
+        }
+    }
+
+    private void runBatch(List<OrderTransitionTicket> batch) {
+        long now = System.nanoTime();
+        for (OrderTransitionTicket ticket : batch) {
+            ticket.start();
+            long waited = now - ticket.getSubmittedNanos();
+            queueWaitNanos.add(waited);
+            maxQueueWaitNanos.accumulateAndGet(waited, Math::max);
+        }
+        if (batch.size() == 1) {
+            runAlone(batch.get(0));
+            return;
+        }
+
+        List<Order.OrderStatus> statuses;
+        try {
+            statuses = transactionTemplate.execute(status -> {
+                List<Order.OrderStatus> applied = new ArrayList<>(batch.size());
+                for (OrderTransitionTicket ticket : batch) {
+                    applied.add(apply(ticket));
+                }
+                return applied;
+            });
+        } catch (RuntimeException e) {
+            // Nothing of the batch was committed; find the failing transitions one at a time
+            replayedBatches.increment();
+            batch.forEach(this::runAlone);
+            return;
+        }
+        recordCommit(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            succeed(batch.get(i), statuses.get(i));
+        }
+    }
+
+    private void runAlone(OrderTransitionTicket ticket) {
+        Order.OrderStatus status;
+        try {
+            status = transactionTemplate.execute(tx -> apply(ticket));
+        } catch (StockAdjustmentException e) {
+            finish(ticket);
+            failed.increment();
+            ticket.fail(e.getMessage(), e.getLineErrors());
+            return;
+        } catch (RuntimeException e) {
+            log.debug("Order transition {} of order {} failed", ticket.getTransition(), ticket.getOrderId(), e);
+            finish(ticket);
+            failed.increment();
+            ticket.fail(e.getMessage(), null);
+            return;
+        }
+        recordCommit(1);
+        succeed(ticket, status);
+    }
+
+    private Order.OrderStatus apply(OrderTransitionTicket ticket) {
+        Long orderId = ticket.getOrderId();
+        Order order = switch (ticket.getTransition()) {
+            case PROCESS -> orderService.processOrder(orderId);
+            case SHIP -> orderService.shipOrder(orderId);
+            case DELIVER -> orderService.deliverOrder(orderId);
+            case CANCEL -> orderService.cancelOrder(orderId);
+        };
+        return order.getStatus();
+    }
+
+    private void succeed(OrderTransitionTicket ticket, Order.OrderStatus status) {
+        finish(ticket);
+        succeeded.increment();
+        ticket.succeed(status);
+    }
+
+    private void recordCommit(int transitions) {
+        commits.increment();
+        committedTransitions.add(transitions);
+    }
+
+    private void finish(OrderTransitionTicket ticket) {
+        long latency = System.nanoTime() - ticket.getSubmittedNanos();
+        latencyNanos.add(latency);
+        maxLatencyNanos.accumulateAndGet(latency, Math::max);
+    }
+}
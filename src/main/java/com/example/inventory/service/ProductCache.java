@@ -0,0 +1,151 @@
+package com.example.inventory.service;
+
+import com.example.inventory.event.ProductChangedEvent;
+import com.example.inventory.event.StockChangedEvent;
+import com.example.inventory.model.Product;
+import com.example.inventory.repository.ProductRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Read-through cache for product lookups by id and by SKU, bounded in size
+ * (inventory.product-cache.max-size) and age (inventory.product-cache.ttl-ms).
+ *
+ * Products are cached by id; SKUs map to ids and are checked against the cached product on
+ * every hit, so a renamed or deleted SKU is never served. Entries are invalidated once the
+ * change that affects them has committed (ProductChangedEvent, StockChangedEvent, and the
+ * memory engine's flushes). Caffeine makes an invalidation wait for a load of the same key
+ * that is in flight, so a load that read the old row cannot outlive the invalidation.
+ *
+ * Loads run in a transaction of their own: cached products are always detached, never
+ * managed by the persistence context of whichever caller missed first.
+ */
+@Service
+public class ProductCache {
+
+    private final ProductRepository productRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final long maxSize;
+    private final Duration ttl;
+
+    private final Cache<Long, Product> productsById;
+    private final Cache<String, Long> idsBySku;
+
+    @Autowired
+    public ProductCache(ProductRepository productRepository,
+                        TransactionTemplate transactionTemplate,
+                        @Value("${inventory.product-cache.max-size:10000}") long maxSize,
+                        @Value("${inventory.product-cache.ttl-ms:300000}") long ttlMillis) {
+        this.productRepository = productRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.transactionTemplate.setReadOnly(true);
+        this.maxSize = maxSize;
+        this.ttl = Duration.ofMillis(ttlMillis);
+        this.productsById = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.idsBySku = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    public Optional<Product> findById(Long id) {
+        return Optional.ofNullable(productsById.get(id, this::load));
+    }
+
+    public Optional<Product> findBySku(String sku) {
+        Long id = idsBySku.get(sku, key -> transactionTemplate.execute(status ->
+                productRepository.findIdBySku(key).orElse(null)));
+        if (id == null) {
+            return Optional.empty();
+        }
+        Optional<Product> product = findById(id);
+        if (product.isPresent() && sku.equals(product.get().getSku())) {
+            return product;
+        }
+        // The SKU moved to another product or its product is gone; resolve it again
+        idsBySku.asMap().remove(sku, id);
+        return productRepository.findIdBySku(sku).flatMap(this::findById);
+    }
+
+    public void invalidate(Long id) {
+        productsById.invalidate(id);
+    }
+
+    public void invalidate(Collection<Long> ids) {
+        productsById.invalidateAll(ids);
+    }
+
+    // For changes to warehouses and suppliers, which cached products embed; runs after the
+    // current transaction commits, or right away outside one
+    public void invalidateAll() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            productsById.invalidateAll();
+            idsBySku.invalidateAll();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                productsById.invalidateAll();
+                idsBySku.invalidateAll();
+            }
+        });
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        invalidate(event.getProductId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockChanged(StockChangedEvent event) {
+        invalidate(event.getProductId());
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("maxSize", maxSize);
+        stats.put("ttlMs", ttl.toMillis());
+        stats.put("byId", describe(productsById));
+        stats.put("bySku", describe(idsBySku));
+        return stats;
+    }
+
+    private Product load(Long id) {
+        return transactionTemplate.execute(status -> productRepository.findWithReferencesById(id).orElse(null));
+    }
+
+    private static Map<String, Object> describe(Cache<?, ?> cache) {
+        CacheStats stats = cache.stats();
+        Map<String, Object> described = new LinkedHashMap<>();
+        described.put("size", cache.estimatedSize());
+        described.put("hits", stats.hitCount());
+        described.put("misses", stats.missCount());
+        described.put("hitRatio", stats.hitRate());
+        described.put("evictions", stats.evictionCount());
+        described.put("loads", stats.loadCount());
+        described.put("averageLoadMs", stats.averageLoadPenalty() / 1_000_000.0);
+        return described;
+    }
+}
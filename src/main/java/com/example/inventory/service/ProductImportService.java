@@ -0,0 +1,619 @@
+package com.example.inventory.service;
+
+import com.example.inventory.dto.ImportReport;
+import com.example.inventory.event.ProductChangedEvent;
+import com.example.inventory.model.Product;
+import com.example.inventory.model.Supplier;
+import com.example.inventory.model.Warehouse;
+import com.example.inventory.repository.ProductRepository;
+import com.example.inventory.repository.ProductRepository.SkuValuation;
+import com.example.inventory.repository.SupplierRepository;
+import com.example.inventory.repository.WarehouseRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk product import from a streamed CSV (with a header row) or NDJSON body, keyed on SKU:
+ * new SKUs are inserted and existing ones overwritten.
+ *
+ * Rows are parsed and validated one at a time and collected into batches of
+ * inventory.import.batch-size, so memory use does not grow with the file. Each batch
+ * resolves its warehouse and supplier references with one query per kind (remembered for
+ * the rest of the import) and is written in one transaction as a JDBC batch of
+ * INSERT ... ON DUPLICATE KEY UPDATE. Like ProductService.saveProduct, a batch locks the
+ * rows it overwrites, updates the inventory valuation and publishes ProductChangedEvents.
+ *
+ * A row that fails to parse, validate or resolve is reported with its line number and
+ * skipped. A batch the database rejects is retried row by row to find the offending rows.
+ */
+@Service
+public class ProductImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductImportService.class);
+
+    private static final String UPSERT =
+            "INSERT INTO products (sku, name, description, category, price, stock_quantity, min_stock_level, " +
+            "warehouse_id, supplier_id, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE name = VALUES(name), description = VALUES(description), " +
+            "category = VALUES(category), price = VALUES(price), stock_quantity = VALUES(stock_quantity), " +
+            "min_stock_level = VALUES(min_stock_level), warehouse_id = VALUES(warehouse_id), " +
+            "supplier_id = VALUES(supplier_id), updated_at = VALUES(updated_at)";
+
+    public enum Format {
+        CSV, NDJSON;
+
+        // An explicit ?format= wins over the Content-Type
+        public static Format resolve(String format, String contentType) {
+            String hint = (format != null ? format : contentType == null ? "" : contentType).toLowerCase(Locale.ROOT);
+            if (hint.contains("csv")) {
+                return CSV;
+            }
+            if (hint.contains("ndjson") || hint.contains("jsonl") || hint.contains("json")) {
+                return NDJSON;
+            }
+            throw new IllegalArgumentException("Import format must be CSV (text/csv) or NDJSON (application/x-ndjson)");
+        }
+    }
+
+    private final ProductRepository productRepository;
+    private final WarehouseRepository warehouseRepository;
+    private final SupplierRepository supplierRepository;
+    private final StockEngine stockEngine;
+    private final StockSlotService stockSlotService;
+    private final InventoryValuationService valuationService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int batchSize;
+
+    @Autowired
+    public ProductImportService(ProductRepository productRepository,
+                                WarehouseRepository warehouseRepository,
+                                SupplierRepository supplierRepository,
+                                StockEngine stockEngine,
+                                StockSlotService stockSlotService,
+                                InventoryValuationService valuationService,
+                                JdbcTemplate jdbcTemplate,
+                                TransactionTemplate transactionTemplate,
+                                Validator validator,
+                                ObjectMapper objectMapper,
+                                ApplicationEventPublisher eventPublisher,
+                                @Value("${inventory.import.batch-size:500}") int batchSize) {
+        this.productRepository = productRepository;
+        this.warehouseRepository = warehouseRepository;
+        this.supplierRepository = supplierRepository;
+        this.stockEngine = stockEngine;
+        this.stockSlotService = stockSlotService;
+        this.valuationService = valuationService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    public ImportReport importProducts(InputStream body, Format format) {
+        long started = System.nanoTime();
+        Run run = new Run();
+        BufferedReader in = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        try {
+            RowReader reader = format == Format.CSV ? new CsvRowReader(in) : new NdjsonRowReader(in, objectMapper);
+            List<PendingRow> batch = new ArrayList<>(batchSize);
+            Set<String> batchSkus = new HashSet<>();
+            RawRow raw;
+            while ((raw = reader.next()) != null) {
+                run.rowsRead++;
+                PendingRow row = parse(raw, run);
+                if (row == null) {
+                    continue;
+                }
+                // A repeated SKU goes into the next batch, so rows for one SKU apply in file order
+                if (!batchSkus.add(row.key)) {
+                    write(batch, run);
+                    batch.clear();
+                    batchSkus.clear();
+                    batchSkus.add(row.key);
+                }
+                batch.add(row);
+                if (batch.size() >= batchSize) {
+                    write(batch, run);
+                    batch.clear();
+                    batchSkus.clear();
+                }
+            }
+            write(batch, run);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read the import body", e);
+        }
+
+        long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+        // Reference and database failures are found per batch, after later rows were parsed
+        run.errors.sort(Comparator.comparingLong(ImportReport.RowError::getLine));
+        ImportReport report = new ImportReport(format.name(), run.rowsRead, run.inserted, run.updated,
+                run.failed, elapsedMs, run.errors);
+        log.info("Product import ({}): {} rows read, {} inserted, {} updated, {} failed in {} ms ({} rows/s)",
+                format, run.rowsRead, run.inserted, run.updated, run.failed, elapsedMs,
+                Math.round(report.getRowsPerSecond()));
+        return report;
+    }
+
+    // ===================== PARSING =====================
+
+    // Null (and the row reported) when the row is malformed or invalid
+    private PendingRow parse(RawRow raw, Run run) {
+        if (raw.error != null) {
+            run.fail(raw.line, raw.text("sku"), raw.error);
+            return null;
+        }
+        try {
+            Product product = new Product(raw.text("name"), raw.text("sku"), raw.integer("stockquantity"),
+                    raw.integer("minstocklevel"), raw.decimal("price"), raw.text("category"));
+            product.setDescription(raw.text("description"));
+
+            List<String> problems = validator.validate(product).stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.toList());
+            if (product.getStockQuantity() == null) {
+                problems.add("Stock quantity is required");
+            }
+            if (product.getMinStockLevel() == null) {
+                problems.add("Min stock level is required");
+            }
+            if (product.getPrice() == null) {
+                problems.add("Price is required");
+            }
+            Long warehouseId = raw.longValue("warehouseid");
+            String warehouseName = raw.text("warehouse");
+            if (warehouseId == null && warehouseName == null) {
+                problems.add("Warehouse is required (warehouseId or warehouse name)");
+            }
+            if (!problems.isEmpty()) {
+                run.fail(raw.line, product.getSku(), String.join("; ", problems));
+                return null;
+            }
+            return new PendingRow(raw.line, product, warehouseId, warehouseName,
+                    raw.longValue("supplierid"), raw.text("supplier"));
+        } catch (IllegalArgumentException e) {
+            run.fail(raw.line, raw.text("sku"), e.getMessage());
+            return null;
+        }
+    }
+
+    // Header and field names match case-insensitively and ignore '_', '-' and spaces
+    private static String columnKey(String name) {
+        StringBuilder key = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c != '_' && c != '-' && c != ' ' && c != '\uFEFF') {
+                key.append(Character.toLowerCase(c));
+            }
+        }
+        return key.toString();
+    }
+
+    // ===================== WRITING =====================
+
+    private void write(List<PendingRow> batch, Run run) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        run.references.resolve(batch);
+        List<PendingRow> valid = new ArrayList<>(batch.size());
+        for (PendingRow row : batch) {
+            String problem = run.references.apply(row);
+            if (problem == null) {
+                valid.add(row);
+            } else {
+                run.fail(row.line, row.product.getSku(), problem);
+            }
+        }
+        if (valid.isEmpty()) {
+            return;
+        }
+
+        List<String> skus = valid.stream().map(row -> row.product.getSku()).collect(Collectors.toList());
+        try {
+            int[] counts = transactionTemplate.execute(status -> {
+                // Hand write-behind stock of rows about to be overwritten back to them, held until
+                // commit; in id order, as the rows are locked
+                productRepository.findIdsBySkus(skus).stream()
+                        .map(ProductRepository.SkuId::getId)
+                        .sorted()
+                        .forEach(stockEngine::evict);
+                return upsert(valid, skus);
+            });
+            run.inserted += counts[0];
+            run.updated += counts[1];
+        } catch (DataAccessException e) {
+            if (valid.size() == 1) {
+                PendingRow row = valid.get(0);
+                run.fail(row.line, row.product.getSku(), NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+                return;
+            }
+            log.debug("Import batch of {} rows rejected; retrying row by row", valid.size(), e);
+            valid.forEach(row -> write(List.of(row), run));
+        }
+    }
+
+    // Returns {inserted, updated}
+    private int[] upsert(List<PendingRow> rows, List<String> skus) {
+        Map<String, SkuValuation> existing = productRepository.findValuationsBySkuForUpdate(skus).stream()
+                .collect(Collectors.toMap(product -> skuKey(product.getSku()), Function.identity()));
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> args = new ArrayList<>(rows.size());
+        for (PendingRow row : rows) {
+            Product product = row.product;
+            args.add(new Object[]{product.getSku(), product.getName(), product.getDescription(),
+                    product.getCategory(), product.getPrice(), product.getStockQuantity(),
+                    product.getMinStockLevel(), product.getWarehouse().getId(),
+                    product.getSupplier() == null ? null : product.getSupplier().getId(), now, now});
+        }
+        jdbcTemplate.batchUpdate(UPSERT, args);
+
+        // Only the inserted rows need their generated ids looked up
+        List<String> insertedSkus = rows.stream()
+                .filter(row -> !existing.containsKey(row.key))
+                .map(row -> row.product.getSku())
+                .collect(Collectors.toList());
+        Map<String, Long> ids = insertedSkus.isEmpty() ? new HashMap<>()
+                : productRepository.findIdsBySkus(insertedSkus).stream()
+                        .collect(Collectors.toMap(product -> skuKey(product.getSku()), ProductRepository.SkuId::getId));
+        existing.forEach((key, product) -> ids.put(key, product.getId()));
+        int updated = 0;
+        for (PendingRow row : rows) {
+            Product product = row.product;
+            product.setId(ids.get(row.key));
+            SkuValuation before = existing.get(row.key);
+            if (before != null) {
+                updated++;
+                if (before.isStockSlotted()) {
+                    // The row holds only a mirror; the imported quantity is spread over the slots
+                    stockSlotService.setStock(product.getId(), product.getStockQuantity());
+                }
+            }
+            valuationService.recordProductChange(before, product);
+            eventPublisher.publishEvent(ProductChangedEvent.saved(product));
+        }
+        return new int[]{rows.size() - updated, updated};
+    }
+
+    // The SKU unique key follows MySQL's case-insensitive collation
+    private static String skuKey(String sku) {
+        return sku.toLowerCase(Locale.ROOT);
+    }
+
+    // ===================== STATE =====================
+
+    private static final class PendingRow {
+        final long line;
+        final Product product;
+        final String key;
+        final Long warehouseId;
+        final String warehouseName;
+        final Long supplierId;
+        final String supplierName;
+
+        PendingRow(long line, Product product, Long warehouseId, String warehouseName,
+                   Long supplierId, String supplierName) {
+            this.line = line;
+            this.product = product;
+            this.key = skuKey(product.getSku());
+            this.warehouseId = warehouseId;
+            this.warehouseName = warehouseName;
+            this.supplierId = supplierId;
+            this.supplierName = supplierName;
+        }
+    }
+
+    private final class Run {
+        long rowsRead;
+        long inserted;
+        long updated;
+        long failed;
+        final List<ImportReport.RowError> errors = new ArrayList<>();
+        final References references = new References();
+
+        void fail(long line, String sku, String message) {
+            failed++;
+            if (errors.size() < ImportReport.MAX_REPORTED_ERRORS) {
+                errors.add(new ImportReport.RowError(line, sku, message));
+            }
+        }
+    }
+
+    // Warehouses and suppliers seen so far in this import, by id and by lowercased name;
+    // lookups that found nothing are remembered as null
+    private final class References {
+        final Map<Long, Warehouse> warehousesById = new HashMap<>();
+        final Map<String, Warehouse> warehousesByName = new HashMap<>();
+        final Map<Long, Supplier> suppliersById = new HashMap<>();
+        final Map<String, Supplier> suppliersByName = new HashMap<>();
+
+        void resolve(List<PendingRow> rows) {
+            load(rows, row -> row.warehouseId, Function.identity(), warehousesById,
+                    warehouseRepository::findAllById, Warehouse::getId);
+            load(rows, row -> row.warehouseName, this::key, warehousesByName,
+                    warehouseRepository::findByNameIn, warehouse -> key(warehouse.getName()));
+            load(rows, row -> row.supplierId, Function.identity(), suppliersById,
+                    supplierRepository::findAllById, Supplier::getId);
+            load(rows, row -> row.supplierName, this::key, suppliersByName,
+                    supplierRepository::findByNameIn, supplier -> key(supplier.getName()));
+        }
+
+        // Null when the row's references all exist; sets them on the product
+        String apply(PendingRow row) {
+            Warehouse warehouse = row.warehouseId != null
+                    ? warehousesById.get(row.warehouseId) : warehousesByName.get(key(row.warehouseName));
+            if (warehouse == null) {
+                return "Warehouse not found: " + (row.warehouseId != null ? row.warehouseId : row.warehouseName);
+            }
+            row.product.setWarehouse(warehouse);
+            if (row.supplierId != null || row.supplierName != null) {
+                Supplier supplier = row.supplierId != null
+                        ? suppliersById.get(row.supplierId) : suppliersByName.get(key(row.supplierName));
+                if (supplier == null) {
+                    return "Supplier not found: " + (row.supplierId != null ? row.supplierId : row.supplierName);
+                }
+                row.product.setSupplier(supplier);
+            }
+            return null;
+        }
+
+        // Looks up the references of `rows` not seen before; `known` is keyed by normalize(reference)
+        private <R, K, E> void load(List<PendingRow> rows, Function<PendingRow, R> referenceOf,
+                                    Function<R, K> normalize, Map<K, E> known,
+                                    Function<Collection<R>, List<E>> query, Function<E, K> keyOfEntity) {
+            Map<K, R> missing = new HashMap<>();
+            for (PendingRow row : rows) {
+                R reference = referenceOf.apply(row);
+                if (reference != null && !known.containsKey(normalize.apply(reference))) {
+                    missing.putIfAbsent(normalize.apply(reference), reference);
+                }
+            }
+            if (missing.isEmpty()) {
+                return;
+            }
+            missing.keySet().forEach(key -> known.put(key, null));
+            query.apply(missing.values()).forEach(entity -> known.put(keyOfEntity.apply(entity), entity));
+        }
+
+        private String key(String name) {
+            return name == null ? null : name.toLowerCase(Locale.ROOT);
+        }
+    }
+
+    // ===================== READERS =====================
+
+    // One input row as column key -> trimmed text (null when empty), or the reason it is malformed
+    private static final class RawRow {
+        final long line;
+        final Map<String, String> values;
+        final String error;
+
+        RawRow(long line, Map<String, String> values, String error) {
+            this.line = line;
+            this.values = values;
+            this.error = error;
+        }
+
+        String text(String column) {
+            String value = values.get(column);
+            if (value == null) {
+                return null;
+            }
+            value = value.trim();
+            return value.isEmpty() ? null : value;
+        }
+
+        Integer integer(String column) {
+            String value = text(column);
+            try {
+                return value == null ? null : Integer.valueOf(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid " + column + ": '" + value + "'");
+            }
+        }
+
+        Long longValue(String column) {
+            String value = text(column);
+            try {
+                return value == null ? null : Long.valueOf(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid " + column + ": '" + value + "'");
+            }
+        }
+
+        BigDecimal decimal(String column) {
+            String value = text(column);
+            try {
+                return value == null ? null : new BigDecimal(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid " + column + ": '" + value + "'");
+            }
+        }
+    }
+
+    private interface RowReader {
+        // Null at the end of the input
+        RawRow next() throws IOException;
+    }
+
+    // RFC 4180: comma separated, fields optionally double-quoted; quoted fields may contain
+    // commas, doubled quotes and line breaks. Read a line at a time.
+    private static final class CsvRowReader implements RowReader {
+        private final BufferedReader in;
+        private final List<String> header;
+        private long line;
+
+        CsvRowReader(BufferedReader in) throws IOException {
+            this.in = in;
+            List<String> names;
+            try {
+                names = readRecord();
+            } catch (MalformedRowException e) {
+                throw new IllegalArgumentException("Malformed CSV header: " + e.getMessage());
+            }
+            if (names == null) {
+                throw new IllegalArgumentException("CSV import needs a header row");
+            }
+            this.header = names.stream().map(ProductImportService::columnKey).collect(Collectors.toList());
+        }
+
+        @Override
+        public RawRow next() throws IOException {
+            while (true) {
+                long start = line + 1;
+                List<String> fields;
+                try {
+                    fields = readRecord();
+                } catch (MalformedRowException e) {
+                    return new RawRow(start, Map.of(), e.getMessage());
+                }
+                if (fields == null) {
+                    return null;
+                }
+                if (fields.size() == 1 && fields.get(0).isBlank()) {
+                    continue;
+                }
+                Map<String, String> values = new HashMap<>(header.size() * 2);
+                for (int i = 0; i < Math.min(fields.size(), header.size()); i++) {
+                    values.put(header.get(i), fields.get(i));
+                }
+                if (fields.size() != header.size()) {
+                    return new RawRow(start, values,
+                            "Expected " + header.size() + " columns but found " + fields.size());
+                }
+                return new RawRow(start, values, null);
+            }
+        }
+
+        private List<String> readRecord() throws IOException {
+            String text = in.readLine();
+            if (text == null) {
+                return null;
+            }
+            line++;
+            List<String> fields = new ArrayList<>(header == null ? 16 : header.size());
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            int i = 0;
+            while (true) {
+                if (i == text.length()) {
+                    if (!quoted) {
+                        fields.add(field.toString());
+                        return fields;
+                    }
+                    text = in.readLine();
+                    if (text == null) {
+                        throw new MalformedRowException("Unterminated quoted field");
+                    }
+                    line++;
+                    field.append('\n');
+                    i = 0;
+                    continue;
+                }
+                char c = text.charAt(i++);
+                if (quoted) {
+                    if (c != '"') {
+                        field.append(c);
+                    } else if (i < text.length() && text.charAt(i) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '"' && field.length() == 0) {
+                    quoted = true;
+                } else {
+                    field.append(c);
+                }
+            }
+        }
+    }
+
+    // One JSON object per line. Nested {"id": ..} / {"name": ..} references, as in the
+    // product JSON the API returns, are accepted for warehouse and supplier.
+    private static final class NdjsonRowReader implements RowReader {
+        private final BufferedReader in;
+        private final ObjectMapper objectMapper;
+        private long line;
+
+        NdjsonRowReader(BufferedReader in, ObjectMapper objectMapper) {
+            this.in = in;
+            this.objectMapper = objectMapper;
+        }
+
+        @Override
+        public RawRow next() throws IOException {
+            String text;
+            while ((text = in.readLine()) != null) {
+                line++;
+                if (text.isBlank()) {
+                    continue;
+                }
+                JsonNode node;
+                try {
+                    node = objectMapper.readTree(text);
+                } catch (JsonProcessingException e) {
+                    return new RawRow(line, Map.of(), "Invalid JSON: " + e.getOriginalMessage());
+                }
+                if (!node.isObject()) {
+                    return new RawRow(line, Map.of(), "Expected a JSON object");
+                }
+                Map<String, String> values = new HashMap<>();
+                node.properties().forEach(entry -> {
+                    String key = columnKey(entry.getKey());
+                    JsonNode value = entry.getValue();
+                    if (value.isObject()) {
+                        if (value.hasNonNull("id")) {
+                            values.put(key + "id", value.get("id").asText());
+                        }
+                        if (value.hasNonNull("name")) {
+                            values.put(key, value.get("name").asText());
+                        }
+                    } else if (!value.isNull()) {
+                        values.put(key, value.isValueNode() ? value.asText() : value.toString());
+                    }
+                });
+                return new RawRow(line, values, null);
+            }
+            return null;
+        }
+    }
+
+    private static final class MalformedRowException extends RuntimeException {
+        MalformedRowException(String message) {
+            super(message);
+        }
+    }
+}
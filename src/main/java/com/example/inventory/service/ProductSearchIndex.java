@@ -0,0 +1,536 @@
+package com.example.inventory.service;
+
+import com.example.inventory.dto.PageCursor;
+import com.example.inventory.event.ProductChangedEvent;
+import com.example.inventory.model.Product;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process inverted index over product name, description, SKU and category.
+ *
+ * Every product gets an int document number; each term maps to a postings list of
+ * (document, field bits) sorted by document. A query matches products containing all of
+ * its terms (the last one also as a prefix, for search-as-you-type) and ranks them by
+ * idf times the weight of the fields the terms appear in. Saves and deletes arrive as
+ * ProductChangedEvents: a changed product is marked dead and re-added under a new
+ * document number, and the postings are compacted once enough dead entries pile up.
+ *
+ * The index is built from the products table in the background after startup; until it
+ * is ready ProductService falls back to the database search.
+ */
+@Service
+public class ProductSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+    // Field bits stored with each posting
+    private static final int NAME = 1;
+    private static final int SKU = 2;
+    private static final int CATEGORY = 4;
+    private static final int DESCRIPTION = 8;
+
+    // Score weight of a term by the combination of fields it occurs in
+    private static final float[] FIELD_WEIGHTS = new float[16];
+
+    static {
+        for (int mask = 0; mask < FIELD_WEIGHTS.length; mask++) {
+            FIELD_WEIGHTS[mask] = ((mask & NAME) != 0 ? 4f : 0f)
+                    + ((mask & SKU) != 0 ? 3f : 0f)
+                    + ((mask & CATEGORY) != 0 ? 2f : 0f)
+                    + ((mask & DESCRIPTION) != 0 ? 1f : 0f);
+        }
+    }
+
+    // A prefix match on the last query term counts for less than the whole word
+    private static final float PREFIX_FACTOR = 0.5f;
+
+    // Prefix expansion needs a couple of characters and stops after this many dictionary terms
+    private static final int MIN_PREFIX_LENGTH = 2;
+    private static final int MAX_PREFIX_TERMS = 256;
+
+    // Candidates are looked up in a term's postings by binary search when the postings are
+    // this many times larger than the candidate set, instead of merging both lists
+    private static final int PROBE_RATIO = 16;
+
+    // Postings are compacted once this share of document numbers belongs to dead documents
+    private static final double COMPACT_DEAD_RATIO = 0.25;
+    private static final int COMPACT_MIN_DOCS = 1024;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Searches share the read lock; event updates and compaction take the write lock
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Null until the first build completes
+    private volatile Segment segment;
+
+    // Changes seen while a build is scanning the table, replayed onto the new segment
+    private final List<ProductChangedEvent> pendingEvents = new ArrayList<>();
+    private boolean building;
+
+    @Autowired
+    public ProductSearchIndex(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        Thread.ofPlatform().name("product-search-index").daemon().start(this::rebuild);
+    }
+
+    public boolean isReady() {
+        return segment != null;
+    }
+
+    // Rebuilds the index from the products table; searches keep using the old segment meanwhile
+    public void rebuild() {
+        synchronized (pendingEvents) {
+            building = true;
+        }
+        long started = System.nanoTime();
+        Segment fresh = new Segment();
+        try {
+            jdbcTemplate.query("SELECT id, name, description, sku, category FROM products",
+                    (RowCallbackHandler) rs -> fresh.add(rs.getLong(1),
+                            rs.getString(2), rs.getString(3), rs.getString(4), rs.getString(5)));
+        } catch (RuntimeException e) {
+            synchronized (pendingEvents) {
+                pendingEvents.clear();
+                building = false;
+            }
+            log.error("Building the product search index failed", e);
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            synchronized (pendingEvents) {
+                pendingEvents.forEach(event -> apply(fresh, event));
+                pendingEvents.clear();
+                building = false;
+            }
+            segment = fresh;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Product search index built: {} products, {} terms in {} ms",
+                fresh.liveCount(), fresh.terms.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        synchronized (pendingEvents) {
+            if (building) {
+                pendingEvents.add(event);
+                return;
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            Segment current = segment;
+            if (current == null) {
+                return; // the initial build has not started; its table scan will see this change
+            }
+            apply(current, event);
+            if (current.deadCount > COMPACT_MIN_DOCS && current.deadCount > current.docCount * COMPACT_DEAD_RATIO) {
+                segment = current.compact();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void apply(Segment target, ProductChangedEvent event) {
+        if (event.isDeleted()) {
+            target.remove(event.getProductId());
+            return;
+        }
+        Product product = event.getProduct();
+        target.add(product.getId(), product.getName(), product.getDescription(), product.getSku(), product.getCategory());
+    }
+
+    // ===================== SEARCH =====================
+
+    /**
+     * Returns up to {@code limit} hits ranked after {@code after} (null for the first page),
+     * best first; ties on score are ordered by product id.
+     */
+    public List<Hit> search(String query, PageCursor after, int limit) {
+        return rank(query, after, limit);
+    }
+
+    // Every match, best first
+    public List<Hit> searchAll(String query) {
+        return rank(query, null, Integer.MAX_VALUE);
+    }
+
+    private List<Hit> rank(String query, PageCursor after, int limit) {
+        List<String> tokens = new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+        if (tokens.isEmpty()) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            Segment current = segment;
+            if (current == null) {
+                throw new IllegalStateException("Product search index is not built yet");
+            }
+            // Rarest term first; later terms only filter the candidates it produced
+            List<TermMatch> termMatches = new ArrayList<>(tokens.size());
+            for (int i = 0; i < tokens.size(); i++) {
+                termMatches.add(current.lookup(tokens.get(i), i == tokens.size() - 1));
+            }
+            termMatches.sort(Comparator.comparingLong(TermMatch::postingCount));
+
+            Scored matches = current.score(termMatches.get(0));
+            for (int i = 1; i < termMatches.size() && matches.size > 0; i++) {
+                TermMatch term = termMatches.get(i);
+                matches = matches.size * PROBE_RATIO < term.postingCount()
+                        ? matches.probe(term)
+                        : matches.intersect(current.score(term));
+            }
+            return current.top(matches, after, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Lowercased runs of letters and digits
+    static List<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return List.of();
+        }
+        List<String> tokens = new ArrayList<>();
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    public static final class Hit {
+        private final long productId;
+        private final float score;
+
+        Hit(long productId, float score) {
+            this.productId = productId;
+            this.score = score;
+        }
+
+        public long getProductId() {
+            return productId;
+        }
+
+        public float getScore() {
+            return score;
+        }
+    }
+
+    // ===================== INDEX STRUCTURES =====================
+
+    // Sorted by document number, because document numbers are only ever appended
+    private static final class Postings {
+        int[] docs = new int[2];
+        byte[] fields = new byte[2];
+        int size;
+
+        void add(int doc, int mask) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                fields = Arrays.copyOf(fields, size * 2);
+            }
+            docs[size] = doc;
+            fields[size] = (byte) mask;
+            size++;
+        }
+    }
+
+    // The postings lists a query term resolves to: the exact term and, for a prefix, its expansions
+    private static final class TermMatch {
+        final List<Postings> lists = new ArrayList<>();
+        final List<Float> weights = new ArrayList<>();
+        long postingCount;
+
+        void add(Postings postings, float weight) {
+            lists.add(postings);
+            weights.add(weight);
+            postingCount += postings.size;
+        }
+
+        long postingCount() {
+            return postingCount;
+        }
+    }
+
+    // Matching documents sorted by document number, with their scores so far
+    private static final class Scored {
+        final int[] docs;
+        final float[] scores;
+        final int size;
+
+        Scored(int[] docs, float[] scores, int size) {
+            this.docs = docs;
+            this.scores = scores;
+            this.size = size;
+        }
+
+        Scored intersect(Scored other) {
+            int capacity = Math.min(size, other.size);
+            int[] outDocs = new int[capacity];
+            float[] outScores = new float[capacity];
+            int n = 0;
+            for (int i = 0, j = 0; i < size && j < other.size; ) {
+                if (docs[i] < other.docs[j]) {
+                    i++;
+                } else if (docs[i] > other.docs[j]) {
+                    j++;
+                } else {
+                    outDocs[n] = docs[i];
+                    outScores[n++] = scores[i++] + other.scores[j++];
+                }
+            }
+            return new Scored(outDocs, outScores, n);
+        }
+
+        // Keeps the candidates found in the term's postings; candidates are live already
+        Scored probe(TermMatch term) {
+            int[] outDocs = new int[size];
+            float[] outScores = new float[size];
+            int n = 0;
+            for (int i = 0; i < size; i++) {
+                boolean found = false;
+                float score = scores[i];
+                for (int l = 0; l < term.lists.size(); l++) {
+                    Postings postings = term.lists.get(l);
+                    int at = Arrays.binarySearch(postings.docs, 0, postings.size, docs[i]);
+                    if (at >= 0) {
+                        found = true;
+                        score += term.weights.get(l) * FIELD_WEIGHTS[postings.fields[at]];
+                    }
+                }
+                if (found) {
+                    outDocs[n] = docs[i];
+                    outScores[n++] = score;
+                }
+            }
+            return new Scored(outDocs, outScores, n);
+        }
+    }
+
+    private static final class Segment {
+        final TreeMap<String, Postings> terms = new TreeMap<>();
+        final Map<Long, Integer> docsByProduct = new HashMap<>();
+        final BitSet dead = new BitSet();
+        long[] productIds = new long[1024];
+        int docCount;
+        int deadCount;
+
+        int liveCount() {
+            return docsByProduct.size();
+        }
+
+        void add(long productId, String name, String description, String sku, String category) {
+            remove(productId);
+            int doc = docCount++;
+            if (doc == productIds.length) {
+                productIds = Arrays.copyOf(productIds, doc * 2);
+            }
+            productIds[doc] = productId;
+            docsByProduct.put(productId, doc);
+
+            Map<String, Integer> fieldsByTerm = new HashMap<>();
+            collect(fieldsByTerm, name, NAME);
+            collect(fieldsByTerm, sku, SKU);
+            collect(fieldsByTerm, category, CATEGORY);
+            collect(fieldsByTerm, description, DESCRIPTION);
+            fieldsByTerm.forEach((term, mask) -> terms.computeIfAbsent(term, t -> new Postings()).add(doc, mask));
+        }
+
+        private static void collect(Map<String, Integer> fieldsByTerm, String text, int field) {
+            for (String token : tokenize(text)) {
+                fieldsByTerm.merge(token, field, (a, b) -> a | b);
+            }
+        }
+
+        void remove(long productId) {
+            Integer doc = docsByProduct.remove(productId);
+            if (doc != null) {
+                dead.set(doc);
+                deadCount++;
+            }
+        }
+
+        TermMatch lookup(String token, boolean prefix) {
+            TermMatch match = new TermMatch();
+            Postings exact = terms.get(token);
+            if (exact != null) {
+                match.add(exact, idf(exact));
+            }
+            if (prefix && token.length() >= MIN_PREFIX_LENGTH) {
+                for (Postings postings : terms.subMap(token, false, token + Character.MAX_VALUE, false).values()) {
+                    if (match.lists.size() == MAX_PREFIX_TERMS) {
+                        break;
+                    }
+                    match.add(postings, idf(postings) * PREFIX_FACTOR);
+                }
+            }
+            return match;
+        }
+
+        Scored score(TermMatch match) {
+            if (match.lists.size() == 1) {
+                return score(match.lists.get(0), match.weights.get(0));
+            }
+            return union(match.lists, match.weights);
+        }
+
+        private float idf(Postings postings) {
+            return (float) Math.log(1.0 + (double) Math.max(liveCount(), 1) / postings.size);
+        }
+
+        private Scored score(Postings postings, float weight) {
+            int[] docs = new int[postings.size];
+            float[] scores = new float[postings.size];
+            int n = 0;
+            for (int i = 0; i < postings.size; i++) {
+                int doc = postings.docs[i];
+                if (!dead.get(doc)) {
+                    docs[n] = doc;
+                    scores[n++] = weight * FIELD_WEIGHTS[postings.fields[i]];
+                }
+            }
+            return new Scored(docs, scores, n);
+        }
+
+        // Merges several postings lists by packing (doc, score bits) into longs and sorting them
+        private Scored union(List<Postings> lists, List<Float> weights) {
+            int total = 0;
+            for (Postings postings : lists) {
+                total += postings.size;
+            }
+            long[] packed = new long[total];
+            int n = 0;
+            for (int l = 0; l < lists.size(); l++) {
+                Postings postings = lists.get(l);
+                float weight = weights.get(l);
+                for (int i = 0; i < postings.size; i++) {
+                    int doc = postings.docs[i];
+                    if (!dead.get(doc)) {
+                        float score = weight * FIELD_WEIGHTS[postings.fields[i]];
+                        packed[n++] = ((long) doc << 32) | (Float.floatToIntBits(score) & 0xFFFFFFFFL);
+                    }
+                }
+            }
+            Arrays.sort(packed, 0, n);
+
+            int[] docs = new int[n];
+            float[] scores = new float[n];
+            int size = 0;
+            for (int i = 0; i < n; i++) {
+                int doc = (int) (packed[i] >>> 32);
+                float score = Float.intBitsToFloat((int) packed[i]);
+                if (size > 0 && docs[size - 1] == doc) {
+                    scores[size - 1] += score;
+                } else {
+                    docs[size] = doc;
+                    scores[size++] = score;
+                }
+            }
+            return new Scored(docs, scores, size);
+        }
+
+        // Best `limit` matches ranked after the cursor, kept in a small sorted buffer
+        List<Hit> top(Scored matches, PageCursor after, int limit) {
+            int capacity = Math.min(limit, matches.size);
+            long[] ids = new long[capacity];
+            float[] scores = new float[capacity];
+            int count = 0;
+            boolean keepAll = capacity == matches.size;
+            for (int i = 0; i < matches.size; i++) {
+                float score = matches.scores[i];
+                long id = productIds[matches.docs[i]];
+                if (after != null && !ranksBefore(after.getScore(), after.getId(), score, id)) {
+                    continue;
+                }
+                if (keepAll) {
+                    ids[count] = id;
+                    scores[count++] = score;
+                    continue;
+                }
+                if (count == capacity && !ranksBefore(score, id, scores[count - 1], ids[count - 1])) {
+                    continue;
+                }
+                int pos = count < capacity ? count++ : capacity - 1;
+                while (pos > 0 && ranksBefore(score, id, scores[pos - 1], ids[pos - 1])) {
+                    ids[pos] = ids[pos - 1];
+                    scores[pos] = scores[pos - 1];
+                    pos--;
+                }
+                ids[pos] = id;
+                scores[pos] = score;
+            }
+
+            List<Hit> hits = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                hits.add(new Hit(ids[i], scores[i]));
+            }
+            if (keepAll) {
+                hits.sort((a, b) -> ranksBefore(a.score, a.productId, b.score, b.productId) ? -1
+                        : ranksBefore(b.score, b.productId, a.score, a.productId) ? 1 : 0);
+            }
+            return hits;
+        }
+
+        private static boolean ranksBefore(float score, long id, float otherScore, long otherId) {
+            return score > otherScore || (score == otherScore && id < otherId);
+        }
+
+        // Drops dead documents and renumbers the live ones in their original order
+        Segment compact() {
+            Segment compacted = new Segment();
+            int[] renumbered = new int[docCount];
+            compacted.productIds = new long[Math.max(liveCount(), 1024)];
+            for (int doc = 0; doc < docCount; doc++) {
+                if (dead.get(doc)) {
+                    renumbered[doc] = -1;
+                    continue;
+                }
+                int fresh = compacted.docCount++;
+                renumbered[doc] = fresh;
+                compacted.productIds[fresh] = productIds[doc];
+                compacted.docsByProduct.put(productIds[doc], fresh);
+            }
+            terms.forEach((term, postings) -> {
+                Postings kept = new Postings();
+                for (int i = 0; i < postings.size; i++) {
+                    int doc = renumbered[postings.docs[i]];
+                    if (doc >= 0) {
+                        kept.add(doc, postings.fields[i]);
+                    }
+                }
+                if (kept.size > 0) {
+                    compacted.terms.put(term, kept);
+                }
+            });
+            return compacted;
+        }
+    }
+}
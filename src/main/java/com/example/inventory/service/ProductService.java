@@ -1,12 +1,21 @@
 package com.example.inventory.service;
 
-import com.example.inventory.exception.OutOfStockException;
+import com.example.inventory.dto.CursorPage;
+import com.example.inventory.dto.PageCursor;
+import com.example.inventory.dto.ProductSuggestion;
+import com.example.inventory.dto.ValuationDrift;
+import com.example.inventory.event.ProductChangedEvent;
+import com.example.inventory.event.StockChangedEvent;
 import com.example.inventory.model.Product;
+import com.example.inventory.model.StockSlot;
 import com.example.inventory.repository.ProductRepository;
+import com.example.inventory.repository.ProductRepository.ProductValuation;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
-// import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.util.*;
@@ -17,34 +26,186 @@ import java.util.stream.Collectors;
 @Service
 public class ProductService {
 
+    // Fields of ?fields= product listings. As in exports, stockQuantity of a slotted product is
+    // the row's mirrored slot total
+    public static final FieldProjectionService.Projection PRODUCT_FIELDS =
+            FieldProjectionService.Projection.byId("Product p", "p.id")
+                    .field("id", "p.id")
+                    .field("sku", "p.sku")
+                    .field("name", "p.name")
+                    .field("description", "p.description")
+                    .field("category", "p.category")
+                    .field("price", "p.price")
+                    .field("stockQuantity", "p.stockQuantity")
+                    .field("minStockLevel", "p.minStockLevel")
+                    .field("stockSlotted", "p.stockSlotted")
+                    .field("warehouseId", "p.warehouse.id")
+                    .field("warehouseName", "w.name", "LEFT JOIN p.warehouse w")
+                    .field("supplierId", "p.supplier.id")
+                    .field("supplierName", "s.name", "LEFT JOIN p.supplier s")
+                    .field("createdAt", "p.createdAt")
+                    .field("updatedAt", "p.updatedAt");
+
     private final ProductRepository productRepository;
+    private final StockEngine stockEngine;
+    private final StockSlotService stockSlotService;
+    private final ProductSearchIndex searchIndex;
+    private final ProductSuggester suggester;
+    private final InventoryValuationService valuationService;
+    private final ProductCache productCache;
+    private final LowStockIndex lowStockIndex;
+    private final CatalogSnapshot catalogSnapshot;
+    private final ApplicationEventPublisher eventPublisher;
+    private final FieldProjectionService fieldProjectionService;
 
     @Autowired
-    public ProductService(ProductRepository productRepository) {
+    public ProductService(ProductRepository productRepository,
+                          StockEngine stockEngine,
+                          StockSlotService stockSlotService,
+                          ProductSearchIndex searchIndex,
+                          ProductSuggester suggester,
+                          InventoryValuationService valuationService,
+                          ProductCache productCache,
+                          LowStockIndex lowStockIndex,
+                          CatalogSnapshot catalogSnapshot,
+                          ApplicationEventPublisher eventPublisher,
+                          FieldProjectionService fieldProjectionService) {
         this.productRepository = productRepository;
+        this.stockEngine = stockEngine;
+        this.stockSlotService = stockSlotService;
+        this.searchIndex = searchIndex;
+        this.suggester = suggester;
+        this.valuationService = valuationService;
+        this.productCache = productCache;
+        this.lowStockIndex = lowStockIndex;
+        this.catalogSnapshot = catalogSnapshot;
+        this.eventPublisher = eventPublisher;
+        this.fieldProjectionService = fieldProjectionService;
     }
 
     // CRUD Operations
+    @Transactional
     public Product saveProduct(Product product) {
-        return productRepository.save(product);
+        ProductValuation before = null;
+        if (product.getId() != null) {
+            stockEngine.evict(product.getId());
+            before = valuationService.lockSnapshot(product.getId()).orElse(null);
+        }
+        Product saved = productRepository.save(product);
+        if (stockSlotService.isSlotted(saved.getId())) {
+            // The submitted quantity is spread over the slots rather than written to the row
+            stockSlotService.setStock(saved.getId(), saved.getStockQuantity());
+        }
+        valuationService.recordProductChange(before, saved);
+        eventPublisher.publishEvent(ProductChangedEvent.saved(saved));
+        return saved;
     }
 
+    // Served from ProductCache; the returned product is detached and shared, so treat it as read-only
     public Optional<Product> findById(Long id) {
-        return productRepository.findById(id);
+        return productCache.findById(id).map(this::withSlottedStock);
     }
 
     public Optional<Product> findBySku(String sku) {
-        return productRepository.findBySku(sku);
+        return productCache.findBySku(sku).map(this::withSlottedStock);
+    }
+
+    // Slotted products report the live sum of their slots on a copy, so the cached entity never carries it
+    private Product withSlottedStock(Product product) {
+        return product.isStockSlotted() ? product.withSlottedStock(stockSlotService.getStock(product.getId())) : product;
     }
 
     public List<Product> findAll() {
-        return productRepository.findAll();
+        return productRepository.findAllWithReferences();
+    }
+
+    // One query for many products, keyed by id; ids with no product are absent
+    public Map<Long, Product> findAllById(Collection<Long> ids) {
+        return productRepository.findWithReferencesByIdIn(ids).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+    }
+
+    // Keyset pagination: pages are ordered by id and seek past the cursor
+    public CursorPage<Product> findPage(String cursor, Integer limit) {
+        int size = PageCursor.clampLimit(limit);
+        return toPage(productRepository.findPageAfter(PageCursor.afterId(cursor), PageCursor.lookahead(size)), size);
+    }
+
+    public CursorPage<Product> getLowStockProductsPage(String cursor, Integer limit) {
+        int size = PageCursor.clampLimit(limit);
+        return toPage(productRepository.findLowStockPageAfter(PageCursor.afterId(cursor), PageCursor.lookahead(size)), size);
+    }
+
+    public CursorPage<Product> getProductsByCategoryPage(String category, String cursor, Integer limit) {
+        int size = PageCursor.clampLimit(limit);
+        return toPage(productRepository.findCategoryPageAfter(
+                category, PageCursor.afterId(cursor), PageCursor.lookahead(size)), size);
+    }
+
+    // Ranked by relevance from the search index; id-ordered LIKE search until the index is built
+    public CursorPage<Product> searchProductsPage(String searchTerm, String cursor, Integer limit) {
+        int size = PageCursor.clampLimit(limit);
+        PageCursor after = PageCursor.decode(cursor);
+        if (searchIndex.isReady() && (after == null || after.getScore() != null)) {
+            return rankedPage(searchTerm, after, size);
+        }
+        return toPage(productRepository.searchPageAfter(
+                "%" + searchTerm.toLowerCase() + "%", PageCursor.afterId(cursor), PageCursor.lookahead(size)), size);
+    }
+
+    // Hits of products deleted before the index heard of it load as nothing; the page is topped up
+    // from the hits ranked after them, so it is full and has a next cursor whenever more matches exist
+    private CursorPage<Product> rankedPage(String searchTerm, PageCursor after, int size) {
+        List<Product> rows = new ArrayList<>(size + 1);
+        Map<Long, Float> scores = new HashMap<>();
+        PageCursor from = after;
+        while (rows.size() <= size) {
+            int wanted = size + 1 - rows.size();
+            List<ProductSearchIndex.Hit> hits = searchIndex.search(searchTerm, from, wanted);
+            hits.forEach(hit -> scores.put(hit.getProductId(), hit.getScore()));
+            rows.addAll(loadHits(hits));
+            if (hits.size() < wanted) {
+                break; // no more matches
+            }
+            ProductSearchIndex.Hit last = hits.get(hits.size() - 1);
+            from = PageCursor.ofScore(last.getScore(), last.getProductId());
+        }
+        return CursorPage.of(rows, size, product -> PageCursor.ofScore(scores.get(product.getId()), product.getId()));
+    }
+
+    // Flat rows with only the requested PRODUCT_FIELDS, in id order; category is an optional filter
+    public List<Map<String, Object>> findFields(String fields, String category) {
+        return fieldProjectionService.list(PRODUCT_FIELDS, fields, categoryFilter(category), categoryParams(category));
+    }
+
+    public CursorPage<Map<String, Object>> findFieldsPage(String fields, String category, String cursor, Integer limit) {
+        return fieldProjectionService.page(PRODUCT_FIELDS, fields, categoryFilter(category), categoryParams(category),
+                cursor, limit);
+    }
+
+    private static String categoryFilter(String category) {
+        return category == null ? null : "p.category = :category";
+    }
+
+    private static Map<String, Object> categoryParams(String category) {
+        return category == null ? Map.of() : Map.of("category", category);
+    }
+
+    private CursorPage<Product> toPage(List<Product> rows, int size) {
+        return CursorPage.of(rows, size, product -> PageCursor.ofId(product.getId()));
     }
 
     // Service
+    @Transactional
     public void deleteProduct(Long id) {
         try {
+            stockEngine.evict(id);
+            Optional<ProductValuation> before = valuationService.lockSnapshot(id);
+            stockSlotService.discard(id);
             productRepository.deleteById(id);
+            productRepository.flush(); // surface FK violations here rather than at commit
+            before.ifPresent(product -> valuationService.recordRemoval(List.of(product)));
+            eventPublisher.publishEvent(ProductChangedEvent.deleted(id));
         } catch (DataIntegrityViolationException e) {
             throw e; // Let controller handle it
         }
@@ -52,19 +213,23 @@ public class ProductService {
 
     // Functional Programming: Stream operations for filtering and analytics
 
-    // Filter products by low stock using streams
+    // Filter products by low stock, lowest stock first (from the low-stock index once it is built)
     public List<Product> getLowStockProducts() {
-        return findAll().stream()
-                .filter(product -> product.getStockQuantity() <= product.getMinStockLevel())
-                .sorted(Comparator.comparing(Product::getStockQuantity))
-                .collect(Collectors.toList());
+        List<LowStockIndex.LowStockProduct> low = lowStockIndex.getLowStockProducts();
+        if (low == null) {
+            return productRepository.findLowStockProducts();
+        }
+        return findAllInOrder(low.stream().map(LowStockIndex.LowStockProduct::getId).collect(Collectors.toList()));
     }
 
-    // Filter products by category using functional approach
+    public int countLowStockProducts() {
+        int count = lowStockIndex.countLowStockProducts();
+        return count >= 0 ? count : productRepository.findLowStockProducts().size();
+    }
+
+    // Filter products by category (MySQL's default collation keeps the match case-insensitive)
     public List<Product> getProductsByCategory(String category) {
-        return findAll().stream()
-                .filter(product -> category.equalsIgnoreCase(product.getCategory()))
-                .collect(Collectors.toList());
+        return productRepository.findByCategory(category);
     }
 
     // Filter products by custom criteria using high-order functions
@@ -83,86 +248,138 @@ public class ProductService {
 
     // Analytics: Aggregate operations using streams
 
-    // Calculate total inventory value
+    // Calculate total inventory value (running aggregate kept by InventoryValuationService)
     public BigDecimal calculateTotalInventoryValue() {
-        return findAll().stream()
-                .map(product -> product.getPrice().multiply(new BigDecimal(product.getStockQuantity())))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return valuationService.getTotalValue();
     }
 
     // Calculate inventory value by category
     public Map<String, BigDecimal> calculateInventoryValueByCategory() {
-        return findAll().stream()
-                .collect(Collectors.groupingBy(
-                        Product::getCategory,
-                        Collectors.reducing(
-                                BigDecimal.ZERO,
-                                product -> product.getPrice().multiply(new BigDecimal(product.getStockQuantity())),
-                                BigDecimal::add)));
+        return valuationService.getValueByCategory();
+    }
+
+    // Compare the running valuation with a full recompute, and optionally rewrite it
+    public List<ValuationDrift> reconcileInventoryValuation(boolean repair) {
+        return repair ? valuationService.repair() : valuationService.reconcile();
     }
 
-    // Get product count by category
+    // Get product count by category (from the catalog snapshot once it is built)
     public Map<String, Long> getProductCountByCategory() {
-        return findAll().stream()
-                .collect(Collectors.groupingBy(
-                        Product::getCategory,
-                        Collectors.counting()));
+        Map<String, Long> counts = catalogSnapshot.countByCategory(null);
+        if (counts != null) {
+            return counts;
+        }
+        // Uncategorized products count under "", the key the valuation and the snapshot use for them
+        Map<String, Long> grouped = new HashMap<>();
+        for (ProductRepository.CategoryCount row : productRepository.countProductsGroupedByCategory()) {
+            grouped.merge(row.getCategory() == null ? "" : row.getCategory(), row.getProductCount(), Long::sum);
+        }
+        return grouped;
     }
 
-    // Find top N most expensive products
+    // Find top N most expensive products (ranked on the catalog snapshot, loaded fresh)
     public List<Product> getTopExpensiveProducts(int limit) {
-        return findAll().stream()
-                .sorted(Comparator.comparing(Product::getPrice).reversed())
-                .limit(limit)
-                .collect(Collectors.toList());
+        if (limit <= 0) {
+            return List.of();
+        }
+        List<Long> ids = catalogSnapshot.topExpensiveIds(limit);
+        if (ids != null) {
+            return findAllInOrder(ids);
+        }
+        return productRepository.findMostExpensive(PageRequest.of(0, limit));
     }
 
-    // Find products with stock below threshold
+    // Find products with stock below threshold; snapshot candidates are re-checked against current stock
     public List<Product> getProductsBelowStockThreshold(int threshold) {
-        return findAll().stream()
+        List<Long> ids = catalogSnapshot.idsWithStockBelow(threshold);
+        if (ids == null) {
+            return productRepository.findProductsWithStockLessThan(threshold);
+        }
+        return findAllInOrder(ids).stream()
                 .filter(product -> product.getStockQuantity() < threshold)
                 .collect(Collectors.toList());
     }
 
+    // Snapshot-wide reductions plus the snapshot's age and size; null parallel lets the size decide
+    public Map<String, Object> getCatalogSnapshotReport(Boolean parallel) {
+        long started = System.nanoTime();
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("countByCategory", catalogSnapshot.countByCategory(parallel));
+        report.put("valueByCategory", catalogSnapshot.valueByCategory(parallel));
+        report.put("valueByWarehouse", catalogSnapshot.valueByWarehouse(parallel));
+        report.put("computeMicros", (System.nanoTime() - started) / 1000);
+        report.put("snapshot", catalogSnapshot.getStats());
+        return report;
+    }
+
     // Business Logic: Stock management with exception handling
 
+    // Each mutation is a single atomic step in the StockEngine, safe under concurrent orders
     public void updateStock(Long productId, int quantity) {
-        Product product = findById(productId)
-                .orElseThrow(() -> new IllegalArgumentException("Product not found with ID: " + productId));
-
         if (quantity < 0) {
             throw new IllegalArgumentException("Stock quantity cannot be negative");
         }
 
-        product.updateStock(quantity);
-        productRepository.save(product);
+        stockEngine.setStock(productId, quantity);
+        eventPublisher.publishEvent(new StockChangedEvent(productId, quantity));
     }
 
-    public void reduceStock(Long productId, int quantity) {
-        Product product = findById(productId)
-                .orElseThrow(() -> new IllegalArgumentException("Product not found with ID: " + productId));
+    // Returns the remaining stock
+    public int reduceStock(Long productId, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity to reduce must be positive");
+        }
+
+        int remaining = stockEngine.reduceStock(productId, quantity);
+        eventPublisher.publishEvent(new StockChangedEvent(productId, remaining));
+        return remaining;
+    }
 
-        if (product.getStockQuantity() < quantity) {
-            throw new OutOfStockException(
-                    "Insufficient stock for product: " + product.getName() +
-                            ". Available: " + product.getStockQuantity() +
-                            ", Requested: " + quantity);
+    // Returns the new stock level
+    public int increaseStock(Long productId, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity to increase must be positive");
         }
 
-        product.reduceStock(quantity);
-        productRepository.save(product);
+        int updated = stockEngine.increaseStock(productId, quantity);
+        eventPublisher.publishEvent(new StockChangedEvent(productId, updated));
+        return updated;
     }
 
-    public void increaseStock(Long productId, int quantity) {
-        Product product = findById(productId)
-                .orElseThrow(() -> new IllegalArgumentException("Product not found with ID: " + productId));
+    // Slotted stock administration for hot SKUs
+    public List<StockSlot> promoteToSlottedStock(Long productId, int slots) {
+        if (!stockEngine.supportsSlottedStock()) {
+            throw new IllegalStateException("Slotted stock is not available with the configured stock engine");
+        }
+        stockEngine.evict(productId);
+        List<StockSlot> promoted = stockSlotService.promote(productId, slots);
+        productCache.invalidate(productId);
+        return promoted;
+    }
 
-        product.increaseStock(quantity);
-        productRepository.save(product);
+    public int demoteFromSlottedStock(Long productId) {
+        int stock = stockSlotService.demote(productId);
+        productCache.invalidate(productId);
+        return stock;
     }
 
-    // Search functionality
+    public int rebalanceStockSlots(Long productId) {
+        return stockSlotService.rebalance(productId);
+    }
+
+    public Map<String, Object> getProductCacheStats() {
+        return productCache.getStats();
+    }
+
+    public List<StockSlot> getStockSlots(Long productId) {
+        return stockSlotService.getSlots(productId);
+    }
+
+    // Search functionality: every match, most relevant first
     public List<Product> searchProducts(String searchTerm) {
+        if (searchIndex.isReady()) {
+            return loadHits(searchIndex.searchAll(searchTerm));
+        }
         return findAll().stream()
                 .filter(product -> product.getName().toLowerCase().contains(searchTerm.toLowerCase()) ||
                         product.getDescription() != null
@@ -173,24 +390,57 @@ public class ProductService {
                 .collect(Collectors.toList());
     }
 
+    // Autocomplete on SKU and name prefixes, answered from memory when the suggester is built
+    public List<ProductSuggestion> suggestProducts(String prefix, Integer limit) {
+        int size = limit == null ? ProductSuggester.DEFAULT_LIMIT : Math.min(Math.max(limit, 1), ProductSuggester.MAX_LIMIT);
+        if (suggester.isReady()) {
+            return suggester.suggest(prefix, size);
+        }
+        String pattern = prefix.replace("!", "!!").replace("%", "!%").replace("_", "!_") + "%";
+        return productRepository.findSuggestions(pattern, PageRequest.of(0, size));
+    }
+
+    public Map<String, Object> getSuggesterStats() {
+        return suggester.getStats();
+    }
+
+    // Loads the products behind index hits, keeping the hit order
+    private List<Product> loadHits(List<ProductSearchIndex.Hit> hits) {
+        return findAllInOrder(hits.stream().map(ProductSearchIndex.Hit::getProductId).collect(Collectors.toList()));
+    }
+
+    // Products by id in the given order, skipping ids deleted meanwhile
+    private List<Product> findAllInOrder(List<Long> ids) {
+        Map<Long, Product> byId = productRepository.findWithReferencesByIdIn(ids).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        return ids.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
     // Alerts: Generate low stock alerts
     public List<String> generateLowStockAlerts() {
+        List<LowStockIndex.LowStockProduct> low = lowStockIndex.getLowStockProducts();
+        if (low != null) {
+            return low.stream()
+                    .map(product -> lowStockAlert(product.getName(), product.getSku(),
+                            product.getStockQuantity(), product.getMinStockLevel()))
+                    .collect(Collectors.toList());
+        }
         return getLowStockProducts().stream()
-                .map(product -> String.format(
-                        "LOW STOCK ALERT: %s (SKU: %s) - Current Stock: %d, Min Level: %d",
-                        product.getName(),
-                        product.getSku(),
-                        product.getStockQuantity(),
-                        product.getMinStockLevel()))
+                .map(product -> lowStockAlert(product.getName(), product.getSku(),
+                        product.getStockQuantity(), product.getMinStockLevel()))
                 .collect(Collectors.toList());
     }
 
+    private static String lowStockAlert(String name, String sku, int stockQuantity, int minStockLevel) {
+        return String.format("LOW STOCK ALERT: %s (SKU: %s) - Current Stock: %d, Min Level: %d",
+                name, sku, stockQuantity, minStockLevel);
+    }
+
     // Categories management
     public List<String> getAllCategories() {
-        return findAll().stream()
-                .map(Product::getCategory)
-                .distinct()
-                .sorted()
-                .collect(Collectors.toList());
+        return productRepository.findAllCategories();
     }
 }
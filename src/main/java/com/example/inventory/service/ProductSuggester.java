@@ -0,0 +1,427 @@
+package com.example.inventory.service;
+
+import com.example.inventory.dto.ProductSuggestion;
+import com.example.inventory.event.ProductChangedEvent;
+import com.example.inventory.model.Product;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * SKU and name autocomplete from two in-memory radix trees (tries whose single-child
+ * chains are collapsed into one edge label), keyed by the lowercased SKU and name.
+ *
+ * A lookup walks down the prefix and then visits the subtree in key order until it has
+ * k products, so it costs O(prefix length + k) regardless of catalog size. Exact and
+ * shorter keys come first, and SKU matches come before name matches.
+ *
+ * The trees follow ProductChangedEvents and are built from the products table after
+ * startup. Their estimated size is tracked as keys are added and removed; a catalog that
+ * would push it past inventory.suggest.max-bytes stops growing the trees and suggestions
+ * fall back to the database until the next rebuild fits.
+ */
+@Service
+public class ProductSuggester {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductSuggester.class);
+
+    public static final int DEFAULT_LIMIT = 10;
+    public static final int MAX_LIMIT = 50;
+
+    // Rough per-object costs on a 64-bit JVM with compressed oops, for the size estimate
+    private static final long NODE_BYTES = 24 + 3 * 16;
+    private static final long ENTRY_BYTES = 48 + 3 * 16 + 2 * 40;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long maxBytes;
+
+    // Lookups share the read lock; event updates take the write lock
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Null until the first build completes
+    private volatile Trees trees;
+
+    // Changes seen while a build is scanning the table, replayed onto the new trees
+    private final List<ProductChangedEvent> pendingEvents = new ArrayList<>();
+    private boolean building;
+
+    @Autowired
+    public ProductSuggester(JdbcTemplate jdbcTemplate,
+                            @Value("${inventory.suggest.max-bytes:536870912}") long maxBytes) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.maxBytes = maxBytes;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        Thread.ofPlatform().name("product-suggester").daemon().start(this::rebuild);
+    }
+
+    // True when lookups can be answered from memory
+    public boolean isReady() {
+        Trees current = trees;
+        return current != null && !current.truncated;
+    }
+
+    public void rebuild() {
+        synchronized (pendingEvents) {
+            building = true;
+        }
+        long started = System.nanoTime();
+        Trees fresh = new Trees(maxBytes);
+        try {
+            jdbcTemplate.query("SELECT id, sku, name FROM products",
+                    (RowCallbackHandler) rs -> fresh.put(rs.getLong(1), rs.getString(2), rs.getString(3)));
+        } catch (RuntimeException e) {
+            synchronized (pendingEvents) {
+                pendingEvents.clear();
+                building = false;
+            }
+            log.error("Building the product suggester failed", e);
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            synchronized (pendingEvents) {
+                pendingEvents.forEach(event -> apply(fresh, event));
+                pendingEvents.clear();
+                building = false;
+            }
+            trees = fresh;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (fresh.truncated) {
+            log.warn("Product suggester exceeds {} bytes; suggestions are served from the database", maxBytes);
+        }
+        log.info("Product suggester built: {} products, {} nodes, ~{} KB in {} ms",
+                fresh.entries.size(), fresh.sku.nodes + fresh.name.nodes,
+                fresh.estimatedBytes() / 1024, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        synchronized (pendingEvents) {
+            if (building) {
+                pendingEvents.add(event);
+                return;
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            Trees current = trees;
+            if (current != null) {
+                apply(current, event);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void apply(Trees target, ProductChangedEvent event) {
+        if (event.isDeleted()) {
+            target.remove(event.getProductId());
+            return;
+        }
+        Product product = event.getProduct();
+        target.put(product.getId(), product.getSku(), product.getName());
+    }
+
+    // Up to `limit` products whose SKU or name starts with the prefix, case-insensitively
+    public List<ProductSuggestion> suggest(String prefix, int limit) {
+        String key = prefix.toLowerCase(Locale.ROOT);
+        lock.readLock().lock();
+        try {
+            Trees current = trees;
+            if (current == null || current.truncated) {
+                throw new IllegalStateException("Product suggester is not available");
+            }
+            Set<Long> ids = new LinkedHashSet<>();
+            current.sku.collect(key, limit, ids);
+            if (ids.size() < limit) {
+                current.name.collect(key, limit, ids);
+            }
+            List<ProductSuggestion> suggestions = new ArrayList<>(ids.size());
+            ids.forEach(id -> suggestions.add(current.entries.get(id)));
+            return suggestions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            Trees current = trees;
+            stats.put("ready", current != null);
+            stats.put("truncated", current != null && current.truncated);
+            stats.put("products", current == null ? 0 : current.entries.size());
+            stats.put("skuNodes", current == null ? 0 : current.sku.nodes);
+            stats.put("nameNodes", current == null ? 0 : current.name.nodes);
+            stats.put("estimatedBytes", current == null ? 0 : current.estimatedBytes());
+            stats.put("maxBytes", maxBytes);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return stats;
+    }
+
+    // ===================== TREES =====================
+
+    private static final class Trees {
+        final RadixTree sku = new RadixTree();
+        final RadixTree name = new RadixTree();
+        final Map<Long, ProductSuggestion> entries = new HashMap<>();
+        final long maxBytes;
+        long entryBytes;
+        boolean truncated;
+
+        Trees(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        long estimatedBytes() {
+            return sku.estimatedBytes() + name.estimatedBytes() + entryBytes;
+        }
+
+        void put(long id, String skuValue, String nameValue) {
+            remove(id);
+            if (truncated) {
+                return;
+            }
+            if (estimatedBytes() >= maxBytes) {
+                truncated = true;
+                return;
+            }
+            ProductSuggestion entry = new ProductSuggestion(id, skuValue, nameValue);
+            entries.put(id, entry);
+            entryBytes += entryBytes(entry);
+            sku.insert(key(skuValue), id);
+            name.insert(key(nameValue), id);
+        }
+
+        void remove(long id) {
+            ProductSuggestion entry = entries.remove(id);
+            if (entry != null) {
+                entryBytes -= entryBytes(entry);
+                sku.remove(key(entry.getSku()), id);
+                name.remove(key(entry.getName()), id);
+            }
+        }
+
+        private static String key(String value) {
+            return value == null ? "" : value.toLowerCase(Locale.ROOT);
+        }
+
+        private static long entryBytes(ProductSuggestion entry) {
+            return ENTRY_BYTES + 2L * (length(entry.getSku()) + length(entry.getName()));
+        }
+
+        private static int length(String value) {
+            return value == null ? 0 : value.length();
+        }
+    }
+
+    private static final class Node {
+        private static final Node[] NO_CHILDREN = new Node[0];
+        private static final long[] NO_IDS = new long[0];
+
+        char[] label;
+        Node[] children = NO_CHILDREN; // sorted by first label char
+        long[] ids = NO_IDS;           // products whose key ends at this node
+
+        Node(char[] label) {
+            this.label = label;
+        }
+
+        int childIndex(char first) {
+            int low = 0;
+            int high = children.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                char c = children[mid].label[0];
+                if (c < first) {
+                    low = mid + 1;
+                } else if (c > first) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+    }
+
+    private static final class RadixTree {
+        final Node root = new Node(new char[0]);
+        long nodes = 1;
+        long labelChars;
+        long idCount;
+
+        long estimatedBytes() {
+            return nodes * NODE_BYTES + 2 * labelChars + 8 * idCount + 4 * nodes;
+        }
+
+        void insert(String key, long id) {
+            Node node = root;
+            int i = 0;
+            while (i < key.length()) {
+                int at = node.childIndex(key.charAt(i));
+                if (at < 0) {
+                    Node leaf = new Node(key.substring(i).toCharArray());
+                    leaf.ids = new long[]{id};
+                    node.children = insertAt(node.children, -at - 1, leaf);
+                    nodes++;
+                    labelChars += leaf.label.length;
+                    idCount++;
+                    return;
+                }
+                Node child = node.children[at];
+                int common = commonPrefix(child.label, key, i);
+                if (common < child.label.length) {
+                    // Split the edge: the shared part becomes a new node above the child
+                    Node middle = new Node(Arrays.copyOf(child.label, common));
+                    child.label = Arrays.copyOfRange(child.label, common, child.label.length);
+                    middle.children = new Node[]{child};
+                    node.children[at] = middle;
+                    nodes++;
+                    child = middle;
+                }
+                node = child;
+                i += common;
+            }
+            node.ids = Arrays.copyOf(node.ids, node.ids.length + 1);
+            node.ids[node.ids.length - 1] = id;
+            idCount++;
+        }
+
+        void remove(String key, long id) {
+            Deque<Node> path = new ArrayDeque<>();
+            Node node = root;
+            int i = 0;
+            while (i < key.length()) {
+                int at = node.childIndex(key.charAt(i));
+                if (at < 0) {
+                    return;
+                }
+                Node child = node.children[at];
+                if (commonPrefix(child.label, key, i) < child.label.length) {
+                    return;
+                }
+                path.push(node);
+                node = child;
+                i += child.label.length;
+            }
+            int at = indexOf(node.ids, id);
+            if (at < 0) {
+                return;
+            }
+            long[] ids = new long[node.ids.length - 1];
+            System.arraycopy(node.ids, 0, ids, 0, at);
+            System.arraycopy(node.ids, at + 1, ids, at, ids.length - at);
+            node.ids = ids.length == 0 ? Node.NO_IDS : ids;
+            idCount--;
+
+            // Drop the emptied leaf, then fold a parent left with a single child into it
+            if (node != root && node.ids.length == 0 && node.children.length == 0) {
+                Node parent = path.pop();
+                parent.children = removeAt(parent.children, parent.childIndex(node.label[0]));
+                nodes--;
+                labelChars -= node.label.length;
+                node = parent;
+            }
+            if (node != root && node.ids.length == 0 && node.children.length == 1) {
+                Node only = node.children[0];
+                char[] merged = Arrays.copyOf(node.label, node.label.length + only.label.length);
+                System.arraycopy(only.label, 0, merged, node.label.length, only.label.length);
+                node.label = merged;
+                node.ids = only.ids;
+                node.children = only.children;
+                nodes--;
+            }
+        }
+
+        // Adds up to `limit` ids under the prefix, in key order, to `out`
+        void collect(String prefix, int limit, Set<Long> out) {
+            Node node = root;
+            int i = 0;
+            while (i < prefix.length()) {
+                int at = node.childIndex(prefix.charAt(i));
+                if (at < 0) {
+                    return;
+                }
+                Node child = node.children[at];
+                int common = commonPrefix(child.label, prefix, i);
+                if (common < child.label.length && i + common < prefix.length()) {
+                    return; // diverges inside the edge label
+                }
+                node = child;
+                i += common;
+            }
+            visit(node, limit, out);
+        }
+
+        private static boolean visit(Node node, int limit, Set<Long> out) {
+            for (long id : node.ids) {
+                out.add(id);
+                if (out.size() >= limit) {
+                    return true;
+                }
+            }
+            for (Node child : node.children) {
+                if (visit(child, limit, out)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static int commonPrefix(char[] label, String key, int offset) {
+            int max = Math.min(label.length, key.length() - offset);
+            int n = 0;
+            while (n < max && label[n] == key.charAt(offset + n)) {
+                n++;
+            }
+            return n;
+        }
+
+        private static int indexOf(long[] ids, long id) {
+            for (int i = 0; i < ids.length; i++) {
+                if (ids[i] == id) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private static Node[] insertAt(Node[] children, int at, Node child) {
+            Node[] grown = new Node[children.length + 1];
+            System.arraycopy(children, 0, grown, 0, at);
+            grown[at] = child;
+            System.arraycopy(children, at, grown, at + 1, children.length - at);
+            return grown;
+        }
+
+        private static Node[] removeAt(Node[] children, int at) {
+            if (children.length == 1) {
+                return Node.NO_CHILDREN;
+            }
+            Node[] shrunk = new Node[children.length - 1];
+            System.arraycopy(children, 0, shrunk, 0, at);
+            System.arraycopy(children, at + 1, shrunk, at, shrunk.length - at);
+            return shrunk;
+        }
+    }
+}
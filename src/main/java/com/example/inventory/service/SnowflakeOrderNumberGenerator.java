@@ -0,0 +1,81 @@
+package com.example.inventory.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Order numbers for deployments that assign node ids (inventory.order-number.generator=snowflake):
+ * a 63-bit id made of milliseconds since EPOCH_MS (41 bits), the node id (10 bits) and a
+ * per-millisecond sequence (12 bits), printed in decimal after the "ORD-" prefix.
+ *
+ * The last issued timestamp and sequence share one AtomicLong, so issuing is a single CAS
+ * with no lock. When the sequence of a millisecond runs out, or the wall clock steps back,
+ * the generator keeps counting on a logical clock slightly ahead of the wall clock instead
+ * of waiting, so numbers from one node always increase. Nodes never collide as long as each
+ * instance has its own inventory.order-number.node-id, which must therefore be set.
+ */
+@Service
+@ConditionalOnProperty(name = "inventory.order-number.generator", havingValue = "snowflake")
+public class SnowflakeOrderNumberGenerator implements OrderNumberGenerator {
+
+    // 2024-01-01T00:00:00Z; 41 bits of milliseconds from here last until 2093
+    static final long EPOCH_MS = 1704067200000L;
+
+    static final int NODE_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final long nodeBits;
+    private final LongSupplier clock;
+
+    // (milliseconds since EPOCH_MS << SEQUENCE_BITS) | sequence of the last issued id
+    private final AtomicLong last = new AtomicLong();
+
+    @Autowired
+    public SnowflakeOrderNumberGenerator(@Value("${inventory.order-number.node-id:-1}") long nodeId) {
+        this(requireNodeId(nodeId), System::currentTimeMillis);
+    }
+
+    SnowflakeOrderNumberGenerator(long nodeId, LongSupplier clock) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Order number node id must be between 0 and " + MAX_NODE_ID);
+        }
+        this.nodeBits = nodeId << SEQUENCE_BITS;
+        this.clock = clock;
+    }
+
+    @Override
+    public String next() {
+        return PREFIX + nextId();
+    }
+
+    long nextId() {
+        long now = (clock.getAsLong() - EPOCH_MS) << SEQUENCE_BITS;
+        long previous;
+        long issued;
+        do {
+            previous = last.get();
+            // A new millisecond starts at sequence 0; otherwise take the next sequence, which
+            // carries into the timestamp bits when the millisecond is used up
+            issued = now > previous ? now : previous + 1;
+        } while (!last.compareAndSet(previous, issued));
+        long timestamp = issued >>> SEQUENCE_BITS;
+        return (timestamp << (NODE_BITS + SEQUENCE_BITS)) | nodeBits | (issued & SEQUENCE_MASK);
+    }
+
+    // A node id guessed per host could repeat on another instance and issue its numbers again
+    private static long requireNodeId(long nodeId) {
+        if (nodeId < 0) {
+            throw new IllegalStateException("inventory.order-number.node-id must be set to this instance's own " +
+                    "node id (0-" + MAX_NODE_ID + ") to use the snowflake order number generator; " +
+                    "use inventory.order-number.generator=block otherwise");
+        }
+        return nodeId;
+    }
+}
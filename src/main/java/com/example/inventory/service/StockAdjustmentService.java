@@ -0,0 +1,157 @@
+package com.example.inventory.service;
+
+import com.example.inventory.dto.StockAdjustment;
+import com.example.inventory.dto.StockAdjustmentResult;
+import com.example.inventory.event.StockChangedEvent;
+import com.example.inventory.exception.StockAdjustmentException;
+import com.example.inventory.exception.StockAdjustmentException.LineError;
+import com.example.inventory.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+
+/**
+ * Applies a list of stock corrections (by product id or SKU, relative or absolute) as one
+ * unit: every line is applied or, if any line is invalid, none is and each bad line is
+ * reported.
+ *
+ * The lines are resolved to product ids, then handed to StockEngine.adjust as one batch: the
+ * engine locks the products, the lines are applied in request order to their current
+ * quantities, and the engine writes the results (the database engine as one JDBC batch).
+ * Like the single-product paths, every changed product gets a StockChangedEvent.
+ */
+@Service
+public class StockAdjustmentService {
+
+    public static final int MAX_LINES = 5000;
+
+    private final ProductRepository productRepository;
+    private final StockEngine stockEngine;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    public StockAdjustmentService(ProductRepository productRepository,
+                                  StockEngine stockEngine,
+                                  TransactionTemplate transactionTemplate,
+                                  ApplicationEventPublisher eventPublisher) {
+        this.productRepository = productRepository;
+        this.stockEngine = stockEngine;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+    }
+
+    public List<StockAdjustmentResult> adjust(List<StockAdjustment> adjustments) {
+        if (adjustments == null || adjustments.isEmpty()) {
+            throw new IllegalArgumentException("At least one stock adjustment is required");
+        }
+        if (adjustments.size() > MAX_LINES) {
+            throw new IllegalArgumentException("At most " + MAX_LINES + " stock adjustments per request");
+        }
+        return adjust(adjustments, "Stock adjustments rejected; nothing was applied");
+    }
+
+    // Order stock movements (OrderService): one line per order item, joining the caller's
+    // transaction so the products stay locked until the order itself is saved
+    List<StockAdjustmentResult> adjust(List<StockAdjustment> adjustments, String rejection) {
+        List<LineError> errors = new ArrayList<>();
+        Set<Long> ids = new HashSet<>();
+        Set<String> skus = new HashSet<>();
+        for (int i = 0; i < adjustments.size(); i++) {
+            String problem = checkShape(adjustments.get(i));
+            if (problem != null) {
+                errors.add(new LineError(i + 1, problem));
+            } else if (adjustments.get(i).getProductId() != null) {
+                ids.add(adjustments.get(i).getProductId());
+            } else {
+                skus.add(adjustments.get(i).getSku());
+            }
+        }
+        if (!errors.isEmpty()) {
+            throw new StockAdjustmentException(rejection, errors);
+        }
+
+        // Unlocked: a product deleted before the engine locks it is still reported as not found.
+        // Empty IN lists are not portable SQL; an id of 0 or an empty SKU never matches
+        Map<Long, String> skuById = new HashMap<>();
+        Map<String, Long> idBySku = new HashMap<>();
+        productRepository.findSkuIds(ids.isEmpty() ? List.of(0L) : ids, skus.isEmpty() ? List.of("") : skus)
+                .forEach(product -> {
+                    skuById.put(product.getId(), product.getSku());
+                    idBySku.put(product.getSku().toLowerCase(Locale.ROOT), product.getId());
+                });
+
+        return transactionTemplate.execute(status -> {
+            List<StockAdjustmentResult> results = new ArrayList<>(adjustments.size());
+            Map<Long, Integer> quantities = new LinkedHashMap<>();
+            stockEngine.adjust(skuById.keySet(), current -> {
+                quantities.putAll(apply(adjustments, skuById, idBySku, current, results, rejection));
+                return quantities;
+            });
+            quantities.forEach((productId, quantity) -> eventPublisher.publishEvent(new StockChangedEvent(productId, quantity)));
+            return results;
+        });
+    }
+
+    // The new quantity of every product a line touches; `current` holds the locked quantities
+    private static Map<Long, Integer> apply(List<StockAdjustment> adjustments, Map<Long, String> skuById,
+                                            Map<String, Long> idBySku, Map<Long, Integer> current,
+                                            List<StockAdjustmentResult> results, String rejection) {
+        // Running quantities, so several lines for one product apply in order
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        List<LineError> errors = new ArrayList<>();
+        for (int i = 0; i < adjustments.size(); i++) {
+            StockAdjustment adjustment = adjustments.get(i);
+            Long productId = adjustment.getProductId() != null
+                    ? adjustment.getProductId()
+                    : idBySku.get(adjustment.getSku().toLowerCase(Locale.ROOT));
+            if (productId == null || !current.containsKey(productId)) {
+                errors.add(new LineError(i + 1, adjustment.getProductId() != null
+                        ? "Product not found with ID: " + adjustment.getProductId()
+                        : "Product not found with SKU: " + adjustment.getSku()));
+                continue;
+            }
+            String sku = skuById.get(productId);
+            int before = quantities.getOrDefault(productId, current.get(productId));
+            long after = adjustment.getAbsolute() != null
+                    ? adjustment.getAbsolute()
+                    : (long) before + adjustment.getDelta();
+            if (after < 0) {
+                errors.add(new LineError(i + 1, "Insufficient stock for " + sku +
+                        ". Available: " + before + ", Requested: " + -adjustment.getDelta()));
+                continue;
+            }
+            if (after > Integer.MAX_VALUE) {
+                errors.add(new LineError(i + 1, "Stock of " + sku + " would overflow"));
+                continue;
+            }
+            quantities.put(productId, (int) after);
+            results.add(new StockAdjustmentResult(i + 1, productId, sku, before, (int) after));
+        }
+        if (!errors.isEmpty()) {
+            throw new StockAdjustmentException(rejection, errors);
+        }
+        return quantities;
+    }
+
+    // Null when the line names exactly one product and exactly one kind of change
+    private static String checkShape(StockAdjustment adjustment) {
+        if (adjustment == null) {
+            return "Empty adjustment";
+        }
+        boolean hasSku = adjustment.getSku() != null && !adjustment.getSku().isBlank();
+        if ((adjustment.getProductId() == null) == !hasSku) {
+            return "Exactly one of productId or sku is required";
+        }
+        if ((adjustment.getDelta() == null) == (adjustment.getAbsolute() == null)) {
+            return "Exactly one of delta or absolute is required";
+        }
+        if (adjustment.getAbsolute() != null && adjustment.getAbsolute() < 0) {
+            return "Stock quantity cannot be negative";
+        }
+        return null;
+    }
+}
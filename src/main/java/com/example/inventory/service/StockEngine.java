@@ -0,0 +1,41 @@
+package com.example.inventory.service;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Applies stock deltas for a single product and reports the resulting quantity.
+ * Implementations must be safe under concurrent writers to the same product.
+ */
+public interface StockEngine {
+
+    // Returns the quantity left after the reduction; throws OutOfStockException if not enough stock
+    int reduceStock(Long productId, int quantity);
+
+    // Returns the quantity after the increase
+    int increaseStock(Long productId, int quantity);
+
+    // Overwrites the quantity with an absolute value
+    void setStock(Long productId, int quantity);
+
+    // Sets the stock of several products as one unit. `plan` gets the current quantity of each listed
+    // product that exists and returns the new quantities, or throws to change nothing. Joins the
+    // caller's transaction; other writers stay off the products until it completes
+    void adjust(Collection<Long> productIds, Function<Map<Long, Integer>, Map<Long, Integer>> plan);
+
+    // Called before a product row is rewritten or deleted outside the engine; inside a transaction
+    // the engine keeps its own writers off the product until that transaction completes
+    default void evict(Long productId) {
+    }
+
+    // Quantities the engine holds ahead of the products table, by product id; empty when the table is current
+    default Map<Long, Integer> getLiveQuantities() {
+        return Map.of();
+    }
+
+    // Whether products can be promoted to slotted stock (StockSlotService) under this engine
+    default boolean supportsSlottedStock() {
+        return false;
+    }
+}
@@ -0,0 +1,299 @@
+package com.example.inventory.service;
+
+import com.example.inventory.exception.OutOfStockException;
+import com.example.inventory.model.Product;
+import com.example.inventory.model.StockSlot;
+import com.example.inventory.repository.ProductRepository;
+import com.example.inventory.repository.StockSlotRepository;
+import com.example.inventory.repository.StockSlotRepository.SlotQuantity;
+import com.example.inventory.repository.StockSlotRepository.SlotTotal;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Slotted stock for hot SKUs: a promoted product's stock is split across N rows of
+ * product_stock_slots. A reservation claims one free slot with enough stock, starting from
+ * a random slot and skipping rows other transactions hold, so concurrent writers work on
+ * different rows instead of all queuing on the product row. A request no single slot can
+ * cover gathers units from every free slot. A reservation only waits for slot locks while it
+ * holds none, and then in slot order, so reservations cannot deadlock on each other; stock
+ * fragmented across busy slots can still fail with OutOfStockException, and rebalance()
+ * evens the slots out again.
+ */
+@Service
+@Transactional
+public class StockSlotService {
+
+    public static final int MAX_SLOTS = 64;
+
+    private final ProductRepository productRepository;
+    private final StockSlotRepository stockSlotRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    // productId -> slot count for every slotted product, refreshed from the database
+    private final Map<Long, Integer> slotCounts = new ConcurrentHashMap<>();
+
+    @Autowired
+    public StockSlotService(ProductRepository productRepository, StockSlotRepository stockSlotRepository,
+                            TransactionTemplate transactionTemplate) {
+        this.productRepository = productRepository;
+        this.stockSlotRepository = stockSlotRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @PostConstruct
+    void loadSlottedProducts() {
+        refreshSlottedProducts();
+    }
+
+    // Picks up promotions and demotions made by other application instances
+    @Scheduled(fixedDelayString = "${inventory.stock.slots.refresh-interval-ms:5000}")
+    public void refreshSlottedProducts() {
+        Map<Long, Integer> current = new ConcurrentHashMap<>();
+        stockSlotRepository.countSlotsByProduct()
+                .forEach(row -> current.put(row.getProductId(), row.getSlotCount().intValue()));
+        slotCounts.keySet().retainAll(current.keySet());
+        slotCounts.putAll(current);
+    }
+
+    // Mirrors slot totals into products.stock_quantity for table-wide queries and analytics. The
+    // totals come from a plain read, which locks no slot, and each drifted row is written in its own
+    // short transaction, so reservations on the slots never wait for the sync
+    @Scheduled(fixedDelayString = "${inventory.stock.slots.sync-interval-ms:5000}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void syncSlottedStockTotals() {
+        if (slotCounts.isEmpty()) {
+            return;
+        }
+        for (SlotTotal drifted : stockSlotRepository.findDriftedSlotTotals()) {
+            transactionTemplate.executeWithoutResult(status -> productRepository.setSlottedStockMirror(
+                    drifted.getProductId(), drifted.getTotal().intValue()));
+        }
+    }
+
+    public boolean isSlotted(Long productId) {
+        return slotCounts.containsKey(productId);
+    }
+
+    @Transactional(readOnly = true)
+    public int getStock(Long productId) {
+        return (int) stockSlotRepository.sumSlots(productId);
+    }
+
+    @Transactional(readOnly = true)
+    public List<StockSlot> getSlots(Long productId) {
+        return stockSlotRepository.findSlots(productId);
+    }
+
+    // ===================== STOCK OPERATIONS =====================
+
+    // Returns the remaining stock across all slots
+    public int reduceStock(Long productId, int quantity) {
+        int slots = slotCount(productId);
+
+        // Claim one free slot that covers the request, scanning from a random slot so writers spread out
+        int start = ThreadLocalRandom.current().nextInt(slots);
+        List<SlotQuantity> claimed = stockSlotRepository.claimSlot(productId, start, slots, quantity);
+        if (claimed.isEmpty() && start > 0) {
+            claimed = stockSlotRepository.claimSlot(productId, 0, start, quantity);
+        }
+        if (!claimed.isEmpty()) {
+            SlotQuantity slot = claimed.get(0);
+            stockSlotRepository.setSlotQuantity(productId, slot.getSlotNo(), slot.getQuantity() - quantity);
+            return getStock(productId);
+        }
+
+        // No single free slot covers it: gather units from every slot nobody else holds
+        claimed = stockSlotRepository.claimUnlockedSlots(productId);
+        if (claimed.isEmpty()) {
+            // Every slot is busy and this transaction holds none of them, so waiting in slot order is safe
+            claimed = stockSlotRepository.lockSlots(productId);
+        }
+        if (claimed.isEmpty()) {
+            return reduceDemoted(productId, quantity);
+        }
+        if (total(claimed) < quantity) {
+            Product product = getProduct(productId);
+            throw new OutOfStockException(
+                    "Insufficient stock for product: " + product.getName() +
+                            ". Available: " + getStock(productId) +
+                            ", Requested: " + quantity);
+        }
+        int remaining = quantity;
+        for (SlotQuantity slot : claimed) {
+            int take = Math.min(slot.getQuantity(), remaining);
+            if (take > 0) {
+                stockSlotRepository.setSlotQuantity(productId, slot.getSlotNo(), slot.getQuantity() - take);
+                remaining -= take;
+            }
+        }
+        return getStock(productId);
+    }
+
+    // Returns the new stock across all slots
+    public int increaseStock(Long productId, int quantity) {
+        int slot = ThreadLocalRandom.current().nextInt(slotCount(productId));
+        if (stockSlotRepository.addToSlot(productId, slot, quantity) == 0) {
+            if (isDemoted(productId) && productRepository.incrementStock(productId, quantity) > 0) {
+                return (int) productRepository.lastStockQuantity();
+            }
+            throw new IllegalStateException("Stock slot " + slot + " missing for product " + productId);
+        }
+        return getStock(productId);
+    }
+
+    public void setStock(Long productId, int quantity) {
+        List<SlotQuantity> locked = stockSlotRepository.lockSlots(productId);
+        if (locked.isEmpty() && isDemoted(productId)) {
+            if (productRepository.setStock(productId, quantity) == 0) {
+                throw new IllegalArgumentException("Product not found with ID: " + productId);
+            }
+            return;
+        }
+        distribute(productId, locked, quantity);
+    }
+
+    // ===================== DEMOTED ELSEWHERE =====================
+    // Another instance demoted the product since the last refresh: its slots are gone and the row
+    // holds the stock again. The row is read locked, so the answer holds for this transaction
+
+    private boolean isDemoted(Long productId) {
+        boolean demoted = productRepository.findByIdForUpdate(productId)
+                .map(product -> !product.isStockSlotted())
+                .orElse(false);
+        if (demoted) {
+            afterCommit(() -> slotCounts.remove(productId));
+        }
+        return demoted;
+    }
+
+    private int reduceDemoted(Long productId, int quantity) {
+        if (!isDemoted(productId)) {
+            throw new IllegalStateException("Product " + productId + " has no stock slots");
+        }
+        if (productRepository.decrementStockIfAvailable(productId, quantity) == 0) {
+            Product product = getProduct(productId);
+            throw new OutOfStockException(
+                    "Insufficient stock for product: " + product.getName() +
+                            ". Available: " + product.getStockQuantity() +
+                            ", Requested: " + quantity);
+        }
+        return (int) productRepository.lastStockQuantity();
+    }
+
+    // ===================== ADMIN OPERATIONS =====================
+
+    // Moves a product's stock into `slots` slot rows (or re-splits an already slotted product)
+    public List<StockSlot> promote(Long productId, int slots) {
+        if (slots < 2 || slots > MAX_SLOTS) {
+            throw new IllegalArgumentException("Slot count must be between 2 and " + MAX_SLOTS);
+        }
+        Product product = productRepository.findByIdForUpdate(productId)
+                .orElseThrow(() -> new IllegalArgumentException("Product not found with ID: " + productId));
+
+        int total = product.getStockQuantity();
+        if (product.isStockSlotted()) {
+            total = total(stockSlotRepository.lockSlots(productId));
+            stockSlotRepository.deleteSlots(productId);
+        }
+
+        List<StockSlot> created = new ArrayList<>(slots);
+        for (int slot = 0; slot < slots; slot++) {
+            created.add(new StockSlot(product, slot, share(total, slots, slot)));
+        }
+        stockSlotRepository.saveAll(created);
+        productRepository.setStockSlotted(productId, true, total);
+
+        afterCommit(() -> slotCounts.put(productId, slots));
+        return created;
+    }
+
+    // Folds the slots back into products.stock_quantity and returns the product to row mode
+    public int demote(Long productId) {
+        productRepository.findByIdForUpdate(productId)
+                .orElseThrow(() -> new IllegalArgumentException("Product not found with ID: " + productId));
+        List<SlotQuantity> locked = stockSlotRepository.lockSlots(productId);
+        if (locked.isEmpty()) {
+            throw new IllegalStateException("Product " + productId + " is not slotted");
+        }
+        int total = total(locked);
+        stockSlotRepository.deleteSlots(productId);
+        productRepository.setStockSlotted(productId, false, total);
+
+        afterCommit(() -> slotCounts.remove(productId));
+        return total;
+    }
+
+    // Drops the slots of a product that is being deleted
+    public void discard(Long productId) {
+        if (stockSlotRepository.deleteSlots(productId) > 0) {
+            afterCommit(() -> slotCounts.remove(productId));
+        }
+    }
+
+    // Evens out slots that drifted apart, so single-slot reservations keep succeeding
+    public int rebalance(Long productId) {
+        List<SlotQuantity> locked = stockSlotRepository.lockSlots(productId);
+        if (locked.isEmpty()) {
+            throw new IllegalStateException("Product " + productId + " is not slotted");
+        }
+        int total = total(locked);
+        distribute(productId, locked, total);
+        return total;
+    }
+
+    // ===================== HELPERS =====================
+
+    private void distribute(Long productId, List<SlotQuantity> slots, int total) {
+        for (int i = 0; i < slots.size(); i++) {
+            stockSlotRepository.setSlotQuantity(productId, slots.get(i).getSlotNo(), share(total, slots.size(), i));
+        }
+    }
+
+    private static int total(List<SlotQuantity> slots) {
+        return slots.stream().mapToInt(SlotQuantity::getQuantity).sum();
+    }
+
+    private static int share(int total, int slots, int slot) {
+        return total / slots + (slot < total % slots ? 1 : 0);
+    }
+
+    private int slotCount(Long productId) {
+        Integer slots = slotCounts.get(productId);
+        if (slots == null) {
+            throw new IllegalStateException("Product " + productId + " is not slotted");
+        }
+        return slots;
+    }
+
+    private Product getProduct(Long productId) {
+        return productRepository.findById(productId)
+                .orElseThrow(() -> new IllegalArgumentException("Product not found with ID: " + productId));
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
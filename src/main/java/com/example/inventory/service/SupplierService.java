@@ -1,9 +1,13 @@
 package com.example.inventory.service;
 
+import com.example.inventory.dto.CursorPage;
+import com.example.inventory.dto.PageCursor;
+import com.example.inventory.event.ProductChangedEvent;
 import com.example.inventory.exception.SupplierNotFoundException;
 import com.example.inventory.model.Supplier;
 import com.example.inventory.repository.SupplierRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -19,15 +23,26 @@ import java.util.stream.Collectors;
 public class SupplierService {
     
     private final SupplierRepository supplierRepository;
+    private final InventoryValuationService valuationService;
+    private final ProductCache productCache;
+    private final ApplicationEventPublisher eventPublisher;
     
     @Autowired
-    public SupplierService(SupplierRepository supplierRepository) {
+    public SupplierService(SupplierRepository supplierRepository,
+                           InventoryValuationService valuationService,
+                           ProductCache productCache,
+                           ApplicationEventPublisher eventPublisher) {
         this.supplierRepository = supplierRepository;
+        this.valuationService = valuationService;
+        this.productCache = productCache;
+        this.eventPublisher = eventPublisher;
     }
     
     // CRUD Operations
     public Supplier saveSupplier(Supplier supplier) {
-        return supplierRepository.save(supplier);
+        Supplier saved = supplierRepository.save(supplier);
+        productCache.invalidateAll(); // cached products embed their supplier
+        return saved;
     }
     
     public Optional<Supplier> findById(Long id) {
@@ -51,11 +66,36 @@ public class SupplierService {
         return supplierRepository.findAll();
     }
     
+    // Keyset pagination: pages are ordered by id and seek past the cursor
+    public CursorPage<Supplier> findPage(String cursor, Integer limit) {
+        int size = PageCursor.clampLimit(limit);
+        return toPage(supplierRepository.findPageAfter(PageCursor.afterId(cursor), PageCursor.lookahead(size)), size);
+    }
+    
+    public CursorPage<Supplier> getSuppliersByStatusPage(Supplier.SupplierStatus status, String cursor, Integer limit) {
+        int size = PageCursor.clampLimit(limit);
+        return toPage(supplierRepository.findStatusPageAfter(
+                status, PageCursor.afterId(cursor), PageCursor.lookahead(size)), size);
+    }
+    
+    public CursorPage<Supplier> searchSuppliersPage(String searchTerm, String cursor, Integer limit) {
+        int size = PageCursor.clampLimit(limit);
+        return toPage(supplierRepository.searchPageAfter(
+                "%" + searchTerm.toLowerCase() + "%", PageCursor.afterId(cursor), PageCursor.lookahead(size)), size);
+    }
+    
+    private CursorPage<Supplier> toPage(List<Supplier> rows, int size) {
+        return CursorPage.of(rows, size, supplier -> PageCursor.ofId(supplier.getId()));
+    }
+    
     public void deleteSupplier(Long id) {
         if (!supplierRepository.existsById(id)) {
             throw new SupplierNotFoundException("Supplier not found with ID: " + id);
         }
+        // The delete cascades to the supplier's products
+        List<Long> removedProducts = valuationService.recordSupplierRemoval(id);
         supplierRepository.deleteById(id);
+        removedProducts.forEach(productId -> eventPublisher.publishEvent(ProductChangedEvent.deleted(productId)));
     }
     
     // Functional Programming: Stream operations for filtering and analytics
@@ -126,21 +166,21 @@ public class SupplierService {
     public Supplier activateSupplier(Long id) {
         Supplier supplier = getSupplierById(id);
         supplier.activate();
-        return supplierRepository.save(supplier);
+        return saveSupplier(supplier);
     }
     
     @Transactional
     public Supplier deactivateSupplier(Long id) {
         Supplier supplier = getSupplierById(id);
         supplier.deactivate();
-        return supplierRepository.save(supplier);
+        return saveSupplier(supplier);
     }
     
     @Transactional
     public Supplier suspendSupplier(Long id) {
         Supplier supplier = getSupplierById(id);
         supplier.suspend();
-        return supplierRepository.save(supplier);
+        return saveSupplier(supplier);
     }
     
     // Search functionality
@@ -174,11 +214,8 @@ public class SupplierService {
     
     // Supplier performance analysis
     public List<Supplier> getReliableSuppliers() {
-        // Suppliers that are active and have products
-        return findAll().stream()
-                .filter(Supplier::isActive)
-                .filter(supplier -> !supplier.getProducts().isEmpty())
-                .collect(Collectors.toList());
+        // Suppliers that are active and have products, checked by the database rather than per supplier
+        return supplierRepository.findActiveSuppliersWithProducts();
     }
     
     // Alert generation for supplier issues
@@ -1,13 +1,17 @@
 package com.example.inventory.service;
 
+import com.example.inventory.dto.CursorPage;
+import com.example.inventory.dto.PageCursor;
+import com.example.inventory.event.ProductChangedEvent;
 import com.example.inventory.model.Warehouse;
-import com.example.inventory.model.Product;
 import com.example.inventory.repository.WarehouseRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -20,15 +24,29 @@ import java.util.stream.Collectors;
 public class WarehouseService {
     
     private final WarehouseRepository warehouseRepository;
+    private final InventoryValuationService valuationService;
+    private final ProductCache productCache;
+    private final LowStockIndex lowStockIndex;
+    private final ApplicationEventPublisher eventPublisher;
     
     @Autowired
-    public WarehouseService(WarehouseRepository warehouseRepository) {
+    public WarehouseService(WarehouseRepository warehouseRepository,
+                            InventoryValuationService valuationService,
+                            ProductCache productCache,
+                            LowStockIndex lowStockIndex,
+                            ApplicationEventPublisher eventPublisher) {
         this.warehouseRepository = warehouseRepository;
+        this.valuationService = valuationService;
+        this.productCache = productCache;
+        this.lowStockIndex = lowStockIndex;
+        this.eventPublisher = eventPublisher;
     }
     
     // CRUD Operations
     public Warehouse saveWarehouse(Warehouse warehouse) {
-        return warehouseRepository.save(warehouse);
+        Warehouse saved = warehouseRepository.save(warehouse);
+        productCache.invalidateAll(); // cached products embed their warehouse
+        return saved;
     }
     
     public Optional<Warehouse> findById(Long id) {
@@ -48,11 +66,35 @@ public class WarehouseService {
         return warehouseRepository.findAll();
     }
     
+    // Keyset pagination: pages are ordered by id and seek past the cursor
+    public CursorPage<Warehouse> findPage(String cursor, Integer limit) {
+        int size = PageCursor.clampLimit(limit);
+        return toPage(warehouseRepository.findPageAfter(PageCursor.afterId(cursor), PageCursor.lookahead(size)), size);
+    }
+    
+    public CursorPage<Warehouse> searchWarehousesPage(String searchTerm, String cursor, Integer limit) {
+        int size = PageCursor.clampLimit(limit);
+        return toPage(warehouseRepository.searchPageAfter(
+                "%" + searchTerm.toLowerCase() + "%", PageCursor.afterId(cursor), PageCursor.lookahead(size)), size);
+    }
+    
+    public CursorPage<Warehouse> getWarehousesWithLowStockPage(String cursor, Integer limit) {
+        int size = PageCursor.clampLimit(limit);
+        return toPage(warehouseRepository.findLowStockPageAfter(PageCursor.afterId(cursor), PageCursor.lookahead(size)), size);
+    }
+    
+    private CursorPage<Warehouse> toPage(List<Warehouse> rows, int size) {
+        return CursorPage.of(rows, size, warehouse -> PageCursor.ofId(warehouse.getId()));
+    }
+    
     public void deleteWarehouse(Long id) {
         if (!warehouseRepository.existsById(id)) {
             throw new IllegalArgumentException("Warehouse not found with ID: " + id);
         }
+        // The delete cascades to the warehouse's products
+        List<Long> removedProducts = valuationService.recordWarehouseRemoval(id);
         warehouseRepository.deleteById(id);
+        removedProducts.forEach(productId -> eventPublisher.publishEvent(ProductChangedEvent.deleted(productId)));
     }
     
     // Functional Programming: Stream operations for filtering and analytics
@@ -102,36 +144,41 @@ public class WarehouseService {
     
     // Calculate total products across all warehouses
     public long getTotalProductsCount() {
-        return findAll().stream()
-                .mapToLong(warehouse -> warehouse.getProducts().size())
+        return warehouseRepository.countProductsByWarehouse().stream()
+                .mapToLong(WarehouseRepository.ProductCount::getProductCount)
                 .sum();
     }
     
     // Calculate total inventory value per warehouse
     public Map<String, BigDecimal> calculateInventoryValueByWarehouse() {
+        Map<Long, BigDecimal> values = valuationService.getValueByWarehouse();
         return findAll().stream()
                 .collect(Collectors.toMap(
                         Warehouse::getName,
-                        warehouse -> warehouse.getProducts().stream()
-                                .map(product -> product.getPrice().multiply(new BigDecimal(product.getStockQuantity())))
-                                .reduce(BigDecimal.ZERO, BigDecimal::add)
+                        warehouse -> values.getOrDefault(warehouse.getId(), BigDecimal.ZERO)
                 ));
     }
     
-    // Get warehouses with low stock products
+    // Get warehouses with low stock products (from the low-stock index once it is built)
     public List<Warehouse> getWarehousesWithLowStock() {
-        return findAll().stream()
-                .filter(warehouse -> warehouse.getProducts().stream()
-                        .anyMatch(product -> product.getStockQuantity() <= product.getMinStockLevel()))
-                .collect(Collectors.toList());
+        Map<Long, Integer> lowCounts = lowStockIndex.getLowStockCountsByWarehouse();
+        if (lowCounts == null) {
+            return warehouseRepository.findWarehousesWithLowStockProducts();
+        }
+        return warehouseRepository.findAllById(lowCounts.keySet());
+    }
+    
+    public int countWarehousesWithLowStock() {
+        Map<Long, Integer> lowCounts = lowStockIndex.getLowStockCountsByWarehouse();
+        return lowCounts != null ? lowCounts.size() : warehouseRepository.findWarehousesWithLowStockProducts().size();
     }
     
     // Get product count per warehouse
     public Map<String, Long> getProductCountByWarehouse() {
-        return findAll().stream()
+        return warehouseRepository.countProductsByWarehouse().stream()
                 .collect(Collectors.toMap(
-                        Warehouse::getName,
-                        warehouse -> (long) warehouse.getProducts().size()
+                        WarehouseRepository.ProductCount::getWarehouseName,
+                        WarehouseRepository.ProductCount::getProductCount
                 ));
     }
     
@@ -154,19 +201,14 @@ public class WarehouseService {
                 .noneMatch(warehouse -> warehouse.getName().equalsIgnoreCase(name));
     }
     
-    // Get warehouse utilization summary
+    // Get warehouse utilization summary (aggregated by the database, not over the product list)
     public Map<String, Object> getWarehouseUtilization(Long warehouseId) {
         Warehouse warehouse = getWarehouseById(warehouseId);
         
-        List<Product> products = warehouse.getProducts();
-        long totalProducts = products.size();
-        long lowStockProducts = products.stream()
-                .mapToLong(product -> product.getStockQuantity() <= product.getMinStockLevel() ? 1 : 0)
-                .sum();
-        
-        BigDecimal totalValue = products.stream()
-                .map(product -> product.getPrice().multiply(new BigDecimal(product.getStockQuantity())))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        WarehouseRepository.ProductTotals totals = warehouseRepository.summarizeProducts(warehouseId);
+        long totalProducts = totals.getTotalProducts().longValue();
+        long lowStockProducts = totals.getLowStockProducts().longValue();
+        BigDecimal totalValue = totals.getTotalValue();
         
         return Map.of(
                 "warehouseName", warehouse.getName(),
@@ -180,20 +222,22 @@ public class WarehouseService {
     
     // Alert generation for warehouse issues
     public List<String> generateWarehouseAlerts() {
-        return getWarehousesWithLowStock().stream()
-                .map(warehouse -> {
-                    long lowStockCount = warehouse.getProducts().stream()
-                            .mapToLong(product -> product.getStockQuantity() <= product.getMinStockLevel() ? 1 : 0)
-                            .sum();
-                    return String.format(
-                            "WAREHOUSE ALERT: %s has %d products with low stock",
-                            warehouse.getName(),
-                            lowStockCount
-                    );
-                })
+        Map<Long, Integer> lowCounts = lowStockIndex.getLowStockCountsByWarehouse();
+        if (lowCounts == null) {
+            return warehouseRepository.countLowStockProductsByWarehouse().stream()
+                    .map(count -> formatWarehouseAlert(count.getWarehouseName(), count.getLowStockCount()))
+                    .collect(Collectors.toList());
+        }
+        return warehouseRepository.findAllById(lowCounts.keySet()).stream()
+                .sorted(Comparator.comparing(Warehouse::getId))
+                .map(warehouse -> formatWarehouseAlert(warehouse.getName(), lowCounts.get(warehouse.getId())))
                 .collect(Collectors.toList());
     }
     
+    private static String formatWarehouseAlert(String warehouseName, long lowStockCount) {
+        return String.format("WAREHOUSE ALERT: %s has %d products with low stock", warehouseName, lowStockCount);
+    }
+    
     // Get warehouse summary for dashboard
     public Map<String, Object> getWarehouseSummary() {
         List<Warehouse> warehouses = findAll();
@@ -201,7 +245,7 @@ public class WarehouseService {
         return Map.of(
                 "totalWarehouses", warehouses.size(),
                 "totalProducts", getTotalProductsCount(),
-                "warehousesWithLowStock", getWarehousesWithLowStock().size(),
+                "warehousesWithLowStock", countWarehousesWithLowStock(),
                 "inventoryValueByWarehouse", calculateInventoryValueByWarehouse(),
                 "productCountByWarehouse", getProductCountByWarehouse()
         );
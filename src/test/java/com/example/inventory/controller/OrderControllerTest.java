@@ -0,0 +1,54 @@
+package com.example.inventory.controller;
+
+import com.example.inventory.exception.GlobalExceptionHandler;
+import com.example.inventory.exception.InvalidOrderStateException;
+import com.example.inventory.exception.OrderNotFoundException;
+import com.example.inventory.service.DataExportService;
+import com.example.inventory.service.OrderService;
+import com.example.inventory.service.OrderWorkflowService;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class OrderControllerTest {
+
+    private final OrderService orderService = mock(OrderService.class);
+    private final MockMvc mockMvc = MockMvcBuilders
+            .standaloneSetup(new OrderController(orderService, mock(DataExportService.class),
+                    mock(OrderWorkflowService.class)))
+            .setControllerAdvice(new GlobalExceptionHandler())
+            .build();
+
+    @Test
+    void missingOrderIsNotFound() throws Exception {
+        when(orderService.shipOrder(9L)).thenThrow(new OrderNotFoundException(9L));
+
+        mockMvc.perform(put("/api/orders/9/ship"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.error").value("Order not found with ID: 9"));
+    }
+
+    @Test
+    void refusedTransitionIsAConflictThatSaysWhy() throws Exception {
+        when(orderService.deliverOrder(1L)).thenThrow(new InvalidOrderStateException("Order must be shipped before delivery"));
+
+        mockMvc.perform(put("/api/orders/1/deliver"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.error").value("Order must be shipped before delivery"));
+    }
+
+    @Test
+    void unexpectedFailureIsAServerError() throws Exception {
+        when(orderService.processOrder(1L)).thenThrow(new DataAccessResourceFailureException("database down"));
+
+        mockMvc.perform(put("/api/orders/1/process"))
+                .andExpect(status().isInternalServerError())
+                .andExpect(jsonPath("$.error").value("An unexpected error occurred"));
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.inventory.controller;
+
+import com.example.inventory.model.Order;
+import com.example.inventory.model.OrderItem;
+import com.example.inventory.model.Product;
+import com.example.inventory.model.Supplier;
+import com.example.inventory.model.Warehouse;
+import com.example.inventory.service.OrderService;
+import com.example.inventory.service.ProductService;
+import com.example.inventory.service.SupplierService;
+import com.example.inventory.service.WarehouseService;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Read endpoints issue a fixed number of SQL statements however many rows they return. Each
+ * request runs with open-in-view off, so a lazy association the fetch plan missed fails the
+ * response outright, and one it loads row by row pushes the count past the endpoint's limit.
+ *
+ * Needs a running MySQL, so it only runs under mvn test -Pdatabase, on the throwaway schema of
+ * application-dbtest.properties rather than the application's own database.
+ */
+@Tag("database")
+@ActiveProfiles("dbtest")
+@SpringBootTest(properties =
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=" +
+        "com.example.inventory.controller.ReadPathStatementCountTest$CountingInspector")
+@AutoConfigureMockMvc(addFilters = false)
+class ReadPathStatementCountTest {
+
+    private static final int ORDERS = 12;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private SupplierService supplierService;
+    @Autowired
+    private WarehouseService warehouseService;
+
+    private final String tag = UUID.randomUUID().toString().substring(0, 8);
+    private final List<Long> orderIds = new ArrayList<>();
+    private final List<Long> supplierIds = new ArrayList<>();
+    private Warehouse warehouse;
+    private Order sample;
+
+    @BeforeEach
+    void seed() {
+        warehouse = warehouseService.saveWarehouse(new Warehouse("Statement count " + tag, "Dock 1, Testville"));
+        List<Product> products = new ArrayList<>();
+        for (int s = 0; s < 2; s++) {
+            Supplier supplier = supplierService.saveSupplier(
+                    new Supplier("Statement count " + tag + " " + s, null, null, null));
+            supplierIds.add(supplier.getId());
+            for (int p = 0; p < 2; p++) {
+                Product product = new Product("Part " + s + p, "SC-" + tag + "-" + s + p, 100, 10,
+                        new BigDecimal("2.50"), "statement-count-" + tag);
+                product.setWarehouse(warehouse);
+                product.setSupplier(supplier);
+                products.add(productService.saveProduct(product));
+            }
+        }
+        for (int i = 0; i < ORDERS; i++) {
+            List<OrderItem> items = List.of(
+                    new OrderItem(reference(products.get(i % 4)), 1 + i, null),
+                    new OrderItem(reference(products.get((i + 1) % 4)), 2, null));
+            sample = orderService.createOrder(Order.OrderType.PURCHASE, supplierIds.get(i % 2), items);
+            orderIds.add(sample.getId());
+        }
+    }
+
+    @AfterEach
+    void cleanUp() {
+        orderIds.forEach(orderService::deleteOrder);
+        if (warehouse != null) {
+            warehouseService.deleteWarehouse(warehouse.getId());
+        }
+        supplierIds.forEach(supplierService::deleteSupplier);
+    }
+
+    @Test
+    void orderReadsLoadSuppliersLinesAndProductsWithAFixedNumberOfStatements() throws Exception {
+        // Page query, then one query for the page's lines
+        assertStatements(2, "/api/orders?limit=" + (ORDERS - 2));
+        assertStatements(2, "/api/orders/recent");
+        assertStatements(1, "/api/orders");
+        assertStatements(1, "/api/orders/status/PENDING");
+        assertStatements(1, "/api/orders/" + sample.getId());
+        assertStatements(1, "/api/orders/number/" + sample.getOrderNumber());
+        assertStatements(1, "/api/orders/analytics/grouped-by-supplier");
+
+        mockMvc.perform(get("/api/orders/" + sample.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.supplier.name").exists())
+                .andExpect(jsonPath("$.orderItems[0].product.sku").exists())
+                .andExpect(jsonPath("$.orderItems[0].product.warehouse").doesNotExist())
+                .andExpect(jsonPath("$.orderItems[0].product.createdAt").doesNotExist());
+    }
+
+    @Test
+    void fieldSelectionReturnsOnlyTheRequestedFieldsFromOneQuery() throws Exception {
+        assertStatements(1, "/api/orders?fields=id,orderNumber,supplierName&limit=5");
+        assertStatements(1, "/api/orders/status/PENDING?fields=orderNumber,totalAmount");
+        assertStatements(1, "/api/products/category/statement-count-" + tag + "?fields=sku,warehouseName");
+
+        mockMvc.perform(get("/api/products/category/statement-count-" + tag + "?fields=sku,warehouseName&limit=3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(3))
+                .andExpect(jsonPath("$.items[0].length()").value(2))
+                .andExpect(jsonPath("$.items[0].warehouseName").value(warehouse.getName()))
+                .andExpect(jsonPath("$.next").exists());
+        mockMvc.perform(get("/api/orders?fields=id,nope"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void productAndWarehouseReadsDoNotQueryPerRow() throws Exception {
+        assertStatements(1, "/api/products?limit=50");
+        assertStatements(1, "/api/products/category/statement-count-" + tag);
+        assertStatements(1, "/api/warehouses/analytics/product-count");
+        assertStatements(1, "/api/warehouses/analytics/total-products");
+        assertStatements(2, "/api/warehouses/" + warehouse.getId() + "/utilization");
+        // Warehouses twice, product counts twice, values, and low-stock warehouses until LowStockIndex is built
+        assertStatements(6, "/api/warehouses/summary");
+    }
+
+    private void assertStatements(int max, String url) throws Exception {
+        CountingInspector.start();
+        try {
+            mockMvc.perform(get(url)).andExpect(status().isOk());
+        } finally {
+            List<String> statements = CountingInspector.stop();
+            assertTrue(statements.size() <= max, () -> "GET " + url + " issued " + statements.size() +
+                    " SQL statements, expected at most " + max + ":\n" + String.join("\n", statements));
+        }
+    }
+
+    private static Product reference(Product product) {
+        Product reference = new Product();
+        reference.setId(product.getId());
+        return reference;
+    }
+
+    // Records the SQL Hibernate prepares on the calling thread between start() and stop(), so
+    // scheduled jobs running meanwhile do not count against a request
+    public static class CountingInspector implements StatementInspector {
+
+        private static final ThreadLocal<List<String>> RECORDED = new ThreadLocal<>();
+
+        static void start() {
+            RECORDED.set(new ArrayList<>());
+        }
+
+        static List<String> stop() {
+            List<String> statements = RECORDED.get();
+            RECORDED.remove();
+            return statements;
+        }
+
+        @Override
+        public String inspect(String sql) {
+            List<String> statements = RECORDED.get();
+            if (statements != null) {
+                statements.add(sql);
+            }
+            return sql;
+        }
+    }
+}
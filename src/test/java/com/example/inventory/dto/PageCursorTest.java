@@ -0,0 +1,96 @@
+package com.example.inventory.dto;
+
+import com.example.inventory.exception.InvalidPageRequestException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PageCursorTest {
+
+    @Test
+    void idCursorRoundTrips() {
+        PageCursor cursor = PageCursor.decode(PageCursor.ofId(9_007_199_254_740_993L).encode());
+        assertEquals(9_007_199_254_740_993L, cursor.getId());
+        assertNull(cursor.getTimestamp());
+        assertEquals(42L, PageCursor.afterId(PageCursor.ofId(42).encode()));
+        assertEquals(0L, PageCursor.afterId(null));
+    }
+
+    @Test
+    void timestampCursorKeepsNanosecondsSoTiesSeekExactly() {
+        LocalDateTime orderDate = LocalDateTime.of(2024, 2, 29, 23, 59, 59, 123_456_789);
+        PageCursor cursor = PageCursor.decodeTimestamped(PageCursor.of(orderDate, 17).encode());
+        assertEquals(orderDate, cursor.getTimestamp());
+        assertEquals(17L, cursor.getId());
+    }
+
+    @Test
+    void scoreCursorKeepsTheExactFloat() {
+        float score = Math.nextUp(0.1f);
+        PageCursor cursor = PageCursor.decode(PageCursor.ofScore(score, 5).encode());
+        assertEquals(Float.floatToIntBits(score), Float.floatToIntBits(cursor.getScore()));
+        assertEquals(5L, cursor.getId());
+    }
+
+    @Test
+    void keyCursorCarriesTheKeyItself() {
+        assertEquals("ORD-1|2", PageCursor.afterKey(PageCursor.ofKey("ORD-1|2").encode()));
+        assertEquals("", PageCursor.afterKey(null));
+        // An id cursor handed to a key-ordered listing
+        assertThrows(InvalidPageRequestException.class, () -> PageCursor.afterKey(PageCursor.ofId(3).encode()));
+    }
+
+    @Test
+    void tokensAreUrlSafe() {
+        String token = PageCursor.of(LocalDateTime.of(2025, 1, 1, 0, 0), Long.MAX_VALUE).encode();
+        assertTrue(token.matches("[A-Za-z0-9_-]+"), token);
+    }
+
+    @Test
+    void rejectsTokensItDidNotIssue() {
+        assertNull(PageCursor.decode(" "));
+        assertThrows(InvalidPageRequestException.class, () -> PageCursor.decode("not a cursor!"));
+        assertThrows(InvalidPageRequestException.class, () -> PageCursor.decode(base64("2025-13-01T00:00|4")));
+        assertThrows(InvalidPageRequestException.class, () -> PageCursor.decode(base64("abc")));
+        // An id cursor handed to a date-ordered listing
+        assertThrows(InvalidPageRequestException.class,
+                () -> PageCursor.decodeTimestamped(PageCursor.ofId(3).encode()));
+    }
+
+    @Test
+    void clampsLimits() {
+        assertEquals(PageCursor.DEFAULT_LIMIT, PageCursor.clampLimit(null));
+        assertEquals(PageCursor.MAX_LIMIT, PageCursor.clampLimit(PageCursor.MAX_LIMIT + 1));
+        assertEquals(1, PageCursor.clampLimit(1));
+        assertThrows(InvalidPageRequestException.class, () -> PageCursor.clampLimit(0));
+        assertEquals(11, PageCursor.lookahead(10).getPageSize());
+    }
+
+    @Test
+    void pagesWalkEveryRowOnceFromTheLookaheadRow() {
+        List<Long> rows = IntStream.rangeClosed(1, 7).mapToObj(Long::valueOf).collect(Collectors.toList());
+        List<Long> seen = new ArrayList<>();
+        String next = null;
+        do {
+            long after = PageCursor.afterId(next);
+            List<Long> fetched = rows.stream().filter(id -> id > after).limit(3 + 1).collect(Collectors.toList());
+            CursorPage<Long> page = CursorPage.of(fetched, 3, PageCursor::ofId);
+            assertTrue(page.getItems().size() <= 3);
+            seen.addAll(page.getItems());
+            next = page.getNext();
+        } while (next != null);
+        assertEquals(rows, seen);
+    }
+
+    private static String base64(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
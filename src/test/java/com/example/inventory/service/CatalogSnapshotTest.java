@@ -0,0 +1,128 @@
+package com.example.inventory.service;
+
+import com.example.inventory.event.StockChangedEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CatalogSnapshotTest {
+
+    // More than two parallel chunks
+    private static final int PRODUCTS = 150_000;
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final CatalogSnapshot snapshot = new CatalogSnapshot(jdbcTemplate, 1);
+
+    @Test
+    void parallelAndSequentialReductionsMatchAPlainSum() throws Exception {
+        tableHolds(PRODUCTS);
+        snapshot.refresh();
+
+        Map<String, Long> counts = new HashMap<>();
+        Map<String, BigDecimal> byCategory = new HashMap<>();
+        Map<Long, BigDecimal> byWarehouse = new HashMap<>();
+        for (long id = 1; id <= PRODUCTS; id++) {
+            BigDecimal value = price(id).multiply(BigDecimal.valueOf(stock(id)));
+            String category = category(id) == null ? "" : category(id);
+            counts.merge(category, 1L, Long::sum);
+            byCategory.merge(category, value, BigDecimal::add);
+            if (warehouse(id) != null) {
+                byWarehouse.merge(warehouse(id), value, BigDecimal::add);
+            }
+        }
+
+        for (Boolean parallel : new Boolean[]{true, false, null}) {
+            assertEquals(counts, snapshot.countByCategory(parallel));
+            assertEquals(byCategory, snapshot.valueByCategory(parallel));
+            assertEquals(byWarehouse, snapshot.valueByWarehouse(parallel));
+        }
+    }
+
+    @Test
+    void topExpensiveAndStockBelowMatchTheirQueries() throws Exception {
+        tableHolds(5_000);
+        snapshot.refresh();
+
+        List<Long> byPrice = LongStream.rangeClosed(1, 5_000).boxed()
+                .sorted(Comparator.comparing(CatalogSnapshotTest::price).reversed().thenComparing(id -> id))
+                .limit(25)
+                .collect(Collectors.toList());
+        List<Long> below = LongStream.rangeClosed(1, 5_000).filter(id -> stock(id) < 3).boxed()
+                .collect(Collectors.toList());
+
+        assertEquals(byPrice, snapshot.topExpensiveIds(25));
+        assertEquals(below, snapshot.idsWithStockBelow(3));
+        assertEquals(List.of(), snapshot.topExpensiveIds(0));
+    }
+
+    @Test
+    void refreshRunsOnlyAfterAChangeAndAFailedOneKeepsTheLastSnapshot() throws Exception {
+        assertNull(snapshot.countByCategory(false));
+        tableHolds(10);
+        snapshot.refreshIfChanged();
+        snapshot.refreshIfChanged();
+        verify(jdbcTemplate, times(1)).query(anyString(), any(RowCallbackHandler.class));
+        Map<String, Long> counts = snapshot.countByCategory(false);
+
+        doThrow(new DataAccessResourceFailureException("down"))
+                .when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class));
+        snapshot.onStockChanged(new StockChangedEvent(1L, 0));
+        snapshot.refreshIfChanged();
+        assertEquals(counts, snapshot.countByCategory(false));
+
+        // Still dirty, so the next run tries again
+        tableHolds(20);
+        snapshot.refreshIfChanged();
+        assertEquals(20, snapshot.getStats().get("products"));
+    }
+
+    // Products 1..n with prices, stock, categories (some missing) and warehouses (some missing) derived from the id
+    private void tableHolds(int n) throws Exception {
+        // A proxy rather than a Mockito mock: the large catalog reads a few hundred thousand columns
+        long[] row = new long[1];
+        ResultSet rs = (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getLong" -> (int) args[0] == 1 ? row[0] : Objects.requireNonNullElse(warehouse(row[0]), 0L);
+                    case "getBigDecimal" -> price(row[0]);
+                    case "getInt" -> stock(row[0]);
+                    case "getString" -> category(row[0]);
+                    case "wasNull" -> warehouse(row[0]) == null; // only read after the warehouse column
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+        doAnswer(call -> {
+            RowCallbackHandler handler = call.getArgument(1);
+            for (row[0] = 1; row[0] <= n; row[0]++) {
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(jdbcTemplate).query(startsWith("SELECT id, price"), any(RowCallbackHandler.class));
+    }
+
+    private static BigDecimal price(long id) {
+        return BigDecimal.valueOf(id * 7919 % 100_000, 2);
+    }
+
+    private static int stock(long id) {
+        return (int) (id % 50);
+    }
+
+    private static String category(long id) {
+        return id % 11 == 0 ? null : "c" + id % 7;
+    }
+
+    private static Long warehouse(long id) {
+        return id % 5 == 0 ? null : id % 3;
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.inventory.service;
+
+import com.example.inventory.model.Product;
+import com.example.inventory.repository.OrderItemRepository;
+import com.example.inventory.repository.OrderRepository;
+import com.example.inventory.repository.ProductRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class DataExportServiceTest {
+
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final EntityManager entityManager = mock(EntityManager.class);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final DataExportService exportService = new DataExportService(productRepository,
+            mock(OrderRepository.class), mock(OrderItemRepository.class),
+            new TransactionTemplate(mock(PlatformTransactionManager.class)), objectMapper);
+
+    @BeforeEach
+    void injectEntityManager() {
+        ReflectionTestUtils.setField(exportService, "entityManager", entityManager);
+    }
+
+    @Test
+    void csvHasAHeaderAndQuotesOnlyFieldsThatNeedIt() throws Exception {
+        Product product = product(1, "Widget, large");
+        product.setDescription("Says \"hi\"");
+        when(productRepository.streamAllForExport()).thenReturn(Stream.of(product));
+
+        String[] lines = export(DataExportService.Format.CSV).split("\n", -1);
+
+        assertEquals("id,sku,name,description,category,price,stockQuantity,minStockLevel,stockSlotted," +
+                "warehouseId,supplierId,createdAt,updatedAt", lines[0]);
+        assertTrue(lines[1].startsWith("1,P-1,\"Widget, large\",\"Says \"\"hi\"\"\",parts,2.50,10,2,false,,,"),
+                lines[1]);
+        assertEquals(3, lines.length);
+        assertEquals("", lines[2]);
+    }
+
+    @Test
+    void ndjsonWritesOneTypedObjectPerLine() throws Exception {
+        when(productRepository.streamAllForExport()).thenReturn(Stream.of(product(1, "Bolt"), product(2, "Nut")));
+
+        String[] lines = export(DataExportService.Format.NDJSON).split("\n", -1);
+
+        assertEquals(3, lines.length);
+        JsonNode first = objectMapper.readTree(lines[0]);
+        assertEquals(1, first.get("id").asLong());
+        assertTrue(lines[0].contains("\"price\":2.50,"), lines[0]); // a number, with the scale kept
+        assertTrue(first.get("stockSlotted").isBoolean());
+        assertTrue(first.get("warehouseId").isNull());
+        assertEquals("Nut", objectMapper.readTree(lines[1]).get("name").asText());
+        assertEquals("", lines[2]);
+    }
+
+    @Test
+    void rowsAreStreamedWithThePersistenceContextClearedEveryChunkAndTheCursorClosed() throws Exception {
+        AtomicBoolean closed = new AtomicBoolean();
+        when(productRepository.streamAllForExport()).thenReturn(LongStream.rangeClosed(1, 2500)
+                .mapToObj(id -> product(id, "Part " + id))
+                .onClose(() -> closed.set(true)));
+
+        String ndjson = export(DataExportService.Format.NDJSON);
+
+        assertEquals(2500, ndjson.lines().count());
+        verify(entityManager, times(2)).clear();
+        assertTrue(closed.get());
+    }
+
+    @Test
+    void emptyNdjsonExportIsEmptyAndUnknownFormatsAreRejected() throws Exception {
+        when(productRepository.streamAllForExport()).thenReturn(Stream.empty());
+
+        assertEquals("", export(DataExportService.Format.NDJSON));
+        IllegalArgumentException rejected = assertThrows(IllegalArgumentException.class,
+                () -> DataExportService.Format.of("xml"));
+        assertEquals("Export format must be csv or ndjson", rejected.getMessage());
+        assertEquals(DataExportService.Format.CSV, DataExportService.Format.of(" Csv "));
+    }
+
+    private String export(DataExportService.Format format) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.exportProducts(out, format);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static Product product(long id, String name) {
+        Product product = new Product(name, "P-" + id, 10, 2, new BigDecimal("2.50"), "parts");
+        product.setId(id);
+        return product;
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.inventory.service;
+
+import com.example.inventory.exception.OutOfStockException;
+import com.example.inventory.model.Product;
+import com.example.inventory.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class DatabaseStockEngineTest {
+
+    private static final long PRODUCT = 3L;
+
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final StockSlotService stockSlotService = mock(StockSlotService.class);
+    private final InventoryValuationService valuationService = mock(InventoryValuationService.class);
+    private final DatabaseStockEngine engine =
+            new DatabaseStockEngine(productRepository, stockSlotService, valuationService, mock(JdbcTemplate.class));
+
+    @Test
+    void reductionIsOneConditionalUpdateThatReportsTheNewQuantity() {
+        when(productRepository.decrementStockIfAvailable(PRODUCT, 4)).thenReturn(1);
+        when(productRepository.lastStockQuantity()).thenReturn(6L);
+
+        assertEquals(6, engine.reduceStock(PRODUCT, 4));
+
+        // No read before the write, and none after it either
+        verify(productRepository, never()).findById(anyLong());
+        verify(productRepository, never()).findByIdForUpdate(anyLong());
+        verify(valuationService).recordStockChange(PRODUCT, -4);
+    }
+
+    @Test
+    void unmatchedReductionIsReportedAsOutOfStockAndChangesNothing() {
+        when(productRepository.decrementStockIfAvailable(PRODUCT, 11)).thenReturn(0);
+        when(productRepository.findById(PRODUCT)).thenReturn(Optional.of(product(10)));
+
+        OutOfStockException shortage = assertThrows(OutOfStockException.class, () -> engine.reduceStock(PRODUCT, 11));
+
+        assertTrue(shortage.getMessage().contains("Available: 10"), shortage.getMessage());
+        verify(valuationService, never()).recordStockChange(anyLong(), anyInt());
+    }
+
+    @Test
+    void unmatchedUpdateOfAProductSlottedElsewhereGoesToItsSlots() {
+        Product slotted = mock(Product.class);
+        when(slotted.isStockSlotted()).thenReturn(true);
+        when(productRepository.decrementStockIfAvailable(PRODUCT, 2)).thenReturn(0);
+        when(productRepository.findById(PRODUCT)).thenReturn(Optional.of(slotted));
+        when(stockSlotService.reduceStock(PRODUCT, 2)).thenReturn(40);
+
+        assertEquals(40, engine.reduceStock(PRODUCT, 2));
+
+        verify(stockSlotService).refreshSlottedProducts();
+        verify(valuationService).recordStockChange(PRODUCT, -2);
+    }
+
+    @Test
+    void increaseOfAMissingProductFails() {
+        when(productRepository.incrementStock(PRODUCT, 5)).thenReturn(0);
+        when(productRepository.findById(PRODUCT)).thenReturn(Optional.empty());
+
+        assertThrows(IllegalArgumentException.class, () -> engine.increaseStock(PRODUCT, 5));
+        verify(valuationService, never()).recordStockChange(anyLong(), anyInt());
+    }
+
+    private static Product product(int stock) {
+        Product product = new Product("Widget", "W-3", stock, 1, new BigDecimal("1.00"), "parts");
+        product.setId(PRODUCT);
+        return product;
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.inventory.service;
+
+import com.example.inventory.model.Order;
+import com.example.inventory.repository.OrderRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class DelayedOrderTrackerTest {
+
+    private static final LocalDateTime PAST = LocalDateTime.now().minusHours(1);
+    private static final LocalDateTime FUTURE = LocalDateTime.now().plusDays(1);
+
+    private final OrderRepository orderRepository = mock(OrderRepository.class);
+    private final OrderRollupService rollupService = mock(OrderRollupService.class);
+    private final DelayedOrderTracker tracker = new DelayedOrderTracker(orderRepository, rollupService,
+            new TransactionTemplate(mock(PlatformTransactionManager.class)), 500);
+
+    @Test
+    void expiredOrdersAreCheckedAgainUnderTheLock() {
+        Order stillOpen = order(1L, Order.OrderStatus.CONFIRMED, PAST);
+        Order deliveredMeanwhile = order(2L, Order.OrderStatus.SHIPPED, PAST);
+        tracker.track(stillOpen);
+        tracker.track(deliveredMeanwhile);
+        deliveredMeanwhile.deliver();
+        when(orderRepository.findWithItemsForUpdate(List.of(1L, 2L))).thenReturn(List.of(stillOpen, deliveredMeanwhile));
+
+        tracker.checkDeadlines();
+
+        assertEquals(Order.OrderStatus.DELAYED, stillOpen.getStatus());
+        assertEquals(Order.OrderStatus.DELIVERED, deliveredMeanwhile.getStatus());
+        verify(rollupService).record(stillOpen);
+        verify(rollupService, never()).record(deliveredMeanwhile);
+        assertEquals(0, tracker.getTrackedOrderCount());
+    }
+
+    @Test
+    void onlyTheLatestDueDateOfARescheduledOrderCounts() {
+        Order order = order(1L, Order.OrderStatus.CONFIRMED, PAST);
+        tracker.track(order);
+        order.setExpectedDeliveryDate(FUTURE);
+        tracker.track(order);
+
+        tracker.checkDeadlines();
+
+        verify(orderRepository, never()).findWithItemsForUpdate(any());
+        assertEquals(1, tracker.getTrackedOrderCount());
+    }
+
+    @Test
+    void failedBatchIsRetriedWithoutLosingADueDateSetMeanwhile() {
+        Order order = order(1L, Order.OrderStatus.CONFIRMED, PAST);
+        tracker.track(order);
+        when(orderRepository.findWithItemsForUpdate(List.of(1L)))
+                .thenAnswer(call -> {
+                    // Rescheduled while the first batch was waiting for its locks
+                    order.setExpectedDeliveryDate(FUTURE);
+                    tracker.track(order);
+                    throw new CannotAcquireLockException("lock wait timeout");
+                })
+                .thenReturn(List.of(order));
+
+        tracker.checkDeadlines();
+        tracker.checkDeadlines();
+
+        assertEquals(Order.OrderStatus.CONFIRMED, order.getStatus());
+        verifyNoInteractions(rollupService);
+        assertEquals(1, tracker.getTrackedOrderCount(), "the new due date is still watched");
+    }
+
+    @Test
+    void aDelayedOrderShippedByHandIsNotDelayedAgain() {
+        Order order = order(1L, Order.OrderStatus.DELAYED, PAST);
+        order.ship();
+
+        tracker.track(order);
+        tracker.checkDeadlines();
+
+        verify(orderRepository, never()).findWithItemsForUpdate(any());
+        assertEquals(0, tracker.getTrackedOrderCount());
+        // Given a later date it is watched again
+        order.setExpectedDeliveryDate(FUTURE);
+        tracker.track(order);
+        assertEquals(1, tracker.getTrackedOrderCount());
+    }
+
+    @Test
+    void anOrderShippedBeforeItsDueDateIsDelayedOnceItPasses() {
+        Order order = order(1L, Order.OrderStatus.SHIPPED, PAST);
+        ReflectionTestUtils.setField(order, "shippedAt", PAST.minusDays(1));
+        tracker.track(order);
+        when(orderRepository.findWithItemsForUpdate(List.of(1L))).thenReturn(List.of(order));
+
+        tracker.checkDeadlines();
+
+        assertEquals(Order.OrderStatus.DELAYED, order.getStatus());
+        assertTrue(order.canMoveTo(Order.OrderStatus.DELIVERED));
+        assertFalse(order.canMoveTo(Order.OrderStatus.SHIPPED));
+    }
+
+    private static Order order(Long id, Order.OrderStatus status, LocalDateTime due) {
+        Order order = new Order(Order.OrderType.SALE, null);
+        order.setId(id);
+        order.setStatus(status);
+        order.setExpectedDeliveryDate(due);
+        return order;
+    }
+}
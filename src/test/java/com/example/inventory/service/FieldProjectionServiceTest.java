@@ -0,0 +1,95 @@
+package com.example.inventory.service;
+
+import com.example.inventory.dto.CursorPage;
+import com.example.inventory.dto.PageCursor;
+import com.example.inventory.exception.InvalidPageRequestException;
+import com.example.inventory.model.Order;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class FieldProjectionServiceTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2025, 3, 14, 10, 0);
+
+    private final EntityManager entityManager = mock(EntityManager.class);
+    @SuppressWarnings("unchecked")
+    private final TypedQuery<Tuple> query = mock(TypedQuery.class);
+    private final FieldProjectionService service = new FieldProjectionService();
+
+    @BeforeEach
+    void stubQuery() {
+        ReflectionTestUtils.setField(service, "entityManager", entityManager);
+        when(entityManager.createQuery(anyString(), eq(Tuple.class))).thenReturn(query);
+        when(query.setParameter(anyString(), any())).thenReturn(query);
+        when(query.setMaxResults(anyInt())).thenReturn(query);
+    }
+
+    @Test
+    void unknownOrMissingFieldsAreRejectedBeforeAnyQuery() {
+        InvalidPageRequestException unknown = assertThrows(InvalidPageRequestException.class,
+                () -> service.list(OrderService.ORDER_FIELDS, "id,password", null, null));
+        assertTrue(unknown.getMessage().startsWith("Unknown field 'password'; available fields: id, orderNumber"),
+                unknown.getMessage());
+        assertThrows(InvalidPageRequestException.class,
+                () -> service.list(OrderService.ORDER_FIELDS, " , ", null, null));
+
+        verifyNoInteractions(entityManager);
+    }
+
+    @Test
+    void onlyTheRequestedColumnsAreSelectedAndTheJoinOnlyWhenNeeded() {
+        when(query.getResultList()).thenReturn(List.of());
+
+        service.list(OrderService.ORDER_FIELDS, "status, id,status", "o.type = :type",
+                Map.of("type", Order.OrderType.SALE));
+        service.list(OrderService.ORDER_FIELDS, "supplierName", null, null);
+
+        verify(entityManager).createQuery("SELECT o.status, o.id, o.id, o.orderDate FROM Order o " +
+                "WHERE o.type = :type ORDER BY o.orderDate DESC, o.id DESC", Tuple.class);
+        verify(entityManager).createQuery("SELECT s.name, o.id, o.orderDate FROM Order o LEFT JOIN o.supplier s " +
+                "ORDER BY o.orderDate DESC, o.id DESC", Tuple.class);
+        verify(query).setParameter("type", Order.OrderType.SALE);
+    }
+
+    @Test
+    void pageRowsKeepTheRequestedOrderAndTheCursorComesFromTheKeysetColumns() {
+        Tuple first = tuple("ORD-9", "PENDING", 9L, DAY);
+        Tuple second = tuple("ORD-7", "SHIPPED", 7L, DAY);
+        Tuple lookahead = tuple("ORD-4", "PENDING", 4L, DAY.minusDays(1));
+        when(query.getResultList()).thenReturn(List.of(first, second, lookahead));
+
+        CursorPage<Map<String, Object>> page = service.page(OrderService.ORDER_FIELDS, "orderNumber,status",
+                null, null, PageCursor.of(DAY.plusDays(1), 12).encode(), 2);
+
+        assertEquals(List.of(Map.of("orderNumber", "ORD-9", "status", "PENDING"),
+                Map.of("orderNumber", "ORD-7", "status", "SHIPPED")), page.getItems());
+        assertEquals(List.of("orderNumber", "status"), List.copyOf(page.getItems().get(0).keySet()));
+        PageCursor next = PageCursor.decodeTimestamped(page.getNext());
+        assertEquals(DAY, next.getTimestamp());
+        assertEquals(7L, next.getId());
+        verify(query).setMaxResults(3);
+        verify(query).setParameter("afterId", 12L);
+        verify(query).setParameter("afterDate", DAY.plusDays(1));
+    }
+
+    private static Tuple tuple(String orderNumber, String status, long id, LocalDateTime orderDate) {
+        Tuple tuple = mock(Tuple.class);
+        when(tuple.get(0)).thenReturn(orderNumber);
+        when(tuple.get(1)).thenReturn(status);
+        when(tuple.get(2)).thenReturn(id);
+        when(tuple.get(3)).thenReturn(orderDate);
+        return tuple;
+    }
+}
@@ -0,0 +1,232 @@
+package com.example.inventory.service;
+
+import com.example.inventory.exception.DatabaseConnectionException;
+import com.example.inventory.exception.OutOfStockException;
+import com.example.inventory.model.Product;
+import com.example.inventory.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class InMemoryStockEngineTest {
+
+    private static final String LOAD_STOCK = "SELECT stock_quantity FROM products WHERE id = ?";
+    private static final long PRODUCT = 1L;
+
+    @TempDir
+    Path journalDir;
+
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private InMemoryStockEngine engine;
+
+    @BeforeEach
+    void startEngine() throws Exception {
+        Product product = new Product("Widget", "W-1", 10, 1, new BigDecimal("2.00"), "parts");
+        product.setId(PRODUCT);
+        when(productRepository.findById(PRODUCT)).thenReturn(Optional.of(product));
+        engine = new InMemoryStockEngine(productRepository, mock(InventoryValuationService.class),
+                mock(ProductCache.class), jdbcTemplate,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), 4, journalDir.toString(), false, 1);
+        engine.start();
+    }
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void evictedProductKeepsWritersOutUntilTheTransactionCompletes() throws Exception {
+        // The second load sees the row after the flush of the first reduction
+        when(jdbcTemplate.queryForList(eq(LOAD_STOCK), eq(Integer.class), eq(PRODUCT)))
+                .thenReturn(List.of(10), List.of(7));
+        assertEquals(7, engine.reduceStock(PRODUCT, 3));
+
+        TransactionSynchronizationManager.initSynchronization();
+        engine.evict(PRODUCT);
+        verify(jdbcTemplate).batchUpdate(startsWith("UPDATE products"),
+                argThat((List<Object[]> rows) -> rows.size() == 1 && rows.get(0)[0].equals(-3)));
+
+        CompletableFuture<Integer> writer = CompletableFuture.supplyAsync(() -> engine.reduceStock(PRODUCT, 2));
+        Thread.sleep(200);
+        assertFalse(writer.isDone(), "a writer must wait while the product is held");
+
+        List<TransactionSynchronization> completions = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        completions.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+        assertEquals(5, writer.get(5, TimeUnit.SECONDS));
+        verify(jdbcTemplate, times(2)).queryForList(eq(LOAD_STOCK), eq(Integer.class), eq(PRODUCT));
+    }
+
+    @Test
+    void failedFlushKeepsTheCounterAndItsPendingDeltas() {
+        when(jdbcTemplate.queryForList(eq(LOAD_STOCK), eq(Integer.class), eq(PRODUCT))).thenReturn(List.of(10));
+        when(jdbcTemplate.batchUpdate(startsWith("UPDATE products"), anyList()))
+                .thenThrow(new DataAccessResourceFailureException("database down"));
+        assertEquals(6, engine.reduceStock(PRODUCT, 4));
+
+        assertThrows(DatabaseConnectionException.class, () -> engine.evict(PRODUCT));
+
+        // Still the live counter, not a reload of the row the reduction never reached
+        assertEquals(0, engine.reduceStock(PRODUCT, 6));
+        verify(jdbcTemplate, times(1)).queryForList(eq(LOAD_STOCK), eq(Integer.class), eq(PRODUCT));
+    }
+
+    @Test
+    void batchWorksOnTheLiveCountersWithoutFlushingAnything() {
+        when(jdbcTemplate.queryForList(eq(LOAD_STOCK), eq(Integer.class), eq(PRODUCT))).thenReturn(List.of(10));
+        assertEquals(7, engine.reduceStock(PRODUCT, 3));
+
+        engine.adjust(List.of(PRODUCT), current -> {
+            assertEquals(Map.of(PRODUCT, 7), current);
+            return Map.of(PRODUCT, 2);
+        });
+
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+        assertEquals(0, engine.reduceStock(PRODUCT, 2));
+        // Both deltas reach the row with the next flush
+        engine.flush();
+        verify(jdbcTemplate).batchUpdate(startsWith("UPDATE products"),
+                argThat((List<Object[]> rows) -> rows.size() == 1 && rows.get(0)[0].equals(-10)));
+    }
+
+    @Test
+    void batchOfARolledBackTransactionIsHandedBackBeforeWritersGetIn() throws Exception {
+        when(jdbcTemplate.queryForList(eq(LOAD_STOCK), eq(Integer.class), eq(PRODUCT))).thenReturn(List.of(10));
+        TransactionSynchronizationManager.initSynchronization();
+        engine.adjust(List.of(PRODUCT), current -> Map.of(PRODUCT, 2));
+
+        CompletableFuture<Integer> writer = CompletableFuture.supplyAsync(() -> engine.reduceStock(PRODUCT, 3));
+        Thread.sleep(200);
+        assertFalse(writer.isDone(), "a writer must wait for the batch's transaction");
+
+        List<TransactionSynchronization> completions = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        completions.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        assertEquals(7, writer.get(5, TimeUnit.SECONDS));
+        // The batch and its reversal cancel out in the journal
+        engine.flush();
+        verify(jdbcTemplate).batchUpdate(startsWith("UPDATE products"),
+                argThat((List<Object[]> rows) -> rows.size() == 1 && rows.get(0)[0].equals(-3)));
+    }
+
+    @Test
+    void productEvictedAfterABatchInOneTransactionIsFlushedBeforeItsCounterIsDropped() {
+        when(jdbcTemplate.queryForList(eq(LOAD_STOCK), eq(Integer.class), eq(PRODUCT)))
+                .thenReturn(List.of(10), List.of(4));
+        TransactionSynchronizationManager.initSynchronization();
+        engine.evict(PRODUCT);
+        engine.adjust(List.of(PRODUCT), current -> Map.of(PRODUCT, 4));
+        verify(jdbcTemplate, never()).batchUpdate(startsWith("UPDATE products"), anyList());
+
+        List<TransactionSynchronization> completions = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        completions.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+        verify(jdbcTemplate).batchUpdate(startsWith("UPDATE products"),
+                argThat((List<Object[]> rows) -> rows.size() == 1 && rows.get(0)[0].equals(-6)));
+        assertEquals(3, engine.reduceStock(PRODUCT, 1));
+    }
+
+    @Test
+    void takesThatTheTotalCoversNeverFailUnderContention() throws Exception {
+        InMemoryStockEngine.StripedCounter counter = new InMemoryStockEngine.StripedCounter(4, 8_000);
+        AtomicBoolean done = new AtomicBoolean();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            // Keeps asking for more than there can be, which must never disturb the takes that fit
+            Future<?> greedy = pool.submit(() -> {
+                while (!done.get()) {
+                    assertFalse(counter.tryTake(100_000));
+                }
+            });
+            Future<?> restocker = pool.submit(() -> {
+                for (int i = 0; i < 500; i++) {
+                    counter.add(1);
+                }
+            });
+            // 3 x 1000 single units and 3 x 6 takes of 250, which mostly have to gather
+            List<Future<Integer>> takers = new ArrayList<>();
+            for (int t = 0; t < 6; t++) {
+                int quantity = t < 3 ? 1 : 250;
+                int takes = t < 3 ? 1_000 : 6;
+                takers.add(pool.submit(() -> {
+                    int failed = 0;
+                    for (int i = 0; i < takes; i++) {
+                        if (!counter.tryTake(quantity)) {
+                            failed++;
+                        }
+                    }
+                    return failed;
+                }));
+            }
+            for (Future<Integer> taker : takers) {
+                assertEquals(0, taker.get(30, TimeUnit.SECONDS));
+            }
+            restocker.get(30, TimeUnit.SECONDS);
+            done.set(true);
+            greedy.get(30, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(8_000 + 500 - 3_000 - 4_500, counter.sum());
+    }
+
+    @Test
+    void idleCountersPastTheLimitAreDroppedOnceFlushed() {
+        when(jdbcTemplate.queryForList(eq(LOAD_STOCK), eq(Integer.class), anyLong())).thenReturn(List.of(10));
+        engine.reduceStock(PRODUCT, 1);
+        engine.increaseStock(2L, 1);
+
+        engine.flush(); // marks both idle
+        assertEquals(2, engine.getCachedProductCount());
+        engine.reduceStock(PRODUCT, 1);
+        engine.flush(); // product 2 was not written since
+        assertEquals(1, engine.getCachedProductCount());
+
+        // A dropped counter is loaded from its row again
+        engine.increaseStock(2L, 1);
+        verify(jdbcTemplate, times(2)).queryForList(eq(LOAD_STOCK), eq(Integer.class), eq(2L));
+    }
+
+    @Test
+    void reductionThatCannotBeJournaledIsGivenBack() {
+        when(jdbcTemplate.queryForList(eq(LOAD_STOCK), eq(Integer.class), eq(PRODUCT))).thenReturn(List.of(10));
+        engine.stop(); // closes the journal under the engine
+
+        assertThrows(UncheckedIOException.class, () -> engine.reduceStock(PRODUCT, 4));
+
+        OutOfStockException shortage = assertThrows(OutOfStockException.class, () -> engine.reduceStock(PRODUCT, 11));
+        assertTrue(shortage.getMessage().contains("Available: 10"), shortage.getMessage());
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.inventory.service;
+
+import com.example.inventory.dto.ValuationDrift;
+import com.example.inventory.model.InventoryValuation.Scope;
+import com.example.inventory.repository.InventoryValuationRepository;
+import com.example.inventory.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class InventoryValuationServiceTest {
+
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final InventoryValuationRepository valuationRepository = mock(InventoryValuationRepository.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final InventoryValuationService service = new InventoryValuationService(productRepository,
+            valuationRepository, jdbcTemplate, new TransactionTemplate(mock(PlatformTransactionManager.class)), 4, false);
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void reconcileReportsEveryScopeThatDisagreesWithTheRecompute() {
+        when(valuationRepository.sumAll()).thenReturn(List.of(
+                recorded(Scope.TOTAL, "", "150.00"),
+                recorded(Scope.CATEGORY, "bolts", "100.00"),
+                recorded(Scope.CATEGORY, "nuts", "50.00"),
+                recorded(Scope.WAREHOUSE, "1", "150.00"),
+                recorded(Scope.WAREHOUSE, "2", "5.00")));
+        when(productRepository.recomputeValuationGroups()).thenReturn(List.of(
+                group("bolts", 1L, "100.0"),
+                group("nuts", 1L, "40.00")));
+
+        List<String> drifts = service.reconcile().stream()
+                .map(drift -> drift.getScope() + ":" + drift.getKey() + ":" + drift.getDrift().stripTrailingZeros().toPlainString())
+                .collect(Collectors.toList());
+
+        // bolts only differ in scale; warehouse 2 has no products left, so it recomputes to zero
+        assertEquals(List.of("TOTAL::10", "CATEGORY:nuts:10", "WAREHOUSE:1:10", "WAREHOUSE:2:5"), drifts);
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    void repairLocksFirstThenRewritesTheAggregatesFromTheRecompute() {
+        when(valuationRepository.sumAll()).thenReturn(List.of(recorded(Scope.TOTAL, "", "7.00")));
+        when(productRepository.recomputeValuationGroups()).thenReturn(List.of(group("bolts", null, "12.00")));
+
+        List<ValuationDrift> drifts = service.repair();
+
+        InOrder order = inOrder(valuationRepository, productRepository, jdbcTemplate);
+        order.verify(valuationRepository).lockAll();
+        order.verify(productRepository).recomputeValuationGroups();
+        order.verify(valuationRepository).deleteAllRows();
+        ArgumentCaptor<List<Object[]>> rows = rowsCaptor();
+        order.verify(jdbcTemplate).batchUpdate(anyString(), rows.capture());
+
+        assertEquals(List.of("TOTAL::0:12.00", "CATEGORY:bolts:0:12.00", "WAREHOUSE::0:12.00"), describe(rows.getValue()));
+        assertEquals(3, drifts.size());
+    }
+
+    @Test
+    void changesOfOneTransactionAreWrittenOnceRightBeforeCommit() {
+        when(productRepository.findValuation(5L)).thenReturn(Optional.of(product(5L, "bolts", 2L, "1.50")));
+        TransactionSynchronizationManager.initSynchronization();
+
+        service.recordStockChange(5L, 4);
+        service.recordStockChange(5L, -1);
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        synchronizations.forEach(sync -> sync.beforeCommit(false));
+        synchronizations.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+        ArgumentCaptor<List<Object[]>> rows = rowsCaptor();
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), rows.capture());
+        List<String> written = describe(rows.getValue()).stream()
+                .map(row -> row.substring(0, row.indexOf(':', row.indexOf(':') + 1)) + row.substring(row.lastIndexOf(':')))
+                .collect(Collectors.toList());
+        // One net delta per scope, in key order; all on the same random slot
+        assertEquals(List.of("TOTAL::4.50", "CATEGORY:bolts:4.50", "WAREHOUSE:2:4.50"), written);
+        assertNull(TransactionSynchronizationManager.getResource(service));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArgumentCaptor<List<Object[]>> rowsCaptor() {
+        return ArgumentCaptor.forClass(List.class);
+    }
+
+    // scope:key:slot:value
+    private static List<String> describe(List<Object[]> rows) {
+        return rows.stream()
+                .map(row -> row[0] + ":" + row[1] + ":" + row[2] + ":" + row[3])
+                .collect(Collectors.toList());
+    }
+
+    private static InventoryValuationRepository.ScopedValue recorded(Scope scope, String key, String value) {
+        return new InventoryValuationRepository.ScopedValue() {
+            public Scope getScope() { return scope; }
+            public String getScopeKey() { return key; }
+            public BigDecimal getTotalValue() { return new BigDecimal(value); }
+        };
+    }
+
+    private static ProductRepository.ValuationGroup group(String category, Long warehouseId, String value) {
+        return new ProductRepository.ValuationGroup() {
+            public String getCategory() { return category; }
+            public Long getWarehouseId() { return warehouseId; }
+            public BigDecimal getTotalValue() { return new BigDecimal(value); }
+        };
+    }
+
+    private static ProductRepository.ProductValuation product(Long id, String category, Long warehouseId, String price) {
+        return new ProductRepository.ProductValuation() {
+            public Long getId() { return id; }
+            public BigDecimal getPrice() { return new BigDecimal(price); }
+            public String getCategory() { return category; }
+            public Long getWarehouseId() { return warehouseId; }
+            public Number getStockQuantity() { return 10; }
+        };
+    }
+}
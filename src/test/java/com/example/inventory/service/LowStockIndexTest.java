@@ -0,0 +1,69 @@
+package com.example.inventory.service;
+
+import com.example.inventory.event.StockChangedEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.ResultSet;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class LowStockIndexTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final StockEngine stockEngine = mock(StockEngine.class);
+    private final LowStockIndex index = new LowStockIndex(jdbcTemplate, stockEngine);
+
+    @Test
+    void periodicRebuildDropsAStaleQuantityLeftByOutOfOrderEvents() throws Exception {
+        index.rebuildIfReady();
+        verifyNoInteractions(jdbcTemplate); // the startup build comes first
+
+        tableHolds(6);
+        index.rebuild();
+        assertEquals(0, index.countLowStockProducts());
+
+        // Reduced to 3 and then restocked to 10, but the listeners ran the other way round
+        index.onStockChanged(new StockChangedEvent(1L, 10));
+        index.onStockChanged(new StockChangedEvent(1L, 3));
+        assertEquals(1, index.countLowStockProducts());
+        assertEquals(Map.of(4L, 1), index.getLowStockCountsByWarehouse());
+
+        tableHolds(10);
+        index.rebuildIfReady();
+        assertEquals(0, index.countLowStockProducts());
+        assertEquals(Map.of(), index.getLowStockCountsByWarehouse());
+    }
+
+    @Test
+    void buildTakesStockFromTheSlotsAndTheEngineRatherThanTheRowMirror() throws Exception {
+        tableHolds(8);
+        when(stockEngine.getLiveQuantities()).thenReturn(Map.of(1L, 2));
+
+        index.rebuild();
+
+        assertEquals(1, index.countLowStockProducts());
+        assertEquals(2, index.getLowStockProducts().get(0).getStockQuantity());
+        verify(jdbcTemplate).query(contains("CASE WHEN p.stock_slotted THEN COALESCE(s.quantity, 0)"),
+                any(RowCallbackHandler.class));
+    }
+
+    // One product (id 1, min level 5, warehouse 4) with the given stock
+    private void tableHolds(int stock) throws Exception {
+        ResultSet row = mock(ResultSet.class);
+        when(row.getLong(1)).thenReturn(1L);
+        when(row.getString(2)).thenReturn("W-1");
+        when(row.getString(3)).thenReturn("Widget");
+        when(row.getInt(4)).thenReturn(stock);
+        when(row.getInt(5)).thenReturn(5);
+        when(row.getLong(6)).thenReturn(4L);
+        doAnswer(call -> {
+            call.<RowCallbackHandler>getArgument(1).processRow(row);
+            return null;
+        }).when(jdbcTemplate).query(startsWith("SELECT p.id, p.sku"), any(RowCallbackHandler.class));
+    }
+}
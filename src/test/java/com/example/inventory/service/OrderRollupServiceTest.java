@@ -0,0 +1,153 @@
+package com.example.inventory.service;
+
+import com.example.inventory.dto.RollupDrift;
+import com.example.inventory.model.Order;
+import com.example.inventory.model.OrderDailyRollup;
+import com.example.inventory.model.OrderItem;
+import com.example.inventory.model.Product;
+import com.example.inventory.repository.OrderDailyRollupRepository;
+import com.example.inventory.repository.OrderRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OrderRollupServiceTest {
+
+    private static final LocalDate DAY = LocalDate.of(2025, 3, 14);
+
+    private final OrderRepository orderRepository = mock(OrderRepository.class);
+    private final OrderDailyRollupRepository rollupRepository = mock(OrderDailyRollupRepository.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final OrderRollupService rollupService = new OrderRollupService(orderRepository, rollupRepository,
+            jdbcTemplate, new TransactionTemplate(mock(PlatformTransactionManager.class)), false);
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void statusChangeMovesTheOrderFromItsLoadedRowToItsNewOne() {
+        Order order = loaded(Order.OrderStatus.CONFIRMED, 3, "2.50");
+        order.cancel();
+
+        rollupService.record(order);
+
+        assertEquals(List.of("CANCELLED:1:7.50:3", "CONFIRMED:-1:-7.50:-3"), written(1).get(0));
+        // A second record of the same state changes nothing: the baseline moved along
+        rollupService.record(order);
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    void changesOfOneTransactionAreWrittenAsOneBatchBeforeCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        Order first = loaded(Order.OrderStatus.PENDING, 1, "4.00");
+        Order second = loaded(Order.OrderStatus.PENDING, 2, "4.00");
+        first.confirm();
+        second.confirm();
+        rollupService.record(first);
+        rollupService.record(second);
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(sync -> sync.beforeCommit(false));
+
+        assertEquals(List.of("CONFIRMED:2:12.00:3", "PENDING:-2:-12.00:-3"), written(1).get(0));
+    }
+
+    @Test
+    void reconcileReportsRowsThatDisagreeWithTheRecompute() {
+        List<OrderDailyRollup> rows = List.of(
+                row(Order.OrderStatus.DELIVERED, 2, "10.00", 4),
+                row(Order.OrderStatus.CANCELLED, 1, "3.00", 1));
+        when(rollupRepository.findAll()).thenReturn(rows);
+        when(orderRepository.recomputeDailyRollups()).thenReturn(List.of(
+                group("DELIVERED", 2, "10.0", 4),
+                group("SHIPPED", 1, "6.00", 2)));
+
+        List<String> drifts = rollupService.reconcile().stream()
+                .map(drift -> drift.getStatus() + ":" + drift.getRecordedOrders() + ">" + drift.getRecomputedOrders())
+                .collect(Collectors.toList());
+
+        // DELIVERED differs only in revenue scale; a row missing on either side counts as zero
+        assertEquals(List.of("CANCELLED:1>0", "SHIPPED:0>1"), drifts);
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    void repairRewritesTheRowsFromTheRecompute() {
+        when(rollupRepository.findAll()).thenReturn(List.of());
+        when(orderRepository.recomputeDailyRollups()).thenReturn(List.of(group("SHIPPED", 1, "6.00", 2)));
+
+        List<RollupDrift> drifts = rollupService.repair();
+
+        verify(rollupRepository).lockAll();
+        verify(rollupRepository).deleteAllRows();
+        assertEquals(List.of("SHIPPED:1:6.00:2"), written(1).get(0));
+        assertEquals(1, drifts.size());
+    }
+
+    // Each batch as status:orders:revenue:items rows, all on DAY
+    @SuppressWarnings("unchecked")
+    private List<List<String>> written(int batches) {
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(batches)).batchUpdate(startsWith("INSERT INTO order_daily_rollup"), rows.capture());
+        return rows.getAllValues().stream()
+                .map(batch -> batch.stream()
+                        .peek(row -> assertEquals(Date.valueOf(DAY), row[0]))
+                        .map(row -> Arrays.stream(row, 2, 6).map(String::valueOf).collect(Collectors.joining(":")))
+                        .collect(Collectors.toList()))
+                .collect(Collectors.toList());
+    }
+
+    // As if just read from the database: the baseline is what the order contributes now
+    private static Order loaded(Order.OrderStatus status, int quantity, String unitPrice) {
+        Product product = new Product("Widget", "W-1", 10, 1, new BigDecimal(unitPrice), "parts");
+        Order order = new Order(Order.OrderType.SALE, null);
+        order.setOrderDate(DAY.atTime(10, 0));
+        order.addOrderItem(new OrderItem(product, quantity, new BigDecimal(unitPrice)));
+        order.setStatus(status);
+        order.calculateTotalAmount();
+        order.setRollupBaseline(order.rollupContribution());
+        return order;
+    }
+
+    private static OrderDailyRollup row(Order.OrderStatus status, long orders, String revenue, long items) {
+        OrderDailyRollup row = mock(OrderDailyRollup.class);
+        when(row.getDay()).thenReturn(DAY);
+        when(row.getType()).thenReturn(Order.OrderType.SALE);
+        when(row.getStatus()).thenReturn(status);
+        when(row.getOrderCount()).thenReturn(orders);
+        when(row.getRevenue()).thenReturn(new BigDecimal(revenue));
+        when(row.getItemCount()).thenReturn(items);
+        return row;
+    }
+
+    private static OrderRepository.RollupGroup group(String status, long orders, String revenue, long items) {
+        return new OrderRepository.RollupGroup() {
+            public Date getDay() { return Date.valueOf(DAY); }
+            public String getType() { return "SALE"; }
+            public String getStatus() { return status; }
+            public Number getOrderCount() { return orders; }
+            public BigDecimal getRevenue() { return new BigDecimal(revenue); }
+            public Number getItemCount() { return items; }
+        };
+    }
+}
@@ -0,0 +1,275 @@
+package com.example.inventory.service;
+
+import com.example.inventory.dto.CursorPage;
+import com.example.inventory.dto.PageCursor;
+import com.example.inventory.exception.InvalidOrderStateException;
+import com.example.inventory.exception.OrderNotFoundException;
+import com.example.inventory.model.Order;
+import com.example.inventory.model.OrderItem;
+import com.example.inventory.model.Product;
+import com.example.inventory.repository.OrderItemRepository;
+import com.example.inventory.repository.OrderRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OrderServiceTest {
+
+    private final OrderRepository orderRepository = mock(OrderRepository.class);
+    private final StockAdjustmentService stockAdjustmentService = mock(StockAdjustmentService.class);
+    private final OrderRollupService rollupService = mock(OrderRollupService.class);
+    private final ProductService productService = mock(ProductService.class);
+    private final OrderService orderService = new OrderService(orderRepository, mock(OrderItemRepository.class),
+            productService, mock(SupplierService.class), stockAdjustmentService, rollupService,
+            mock(DelayedOrderTracker.class), mock(OrderNumberGenerator.class), mock(FieldProjectionService.class));
+
+    @Test
+    void processingAnOrderTwiceDoesNotTakeItsStockTwice() {
+        stored(sale(Order.OrderStatus.CONFIRMED));
+
+        InvalidOrderStateException rejected = assertThrows(InvalidOrderStateException.class,
+                () -> orderService.processOrder(1L));
+
+        assertEquals("Only pending orders can be processed", rejected.getMessage());
+        verifyNoInteractions(stockAdjustmentService);
+        verify(orderRepository, never()).save(any());
+    }
+
+    @Test
+    void updateChangesTheLockedOrderAndLeavesItsStatusToTheTransitions() {
+        Order order = sale(Order.OrderStatus.CONFIRMED);
+        stored(order);
+        when(orderRepository.save(order)).thenReturn(order);
+        Order changes = new Order(Order.OrderType.PURCHASE, null); // deserialized bodies start out PENDING
+        changes.setExpectedDeliveryDate(LocalDateTime.of(2025, 4, 1, 12, 0));
+
+        Order updated = orderService.updateOrder(1L, changes);
+
+        assertSame(order, updated);
+        assertEquals(Order.OrderStatus.CONFIRMED, updated.getStatus());
+        assertEquals(Order.OrderType.PURCHASE, updated.getType());
+        assertEquals(LocalDateTime.of(2025, 4, 1, 12, 0), updated.getExpectedDeliveryDate());
+        assertTrue(updated.getOrderItems().isEmpty());
+        verify(rollupService).record(order);
+        verify(orderRepository, never()).findDetailById(any());
+    }
+
+    @Test
+    void missingOrderIsReportedAsNotFound() {
+        when(orderRepository.findDetailByIdForUpdate(9L)).thenReturn(Optional.empty());
+
+        assertThrows(OrderNotFoundException.class, () -> orderService.cancelOrder(9L));
+    }
+
+    @Test
+    void cancellingACancelledOrderDoesNotReturnItsStockAgain() {
+        stored(sale(Order.OrderStatus.CANCELLED));
+
+        IllegalStateException rejected = assertThrows(IllegalStateException.class, () -> orderService.cancelOrder(1L));
+
+        assertEquals("Order is already cancelled", rejected.getMessage());
+        verifyNoInteractions(stockAdjustmentService);
+        verify(orderRepository, never()).save(any());
+    }
+
+    @Test
+    void cancellingAProcessedSaleReturnsItsStockOnce() {
+        Order order = sale(Order.OrderStatus.CONFIRMED);
+        stored(order);
+        when(orderRepository.save(order)).thenReturn(order);
+
+        assertEquals(Order.OrderStatus.CANCELLED, orderService.cancelOrder(1L).getStatus());
+
+        verify(stockAdjustmentService).adjust(argThat(lines -> lines.size() == 1 && lines.get(0).getDelta() == 2),
+                anyString());
+    }
+
+    @Test
+    void anOrderDelayedBeforeShippingShipsBeforeItIsDelivered() {
+        Order order = sale(Order.OrderStatus.CONFIRMED);
+        order.delay();
+        stored(order);
+        when(orderRepository.save(order)).thenReturn(order);
+
+        IllegalStateException rejected = assertThrows(IllegalStateException.class, () -> orderService.deliverOrder(1L));
+
+        assertEquals("Order must be shipped before delivery", rejected.getMessage());
+        assertEquals(Order.OrderStatus.SHIPPED, orderService.shipOrder(1L).getStatus());
+        assertEquals(Order.OrderStatus.DELIVERED, orderService.deliverOrder(1L).getStatus());
+    }
+
+    @Test
+    void anOrderDelayedAfterShippingIsDeliveredButNotShippedAgain() {
+        Order order = sale(Order.OrderStatus.CONFIRMED);
+        order.ship();
+        order.delay();
+        stored(order);
+        when(orderRepository.save(order)).thenReturn(order);
+
+        IllegalStateException rejected = assertThrows(IllegalStateException.class, () -> orderService.shipOrder(1L));
+
+        assertEquals("Order has already shipped", rejected.getMessage());
+        assertEquals(Order.OrderStatus.DELIVERED, orderService.deliverOrder(1L).getStatus());
+    }
+
+    @Test
+    void numberSearchResumesAfterTheCursorsOrderNumberEvenIfThatOrderIsGone() {
+        when(orderRepository.searchByNumberPrefix(eq("ORD-12%"), eq("ORD-125"), any()))
+                .thenReturn(List.of(summary(7L, "ORD-127", 1, 7)));
+
+        CursorPage<OrderRepository.OrderSummary> page = orderService.searchOrders("12", null,
+                PageCursor.ofKey("ORD-125").encode(), 1);
+
+        assertEquals(List.of("ORD-127"), page.getItems().stream()
+                .map(OrderRepository.OrderSummary::getOrderNumber)
+                .collect(Collectors.toList()));
+        assertNull(page.getNext());
+    }
+
+    @Test
+    void supplierSearchMergesEachSuppliersNewestOrders() {
+        when(orderRepository.findSupplierIdsByNamePrefix(eq("acme%"), any())).thenReturn(List.of(1L, 2L));
+        when(orderRepository.searchBySupplierFirstPage(eq(1L), any()))
+                .thenReturn(List.of(summary(5L, "ORD-5", 1, 9), summary(3L, "ORD-3", 1, 4)));
+        when(orderRepository.searchBySupplierFirstPage(eq(2L), any()))
+                .thenReturn(List.of(summary(6L, "ORD-6", 2, 9), summary(4L, "ORD-4", 2, 6)));
+
+        CursorPage<OrderRepository.OrderSummary> page = orderService.searchOrders("Acme", null, null, 3);
+
+        // Same-day ties fall back to the higher id, as the index scans do
+        assertEquals(List.of(6L, 5L, 4L), page.getItems().stream()
+                .map(OrderRepository.OrderSummary::getId)
+                .collect(Collectors.toList()));
+        assertEquals(4L, PageCursor.decodeTimestamped(page.getNext()).getId());
+    }
+
+    @Test
+    void supplierPrefixMatchingTooManySuppliersIsRejected() {
+        when(orderRepository.findSupplierIdsByNamePrefix(eq("a%"), any())).thenReturn(
+                LongStream.rangeClosed(1, OrderService.MAX_SEARCH_SUPPLIERS + 1).boxed().collect(Collectors.toList()));
+
+        assertThrows(IllegalArgumentException.class, () -> orderService.searchOrders("a", null, null, 10));
+        verify(orderRepository, never()).searchBySupplierFirstPage(any(), any());
+    }
+
+    @Test
+    void newOrderLooksUpAllItsProductsAtOnceAndPricesEachLine() {
+        Product bolt = product(3L, "0.40");
+        Product nut = product(4L, "0.15");
+        when(productService.findAllById(Set.of(3L, 4L))).thenReturn(Map.of(3L, bolt, 4L, nut));
+        when(orderRepository.save(any())).thenAnswer(call -> call.getArgument(0));
+
+        Order order = orderService.createOrder(Order.OrderType.SALE, null,
+                List.of(line(3L, 10), line(4L, 10), line(3L, 5)));
+
+        assertEquals(List.of(bolt, nut, bolt), order.getOrderItems().stream()
+                .map(OrderItem::getProduct).collect(Collectors.toList()));
+        assertEquals(List.of(new BigDecimal("0.40"), new BigDecimal("0.15"), new BigDecimal("0.40")),
+                order.getOrderItems().stream().map(OrderItem::getUnitPrice).collect(Collectors.toList()));
+        verify(productService, times(1)).findAllById(any());
+    }
+
+    @Test
+    void newOrderWithAnUnknownProductIsRejectedBeforeItIsSaved() {
+        when(productService.findAllById(Set.of(3L, 8L))).thenReturn(Map.of(3L, product(3L, "0.40")));
+
+        IllegalArgumentException rejected = assertThrows(IllegalArgumentException.class,
+                () -> orderService.createOrder(Order.OrderType.SALE, null, List.of(line(3L, 1), line(8L, 1))));
+
+        assertEquals("Product not found", rejected.getMessage());
+        verify(orderRepository, never()).save(any());
+    }
+
+    @Test
+    void recentOrdersReadTenRowsAndTheirLinesInOneQuery() {
+        Order first = sale(Order.OrderStatus.PENDING);
+        Order second = sale(Order.OrderStatus.SHIPPED);
+        second.setId(2L);
+        when(orderRepository.findRecentOrders(any())).thenReturn(List.of(first, second));
+
+        assertEquals(List.of(first, second), orderService.getRecentOrders());
+
+        verify(orderRepository).findRecentOrders(PageRequest.of(0, 10));
+        verify(orderRepository).fetchLines(List.of(1L, 2L));
+        verify(orderRepository, never()).findAll();
+    }
+
+    @Test
+    void countsByStatusAndTypeComeFromTheGroupedQueries() {
+        when(orderRepository.countOrdersGroupedByStatus()).thenReturn(List.of(
+                statusCount(Order.OrderStatus.PENDING, 4), statusCount(Order.OrderStatus.DELIVERED, 9)));
+        when(orderRepository.countOrdersGroupedByType()).thenReturn(List.of(typeCount(Order.OrderType.SALE, 13)));
+
+        assertEquals(Map.of(Order.OrderStatus.PENDING, 4L, Order.OrderStatus.DELIVERED, 9L),
+                orderService.getOrderCountByStatus());
+        assertEquals(Map.of(Order.OrderType.SALE, 13L), orderService.getOrderCountByType());
+        verify(orderRepository, never()).findAll();
+    }
+
+    private void stored(Order order) {
+        when(orderRepository.findDetailByIdForUpdate(1L)).thenReturn(Optional.of(order));
+    }
+
+    private static Order sale(Order.OrderStatus status) {
+        Product product = new Product("Widget", "W-1", 10, 1, new BigDecimal("2.00"), "parts");
+        product.setId(3L);
+        Order order = new Order(Order.OrderType.SALE, null);
+        order.setId(1L);
+        order.setOrderNumber("ORD-1");
+        order.addOrderItem(new OrderItem(product, 2, new BigDecimal("2.00")));
+        order.setStatus(status);
+        return order;
+    }
+
+    private static Product product(Long id, String price) {
+        Product product = new Product("Part " + id, "P-" + id, 100, 1, new BigDecimal(price), "parts");
+        product.setId(id);
+        return product;
+    }
+
+    // A line as it arrives in a request: the product by id only, no price
+    private static OrderItem line(Long productId, int quantity) {
+        Product reference = new Product();
+        reference.setId(productId);
+        return new OrderItem(reference, quantity, null);
+    }
+
+    private static OrderRepository.StatusCount statusCount(Order.OrderStatus status, long count) {
+        return new OrderRepository.StatusCount() {
+            public Order.OrderStatus getStatus() { return status; }
+            public long getOrderCount() { return count; }
+        };
+    }
+
+    private static OrderRepository.TypeCount typeCount(Order.OrderType type, long count) {
+        return new OrderRepository.TypeCount() {
+            public Order.OrderType getType() { return type; }
+            public long getOrderCount() { return count; }
+        };
+    }
+
+    private static OrderRepository.OrderSummary summary(Long id, String orderNumber, long supplierId, int day) {
+        return new OrderRepository.OrderSummary() {
+            public Long getId() { return id; }
+            public String getOrderNumber() { return orderNumber; }
+            public Order.OrderType getType() { return Order.OrderType.PURCHASE; }
+            public Order.OrderStatus getStatus() { return Order.OrderStatus.PENDING; }
+            public BigDecimal getTotalAmount() { return BigDecimal.ONE; }
+            public LocalDateTime getOrderDate() { return LocalDateTime.of(2025, 3, day, 0, 0); }
+            public Long getSupplierId() { return supplierId; }
+            public String getSupplierName() { return "Acme " + supplierId; }
+        };
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.inventory.service;
+
+import com.example.inventory.dto.OrderTransitionTicket;
+import com.example.inventory.dto.OrderTransitionTicket.Transition;
+import com.example.inventory.exception.InvalidOrderStateException;
+import com.example.inventory.exception.StockAdjustmentException;
+import com.example.inventory.exception.WorkflowQueueFullException;
+import com.example.inventory.model.Order;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OrderWorkflowServiceTest {
+
+    private final OrderService orderService = mock(OrderService.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final OrderWorkflowService workflow = new OrderWorkflowService(orderService,
+            new TransactionTemplate(transactionManager), 1, 100, 50, 60_000);
+
+    @Test
+    void failedTransitionsFailOnlyTheirOwnTicketsWithTheReason() throws Exception {
+        when(orderService.processOrder(1L)).thenReturn(order(Order.OrderStatus.CONFIRMED));
+        when(orderService.processOrder(2L)).thenThrow(new StockAdjustmentException("Insufficient stock for 1 line(s)",
+                List.of(new StockAdjustmentException.LineError(1, "Insufficient stock for W-1: requested 5, available 2"))));
+        when(orderService.shipOrder(3L)).thenThrow(new InvalidOrderStateException("Only processed orders can be shipped"));
+
+        // Queued before the lane starts, so the three are taken as one batch
+        ReflectionTestUtils.setField(workflow, "running", true);
+        OrderTransitionTicket processed = workflow.submit(1L, Transition.PROCESS);
+        OrderTransitionTicket shortOfStock = workflow.submit(2L, Transition.PROCESS);
+        OrderTransitionTicket refused = workflow.submit(3L, Transition.SHIP);
+        workflow.start();
+        workflow.stop();
+
+        assertEquals(OrderTransitionTicket.State.SUCCEEDED, processed.getState());
+        assertEquals(Order.OrderStatus.CONFIRMED, processed.getOrderStatus());
+
+        assertEquals(OrderTransitionTicket.State.FAILED, shortOfStock.getState());
+        assertEquals("Insufficient stock for 1 line(s)", shortOfStock.getError());
+        assertEquals(1, shortOfStock.getLineErrors().size());
+        assertEquals("Insufficient stock for W-1: requested 5, available 2", shortOfStock.getLineErrors().get(0).getMessage());
+
+        assertEquals(OrderTransitionTicket.State.FAILED, refused.getState());
+        assertEquals("Only processed orders can be shipped", refused.getError());
+        assertNull(refused.getLineErrors());
+        assertNotNull(refused.getCompletedAt());
+
+        Map<String, Object> stats = workflow.getStats();
+        assertEquals(1L, stats.get("replayedBatches"));
+        assertEquals(1L, stats.get("succeeded"));
+        assertEquals(2L, stats.get("failed"));
+        verify(orderService, times(2)).processOrder(1L); // once in the rolled back batch, once alone
+    }
+
+    @Test
+    void fullLaneAndStoppedWorkflowRejectTransitions() throws Exception {
+        OrderWorkflowService small = new OrderWorkflowService(orderService,
+                new TransactionTemplate(transactionManager), 1, 1, 50, 60_000);
+        ReflectionTestUtils.setField(small, "running", true);
+        small.submit(1L, Transition.PROCESS);
+
+        assertThrows(WorkflowQueueFullException.class, () -> small.submit(2L, Transition.PROCESS));
+        assertEquals(1L, small.getStats().get("rejected"));
+
+        small.start();
+        small.stop();
+        assertThrows(WorkflowQueueFullException.class, () -> small.submit(3L, Transition.PROCESS));
+        verify(orderService).processOrder(1L);
+        verify(orderService, never()).processOrder(2L);
+    }
+
+    private static Order order(Order.OrderStatus status) {
+        Order order = new Order(Order.OrderType.SALE, null);
+        order.setStatus(status);
+        return order;
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.inventory.service;
+
+import com.example.inventory.dto.ImportReport;
+import com.example.inventory.model.Warehouse;
+import com.example.inventory.repository.ProductRepository;
+import com.example.inventory.repository.SupplierRepository;
+import com.example.inventory.repository.WarehouseRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ProductImportServiceTest {
+
+    private static final String HEADER = "sku,name,description,price,stock_quantity,min_stock_level,category,warehouse_id\n";
+
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final WarehouseRepository warehouseRepository = mock(WarehouseRepository.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    // Every batch handed to the UPSERT, in order
+    private final List<List<Object[]>> upserts = new ArrayList<>();
+    private ProductImportService importService;
+
+    @BeforeEach
+    void createService() {
+        importService = new ProductImportService(productRepository, warehouseRepository,
+                mock(SupplierRepository.class), mock(StockEngine.class), mock(StockSlotService.class),
+                mock(InventoryValuationService.class), jdbcTemplate,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), mock(Validator.class),
+                new ObjectMapper(), mock(ApplicationEventPublisher.class), 500);
+
+        Warehouse warehouse = new Warehouse("Main", "Dock 1");
+        warehouse.setId(1L);
+        when(warehouseRepository.findAllById(any())).thenReturn(List.of(warehouse));
+        when(productRepository.findIdsBySkus(any())).thenAnswer(call -> {
+            Collection<String> skus = call.getArgument(0);
+            return skus.stream().map(ProductImportServiceTest::skuId).collect(Collectors.toList());
+        });
+        when(jdbcTemplate.batchUpdate(startsWith("INSERT INTO products"), anyList())).thenAnswer(call -> {
+            List<Object[]> rows = call.getArgument(1);
+            upserts.add(rows);
+            return new int[rows.size()];
+        });
+    }
+
+    @Test
+    void csvQuotedFieldsKeepCommasDoubledQuotesAndLineBreaks() {
+        ImportReport report = importCsv(HEADER
+                + "A-1,\"Bolt, hex\",\"First line\nsecond \"\"quoted\"\" line\",1.50,10,2,parts,1\n"
+                + "B-1,Nut,,0.20,5,1,parts,1\n"
+                + "C-1,\"Washer,0.10,5,1,parts,1\n");
+
+        assertEquals(3, report.getRowsRead());
+        assertEquals(2, report.getInserted());
+        assertEquals(1, upserts.size());
+        Object[] bolt = upserts.get(0).get(0);
+        assertEquals("Bolt, hex", bolt[1]);
+        assertEquals("First line\nsecond \"quoted\" line", bolt[2]);
+        assertNull(upserts.get(0).get(1)[2], "an empty field is no description");
+        // The multi-line record pushes the next ones down a line
+        ImportReport.RowError unterminated = report.getErrors().get(0);
+        assertEquals(5, unterminated.getLine());
+        assertEquals("Unterminated quoted field", unterminated.getMessage());
+    }
+
+    @Test
+    void repeatedSkuStartsANewBatchSoTheLastRowWins() {
+        importCsv(HEADER
+                + "A-1,Bolt,,1.50,10,2,parts,1\n"
+                + "B-1,Nut,,0.20,5,1,parts,1\n"
+                + "a-1,Bolt,,1.50,12,2,parts,1\n");
+
+        assertEquals(List.of(List.of("A-1:10", "B-1:5"), List.of("a-1:12")),
+                upserts.stream()
+                        .map(rows -> rows.stream().map(row -> row[0] + ":" + row[5]).collect(Collectors.toList()))
+                        .collect(Collectors.toList()));
+    }
+
+    @Test
+    void rejectedBatchIsRetriedRowByRowAndOnlyTheOffendingRowIsReported() {
+        when(jdbcTemplate.batchUpdate(startsWith("INSERT INTO products"), anyList())).thenAnswer(call -> {
+            List<Object[]> rows = call.getArgument(1);
+            if (rows.stream().anyMatch(row -> row[0].equals("BAD-1"))) {
+                throw new DataIntegrityViolationException("could not execute batch",
+                        new SQLException("Data truncation: Out of range value for column 'price'"));
+            }
+            upserts.add(rows);
+            return new int[rows.size()];
+        });
+
+        ImportReport report = importCsv(HEADER
+                + "A-1,Bolt,,1.50,10,2,parts,1\n"
+                + "BAD-1,Anchor,,99999999999.99,1,1,parts,1\n"
+                + "B-1,Nut,,0.20,5,1,parts,1\n");
+
+        assertEquals(2, report.getInserted());
+        assertEquals(1, report.getFailed());
+        ImportReport.RowError error = report.getErrors().get(0);
+        assertEquals(3, error.getLine());
+        assertEquals("BAD-1", error.getSku());
+        assertEquals("Data truncation: Out of range value for column 'price'", error.getMessage());
+        assertEquals(List.of("A-1", "B-1"),
+                upserts.stream().map(rows -> (String) rows.get(0)[0]).collect(Collectors.toList()));
+    }
+
+    @Test
+    void ndjsonAcceptsNestedReferencesAndReportsBadLines() {
+        ImportReport report = importService.importProducts(bytes(
+                "{\"sku\":\"A-1\",\"name\":\"Bolt\",\"price\":1.5,\"stockQuantity\":10,\"minStockLevel\":2,"
+                        + "\"category\":\"parts\",\"warehouse\":{\"id\":1,\"name\":\"Main\"}}\n"
+                        + "{\"sku\":\n"),
+                ProductImportService.Format.NDJSON);
+
+        assertEquals(1, report.getInserted());
+        assertEquals(1L, upserts.get(0).get(0)[7]);
+        assertEquals(2, report.getErrors().get(0).getLine());
+        assertTrue(report.getErrors().get(0).getMessage().startsWith("Invalid JSON"));
+    }
+
+    private ImportReport importCsv(String csv) {
+        return importService.importProducts(bytes(csv), ProductImportService.Format.CSV);
+    }
+
+    private static ByteArrayInputStream bytes(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static ProductRepository.SkuId skuId(String sku) {
+        return new ProductRepository.SkuId() {
+            public Long getId() { return (long) sku.hashCode(); }
+            public String getSku() { return sku; }
+        };
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.inventory.service;
+
+import com.example.inventory.dto.CursorPage;
+import com.example.inventory.dto.PageCursor;
+import com.example.inventory.model.Product;
+import com.example.inventory.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ProductServiceTest {
+
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final StockSlotService stockSlotService = mock(StockSlotService.class);
+    private final ProductSearchIndex searchIndex = mock(ProductSearchIndex.class);
+    private final ProductCache productCache = mock(ProductCache.class);
+    private final CatalogSnapshot catalogSnapshot = mock(CatalogSnapshot.class);
+    private ProductService productService;
+
+    @BeforeEach
+    void createService() {
+        productService = new ProductService(productRepository, mock(StockEngine.class), stockSlotService,
+                searchIndex, mock(ProductSuggester.class), mock(InventoryValuationService.class), productCache,
+                mock(LowStockIndex.class), catalogSnapshot, mock(ApplicationEventPublisher.class),
+                mock(FieldProjectionService.class));
+        when(searchIndex.isReady()).thenReturn(true);
+    }
+
+    @Test
+    void rankedSearchPageIsToppedUpPastHitsWhoseProductsWereDeleted() {
+        when(searchIndex.search(eq("bolt"), isNull(), eq(3)))
+                .thenReturn(List.of(hit(1, 0.9f), hit(2, 0.8f), hit(3, 0.7f)));
+        when(searchIndex.search(eq("bolt"), argThat(after -> after != null && after.getId() == 3), eq(1)))
+                .thenReturn(List.of(hit(4, 0.6f)));
+        // Product 2 is gone from the table but not yet from the index
+        when(productRepository.findWithReferencesByIdIn(List.of(1L, 2L, 3L))).thenReturn(products(1, 3));
+        when(productRepository.findWithReferencesByIdIn(List.of(4L))).thenReturn(products(4));
+
+        CursorPage<Product> page = productService.searchProductsPage("bolt", null, 2);
+
+        assertEquals(List.of(1L, 3L), ids(page));
+        PageCursor next = PageCursor.decode(page.getNext());
+        assertEquals(3L, next.getId());
+        assertEquals(0.7f, next.getScore());
+    }
+
+    @Test
+    void rankedSearchPageEndsWhenTheIndexRunsOut() {
+        when(searchIndex.search(eq("bolt"), isNull(), eq(3))).thenReturn(List.of(hit(1, 0.9f), hit(2, 0.8f)));
+        when(productRepository.findWithReferencesByIdIn(List.of(1L, 2L))).thenReturn(products(2));
+
+        CursorPage<Product> page = productService.searchProductsPage("bolt", null, 2);
+
+        assertEquals(List.of(2L), ids(page));
+        assertNull(page.getNext());
+        verify(searchIndex, times(1)).search(anyString(), any(), anyInt());
+    }
+
+    @Test
+    void slottedStockIsReportedOnACopyAndNeverWrittenIntoTheCachedProduct() {
+        Product cached = product(7, 0);
+        ReflectionTestUtils.setField(cached, "stockSlotted", true);
+        when(productCache.findById(7L)).thenReturn(Optional.of(cached));
+        when(stockSlotService.getStock(7L)).thenReturn(25, 18);
+
+        Product first = productService.findById(7L).orElseThrow();
+        Product second = productService.findById(7L).orElseThrow();
+
+        assertEquals(25, first.getStockQuantity());
+        assertEquals(18, second.getStockQuantity());
+        assertNotSame(cached, first);
+        assertEquals(0, cached.getStockQuantity());
+        assertEquals("P-7", first.getSku());
+    }
+
+    @Test
+    void categoryCountsBeforeTheSnapshotIsBuiltKeepUncategorizedProducts() {
+        when(catalogSnapshot.countByCategory(null)).thenReturn(null);
+        when(productRepository.countProductsGroupedByCategory())
+                .thenReturn(List.of(categoryCount(null, 2L), categoryCount("parts", 3L)));
+
+        assertEquals(Map.of("", 2L, "parts", 3L), productService.getProductCountByCategory());
+    }
+
+    private static ProductRepository.CategoryCount categoryCount(String category, Long count) {
+        return new ProductRepository.CategoryCount() {
+            public String getCategory() { return category; }
+            public Long getProductCount() { return count; }
+        };
+    }
+
+    private static ProductSearchIndex.Hit hit(long productId, float score) {
+        return new ProductSearchIndex.Hit(productId, score);
+    }
+
+    private static List<Product> products(long... ids) {
+        return Arrays.stream(ids).mapToObj(id -> product(id, 10)).collect(Collectors.toList());
+    }
+
+    private static Product product(long id, int stock) {
+        Product product = new Product("Part " + id, "P-" + id, stock, 2, new BigDecimal("1.50"), "parts");
+        product.setId(id);
+        return product;
+    }
+
+    private static List<Long> ids(CursorPage<Product> page) {
+        return page.getItems().stream().map(Product::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.inventory.service;
+
+import com.example.inventory.dto.ProductSuggestion;
+import com.example.inventory.event.ProductChangedEvent;
+import com.example.inventory.model.Product;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ProductSuggesterTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+
+    @Test
+    void skuMatchesComeFirstWithShorterKeysAheadOfLongerOnes() throws Exception {
+        ProductSuggester suggester = built(Long.MAX_VALUE,
+                row(1, "AB-10", "Widget"), row(2, "AB-1", "Bolt"), row(3, "AB-2", "ab mount"),
+                row(4, "ZZ-1", "Abrasive pad"), row(5, "CD-1", "Clamp"));
+
+        assertEquals(List.of(2L, 1L, 3L, 4L), ids(suggester.suggest("Ab", 10)));
+        assertEquals(List.of(2L, 1L), ids(suggester.suggest("ab", 2)));
+        assertEquals(List.of(2L, 1L), ids(suggester.suggest("ab-1", 10)));
+        assertEquals(List.of(), ids(suggester.suggest("ab-3", 10)));
+    }
+
+    @Test
+    void savesAndDeletesMoveProductsBetweenPrefixes() throws Exception {
+        ProductSuggester suggester = built(Long.MAX_VALUE, row(1, "AB-10", "Widget"), row(2, "AB-11", "Bolt"));
+
+        suggester.onProductChanged(ProductChangedEvent.saved(product(1, "XY-10", "Widget")));
+        suggester.onProductChanged(ProductChangedEvent.deleted(2L));
+
+        assertEquals(List.of(), ids(suggester.suggest("ab", 10)));
+        assertEquals(List.of(1L), ids(suggester.suggest("xy-1", 10)));
+        assertEquals("XY-10", suggester.suggest("wid", 10).get(0).getSku());
+    }
+
+    @Test
+    void catalogPastTheSizeLimitLeavesSuggestionsToTheDatabase() throws Exception {
+        ProductSuggester suggester = built(1, row(1, "AB-10", "Widget"), row(2, "AB-11", "Bolt"));
+
+        assertFalse(suggester.isReady());
+        assertThrows(IllegalStateException.class, () -> suggester.suggest("ab", 10));
+    }
+
+    private ProductSuggester built(long maxBytes, Object[]... rows) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        doAnswer(call -> {
+            RowCallbackHandler handler = call.getArgument(1);
+            for (Object[] row : rows) {
+                when(rs.getLong(1)).thenReturn((Long) row[0]);
+                when(rs.getString(2)).thenReturn((String) row[1]);
+                when(rs.getString(3)).thenReturn((String) row[2]);
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(jdbcTemplate).query(startsWith("SELECT id, sku, name"), any(RowCallbackHandler.class));
+        ProductSuggester suggester = new ProductSuggester(jdbcTemplate, maxBytes);
+        suggester.rebuild();
+        return suggester;
+    }
+
+    private static Object[] row(long id, String sku, String name) {
+        return new Object[]{id, sku, name};
+    }
+
+    private static Product product(long id, String sku, String name) {
+        Product product = new Product(name, sku, 10, 2, new BigDecimal("1.50"), "parts");
+        product.setId(id);
+        return product;
+    }
+
+    private static List<Long> ids(List<ProductSuggestion> suggestions) {
+        return suggestions.stream().map(ProductSuggestion::getId).collect(Collectors.toList());
+    }
+}
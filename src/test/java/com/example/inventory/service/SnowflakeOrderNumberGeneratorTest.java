@@ -0,0 +1,126 @@
+package com.example.inventory.service;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnowflakeOrderNumberGeneratorTest {
+
+    private static final long NOW = SnowflakeOrderNumberGenerator.EPOCH_MS + 86_400_000L;
+
+    @Test
+    void idsAreUniqueAcrossThreadsAndIncreaseWithinEach() throws Exception {
+        SnowflakeOrderNumberGenerator generator = new SnowflakeOrderNumberGenerator(7, System::currentTimeMillis);
+        generateConcurrently(generator, 4, 50_000);
+    }
+
+    // Excluded from a plain `mvn test`; run with -Pbenchmark
+    @Test
+    @Tag("benchmark")
+    void sustainsOverOneHundredThousandIdsPerSecondAcrossThreads() throws Exception {
+        SnowflakeOrderNumberGenerator generator = new SnowflakeOrderNumberGenerator(7, System::currentTimeMillis);
+
+        // Warm-up, so the measured run is compiled code
+        for (int i = 0; i < 200_000; i++) {
+            generator.nextId();
+        }
+
+        long started = System.nanoTime();
+        long generated = generateConcurrently(generator, 8, 250_000);
+        double idsPerSecond = generated * 1_000_000_000.0 / (System.nanoTime() - started);
+        assertTrue(idsPerSecond > 100_000, "throughput was " + idsPerSecond + " ids/s");
+    }
+
+    // Checks uniqueness and per-thread order; returns the number of ids generated
+    private static long generateConcurrently(SnowflakeOrderNumberGenerator generator, int threads, int perThread)
+            throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<long[]>> results = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            results.add(pool.submit(() -> {
+                long[] ids = new long[perThread];
+                start.await();
+                for (int i = 0; i < perThread; i++) {
+                    ids[i] = generator.nextId();
+                }
+                return ids;
+            }));
+        }
+        start.countDown();
+        long[] all = new long[threads * perThread];
+        try {
+            for (int t = 0; t < threads; t++) {
+                long[] ids = results.get(t).get(60, TimeUnit.SECONDS);
+                for (int i = 1; i < ids.length; i++) {
+                    assertTrue(ids[i] > ids[i - 1], "ids from one thread must increase");
+                }
+                System.arraycopy(ids, 0, all, t * perThread, perThread);
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        Arrays.sort(all);
+        for (int i = 1; i < all.length; i++) {
+            assertNotEquals(all[i - 1], all[i], "duplicate id");
+        }
+        return all.length;
+    }
+
+    @Test
+    void keepsIncreasingWhenTheSequenceOfAMillisecondRunsOut() {
+        SnowflakeOrderNumberGenerator generator = new SnowflakeOrderNumberGenerator(1, () -> NOW);
+        long previous = generator.nextId();
+        for (int i = 0; i < 10_000; i++) {
+            long id = generator.nextId();
+            assertTrue(id > previous);
+            previous = id;
+        }
+    }
+
+    @Test
+    void keepsIncreasingWhenTheClockStepsBack() {
+        AtomicLong clock = new AtomicLong(NOW);
+        SnowflakeOrderNumberGenerator generator = new SnowflakeOrderNumberGenerator(1, clock::get);
+        long beforeStep = generator.nextId();
+        clock.set(NOW - 5_000);
+        assertTrue(generator.nextId() > beforeStep);
+    }
+
+    @Test
+    void differentNodesNeverCollideOnTheSameClock() {
+        SnowflakeOrderNumberGenerator first = new SnowflakeOrderNumberGenerator(1, () -> NOW);
+        SnowflakeOrderNumberGenerator second = new SnowflakeOrderNumberGenerator(2, () -> NOW);
+        long[] ids = new long[20_000];
+        for (int i = 0; i < ids.length; i += 2) {
+            ids[i] = first.nextId();
+            ids[i + 1] = second.nextId();
+        }
+        assertEquals(ids.length, Arrays.stream(ids).distinct().count());
+    }
+
+    @Test
+    void formatsAsOrderNumberAndRejectsOutOfRangeNodes() {
+        assertTrue(new SnowflakeOrderNumberGenerator(0, () -> NOW).next().matches("ORD-\\d+"));
+        assertThrows(IllegalArgumentException.class,
+                () -> new SnowflakeOrderNumberGenerator(SnowflakeOrderNumberGenerator.MAX_NODE_ID + 1, () -> NOW));
+    }
+
+    @Test
+    void refusesToStartWithoutAnExplicitNodeId() {
+        // -1 is what an unset inventory.order-number.node-id resolves to
+        assertThrows(IllegalStateException.class, () -> new SnowflakeOrderNumberGenerator(-1));
+    }
+}
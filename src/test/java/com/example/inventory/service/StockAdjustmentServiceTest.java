@@ -0,0 +1,110 @@
+package com.example.inventory.service;
+
+import com.example.inventory.dto.StockAdjustment;
+import com.example.inventory.dto.StockAdjustmentResult;
+import com.example.inventory.event.StockChangedEvent;
+import com.example.inventory.exception.StockAdjustmentException;
+import com.example.inventory.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class StockAdjustmentServiceTest {
+
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final StockEngine stockEngine = mock(StockEngine.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private final StockAdjustmentService service = new StockAdjustmentService(productRepository, stockEngine,
+            new TransactionTemplate(mock(PlatformTransactionManager.class)), eventPublisher);
+
+    // The engine's locked quantities; written only if the plan returns
+    private final Map<Long, Integer> stock = new HashMap<>(Map.of(1L, 5, 2L, 10));
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void stubEngine() {
+        when(productRepository.findSkuIds(any(), any())).thenReturn(List.of(skuId(1L, "A-1"), skuId(2L, "B-2")));
+        doAnswer(call -> {
+            Collection<Long> ids = call.getArgument(0);
+            Function<Map<Long, Integer>, Map<Long, Integer>> plan = call.getArgument(1);
+            Map<Long, Integer> current = new LinkedHashMap<>();
+            ids.stream().filter(stock::containsKey).forEach(id -> current.put(id, stock.get(id)));
+            stock.putAll(plan.apply(current));
+            return null;
+        }).when(stockEngine).adjust(any(), any());
+    }
+
+    @Test
+    void oneShortLineRejectsTheWholeBatchAndEveryBadLineIsListed() {
+        List<StockAdjustment> lines = List.of(
+                delta(1L, null, -3),
+                delta(null, "b-2", -11),   // short
+                delta(9L, null, 4),        // missing
+                delta(1L, null, -3),       // short after line 1
+                delta(null, "B-2", 2));
+
+        StockAdjustmentException rejected = assertThrows(StockAdjustmentException.class, () -> service.adjust(lines));
+
+        assertEquals(List.of(
+                "2: Insufficient stock for B-2. Available: 10, Requested: 11",
+                "3: Product not found with ID: 9",
+                "4: Insufficient stock for A-1. Available: 2, Requested: 3"),
+                rejected.getLineErrors().stream()
+                        .map(error -> error.getLine() + ": " + error.getMessage())
+                        .collect(Collectors.toList()));
+        assertEquals(Map.of(1L, 5, 2L, 10), stock);
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void linesApplyInOrderAndEachProductIsWrittenOnce() {
+        List<StockAdjustmentResult> results = service.adjust(List.of(
+                delta(1L, null, -3),
+                new StockAdjustment(null, "b-2", null, 7),
+                delta(1L, null, 4)));
+
+        assertEquals(List.of("1:A-1:5>2", "2:B-2:10>7", "3:A-1:2>6"), results.stream()
+                .map(result -> result.getLine() + ":" + result.getSku() + ":" +
+                        result.getPreviousQuantity() + ">" + result.getQuantity())
+                .collect(Collectors.toList()));
+        assertEquals(Map.of(1L, 6, 2L, 7), stock);
+        verify(stockEngine, times(1)).adjust(any(), any());
+        verify(eventPublisher).publishEvent(argThat((Object event) ->
+                event instanceof StockChangedEvent changed && changed.getProductId() == 1L && changed.getQuantity() == 6));
+        verify(eventPublisher, times(2)).publishEvent(any(Object.class));
+    }
+
+    @Test
+    void malformedLinesAreRejectedBeforeAnyProductIsLocked() {
+        StockAdjustmentException rejected = assertThrows(StockAdjustmentException.class, () -> service.adjust(List.of(
+                new StockAdjustment(1L, "A-1", 1, null),
+                new StockAdjustment(2L, null, 1, 3),
+                new StockAdjustment(2L, null, null, -1))));
+
+        assertEquals(List.of(1, 2, 3), rejected.getLineErrors().stream()
+                .map(StockAdjustmentException.LineError::getLine)
+                .collect(Collectors.toList()));
+        verifyNoInteractions(stockEngine);
+    }
+
+    private static StockAdjustment delta(Long productId, String sku, int delta) {
+        return new StockAdjustment(productId, sku, delta, null);
+    }
+
+    private static ProductRepository.SkuId skuId(Long id, String sku) {
+        return new ProductRepository.SkuId() {
+            public Long getId() { return id; }
+            public String getSku() { return sku; }
+        };
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.inventory.service;
+
+import com.example.inventory.exception.OutOfStockException;
+import com.example.inventory.model.Product;
+import com.example.inventory.repository.ProductRepository;
+import com.example.inventory.repository.StockSlotRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class StockSlotServiceTest {
+
+    private static final long PRODUCT = 1L;
+
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final StockSlotRepository stockSlotRepository = mock(StockSlotRepository.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final StockSlotService slotService = new StockSlotService(productRepository, stockSlotRepository,
+            new TransactionTemplate(transactionManager));
+
+    @BeforeEach
+    void slotTheProduct() {
+        StockSlotRepository.SlotCount count = new StockSlotRepository.SlotCount() {
+            public Long getProductId() { return PRODUCT; }
+            public Long getSlotCount() { return 4L; }
+        };
+        when(stockSlotRepository.countSlotsByProduct()).thenReturn(List.of(count));
+        slotService.refreshSlottedProducts();
+    }
+
+    @Test
+    void reductionTakesFromOneSlotThatCoversIt() {
+        when(stockSlotRepository.claimSlot(eq(PRODUCT), anyInt(), anyInt(), eq(3))).thenReturn(List.of(slot(2, 5)));
+        when(stockSlotRepository.sumSlots(PRODUCT)).thenReturn(12L);
+
+        assertEquals(12, slotService.reduceStock(PRODUCT, 3));
+
+        verify(stockSlotRepository).setSlotQuantity(PRODUCT, 2, 2);
+        verify(stockSlotRepository, never()).claimUnlockedSlots(any());
+    }
+
+    @Test
+    void reductionNoSlotCoversIsGatheredFromTheFreeSlotsInOrder() {
+        when(stockSlotRepository.claimUnlockedSlots(PRODUCT)).thenReturn(List.of(slot(0, 2), slot(1, 3), slot(3, 4)));
+
+        slotService.reduceStock(PRODUCT, 6);
+
+        verify(stockSlotRepository).setSlotQuantity(PRODUCT, 0, 0);
+        verify(stockSlotRepository).setSlotQuantity(PRODUCT, 1, 0);
+        verify(stockSlotRepository).setSlotQuantity(PRODUCT, 3, 3);
+        verify(stockSlotRepository, never()).lockSlots(any());
+    }
+
+    @Test
+    void shortageAcrossTheFreeSlotsChangesNoSlot() {
+        when(productRepository.findById(PRODUCT)).thenReturn(Optional.of(product()));
+        when(stockSlotRepository.claimUnlockedSlots(PRODUCT)).thenReturn(List.of(slot(0, 2), slot(1, 3)));
+        when(stockSlotRepository.sumSlots(PRODUCT)).thenReturn(5L);
+
+        OutOfStockException shortage = assertThrows(OutOfStockException.class, () -> slotService.reduceStock(PRODUCT, 6));
+
+        assertTrue(shortage.getMessage().contains("Available: 5"), shortage.getMessage());
+        verify(stockSlotRepository, never()).setSlotQuantity(anyLong(), anyInt(), anyInt());
+    }
+
+    @Test
+    void productDemotedByAnotherInstanceIsReducedOnItsRow() {
+        // No slot rows left to claim, and the row says it is back in row mode
+        when(productRepository.findByIdForUpdate(PRODUCT)).thenReturn(Optional.of(product()));
+        when(productRepository.decrementStockIfAvailable(PRODUCT, 3)).thenReturn(1);
+        when(productRepository.lastStockQuantity()).thenReturn(7L);
+
+        assertEquals(7, slotService.reduceStock(PRODUCT, 3));
+
+        assertFalse(slotService.isSlotted(PRODUCT));
+        verify(stockSlotRepository, never()).setSlotQuantity(anyLong(), anyInt(), anyInt());
+    }
+
+    @Test
+    void stockSetOnADemotedProductGoesToItsRow() {
+        when(productRepository.findByIdForUpdate(PRODUCT)).thenReturn(Optional.of(product()));
+        when(productRepository.setStock(PRODUCT, 40)).thenReturn(1);
+
+        slotService.setStock(PRODUCT, 40);
+
+        verify(productRepository).setStock(PRODUCT, 40);
+    }
+
+    @Test
+    void syncWritesOnlyDriftedTotalsEachInItsOwnTransaction() {
+        when(stockSlotRepository.findDriftedSlotTotals()).thenReturn(List.of(total(1L, 9), total(5L, 0)));
+
+        slotService.syncSlottedStockTotals();
+
+        verify(productRepository).setSlottedStockMirror(1L, 9);
+        verify(productRepository).setSlottedStockMirror(5L, 0);
+        verify(transactionManager, times(2)).commit(any());
+    }
+
+    private static Product product() {
+        Product product = new Product("Widget", "W-1", 10, 1, new BigDecimal("2.00"), "parts");
+        product.setId(PRODUCT);
+        return product;
+    }
+
+    private static StockSlotRepository.SlotQuantity slot(int slotNo, int quantity) {
+        return new StockSlotRepository.SlotQuantity() {
+            public Integer getSlotNo() { return slotNo; }
+            public Integer getQuantity() { return quantity; }
+        };
+    }
+
+    private static StockSlotRepository.SlotTotal total(Long productId, long total) {
+        return new StockSlotRepository.SlotTotal() {
+            public Long getProductId() { return productId; }
+            public Long getTotal() { return total; }
+        };
+    }
+}